@@ -0,0 +1,94 @@
+package com.riiablo.file;
+
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+/**
+ * Measures reading and decoding every direction of a synthetic DC6 using
+ * {@link Dc6Decoder}, including allocating the pixmap of each frame.
+ *
+ * @see SyntheticDc6
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class Dc6DecoderBenchmark {
+  @Param({"8"})
+  int numDirections;
+
+  @Param({"16"})
+  int numFrames;
+
+  @Param({"64", "128"})
+  int size;
+
+  @Param({"0.25"})
+  float transparency;
+
+  File file;
+  byte[] bytes;
+  Dc6 dc6;
+  final Dc6Decoder decoder = new Dc6Decoder();
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    GdxNativesLoader.load();
+    bytes = new SyntheticDc6()
+        .directions(numDirections)
+        .frames(numFrames)
+        .size(size, size)
+        .transparency(transparency)
+        .toByteArray(new Random(0));
+    file = File.createTempFile("riiablo-bench", ".dc6");
+    FileUtils.writeByteArrayToFile(file, bytes);
+    final FileHandle handle = new FileHandle(file);
+    try (InputStream in = handle.read()) {
+      dc6 = Dc6.read(handle, in);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    dc6.dispose();
+    file.delete();
+  }
+
+  @Benchmark
+  public void decode(Blackhole bh) {
+    final Dc6 dc6 = this.dc6;
+    for (int d = 0; d < numDirections; d++) {
+      final int offset = dc6.dirOffset(d);
+      dc6.read(Unpooled.wrappedBuffer(bytes, offset, dc6.dirOffset(d + 1) - offset), d);
+      decoder.decode(dc6, d);
+      bh.consume(dc6.directions[d].pixmap);
+      dc6.directions[d].dispose();
+      dc6.directions[d] = null;
+      dc6.release(); // Dc#read retains for each direction
+    }
+  }
+}
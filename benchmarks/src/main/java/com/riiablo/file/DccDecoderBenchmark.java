@@ -0,0 +1,134 @@
+package com.riiablo.file;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+/**
+ * Measures reading and decoding every direction of a synthetic DCC using
+ * {@link DccDecoder}, including allocating the pixmap of each frame, against
+ * decoding every direction concurrently into a pooled buffer.
+ *
+ * @see SyntheticDcc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DccDecoderBenchmark {
+  @Param({"8"})
+  int numDirections;
+
+  @Param({"16"})
+  int numFrames;
+
+  @Param({"64", "128"})
+  int size;
+
+  @Param({"0.25"})
+  float changedCells;
+
+  File file;
+  byte[] bytes;
+  Dcc dcc;
+  final DccDecoder decoder = new DccDecoder();
+  EventExecutorGroup group;
+  int[] directions;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    GdxNativesLoader.load();
+    bytes = new SyntheticDcc()
+        .directions(numDirections)
+        .frames(numFrames)
+        .size(size, size)
+        .changedCells(changedCells)
+        .toByteArray(new Random(0));
+    file = File.createTempFile("riiablo-bench", ".dcc");
+    FileUtils.writeByteArrayToFile(file, bytes);
+    final FileHandle handle = new FileHandle(file);
+    try (InputStream in = handle.read()) {
+      dcc = Dcc.read(handle, in);
+    }
+
+    group = new DefaultEventExecutorGroup(4);
+    directions = new int[numDirections];
+    for (int d = 0; d < numDirections; d++) directions[d] = d;
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    group.shutdownGracefully().syncUninterruptibly();
+    dcc.dispose();
+    file.delete();
+  }
+
+  @Benchmark
+  public void decode(Blackhole bh) {
+    final Dcc dcc = this.dcc;
+    for (int d = 0; d < numDirections; d++) {
+      final int offset = dcc.dirOffset(d);
+      dcc.read(Unpooled.wrappedBuffer(bytes, offset, dcc.dirOffset(d + 1) - offset), d);
+      decoder.decode(dcc, d);
+      bh.consume(dcc.directions[d].pixmap);
+      dcc.directions[d].dispose();
+      dcc.directions[d] = null;
+      dcc.release(); // Dc#read retains for each direction
+    }
+  }
+
+  @Benchmark
+  public void decodeAsync(Blackhole bh) {
+    final Dcc dcc = this.dcc;
+    int length = 0;
+    for (int d = 0; d < numDirections; d++) {
+      final int offset = dcc.dirOffset(d);
+      dcc.read(Unpooled.wrappedBuffer(bytes, offset, dcc.dirOffset(d + 1) - offset), d);
+      length += DccDecoder.directionSize(dcc, d);
+    }
+
+    final ByteBuf pixels = PooledByteBufAllocator.DEFAULT.directBuffer(length);
+    try {
+      DccDecoder
+          .decodeAsync(group, ImmediateEventExecutor.INSTANCE.<Dcc>newPromise(), dcc, directions, pixels)
+          .syncUninterruptibly();
+      bh.consume(pixels);
+    } finally {
+      pixels.release();
+    }
+
+    for (int d = 0; d < numDirections; d++) {
+      dcc.directions[d].dispose();
+      dcc.directions[d] = null;
+      dcc.release(); // Dc#read retains for each direction
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.riiablo.file;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Writes synthetic DC6 files which can be read by {@link Dc6} and decoded by
+ * {@link Dc6Decoder}. Game data cannot be distributed, so benchmarks generate
+ * sprites with random runs of transparent and opaque pixels instead.
+ */
+public final class SyntheticDc6 {
+  static final int SIGNATURE = 6;
+  static final int VERSION = 1;
+  static final int FORMAT = 0;
+  static final int SECTION = 0xEEEEEEEE;
+  static final int FRAME_HEADER_SIZE = 0x20;
+
+  static final int EOL = 0x80;
+  static final int TRANSPARENT = 0x80;
+  static final int MAX_RUN = 0x7f;
+
+  int numDirections = 1;
+  int numFrames = 1;
+  int width = 64;
+  int height = 64;
+  float transparency = 0.25f;
+
+  public SyntheticDc6 directions(int numDirections) {
+    this.numDirections = numDirections;
+    return this;
+  }
+
+  public SyntheticDc6 frames(int numFrames) {
+    this.numFrames = numFrames;
+    return this;
+  }
+
+  public SyntheticDc6 size(int width, int height) {
+    if (width > Dc6.PAGE_SIZE || height > Dc6.PAGE_SIZE) {
+      throw new IllegalArgumentException(
+          "width(" + width + ") and height(" + height + ") must be <= " + Dc6.PAGE_SIZE);
+    }
+
+    this.width = width;
+    this.height = height;
+    return this;
+  }
+
+  /** @param transparency chance a run of pixels is transparent */
+  public SyntheticDc6 transparency(float transparency) {
+    this.transparency = transparency;
+    return this;
+  }
+
+  public byte[] toByteArray(Random random) {
+    final int totalFrames = numDirections * numFrames;
+    final byte[][] frames = new byte[totalFrames][];
+    for (int i = 0; i < totalFrames; i++) frames[i] = frame(random);
+
+    final int headerSize = 0x18 + (totalFrames << 2);
+    final ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(SIGNATURE);
+    header.putInt(VERSION);
+    header.putInt(FORMAT);
+    header.putInt(SECTION);
+    header.putInt(numDirections);
+    header.putInt(numFrames);
+    int offset = headerSize;
+    for (byte[] frame : frames) {
+      header.putInt(offset);
+      offset += frame.length;
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(offset);
+    out.write(header.array(), 0, headerSize);
+    for (int i = 0; i < totalFrames; i++) {
+      // nextOffset is unused by Dc6, but is written for consistency
+      ByteBuffer.wrap(frames[i]).order(ByteOrder.LITTLE_ENDIAN)
+          .putInt(0x18, out.size() + frames[i].length);
+      out.write(frames[i], 0, frames[i].length);
+    }
+
+    return out.toByteArray();
+  }
+
+  byte[] frame(Random random) {
+    final ByteArrayOutputStream data = new ByteArrayOutputStream(width * height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width;) {
+        final int run = 1 + random.nextInt(Math.min(width - x, MAX_RUN));
+        if (random.nextFloat() < transparency) {
+          data.write(TRANSPARENT | run);
+        } else {
+          data.write(run);
+          for (int i = 0; i < run; i++) data.write(1 + random.nextInt(0xff));
+        }
+
+        x += run;
+      }
+
+      data.write(EOL);
+    }
+
+    final int length = data.size();
+    final ByteBuffer frame = ByteBuffer
+        .allocate(FRAME_HEADER_SIZE + length)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    frame.putInt(0); // flipY
+    frame.putInt(width);
+    frame.putInt(height);
+    frame.putInt(0); // xOffset
+    frame.putInt(height); // yOffset
+    frame.putInt(0); // unk0
+    frame.putInt(0); // nextOffset, see #toByteArray
+    frame.putInt(length);
+    frame.put(data.toByteArray());
+    return frame.array();
+  }
+}
@@ -0,0 +1,230 @@
+package com.riiablo.file;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+import java.util.Random;
+
+import com.riiablo.codec.Palette;
+import com.riiablo.file.Dcc.DccDirection;
+
+/**
+ * Writes synthetic DCC files which can be read by {@link Dcc} and decoded by
+ * {@link DccDecoder}. Game data cannot be distributed, so benchmarks generate
+ * sprites with random (but valid) cell contents instead.
+ * <p/>
+ * Every frame of a direction shares the same box, s.t., cells are always
+ * 4x4 and aligned to the direction buffer. The first frame encodes every
+ * cell, and subsequent frames either reuse cells from the previous frame
+ * ({@link DccDirection#CompressEqualCells}) or replace a random subset of
+ * their pixels. Pixel codes are always encoded as displacements, i.e.,
+ * {@link DccDirection#HasRawPixelEncoding} is not used.
+ */
+public final class SyntheticDcc {
+  static final byte SIGNATURE = 0x74;
+  static final byte VERSION = 0x06;
+
+  static final int WIDTH_BITS = 6; // Dcc.ENCODED_BITS[6] = 10 bits
+  static final int HEIGHT_BITS = 6; // Dcc.ENCODED_BITS[6] = 10 bits
+  static final int Y_OFFSET_BITS = 7; // Dcc.ENCODED_BITS[7] = 12 bits (signed)
+
+  /**
+   * pixel codes are stored as signed bytes by the decoder before they are
+   * mapped to palette indexes, so only codes less than this are safe
+   */
+  static final int MAX_PIXEL_CODE = 0x80;
+
+  int numDirections = 1;
+  int numFrames = 1;
+  int width = 64;
+  int height = 64;
+  float changedCells = 0.25f;
+
+  public SyntheticDcc directions(int numDirections) {
+    this.numDirections = numDirections;
+    return this;
+  }
+
+  public SyntheticDcc frames(int numFrames) {
+    this.numFrames = numFrames;
+    return this;
+  }
+
+  /** @param width multiple of 4 */
+  public SyntheticDcc size(int width, int height) {
+    if ((width & 0x3) != 0 || (height & 0x3) != 0) {
+      throw new IllegalArgumentException("width(" + width + ") and height(" + height + ") must be multiples of 4");
+    }
+
+    this.width = width;
+    this.height = height;
+    return this;
+  }
+
+  /** @param changedCells chance a cell changes between consecutive frames */
+  public SyntheticDcc changedCells(float changedCells) {
+    this.changedCells = changedCells;
+    return this;
+  }
+
+  public byte[] toByteArray(Random random) {
+    final byte[][] directions = new byte[numDirections][];
+    for (int d = 0; d < numDirections; d++) {
+      directions[d] = direction(random);
+    }
+
+    final int headerSize = 15 + (numDirections << 2);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(headerSize);
+    final ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+    header.put(SIGNATURE);
+    header.put(VERSION);
+    header.put((byte) numDirections);
+    header.putInt(numFrames);
+    header.putInt(1); // tag
+    int uncompressedSize = 0;
+    for (byte[] direction : directions) uncompressedSize += direction.length;
+    header.putInt(uncompressedSize);
+    int offset = headerSize;
+    for (byte[] direction : directions) {
+      header.putInt(offset);
+      offset += direction.length;
+    }
+
+    out.write(header.array(), 0, headerSize);
+    for (byte[] direction : directions) out.write(direction, 0, direction.length);
+    return out.toByteArray();
+  }
+
+  byte[] direction(Random random) {
+    final int cellsW = width >>> 2;
+    final int cellsH = height >>> 2;
+    final int numCells = cellsW * cellsH;
+    final int compressionFlags = numFrames > 1 ? DccDirection.CompressEqualCells : 0;
+
+    final Bits equalCells = new Bits();
+    final Bits pixelMasks = new Bits();
+    final Bits pixelCodes = new Bits(); // consumed by DccDecoder#decodeFrames
+    final Bits pixelIndexes = new Bits(); // consumed by DccDecoder#buildFrames
+
+    // pixels of the last cell enqueued for each direction cell
+    final int[][] lastPixels = new int[numCells][];
+    final int[] codes = new int[4];
+    for (int f = 0; f < numFrames; f++) {
+      for (int c = 0; c < numCells; c++) {
+        final int[] last = lastPixels[c];
+        final int pixelMask;
+        if (last != null) {
+          final boolean equalCell = random.nextFloat() >= changedCells;
+          equalCells.write(equalCell ? 1 : 0, 1);
+          if (equalCell) continue;
+          pixelMask = random.nextInt(0x10);
+          pixelMasks.write(pixelMask, 4);
+        } else {
+          pixelMask = 0xf;
+        }
+
+        // strictly increasing pixel codes, terminated by a repeated code
+        final int numPixels = Integer.bitCount(pixelMask);
+        int decodedPixels = 0;
+        int lastCode = 0;
+        for (; decodedPixels < numPixels; decodedPixels++) {
+          final int remaining = MAX_PIXEL_CODE - 1 - lastCode;
+          if (remaining <= 0 || random.nextInt(8) == 0) {
+            pixelCodes.write(0, 4); // displacement of 0 repeats the last code
+            break;
+          }
+
+          final int code = lastCode + 1 + random.nextInt(Math.min(remaining, 0x20));
+          writeDisplacement(pixelCodes, code - lastCode);
+          codes[decodedPixels] = lastCode = code;
+        }
+
+        // mirrors DccDecoder.PixelBuffer#enqueue
+        final int[] pixels = new int[4];
+        for (int i = 0, stackPtr = decodedPixels; i < 4; i++) {
+          if ((pixelMask & (1 << i)) != 0) {
+            pixels[i] = stackPtr > 0 ? codes[--stackPtr] : 0;
+          } else {
+            pixels[i] = last[i];
+          }
+        }
+
+        lastPixels[c] = pixels;
+
+        // mirrors DccDecoder#buildFrame
+        if (pixels[0] == pixels[1]) continue;
+        final int bits = pixels[1] == pixels[2] ? 1 : 2;
+        for (int i = 0; i < 16; i++) pixelIndexes.write(random.nextInt(1 << bits), bits);
+      }
+    }
+
+    final Bits out = new Bits();
+    out.write(0, 32); // uncompressedSize, rewritten below
+    out.write(compressionFlags, 2);
+    out.write(0, 4); // variable0Bits
+    out.write(WIDTH_BITS, 4);
+    out.write(HEIGHT_BITS, 4);
+    out.write(0, 4); // xOffsetBits
+    out.write(Y_OFFSET_BITS, 4);
+    out.write(0, 4); // extraBytesBits
+    out.write(0, 4); // compressedBytesBits
+    for (int f = 0; f < numFrames; f++) {
+      out.write(width, Dcc.ENCODED_BITS[WIDTH_BITS]);
+      out.write(height, Dcc.ENCODED_BITS[HEIGHT_BITS]);
+      out.write(height, Dcc.ENCODED_BITS[Y_OFFSET_BITS]); // box.yMin = yOffset - height = 0
+      out.write(0, 1); // flipY
+    }
+
+    if ((compressionFlags & DccDirection.CompressEqualCells) == DccDirection.CompressEqualCells) {
+      out.write(equalCells.size, 20);
+    }
+
+    out.write(pixelMasks.size, 20);
+    for (int i = 0; i < Palette.COLORS; i++) out.write(1, 1); // pixelValues[i] = i
+    out.append(equalCells);
+    out.append(pixelMasks);
+    out.append(pixelCodes);
+    out.append(pixelIndexes);
+
+    final byte[] bytes = out.toByteArray();
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(0, bytes.length);
+    return bytes;
+  }
+
+  /** displacements of 0xf continue into the next displacement */
+  static void writeDisplacement(Bits out, int displacement) {
+    assert displacement > 0;
+    while (displacement >= 0xf) {
+      out.write(0xf, 4);
+      displacement -= 0xf;
+    }
+
+    out.write(displacement, 4);
+  }
+
+  /** LSB-first bit stream matching the bit order consumed by BitInput */
+  static final class Bits {
+    final BitSet bits = new BitSet();
+    int size;
+
+    void write(long value, int numBits) {
+      for (int i = 0; i < numBits; i++, size++) {
+        if ((value & (1L << i)) != 0) bits.set(size);
+      }
+    }
+
+    void append(Bits other) {
+      for (int i = 0; i < other.size; i++, size++) {
+        if (other.bits.get(i)) bits.set(size);
+      }
+    }
+
+    byte[] toByteArray() {
+      final byte[] bytes = new byte[(size + Byte.SIZE - 1) / Byte.SIZE];
+      final byte[] set = bits.toByteArray();
+      System.arraycopy(set, 0, bytes, 0, set.length);
+      return bytes;
+    }
+  }
+}
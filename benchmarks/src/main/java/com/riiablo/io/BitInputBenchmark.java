@@ -0,0 +1,107 @@
+package com.riiablo.io;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading an entire random bit stream using {@link BitInput}, either
+ * as fixed-width fields or as the variable-width fields typical of item and
+ * stat lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BitInputBenchmark {
+  @Param({"65536"})
+  int numBytes;
+
+  @Param({"1", "7", "31"})
+  int bits;
+
+  byte[] bytes;
+  int[] widths;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final Random random = new Random(0);
+    bytes = new byte[numBytes];
+    random.nextBytes(bytes);
+
+    // variable widths in [1,31] which sum to fit within numBytes
+    final long numBits = (long) numBytes * Byte.SIZE;
+    final int[] widths = new int[numBytes * Byte.SIZE];
+    int size = 0;
+    for (long bitsRemaining = numBits; ; size++) {
+      final int width = 1 + random.nextInt(31);
+      if (width > bitsRemaining) break;
+      widths[size] = width;
+      bitsRemaining -= width;
+    }
+
+    this.widths = Arrays.copyOf(widths, size);
+  }
+
+  @Benchmark
+  public long readFixed() {
+    final BitInput in = BitInput.wrap(bytes);
+    final int bits = this.bits;
+    long sum = 0;
+    for (long i = 0, s = in.bitsRemaining() / bits; i < s; i++) {
+      sum += in.read31u(bits);
+    }
+
+    return sum;
+  }
+
+  @Benchmark
+  public long readVariable() {
+    final BitInput in = BitInput.wrap(bytes);
+    final int[] widths = this.widths;
+    long sum = 0;
+    for (int i = 0, s = widths.length; i < s; i++) {
+      sum += in.read31u(widths[i]);
+    }
+
+    return sum;
+  }
+
+  @Benchmark
+  public long readSigned() {
+    final BitInput in = BitInput.wrap(bytes);
+    final int bits = this.bits + 1;
+    long sum = 0;
+    for (long i = 0, s = in.bitsRemaining() / bits; i < s; i++) {
+      sum += in.read32(bits);
+    }
+
+    return sum;
+  }
+
+  @Benchmark
+  public long readRaw() {
+    final BitInput in = BitInput.wrap(bytes);
+    final int bits = this.bits;
+    long sum = 0;
+    for (long i = 0, s = in.bitsRemaining() / bits; i < s; i++) {
+      sum += in.readRaw(bits);
+    }
+
+    return sum;
+  }
+}
@@ -0,0 +1,63 @@
+package com.riiablo.logger;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.riiablo.logger.AsyncOutputStreamAppender.OverflowPolicy;
+
+/**
+ * Measures the number of events per second which several threads can log
+ * through an {@link AsyncOutputStreamAppender} writing to a null stream with
+ * each {@link OverflowPolicy}. The ring buffer is kept small, s.t., producers
+ * regularly outpace the worker and the overflow policy is exercised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AsyncAppenderBenchmark {
+  @Param({"BLOCK", "DROP_LOWEST_LEVEL", "SAMPLE"})
+  OverflowPolicy overflowPolicy;
+
+  @Param({"1024"})
+  int capacity;
+
+  AsyncOutputStreamAppender appender;
+  Logger log;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    appender = new AsyncOutputStreamAppender(
+        NullOutputStream.NULL_OUTPUT_STREAM, capacity, overflowPolicy);
+    log = new Logger(AsyncAppenderBenchmark.class.getName());
+    log.level(com.riiablo.logger.Level.TRACE);
+    log.addAppender(appender);
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    System.out.printf("%nqueued: %d, dropped: %d%n", appender.queued(), appender.dropped());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void debug() {
+    log.debug("value {}", 42);
+  }
+}
@@ -0,0 +1,70 @@
+package com.riiablo.logger;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the number of events per second logged with each
+ * {@link LocationCapture} mode. Events are encoded and written to a null
+ * stream, s.t., the cost of capturing the location is measured relative to
+ * the rest of the log call. Each benchmark logs from a few frames deep to
+ * approximate the stack depth of a typical call site.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggerLocationBenchmark {
+  @Param({"NONE", "CACHED", "FULL"})
+  LocationCapture locationCapture;
+
+  Logger log;
+  int value;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final SimpleEncoder encoder = new SimpleEncoder();
+    encoder.setLocationCapture(locationCapture);
+    log = new Logger(LoggerLocationBenchmark.class.getName());
+    log.level(com.riiablo.logger.Level.TRACE);
+    log.addAppender(new Appender() {
+      @Override
+      public void append(LogEvent event) {
+        encoder.encode(event, NullOutputStream.NULL_OUTPUT_STREAM);
+        event.release();
+      }
+
+      @Override
+      public Encoder encoder() {
+        return encoder;
+      }
+    });
+  }
+
+  @Benchmark
+  public void trace() {
+    depth(8);
+  }
+
+  void depth(int depth) {
+    if (depth > 0) {
+      depth(depth - 1);
+    } else {
+      log.trace("value {}", value++);
+    }
+  }
+}
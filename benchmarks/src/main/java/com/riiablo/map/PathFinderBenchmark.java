@@ -0,0 +1,169 @@
+package com.riiablo.map;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+
+import com.riiablo.map.pfa.AStarPathFinder;
+import com.riiablo.map.pfa.GraphPath;
+import com.riiablo.map.pfa.HierarchicalPathFinder;
+import com.riiablo.map.pfa.IntAStarPathFinder;
+import com.riiablo.map.pfa.JPSPathFinder;
+
+/**
+ * Measures searching for paths between random pairs of walkable points within
+ * a synthetic zone of randomly placed obstacles using each path finder. Pairs
+ * are within the distance a monster would typically chase a player, s.t.,
+ * most searches complete within the expansion limit.
+ * <p/>
+ * {@link MapGraph} interns every node visited, so the first iterations of the
+ * {@link AStarPathFinder} and {@link JPSPathFinder} benchmarks are slower and
+ * should be excluded by warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PathFinderBenchmark {
+  static final int ZONE_SIZE = 400; // subtiles
+  static final int NUM_PAIRS = 256;
+  static final int MAX_DISTANCE = 24; // subtiles
+
+  @Param({"0.1", "0.3"})
+  float obstacles;
+
+  @Param({"0", "2"})
+  int size;
+
+  Map map;
+  MapGraph graph;
+  AStarPathFinder astar;
+  JPSPathFinder jps;
+  IntAStarPathFinder intAStar;
+  HierarchicalPathFinder hierarchical;
+
+  final Vector2[] src = new Vector2[NUM_PAIRS];
+  final Vector2[] dst = new Vector2[NUM_PAIRS];
+  final GraphPath path = new GraphPath();
+  final IntArray packedPath = new IntArray();
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final Random random = new Random(0);
+    map = new Map(0, 0);
+    Map.Zone zone = new Map.Zone();
+    zone.map = map;
+    zone.width = ZONE_SIZE;
+    zone.height = ZONE_SIZE;
+    zone.flags = new byte[ZONE_SIZE * ZONE_SIZE];
+    // 3x3 obstacles, roughly the size of a tile's subtiles
+    final int numObstacles = (int) (obstacles * ZONE_SIZE * ZONE_SIZE / 9);
+    for (int i = 0; i < numObstacles; i++) {
+      final int x = random.nextInt(ZONE_SIZE - 2);
+      final int y = random.nextInt(ZONE_SIZE - 2);
+      for (int dy = 0; dy < 3; dy++) {
+        for (int dx = 0; dx < 3; dx++) {
+          zone.or(x + dx, y + dy, DT1.Tile.FLAG_BLOCK_WALK);
+        }
+      }
+    }
+
+    map.zones.add(zone);
+
+    graph = new MapGraph(map);
+    astar = new AStarPathFinder(graph);
+    jps = new JPSPathFinder(graph);
+    intAStar = new IntAStarPathFinder(map);
+    hierarchical = new HierarchicalPathFinder(map, new IntAStarPathFinder(map));
+    hierarchical.build();
+
+    for (int i = 0; i < NUM_PAIRS; i++) {
+      src[i] = randomWalkable(random, MAX_DISTANCE, ZONE_SIZE - MAX_DISTANCE);
+      dst[i] = randomWalkable(random, (int) src[i].x - MAX_DISTANCE, (int) src[i].x + MAX_DISTANCE,
+          (int) src[i].y - MAX_DISTANCE, (int) src[i].y + MAX_DISTANCE);
+    }
+  }
+
+  Vector2 randomWalkable(Random random, int min, int max) {
+    return randomWalkable(random, min, max, min, max);
+  }
+
+  Vector2 randomWalkable(Random random, int minX, int maxX, int minY, int maxY) {
+    int x, y;
+    do {
+      x = minX + random.nextInt(maxX - minX);
+      y = minY + random.nextInt(maxY - minY);
+    } while (map.flags(x, y) != 0);
+    return new Vector2(x, y);
+  }
+
+  @Benchmark
+  public int astar() {
+    int found = 0;
+    for (int i = 0; i < NUM_PAIRS; i++) {
+      if (graph.searchNodePath(astar, src[i], dst[i], DT1.Tile.FLAG_BLOCK_WALK, size, path)) found++;
+    }
+
+    return found;
+  }
+
+  @Benchmark
+  public int jps() {
+    int found = 0;
+    for (int i = 0; i < NUM_PAIRS; i++) {
+      if (graph.searchNodePath(jps, src[i], dst[i], DT1.Tile.FLAG_BLOCK_WALK, size, path)) found++;
+    }
+
+    return found;
+  }
+
+  @Benchmark
+  public int intAStar() {
+    int found = 0;
+    for (int i = 0; i < NUM_PAIRS; i++) {
+      final Vector2 src = this.src[i];
+      final Vector2 dst = this.dst[i];
+      if (intAStar.search(
+          (int) src.x, (int) src.y,
+          (int) dst.x, (int) dst.y,
+          DT1.Tile.FLAG_BLOCK_WALK, size, packedPath)) {
+        found++;
+      }
+    }
+
+    return found;
+  }
+
+  @Benchmark
+  public int hierarchical() {
+    int found = 0;
+    for (int i = 0; i < NUM_PAIRS; i++) {
+      final Vector2 src = this.src[i];
+      final Vector2 dst = this.dst[i];
+      if (hierarchical.search(
+          (int) src.x, (int) src.y,
+          (int) dst.x, (int) dst.y,
+          DT1.Tile.FLAG_BLOCK_WALK, size, packedPath)) {
+        found++;
+      }
+    }
+
+    return found;
+  }
+}
@@ -0,0 +1,162 @@
+package com.riiablo.map;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+
+import com.riiablo.map.pfa.AStarPathFinder;
+import com.riiablo.map.pfa.GraphPath;
+import com.riiablo.map.pfa.IntAStarPathFinder;
+
+/**
+ * Measures zone lookups and path finding within a synthetic act laid out
+ * like Act 1, i.e., a grid of outdoor sized zones, with and without the
+ * {@link ZoneIndex}. Zones are filled with randomly placed obstacles and
+ * pairs straddle zone borders s.t. searches cross between zones.
+ * <p/>
+ * Generating an actual act requires the game's data files, so this layout
+ * only approximates the number and size of the zones of Act 1.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ZoneIndexBenchmark {
+  static final int ZONES_X = 6;
+  static final int ZONES_Y = 5;
+  static final int ZONE_SIZE = 40 * DT1.Tile.SUBTILE_SIZE; // subtiles
+  static final float OBSTACLES = 0.1f;
+  static final int NUM_PAIRS = 256;
+  static final int NUM_LOOKUPS = 4096;
+  static final int MAX_DISTANCE = 24; // subtiles
+
+  @Param({"false", "true"})
+  boolean indexed;
+
+  Map map;
+  MapGraph graph;
+  AStarPathFinder astar;
+  IntAStarPathFinder intAStar;
+
+  final Vector2[] src = new Vector2[NUM_PAIRS];
+  final Vector2[] dst = new Vector2[NUM_PAIRS];
+  final int[] lookupX = new int[NUM_LOOKUPS];
+  final int[] lookupY = new int[NUM_LOOKUPS];
+  final GraphPath path = new GraphPath();
+  final IntArray packedPath = new IntArray();
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final Random random = new Random(0);
+    map = new Map(0, 0);
+    for (int zy = 0; zy < ZONES_Y; zy++) {
+      for (int zx = 0; zx < ZONES_X; zx++) {
+        Map.Zone zone = new Map.Zone();
+        zone.map = map;
+        zone.width = ZONE_SIZE;
+        zone.height = ZONE_SIZE;
+        zone.flags = new byte[ZONE_SIZE * ZONE_SIZE];
+        zone.setPosition(zx * ZONE_SIZE, zy * ZONE_SIZE);
+        // 3x3 obstacles, roughly the size of a tile's subtiles
+        final int numObstacles = (int) (OBSTACLES * ZONE_SIZE * ZONE_SIZE / 9);
+        for (int i = 0; i < numObstacles; i++) {
+          final int x = random.nextInt(ZONE_SIZE - 2);
+          final int y = random.nextInt(ZONE_SIZE - 2);
+          for (int dy = 0; dy < 3; dy++) {
+            for (int dx = 0; dx < 3; dx++) {
+              zone.or(x + dx, y + dy, DT1.Tile.FLAG_BLOCK_WALK);
+            }
+          }
+        }
+
+        map.zones.add(zone);
+      }
+    }
+
+    if (indexed) map.indexZones();
+
+    graph = new MapGraph(map);
+    astar = new AStarPathFinder(graph);
+    intAStar = new IntAStarPathFinder(map);
+
+    final int width = ZONES_X * ZONE_SIZE;
+    final int height = ZONES_Y * ZONE_SIZE;
+    for (int i = 0; i < NUM_PAIRS; i++) {
+      // centered on a vertical border between two zones
+      final int borderX = (1 + random.nextInt(ZONES_X - 1)) * ZONE_SIZE;
+      src[i] = randomWalkable(random,
+          borderX - MAX_DISTANCE, borderX,
+          MAX_DISTANCE, height - MAX_DISTANCE);
+      dst[i] = randomWalkable(random,
+          borderX, borderX + MAX_DISTANCE,
+          (int) src[i].y - MAX_DISTANCE, (int) src[i].y + MAX_DISTANCE);
+    }
+
+    for (int i = 0; i < NUM_LOOKUPS; i++) {
+      lookupX[i] = random.nextInt(width);
+      lookupY[i] = random.nextInt(height);
+    }
+  }
+
+  Vector2 randomWalkable(Random random, int minX, int maxX, int minY, int maxY) {
+    int x, y;
+    do {
+      x = minX + random.nextInt(maxX - minX);
+      y = minY + random.nextInt(maxY - minY);
+    } while (map.flags(x, y) != 0);
+    return new Vector2(x, y);
+  }
+
+  @Benchmark
+  public int flags() {
+    int walkable = 0;
+    for (int i = 0; i < NUM_LOOKUPS; i++) {
+      if (map.flags(lookupX[i], lookupY[i]) == 0) walkable++;
+    }
+
+    return walkable;
+  }
+
+  @Benchmark
+  public int astar() {
+    int found = 0;
+    for (int i = 0; i < NUM_PAIRS; i++) {
+      if (graph.searchNodePath(astar, src[i], dst[i], DT1.Tile.FLAG_BLOCK_WALK, 0, path)) found++;
+    }
+
+    return found;
+  }
+
+  @Benchmark
+  public int intAStar() {
+    int found = 0;
+    for (int i = 0; i < NUM_PAIRS; i++) {
+      final Vector2 src = this.src[i];
+      final Vector2 dst = this.dst[i];
+      if (intAStar.search(
+          (int) src.x, (int) src.y,
+          (int) dst.x, (int) dst.y,
+          DT1.Tile.FLAG_BLOCK_WALK, 0, packedPath)) {
+        found++;
+      }
+    }
+
+    return found;
+  }
+}
@@ -0,0 +1,136 @@
+package com.riiablo.mpq_bytebuf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import com.riiablo.mpq_bytebuf.Mpq.Block;
+import com.riiablo.mpq_bytebuf.Mpq.HashTable;
+
+/**
+ * Measures {@link Mpq} hash table lookups and {@link MpqFileHandle#buffer()}
+ * of a synthetic archive containing many small files and a few large files
+ * stored using each supported block encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MpqBenchmark {
+  static final String SMALL_FILENAME = "data\\global\\synthetic\\%05d.bin";
+  static final String LARGE_FILENAME = "data\\global\\synthetic\\large-%x.bin";
+  static final int SMALL_SIZE = 0x100;
+
+  @Param({"4096"})
+  int numFiles;
+
+  @Param({"262144"})
+  int size;
+
+  @Param({"implode", "compress", "none"})
+  String flags;
+
+  File file;
+  Mpq mpq;
+  DecoderExecutorGroup decoder;
+  String[] filenames;
+  long[] keys;
+  int[] hashes;
+  int next;
+
+  String largeFilename;
+  int largeIndex;
+
+  static int flags(String flags) {
+    switch (flags) {
+      case "implode":  return Block.FLAG_EXISTS | Block.FLAG_IMPLODE;
+      case "compress": return Block.FLAG_EXISTS | Block.FLAG_COMPRESSED;
+      case "none":     return Block.FLAG_EXISTS;
+      default: throw new IllegalArgumentException("Unsupported flags: " + flags);
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    final Random random = new Random(0);
+    final SyntheticMpq builder = new SyntheticMpq();
+    filenames = new String[numFiles];
+    keys = new long[numFiles];
+    hashes = new int[numFiles];
+    for (int i = 0; i < numFiles; i++) {
+      final String filename = filenames[i] = Decrypter.fix(String.format(SMALL_FILENAME, i));
+      keys[i] = HashTable.key(filename);
+      hashes[i] = HashTable.hash(filename);
+      builder.addUncompressed(filename, SyntheticMpq.contents(random, SMALL_SIZE));
+    }
+
+    final int flags = flags(this.flags);
+    largeFilename = Decrypter.fix(String.format(LARGE_FILENAME, flags));
+    builder.add(largeFilename, SyntheticMpq.contents(random, size), flags);
+
+    file = File.createTempFile("riiablo-bench", ".mpq");
+    builder.write(file);
+    mpq = Mpq.open(new FileHandle(file));
+    decoder = new DecoderExecutorGroup(1);
+    largeIndex = mpq.get(HashTable.key(largeFilename), HashTable.hash(largeFilename), Mpq.DEFAULT_LOCALE);
+    if (largeIndex < 0) throw new IllegalStateException("synthetic mpq does not contain " + largeFilename);
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    decoder.shutdownGracefully().syncUninterruptibly();
+    mpq.dispose();
+    file.delete();
+  }
+
+  int next() {
+    final int i = next;
+    next = i + 1 < numFiles ? i + 1 : 0;
+    return i;
+  }
+
+  /** hash table probe using precomputed keys */
+  @Benchmark
+  public int lookup() {
+    final int i = next();
+    return mpq.get(keys[i], hashes[i], Mpq.DEFAULT_LOCALE);
+  }
+
+  /** filename hashing and hash table probe */
+  @Benchmark
+  public int hashAndLookup() {
+    final String filename = filenames[next()];
+    return mpq.get(HashTable.key(filename), HashTable.hash(filename), Mpq.DEFAULT_LOCALE);
+  }
+
+  /** opens, decodes and releases the large file */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void buffer(Blackhole bh) {
+    final MpqFileHandle handle = mpq.open(decoder, largeIndex, largeFilename);
+    try {
+      bh.consume(handle.buffer());
+    } finally {
+      handle.release();
+    }
+  }
+}
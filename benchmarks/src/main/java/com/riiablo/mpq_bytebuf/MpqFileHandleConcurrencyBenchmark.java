@@ -0,0 +1,118 @@
+package com.riiablo.mpq_bytebuf;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Measures throughput of decoding a single large file when many ranges of it
+ * (e.g., DCC directions) are requested at once, using 1/2/4/8 decoder threads.
+ * Each invocation opens the file, requests every range, awaits the results and
+ * then releases the file, s.t., the next invocation must decode it again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MpqFileHandleConcurrencyBenchmark {
+  static final String FILENAME = "data\\global\\monsters\\zz\\tr\\zztrlitnuthth.dcc";
+
+  @Param({"1", "2", "4", "8"})
+  int threads;
+
+  @Param({"32"})
+  int requests;
+
+  @Param({"4194304"})
+  int size;
+
+  File file;
+  Mpq mpq;
+  DecoderExecutorGroup decoder;
+  int index;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    final byte[] contents = SyntheticMpq.contents(new Random(0), size);
+    file = File.createTempFile("riiablo-bench", ".mpq");
+    new SyntheticMpq()
+        .addImploded(FILENAME, contents)
+        .write(file);
+    mpq = Mpq.open(new FileHandle(file));
+    decoder = new DecoderExecutorGroup(threads);
+    final String filename = Decrypter.fix(FILENAME);
+    index = mpq.get(Mpq.HashTable.key(filename), Mpq.HashTable.hash(filename), Mpq.DEFAULT_LOCALE);
+    if (index < 0) throw new IllegalStateException("synthetic mpq does not contain " + FILENAME);
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    decoder.shutdownGracefully().syncUninterruptibly();
+    mpq.dispose();
+    file.delete();
+  }
+
+  /** each request covers a distinct range of the file */
+  @Benchmark
+  public void disjoint(Blackhole bh) {
+    final MpqFileHandle handle = mpq.open(decoder, index, FILENAME);
+    try {
+      final int length = handle.FSize / requests;
+      @SuppressWarnings("unchecked")
+      final Future<ByteBuf>[] futures = new Future[requests];
+      for (int i = 0; i < requests; i++) {
+        futures[i] = handle.bufferAsync(ImmediateEventExecutor.INSTANCE, i * length, length);
+      }
+
+      for (Future<ByteBuf> future : futures) {
+        bh.consume(future.syncUninterruptibly().getNow());
+      }
+    } finally {
+      handle.release();
+    }
+  }
+
+  /**
+   * each request covers the entire file, s.t., requests must share in-flight
+   * sectors instead of decoding them again
+   */
+  @Benchmark
+  public void overlapping(Blackhole bh) {
+    final MpqFileHandle handle = mpq.open(decoder, index, FILENAME);
+    try {
+      @SuppressWarnings("unchecked")
+      final Future<ByteBuf>[] futures = new Future[requests];
+      for (int i = 0; i < requests; i++) {
+        futures[i] = handle.bufferAsync(ImmediateEventExecutor.INSTANCE);
+      }
+
+      for (Future<ByteBuf> future : futures) {
+        bh.consume(future.syncUninterruptibly().getNow());
+      }
+    } finally {
+      handle.release();
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package com.riiablo.mpq_bytebuf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+
+import com.riiablo.mpq_bytebuf.Mpq.Block;
+import com.riiablo.mpq_bytebuf.Mpq.HashTable;
+import com.riiablo.mpq_bytebuf.util.Imploder;
+
+import static com.riiablo.mpq_bytebuf.Decrypter.BLOCK_TABLE_KEY;
+import static com.riiablo.mpq_bytebuf.Decrypter.HASH_TABLE_KEY;
+import static com.riiablo.mpq_bytebuf.Decrypter.SEED2;
+
+/**
+ * Writes synthetic mpq archives which can be read by {@link Mpq}. Game data
+ * cannot be distributed, so benchmarks generate archives containing synthetic
+ * (but compressible) contents instead.
+ * <p/>
+ * Files are stored using {@link Block#FLAG_IMPLODE} sectors encoded by
+ * {@link Imploder}, {@link Block#FLAG_COMPRESSED} sectors prefixed with
+ * {@link Decoder#FLAG_IMPLODE}, or uncompressed.
+ */
+public final class SyntheticMpq {
+  static final int BLOCK_SIZE = 3;
+  static final int SECTOR_SIZE = Mpq.DISK_SECTOR_SIZE << BLOCK_SIZE;
+
+  final Map<String, byte[]> files = new LinkedHashMap<>();
+  final Map<String, Integer> flags = new LinkedHashMap<>();
+
+  public SyntheticMpq add(String filename, byte[] contents, int flags) {
+    filename = Decrypter.fix(filename);
+    files.put(filename, contents);
+    this.flags.put(filename, flags);
+    return this;
+  }
+
+  public SyntheticMpq addImploded(String filename, byte[] contents) {
+    return add(filename, contents, Block.FLAG_EXISTS | Block.FLAG_IMPLODE);
+  }
+
+  public SyntheticMpq addCompressed(String filename, byte[] contents) {
+    return add(filename, contents, Block.FLAG_EXISTS | Block.FLAG_COMPRESSED);
+  }
+
+  public SyntheticMpq addUncompressed(String filename, byte[] contents) {
+    return add(filename, contents, Block.FLAG_EXISTS);
+  }
+
+  /**
+   * Generates {@code length} bytes of content with a mix of literal runs and
+   * back-references, similar in entropy to palettized sprite data.
+   */
+  public static byte[] contents(Random random, int length) {
+    final byte[] bytes = new byte[length];
+    int i = 0;
+    while (i < length) {
+      if (i > 8 && random.nextInt(3) == 0) {
+        final int distance = 1 + random.nextInt(Math.min(i, SECTOR_SIZE));
+        final int runLength = Math.min(length - i, 3 + random.nextInt(64));
+        for (int j = 0; j < runLength; j++, i++) bytes[i] = bytes[i - distance];
+      } else {
+        bytes[i++] = (byte) random.nextInt(0x40);
+      }
+    }
+
+    return bytes;
+  }
+
+  public File write(File file) throws IOException {
+    FileUtils.writeByteArrayToFile(file, toByteArray());
+    return file;
+  }
+
+  public byte[] toByteArray() {
+    final int numFiles = files.size();
+    final String[] filenames = files.keySet().toArray(new String[numFiles]);
+    final byte[][] encoded = new byte[numFiles][];
+    int dataSize = 0;
+    for (int i = 0; i < numFiles; i++) {
+      final String filename = filenames[i];
+      encoded[i] = encode(files.get(filename), flags.get(filename));
+      dataSize += encoded[i].length;
+    }
+
+    int hashTableSize = Integer.highestOneBit(Math.max(numFiles, 8) << 1);
+    int[] slots;
+    while ((slots = hashSlots(filenames, hashTableSize)) == null) hashTableSize <<= 1;
+
+    final int hashTableOffset = Mpq.HEADER_SIZE + dataSize;
+    final int blockTableOffset = hashTableOffset + hashTableSize * HashTable.ENTRY_SIZE;
+    final int archiveSize = blockTableOffset + numFiles * Block.SIZE;
+    final ByteBuffer out = ByteBuffer.allocate(archiveSize).order(ByteOrder.LITTLE_ENDIAN);
+    out.put(Mpq.SIGNATURE);
+    out.putInt(Mpq.HEADER_SIZE);
+    out.putInt(archiveSize);
+    out.putShort((short) 0); // version
+    out.putShort((short) BLOCK_SIZE);
+    out.putInt(hashTableOffset);
+    out.putInt(blockTableOffset);
+    out.putInt(hashTableSize);
+    out.putInt(numFiles);
+    assert out.position() == Mpq.HEADER_SIZE;
+
+    final int[] offsets = new int[numFiles];
+    for (int i = 0; i < numFiles; i++) {
+      offsets[i] = out.position();
+      out.put(encoded[i]);
+    }
+
+    final ByteBuffer hashTable = ByteBuffer
+        .allocate(hashTableSize * HashTable.ENTRY_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < hashTableSize; i++) {
+      hashTable.putLong(HashTable.NULL_KEY);
+      hashTable.putShort(HashTable.NULL_LOCALE);
+      hashTable.putShort(HashTable.NULL_PLATFORM);
+      hashTable.putInt(HashTable.BLOCK_UNUSED);
+    }
+
+    for (int i = 0; i < numFiles; i++) {
+      final int slot = slots[i] * HashTable.ENTRY_SIZE;
+      hashTable.putLong(slot, HashTable.key(filenames[i]));
+      hashTable.putShort(slot + 8, Mpq.DEFAULT_LOCALE);
+      hashTable.putShort(slot + 10, Mpq.DEFAULT_PLATFORM);
+      hashTable.putInt(slot + 12, i);
+    }
+
+    final ByteBuffer blockTable = ByteBuffer
+        .allocate(numFiles * Block.SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < numFiles; i++) {
+      blockTable.putInt(offsets[i]);
+      blockTable.putInt(encoded[i].length);
+      blockTable.putInt(files.get(filenames[i]).length);
+      blockTable.putInt(flags.get(filenames[i]));
+    }
+
+    out.put(encrypt(HASH_TABLE_KEY, hashTable.array()));
+    out.put(encrypt(BLOCK_TABLE_KEY, blockTable.array()));
+    assert !out.hasRemaining();
+    return out.array();
+  }
+
+  /**
+   * Returns the hash table slot of each file, or {@code null} if the files
+   * cannot be placed without wrapping around the end of the table, which is
+   * not supported by {@link HashTable#get}.
+   */
+  static int[] hashSlots(String[] filenames, int hashTableSize) {
+    final boolean[] used = new boolean[hashTableSize];
+    final int[] slots = new int[filenames.length];
+    for (int i = 0; i < filenames.length; i++) {
+      int slot = HashTable.hash(filenames[i]) & (hashTableSize - 1);
+      while (slot < hashTableSize && used[slot]) slot++;
+      if (slot >= hashTableSize) return null;
+      used[slot] = true;
+      slots[i] = slot;
+    }
+
+    return slots;
+  }
+
+  static byte[] encode(byte[] contents, int flags) {
+    final int FSize = contents.length;
+    if ((flags & (Block.FLAG_IMPLODE | Block.FLAG_COMPRESSED)) == 0) {
+      return contents.clone();
+    }
+
+    final int numSectors = (FSize + SECTOR_SIZE - 1) / SECTOR_SIZE;
+    final int sectorTableSize = (numSectors + 1) << 2;
+    final ByteBuffer out = ByteBuffer
+        .allocate(sectorTableSize + FSize + numSectors)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    out.position(sectorTableSize);
+    for (int sector = 0; sector < numSectors; sector++) {
+      out.putInt(sector << 2, out.position());
+      final int offset = sector * SECTOR_SIZE;
+      final int length = Math.min(FSize - offset, SECTOR_SIZE);
+      byte[] sectorBytes = Imploder.implode(contents, offset, length);
+      if ((flags & Block.FLAG_COMPRESSED) == Block.FLAG_COMPRESSED) {
+        final byte[] prefixed = new byte[sectorBytes.length + 1];
+        prefixed[0] = Decoder.FLAG_IMPLODE;
+        System.arraycopy(sectorBytes, 0, prefixed, 1, sectorBytes.length);
+        sectorBytes = prefixed;
+      }
+
+      if (sectorBytes.length < length) {
+        out.put(sectorBytes);
+      } else {
+        out.put(contents, offset, length);
+      }
+    }
+
+    out.putInt(numSectors << 2, out.position());
+    return Arrays.copyOf(out.array(), out.position());
+  }
+
+  /** inverse of {@link Decrypter#decrypt(int, int, byte[], int, int)} */
+  static byte[] encrypt(int key, byte[] bytes) {
+    final ByteBuffer inout = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    int seed = SEED2;
+    for (int i = 0, s = bytes.length & ~3; i < s; i += 4) {
+      seed += Decrypter.ENCRYPTION.get(key & 0xFF);
+      final int block = inout.getInt(i);
+      inout.putInt(i, block ^ (key + seed));
+      seed += block + (seed << 5) + 3;
+      key = (~key << 0x15) + 0x11111111 | key >>> 0x0B;
+    }
+
+    return bytes;
+  }
+}
@@ -0,0 +1,127 @@
+package com.riiablo.mpq_bytebuf.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.riiablo.mpq_bytebuf.SyntheticMpq;
+
+/**
+ * Measures decoding a single mpq sector using each of the supported
+ * decompressors.
+ * <p/>
+ * {@link Exploder} inputs are encoded using {@link Imploder}. There is no
+ * {@link Huffman} encoder, so inputs are found by rejection sampling random
+ * bit streams until one terminates with at least {@link #sectorSize} bytes of
+ * output. {@link ADPCM} accepts any input, so random bytes are used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DecompressorBenchmark {
+  static final int MAX_HUFFMAN_SAMPLES = 1 << 16;
+
+  @Param({"4096"})
+  int sectorSize;
+
+  /** huffman compression type, i.e., the initial frequency table */
+  @Param({"1"})
+  int huffmanType;
+
+  byte[] imploded;
+  byte[] huffman;
+  byte[] adpcm;
+
+  final Huffman huffmanDecoder = new Huffman();
+  ByteBuf exploded;
+  ByteBuf out;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final Random random = new Random(0);
+    final byte[] contents = SyntheticMpq.contents(random, sectorSize);
+    imploded = Imploder.implode(contents, 0, contents.length);
+    huffman = huffman(random, huffmanType, sectorSize);
+    adpcm = new byte[sectorSize / 2];
+    random.nextBytes(adpcm);
+
+    exploded = Unpooled.buffer(sectorSize, sectorSize);
+    // adpcm writes 2 bytes for each input byte, huffman output is unbounded
+    out = Unpooled.buffer(Math.max(sectorSize << 2, huffmanOutputSize()));
+  }
+
+  int huffmanOutputSize() {
+    final ByteBuf out = Unpooled.buffer(sectorSize);
+    return new Huffman().inflate(Unpooled.wrappedBuffer(huffman), out);
+  }
+
+  /**
+   * Returns a random bit stream which decodes to at least {@code minSize}
+   * bytes using the specified huffman compression type.
+   */
+  static byte[] huffman(Random random, int type, int minSize) {
+    final Huffman huffman = new Huffman();
+    final byte[] bytes = new byte[minSize << 1];
+    final ByteBuf out = Unpooled.buffer(minSize);
+    for (int i = 0; i < MAX_HUFFMAN_SAMPLES; i++) {
+      random.nextBytes(bytes);
+      bytes[0] = (byte) type;
+      final ByteBuf in = Unpooled.wrappedBuffer(bytes);
+      out.clear();
+      try {
+        huffman.inflate(in, out);
+      } catch (IndexOutOfBoundsException t) {
+        continue; // input exhausted before end of stream
+      }
+
+      if (out.writerIndex() >= minSize) {
+        return Arrays.copyOf(bytes, in.readerIndex());
+      }
+    }
+
+    throw new IllegalStateException(
+        "huffman type " + type + " did not produce " + minSize + " bytes within "
+        + MAX_HUFFMAN_SAMPLES + " samples");
+  }
+
+  @Benchmark
+  public int explode() {
+    exploded.clear();
+    return Exploder.explode(Unpooled.wrappedBuffer(imploded), exploded);
+  }
+
+  @Benchmark
+  public int huffman() {
+    out.clear();
+    return huffmanDecoder.inflate(Unpooled.wrappedBuffer(huffman), out);
+  }
+
+  @Benchmark
+  public int adpcmMono() {
+    out.clear();
+    return ADPCM.decode(Unpooled.wrappedBuffer(adpcm), out, ADPCM.MONO);
+  }
+
+  @Benchmark
+  public int adpcmStereo() {
+    out.clear();
+    return ADPCM.decode(Unpooled.wrappedBuffer(adpcm), out, ADPCM.STEREO);
+  }
+}
@@ -0,0 +1,139 @@
+package com.riiablo.mpq_bytebuf.util;
+
+import java.util.Arrays;
+
+import static com.riiablo.mpq_bytebuf.util.Exploder.CTYPE_BINARY;
+import static com.riiablo.mpq_bytebuf.util.Exploder.DistBits;
+import static com.riiablo.mpq_bytebuf.util.Exploder.DistCode;
+import static com.riiablo.mpq_bytebuf.util.Exploder.ExLenBits;
+import static com.riiablo.mpq_bytebuf.util.Exploder.LenBase;
+import static com.riiablo.mpq_bytebuf.util.Exploder.LenBits;
+import static com.riiablo.mpq_bytebuf.util.Exploder.LenCode;
+
+/**
+ * Minimal PKWARE DCL binary mode encoder used to generate synthetic inputs for
+ * {@link Exploder}. Uses greedy hash-based matching, s.t., compression ratio is
+ * not representative of the original implementation, but the output exercises
+ * all literal, length and distance code paths of the decoder.
+ */
+public final class Imploder {
+  private Imploder() {}
+
+  static final int DICT_SIZE = 6; // 4 KB
+  static final int MAX_DISTANCE = 0x40 << DICT_SIZE;
+  static final int MIN_MATCH = 3;
+  static final int MAX_MATCH = 0x204 + 1; // 0x205 + 0x100 is reserved as end of stream
+  static final int END_OF_STREAM = 0x205;
+
+  static final int HASH_BITS = 12;
+  static final int HASH_SIZE = 1 << HASH_BITS;
+
+  /**
+   * Implodes {@code in[offset:offset+length]}, returning the encoded bytes.
+   */
+  public static byte[] implode(final byte[] in, final int offset, final int length) {
+    final BitWriter out = new BitWriter(length + (length >>> 3) + 16);
+    out.bytes[out.position++] = CTYPE_BINARY;
+    out.bytes[out.position++] = DICT_SIZE;
+
+    final int[] head = new int[HASH_SIZE];
+    Arrays.fill(head, -1);
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      int matchLength = 0;
+      int matchDistance = 0;
+      if (i + MIN_MATCH <= end) {
+        final int h = hash(in, i);
+        final int candidate = head[h];
+        head[h] = i;
+        if (candidate >= 0 && i - candidate <= MAX_DISTANCE) {
+          final int max = Math.min(MAX_MATCH, end - i);
+          int len = 0;
+          while (len < max && in[candidate + len] == in[i + len]) len++;
+          if (len >= MIN_MATCH) {
+            matchLength = len;
+            matchDistance = i - candidate;
+          }
+        }
+      }
+
+      if (matchLength > 0) {
+        writeLength(out, matchLength - 2);
+        writeDistance(out, matchDistance - 1);
+        for (int j = 1; j < matchLength && i + j + MIN_MATCH <= end; j++) {
+          head[hash(in, i + j)] = i + j;
+        }
+        i += matchLength;
+      } else {
+        out.write(0, 1);
+        out.write(in[i] & 0xff, Byte.SIZE);
+        i++;
+      }
+    }
+
+    writeLength(out, END_OF_STREAM);
+    return out.toByteArray();
+  }
+
+  static int hash(final byte[] in, final int i) {
+    final int v = (in[i] & 0xff) | (in[i + 1] & 0xff) << 8 | (in[i + 2] & 0xff) << 16;
+    return (v * 0x9E3779B1) >>> (Integer.SIZE - HASH_BITS);
+  }
+
+  static void writeLength(final BitWriter out, final int lenCode) {
+    out.write(1, 1);
+    if (lenCode < 8) {
+      out.write(LenCode[lenCode], LenBits[lenCode]);
+      return;
+    }
+
+    int code = LenBase.length - 1;
+    while (LenBase[code] > lenCode) code--;
+    out.write(LenCode[code], LenBits[code]);
+    out.write(lenCode - LenBase[code], ExLenBits[code]);
+  }
+
+  /** only repeat lengths > 2 are emitted, s.t., dictSize low bits are used */
+  static void writeDistance(final BitWriter out, final int distance) {
+    final int distCode = distance >>> DICT_SIZE;
+    out.write(DistCode[distCode], DistBits[distCode]);
+    out.write(distance & ((1 << DICT_SIZE) - 1), DICT_SIZE);
+  }
+
+  /** LSB-first bit writer matching the bit order consumed by the exploder */
+  static final class BitWriter {
+    byte[] bytes;
+    int position;
+    int bitBuffer;
+    int bits;
+
+    BitWriter(int initialCapacity) {
+      bytes = new byte[initialCapacity];
+    }
+
+    void write(int value, int numBits) {
+      bitBuffer |= (value & ((1 << numBits) - 1)) << bits;
+      bits += numBits;
+      while (bits >= Byte.SIZE) {
+        ensureCapacity(1);
+        bytes[position++] = (byte) bitBuffer;
+        bitBuffer >>>= Byte.SIZE;
+        bits -= Byte.SIZE;
+      }
+    }
+
+    void ensureCapacity(int numBytes) {
+      if (position + numBytes > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, position + numBytes));
+      }
+    }
+
+    byte[] toByteArray() {
+      ensureCapacity(2);
+      if (bits > 0) bytes[position++] = (byte) bitBuffer;
+      bytes[position++] = 0; // padding consumed by trailing skip
+      return Arrays.copyOf(bytes, position);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.riiablo.save;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.riiablo.Riiablo;
+import com.riiablo.codec.COF;
+import com.riiablo.io.ByteInput;
+
+/**
+ * Measures reading the header and fixed-size sections of a synthetic v1.10
+ * character save using {@link D2SReader96}.
+ * <p/>
+ * The stats and items sections are not covered since they require the
+ * ItemStatCost and item tables, which cannot be loaded without game data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class D2SReader96Benchmark {
+  static final byte[] QUESTS_SIGNATURE = {0x57, 0x6F, 0x6F, 0x21};
+  static final byte[] WAYPOINTS_SIGNATURE = {0x57, 0x53};
+  static final byte[] WAYPOINTS_DIFF_SIGNATURE = {0x02, 0x01};
+  static final byte[] NPCS_SIGNATURE = {0x01, 0x77};
+  static final byte[] SKILLS_SIGNATURE = {0x69, 0x66};
+
+  byte[] header;
+  byte[] sections;
+  final D2SReader96 reader = new D2SReader96();
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final Random random = new Random(0);
+    header = header(random);
+    sections = sections(random);
+  }
+
+  static byte[] header(Random random) {
+    final ByteBuffer out = ByteBuffer
+        .allocate(D2SReader96.HEADER_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    out.put(D2S.SIGNATURE);
+    out.putInt(D2S.VERSION_110);
+    out.putInt(0); // size
+    out.putInt(random.nextInt()); // checksum
+    out.putInt(0); // alternate
+    final byte[] name = new byte[Riiablo.MAX_NAME_LENGTH + 1];
+    final byte[] nameChars = "Synthetic".getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(nameChars, 0, name, 0, nameChars.length);
+    out.put(name);
+    out.putInt(D2S.FLAG_EXPANSION);
+    out.put((byte) random.nextInt(7)); // charClass
+    out.position(out.position() + 2);
+    out.put((byte) (1 + random.nextInt(99))); // level
+    out.position(out.position() + 4);
+    out.putInt(random.nextInt()); // timestamp
+    out.position(out.position() + 4);
+    for (int i = 0; i < D2S.NUM_HOTKEYS; i++) out.putInt(D2S.HOTKEY_UNASSIGNED);
+    for (int i = 0; i < D2S.NUM_ACTIONS * D2S.NUM_BUTTONS; i++) out.putInt(random.nextInt(0x100));
+    out.put(randomBytes(random, COF.Component.NUM_COMPONENTS)); // composites
+    out.put(randomBytes(random, COF.Component.NUM_COMPONENTS)); // colors
+    out.put(new byte[Riiablo.NUM_DIFFS]); // towns
+    out.putInt(random.nextInt()); // mapSeed
+    out.putInt(0); // merc.flags
+    out.putInt(random.nextInt()); // merc.seed
+    out.putShort((short) random.nextInt(0x100)); // merc.name
+    out.putShort((short) random.nextInt(0x100)); // merc.type
+    out.putInt(random.nextInt(Integer.MAX_VALUE)); // merc.experience
+    out.position(out.position() + 144); // realm data
+    assert !out.hasRemaining();
+    return out.array();
+  }
+
+  /** quests, waypoints, npcs and skills sections */
+  static byte[] sections(Random random) {
+    final ByteBuffer out = ByteBuffer
+        .allocate(D2SReader96.QUESTS_SIZE
+            + D2SReader96.WAYPOINTS_SIZE
+            + D2SReader96.NPCS_SIZE
+            + D2SReader96.SKILLS_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    out.put(QUESTS_SIGNATURE);
+    out.putInt(6); // version
+    out.putShort((short) D2SReader96.QUESTS_SIZE);
+    out.put(randomBytes(random, D2S.QuestData.NUM_QUESTFLAGS * D2S.NUM_DIFFS));
+
+    out.put(WAYPOINTS_SIGNATURE);
+    out.putInt(1); // version
+    out.putShort((short) D2SReader96.WAYPOINTS_SIZE);
+    for (int i = 0; i < D2S.NUM_DIFFS; i++) {
+      out.put(WAYPOINTS_DIFF_SIGNATURE);
+      out.put(randomBytes(random, D2S.WaypointData.NUM_WAYPOINTFLAGS));
+    }
+
+    out.put(NPCS_SIGNATURE);
+    out.putShort((short) D2SReader96.NPCS_SIZE);
+    out.put(randomBytes(random,
+        D2S.NPCData.NUM_GREETINGS * D2S.NPCData.NUM_INTROS * D2S.NUM_DIFFS));
+
+    out.put(SKILLS_SIGNATURE);
+    out.put(randomBytes(random, D2S.SkillData.NUM_TREES * D2S.SkillData.NUM_SKILLS));
+    assert !out.hasRemaining();
+    return out.array();
+  }
+
+  static byte[] randomBytes(Random random, int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  @Benchmark
+  public D2S readHeader() {
+    return reader.readD2S(ByteInput.wrap(header));
+  }
+
+  @Benchmark
+  public void readSections(Blackhole bh) {
+    final ByteInput in = ByteInput.wrap(sections);
+    bh.consume(D2SReader96.readQuestData(in));
+    bh.consume(D2SReader96.readWaypointData(in));
+    bh.consume(D2SReader96.readNPCData(in));
+    bh.consume(D2SReader96.readSkillData(in));
+  }
+}
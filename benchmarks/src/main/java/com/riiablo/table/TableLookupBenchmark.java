@@ -0,0 +1,129 @@
+package com.riiablo.table;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Measures looking up records of a synthetic table by primary key and by id.
+ * Keys are requested in mixed case, as they are by callers. The
+ * {@code toUpperCase} benchmark is the previous implementation, which
+ * allocated an upper case copy of each key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TableLookupBenchmark {
+  static final int NUM_LOOKUPS = 1024;
+
+  @Param({"1024"})
+  int numRecords;
+
+  @Param({"false", "true"})
+  boolean concurrent;
+
+  Table<Object[]> table;
+  ObjectIntMap<String> upperCaseLookup;
+  final String[] keys = new String[NUM_LOOKUPS];
+  final int[] ids = new int[NUM_LOOKUPS];
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final Random random = new Random(0);
+    final TsvParser parser = TsvParser.parse(TsvParserBenchmark.tsv(random, numRecords, 4));
+    table = Tables.loadTsv(new Table<Object[]>(null, Object[].class, numRecords, Table.DEFAULT_LOAD_FACTOR, true) {
+      @Override
+      protected Object[] newRecord() {
+        return new Object[1];
+      }
+
+      @Override
+      protected Parser<Object[]> newParser(ParserInput parser) {
+        return new Parser<Object[]>(parser) {
+          @Override
+          protected Parser<Object[]> _parseFields(ParserInput parser) {
+            return this;
+          }
+
+          @Override
+          protected Object[] _parseRecord(ParserInput parser, int recordId, Object[] record) {
+            record[0] = parser.recordName(recordId);
+            return record;
+          }
+        };
+      }
+
+      @Override
+      protected Serializer<Object[]> newSerializer() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      protected Object[] inject(Object[] record) {
+        return record;
+      }
+
+      @Override
+      protected String primaryKey() {
+        return "name";
+      }
+    }, parser);
+    table.setConcurrent(concurrent);
+
+    upperCaseLookup = new ObjectIntMap<>(numRecords);
+    for (int i = 0; i < numRecords; i++) {
+      upperCaseLookup.put(parser.recordName(i).toUpperCase(), i);
+      table.get(i); // materialize all records
+    }
+
+    for (int i = 0; i < NUM_LOOKUPS; i++) {
+      ids[i] = random.nextInt(numRecords);
+      keys[i] = random.nextBoolean() ? "record" + ids[i] : "RECORD" + ids[i];
+    }
+  }
+
+  @Benchmark
+  public void toUpperCase(Blackhole bh) {
+    for (String key : keys) bh.consume(upperCaseLookup.get(key.toUpperCase(), -1));
+  }
+
+  @Benchmark
+  public void index(Blackhole bh) {
+    for (String key : keys) bh.consume(table.index(key));
+  }
+
+  @Benchmark
+  public void getByKey(Blackhole bh) {
+    for (String key : keys) bh.consume(table.get(key));
+  }
+
+  @Benchmark
+  public void getById(Blackhole bh) {
+    for (int id : ids) bh.consume(table.get(id));
+  }
+
+  /** only meaningful when {@link #concurrent} */
+  @Benchmark
+  @Threads(4)
+  public void getByIdShared(Blackhole bh) {
+    for (int id : ids) bh.consume(table.get(id));
+  }
+}
@@ -0,0 +1,120 @@
+package com.riiablo.table;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures tokenizing a synthetic excel table using {@link TsvParser} and
+ * parsing each of its tokens.
+ * <p/>
+ * Generated tables have a unique {@code name} column followed by columns of
+ * integers, strings and empty cells, with an {@code Expansion} row halfway
+ * through the records, similar to the layout of the game's tables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TsvParserBenchmark {
+  @Param({"1024"})
+  int numRecords;
+
+  @Param({"64"})
+  int numFields;
+
+  byte[] bytes;
+  TsvParser parser;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    bytes = tsv(new Random(0), numRecords, numFields);
+    parser = TsvParser.parse(bytes);
+    parser.primaryKey("name");
+  }
+
+  static byte[] tsv(Random random, int numRecords, int numFields) {
+    final StringBuilder builder = new StringBuilder(numRecords * numFields * 4);
+    builder.append("name");
+    for (int i = 1; i < numFields; i++) builder.append('\t').append("field").append(i);
+    builder.append("\r\n");
+    for (int r = 0; r < numRecords; r++) {
+      if (r == numRecords / 2) builder.append("Expansion\r\n");
+      builder.append("record").append(r);
+      for (int i = 1; i < numFields; i++) {
+        builder.append('\t');
+        switch (i % 4) {
+          case 0:
+            break; // empty
+          case 1:
+            builder.append(random.nextInt(0x100));
+            break;
+          case 2:
+            builder.append(random.nextInt() >> random.nextInt(Integer.SIZE));
+            break;
+          case 3:
+            builder.append((char) ('a' + random.nextInt(26))).append(random.nextInt(0x1000));
+            break;
+        }
+      }
+
+      builder.append("\r\n");
+    }
+
+    return builder.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Benchmark
+  public TsvParser parse() {
+    return TsvParser.parse(bytes);
+  }
+
+  /** tokenizing and indexing records by their primary key */
+  @Benchmark
+  public TsvParser parseWithPrimaryKey() {
+    final TsvParser parser = TsvParser.parse(bytes);
+    parser.primaryKey("name");
+    return parser;
+  }
+
+  @Benchmark
+  public void parseInts(Blackhole bh) {
+    final TsvParser parser = this.parser;
+    for (int r = 0, s = parser.numRecords(); r < s; r++) {
+      for (int f = 1; f < numFields; f += 4) {
+        bh.consume(parser.parseInt(r, f));
+        if (f + 1 < numFields) bh.consume(parser.parseInt(r, f + 1));
+      }
+    }
+  }
+
+  @Benchmark
+  public void parseStrings(Blackhole bh) {
+    final TsvParser parser = this.parser;
+    for (int r = 0, s = parser.numRecords(); r < s; r++) {
+      for (int f = 3; f < numFields; f += 4) {
+        bh.consume(parser.parseString(r, f));
+      }
+    }
+  }
+
+  @Benchmark
+  public int recordId() {
+    return parser.recordId("record" + (numRecords >>> 1));
+  }
+}
@@ -5,8 +5,10 @@ package com.riiablo.net.packet.d2gs;
 public final class EntityFlags {
   private EntityFlags() { }
   public static final byte deleted = 1;
+  public static final byte spawned = 2;
+  public static final byte despawned = 4;
 
-  public static final String[] names = { "deleted", };
+  public static final String[] names = { "deleted", "spawned", "", "despawned", };
 
   public static String name(int e) { return names[e - deleted]; }
 }
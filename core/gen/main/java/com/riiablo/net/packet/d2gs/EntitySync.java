@@ -28,14 +28,17 @@ public final class EntitySync extends Table {
   public int componentLength() { int o = __offset(12); return o != 0 ? __vector_len(o) : 0; }
   public UnionVector componentVector() { return componentVector(new UnionVector()); }
   public UnionVector componentVector(UnionVector obj) { int o = __offset(12); return o != 0 ? obj.__assign(__vector(o), 4, bb) : null; }
+  public int removed() { int o = __offset(14); return o != 0 ? bb.getInt(o + bb_pos) : 0; }
 
   public static int createEntitySync(FlatBufferBuilder builder,
       int entityId,
       int type,
       int flags,
       int component_typeOffset,
-      int componentOffset) {
-    builder.startTable(5);
+      int componentOffset,
+      int removed) {
+    builder.startTable(6);
+    EntitySync.addRemoved(builder, removed);
     EntitySync.addComponent(builder, componentOffset);
     EntitySync.addComponentType(builder, component_typeOffset);
     EntitySync.addEntityId(builder, entityId);
@@ -44,7 +47,7 @@ public final class EntitySync extends Table {
     return EntitySync.endEntitySync(builder);
   }
 
-  public static void startEntitySync(FlatBufferBuilder builder) { builder.startTable(5); }
+  public static void startEntitySync(FlatBufferBuilder builder) { builder.startTable(6); }
   public static void addEntityId(FlatBufferBuilder builder, int entityId) { builder.addInt(0, entityId, 0); }
   public static void addType(FlatBufferBuilder builder, int type) { builder.addByte(1, (byte)type, (byte)0); }
   public static void addFlags(FlatBufferBuilder builder, int flags) { builder.addByte(2, (byte)flags, (byte)0); }
@@ -54,6 +57,7 @@ public final class EntitySync extends Table {
   public static void addComponent(FlatBufferBuilder builder, int componentOffset) { builder.addOffset(4, componentOffset, 0); }
   public static int createComponentVector(FlatBufferBuilder builder, int[] data) { builder.startVector(4, data.length, 4); for (int i = data.length - 1; i >= 0; i--) builder.addOffset(data[i]); return builder.endVector(); }
   public static void startComponentVector(FlatBufferBuilder builder, int numElems) { builder.startVector(4, numElems, 4); }
+  public static void addRemoved(FlatBufferBuilder builder, int removed) { builder.addInt(5, removed, 0); }
   public static int endEntitySync(FlatBufferBuilder builder) {
     int o = builder.endTable();
     return o;
@@ -21,6 +21,7 @@ import com.riiablo.engine.server.component.Angle;
 import com.riiablo.engine.server.component.Interactable;
 import com.riiablo.engine.server.component.MapWrapper;
 import com.riiablo.engine.server.component.Monster;
+import com.riiablo.engine.server.component.Networked;
 import com.riiablo.engine.server.component.PathWrapper;
 import com.riiablo.engine.server.component.Pathfind;
 import com.riiablo.engine.server.component.Position;
@@ -29,6 +30,7 @@ import com.riiablo.engine.server.component.Size;
 import com.riiablo.engine.server.component.Velocity;
 import com.riiablo.logger.LogManager;
 import com.riiablo.logger.Logger;
+import com.riiablo.net.packet.d2gs.ComponentP;
 
 public abstract class AI implements Interactable.Interactor {
   private static final Logger log = LogManager.getLogger(AI.class);
@@ -57,6 +59,7 @@ public abstract class AI implements Interactable.Interactor {
   protected ComponentMapper<Sequence> mSequence;
   protected ComponentMapper<Interactable> mInteractable;
   protected ComponentMapper<PathWrapper> mPathWrapper;
+  protected ComponentMapper<Networked> mNetworked;
 
   protected CofManager cofs;
   protected Pathfinder pathfinder;
@@ -119,6 +122,7 @@ public abstract class AI implements Interactable.Interactor {
     tmpVec2.set(targetPos).sub(entityPos);
     Angle angle = mAngle.get(entityId);
     angle.target.set(tmpVec2).nor();
+    Networked.dirty(mNetworked, entityId, ComponentP.AngleP);
     return angle;
   }
 
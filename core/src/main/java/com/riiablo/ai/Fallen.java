@@ -1,6 +1,7 @@
 package com.riiablo.ai;
 
 import com.artemis.Aspect;
+import com.artemis.AspectSubscriptionManager;
 import com.artemis.ComponentMapper;
 import com.artemis.EntitySubscription;
 import com.artemis.utils.IntBag;
@@ -34,7 +35,9 @@ public class Fallen extends AI {
 
   protected ComponentMapper<Class> mClass;
 
-  private static EntitySubscription enemyEntities;
+  protected AspectSubscriptionManager subscriptions;
+
+  private EntitySubscription enemyEntities;
 
   final Vector2 tmpVec2 = new Vector2();
 
@@ -59,11 +62,9 @@ public class Fallen extends AI {
   @Override
   public void initialize() {
     super.initialize();
-    if (enemyEntities == null) {
-      enemyEntities = Riiablo.engine.getAspectSubscriptionManager().get(Aspect
-              .all(Class.class)
-              .one(Player.class));
-    }
+    enemyEntities = subscriptions.get(Aspect
+            .all(Class.class)
+            .one(Player.class));
   }
 
   @Override
@@ -1,6 +1,7 @@
 package com.riiablo.ai;
 
 import com.artemis.Aspect;
+import com.artemis.AspectSubscriptionManager;
 import com.artemis.ComponentMapper;
 import com.artemis.EntitySubscription;
 import com.artemis.utils.IntBag;
@@ -36,7 +37,9 @@ public class QuillRat extends AI {
 
   protected ComponentMapper<Class> mClass;
 
-  private static EntitySubscription enemyEntities;
+  protected AspectSubscriptionManager subscriptions;
+
+  private EntitySubscription enemyEntities;
 
   final Vector2 tmpVec2 = new Vector2();
 
@@ -55,11 +58,9 @@ public class QuillRat extends AI {
     super.initialize();
     monsound = "spikefiend";
     missile = Riiablo.files.Missiles.get(monster.monstats.MissA2);
-    if (enemyEntities == null) {
-      enemyEntities = Riiablo.engine.getAspectSubscriptionManager().get(Aspect
-              .all(Class.class)
-              .one(Player.class));
-    }
+    enemyEntities = subscriptions.get(Aspect
+            .all(Class.class)
+            .one(Player.class));
   }
 
   @Override
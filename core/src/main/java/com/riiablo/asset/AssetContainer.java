@@ -21,6 +21,11 @@ public class AssetContainer extends AbstractReferenceCounted {
   final Promise<?> promise;
   final AssetDesc[] dependencies;
 
+  /** priority of the load, guarded by this container */
+  LoadPriority priority = LoadPriority.PREFETCH;
+  /** load task once submitted, guarded by this container */
+  LoadScheduler.Task task;
+
   AssetContainer(
       AssetDesc asset,
       Promise<?> promise,
@@ -44,7 +49,7 @@ public class AssetContainer extends AbstractReferenceCounted {
 
   @Override
   protected void deallocate() {
-    // dispose if completed, else ?
+    // dispose if completed, else cancel s.t. the pending load is dropped
     promise.cancel(false);
     if (promise.isDone()) AssetUtils.dispose(promise.getNow());
   }
@@ -16,7 +16,7 @@ public abstract class AssetLoader<T> {
     try {
       return dependencies0(asset);
     } catch (Throwable t) {
-      promise.setFailure(t);
+      promise.tryFailure(t);
       throw t;
     }
   }
@@ -28,7 +28,7 @@ public abstract class AssetLoader<T> {
     try {
       validate0(asset);
     } catch (Throwable t) {
-      promise.setFailure(t);
+      promise.tryFailure(t);
       throw t;
     }
   }
@@ -44,7 +44,7 @@ public abstract class AssetLoader<T> {
     try {
       return ioAsync0(executor, assets, asset, handle, adapter);
     } catch (Throwable t) {
-      promise.setFailure(t);
+      promise.tryFailure(t);
       throw t;
     }
   }
@@ -59,7 +59,7 @@ public abstract class AssetLoader<T> {
     try {
       return loadAsync0(assets, asset, handle, data);
     } catch (Throwable t) {
-      promise.setFailure(t);
+      promise.tryFailure(t);
       throw t;
     }
   }
@@ -73,7 +73,21 @@ public abstract class AssetLoader<T> {
     try {
       return loadSync0(assets, asset, object);
     } catch (Throwable t) {
-      promise.setFailure(t);
+      promise.tryFailure(t);
+      throw t;
+    }
+  }
+
+  public final long estimateSize(
+      Promise<T> promise,
+      AssetManager assets,
+      AssetDesc<T> asset,
+      FileHandle handle
+  ) {
+    try {
+      return estimateSize0(assets, asset, handle);
+    } catch (Throwable t) {
+      promise.tryFailure(t);
       throw t;
     }
   }
@@ -89,6 +103,19 @@ public abstract class AssetLoader<T> {
   ) {
   }
 
+  /**
+   * Estimates the bytes which will be held while the specified asset is
+   * loaded asynchronously, used to bound the loads in flight. Called once the
+   * dependencies of the asset have loaded.
+   */
+  protected long estimateSize0(
+      AssetManager assets,
+      AssetDesc<T> asset,
+      FileHandle handle
+  ) {
+    return handle.length();
+  }
+
   protected <F extends FileHandle> Future<?> ioAsync0(
       EventExecutor executor,
       AssetManager assets,
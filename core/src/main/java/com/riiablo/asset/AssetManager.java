@@ -1,5 +1,6 @@
 package com.riiablo.asset;
 
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorGroup;
@@ -8,7 +9,7 @@ import io.netty.util.concurrent.FutureListener;
 import io.netty.util.concurrent.ImmediateEventExecutor;
 import io.netty.util.concurrent.Promise;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
@@ -26,21 +27,36 @@ import static com.riiablo.asset.AssetContainer.EMPTY_PROMISE_ARRAY;
 public final class AssetManager implements Disposable {
   private static final Logger log = LogManager.getLogger(AssetManager.class);
 
+  public static final int DEFAULT_THREADS = 4;
+  public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64L << 20;
+
   final ObjectMap<AssetDesc, AssetContainer> loadedAssets = new ObjectMap<>();
   final ObjectMap<Class, AssetLoader> loaders = new ObjectMap<>();
   final ObjectMap<Class, Adapter> adapters = new ObjectMap<>();
   final Array<PriorityContainer<FileHandleResolver>> resolvers = new Array<>();
   final ObjectMap<Class, Class<? extends AssetParams>> defaultParams = new ObjectMap<>();
-  final BlockingQueue<SyncMessage> syncQueue = new LinkedBlockingQueue<>();
+  final BlockingQueue<SyncMessage> syncQueue = new PriorityBlockingQueue<>();
 
   final EventExecutorGroup async;
   final EventExecutor sync;
+  final LoadScheduler scheduler;
 
   FileHandleResolver[] resolverCache; // ref updated when resolvers changed
 
   public AssetManager() {
-    async = new DefaultEventExecutorGroup(4);
+    this(DEFAULT_THREADS, DEFAULT_MAX_IN_FLIGHT_BYTES);
+  }
+
+  /**
+   * @param nThreads         number of threads loading assets asynchronously
+   * @param maxInFlightBytes max estimated bytes of the assets being loaded
+   *                         asynchronously at once, see
+   *                         {@link AssetLoader#estimateSize0}
+   */
+  public AssetManager(int nThreads, long maxInFlightBytes) {
+    async = new DefaultEventExecutorGroup(nThreads);
     sync = ImmediateEventExecutor.INSTANCE;
+    scheduler = new LoadScheduler(async, maxInFlightBytes);
   }
 
   @Override
@@ -56,6 +72,16 @@ public final class AssetManager implements Disposable {
     resolverCache = PriorityContainer.toArray(resolvers, FileHandleResolver.class);
   }
 
+  /** load counters of the specified priority */
+  public LoadStats stats(LoadPriority priority) {
+    return scheduler.stats(priority);
+  }
+
+  /** estimated bytes of the assets currently being loaded asynchronously */
+  public long inFlightBytes() {
+    return scheduler.inFlightBytes();
+  }
+
   public AssetLoader getLoader(Class type) {
     return loaders.get(type);
   }
@@ -143,7 +169,7 @@ public final class AssetManager implements Disposable {
     return object;
   }
 
-  <T> Promise[] loadDependencies(Promise<T> promise, AssetContainer container) {
+  <T> Promise[] loadDependencies(Promise<T> promise, AssetContainer container, LoadPriority priority) {
     final AssetDesc[] dependencies = container.dependencies;
     final int numDependencies = dependencies.length;
     if (numDependencies == 0) return EMPTY_PROMISE_ARRAY;
@@ -152,7 +178,7 @@ public final class AssetManager implements Disposable {
       final AssetDesc dependency = dependencies[i];
       // redirection to suppress unchecked warning via variable assignment
       @SuppressWarnings("unchecked") // dependencies submitted by loader
-      Promise<?> p = promises[i] = load(dependency);
+      Promise<?> p = promises[i] = load(dependency, priority);
       if (p.isDone() && p.cause() != null) {
         promise.tryFailure(new InvalidDependency(
             container.asset, "Failed to load one or more dependencies.", p.cause()));
@@ -162,33 +188,144 @@ public final class AssetManager implements Disposable {
   }
 
   @SuppressWarnings("unchecked") // guaranteed by loader and adapter contracts
-  <T> void ioAsync(final EventExecutor executor, final AssetContainer container) {
+  <T> void ioAsync(final EventExecutor executor, final LoadTask task) {
+    final AssetContainer container = task.container;
     final AssetDesc asset = container.asset;
     final Promise promise = container.promise;
-    final AssetLoader loader = findLoader(asset.type);
-    final FileHandle handle = resolve(asset); // TODO: refactor AssetLoader#resolver?
-    final Adapter adapter = findAdapter(handle);
-    loader
-        .ioAsync(promise, executor, AssetManager.this, asset, handle, adapter)
-        .addListener((FutureListener) future -> {
-          @SuppressWarnings("unchecked") // guaranteed by loader contract
-          T object = (T) loader.loadAsync(promise, AssetManager.this, asset, handle, future.getNow());
-          boolean inserted = syncQueue.offer(SyncMessage.wrap(container, promise, loader, object));
-          if (!inserted) log.error("Failed to enqueue {}", asset);
-        });
+    final FileHandle handle = task.handle;
+    final AssetLoader loader;
+    final Future<?> io;
+    try {
+      loader = findLoader(asset.type);
+      final Adapter adapter = findAdapter(handle);
+      io = loader.ioAsync(promise, executor, AssetManager.this, asset, handle, adapter);
+    } catch (Throwable t) {
+      promise.tryFailure(t);
+      scheduler.complete(task);
+      return;
+    }
+
+    io.addListener((FutureListener) future -> {
+      try {
+        @SuppressWarnings("unchecked") // guaranteed by loader contract
+        T object = (T) loader.loadAsync(promise, AssetManager.this, asset, handle, future.getNow());
+        final LoadPriority priority;
+        synchronized (container) {
+          priority = container.priority;
+        }
+
+        boolean inserted = syncQueue.offer(SyncMessage.wrap(container, promise, loader, object, priority));
+        if (!inserted) log.error("Failed to enqueue {}", asset);
+      } catch (Throwable t) {
+        promise.tryFailure(t);
+      } finally {
+        scheduler.complete(task);
+      }
+    });
+  }
+
+  /**
+   * Resolves the specified asset and queues it to be loaded with the priority
+   * of its container once its dependencies have loaded.
+   */
+  void submit(final AssetContainer container) {
+    final AssetDesc asset = container.asset;
+    final FileHandle handle;
+    final long bytes;
+    try {
+      handle = resolve(asset);
+      bytes = findLoader(asset.type).estimateSize(container.promise, this, asset, handle);
+    } catch (Throwable t) {
+      container.promise.tryFailure(t);
+      return;
+    }
+
+    final LoadTask task;
+    synchronized (container) {
+      task = new LoadTask(container, container.priority, handle, bytes);
+      container.task = task;
+    }
+
+    scheduler.submit(task);
+  }
+
+  /**
+   * Raises the priority of the pending load of the specified container and
+   * those of its dependencies, s.t., an asset requested again with a higher
+   * priority is not left queued behind loads of a lower priority.
+   */
+  void prioritize(final AssetContainer container, final LoadPriority priority) {
+    if (container.promise.isDone()) return;
+    final LoadScheduler.Task task;
+    synchronized (container) {
+      if (priority.compareTo(container.priority) >= 0) return;
+      container.priority = priority;
+      task = container.task;
+    }
+
+    if (task != null) scheduler.prioritize(task, priority);
+    for (AssetDesc dependency : container.dependencies) {
+      final AssetContainer dependencyContainer = loadedAssets.get(dependency);
+      if (dependencyContainer != null) prioritize(dependencyContainer, priority);
+    }
+  }
+
+  final class LoadTask extends LoadScheduler.Task {
+    final AssetContainer container;
+    final FileHandle handle;
+
+    LoadTask(AssetContainer container, LoadPriority priority, FileHandle handle, long bytes) {
+      super(priority, bytes);
+      this.container = container;
+      this.handle = handle;
+    }
+
+    @Override
+    boolean cancelled() {
+      return container.promise.isCancelled();
+    }
+
+    @Override
+    void cancel() {
+      ReferenceCountUtil.release(handle);
+    }
+
+    @Override
+    void start(final EventExecutor executor) {
+      executor.execute(() -> ioAsync(executor, this));
+    }
+
+    @Override
+    public String toString() {
+      return priority + " " + container.asset;
+    }
   }
 
   public <T> Promise<? extends T> load(final AssetDesc<T> asset) {
-    log.traceEntry("load(asset: {})", asset);
+    return load(asset, LoadPriority.VISIBLE);
+  }
+
+  /**
+   * Loads the specified asset and its dependencies with the specified
+   * priority. If the asset is {@link #unload(AssetDesc) unloaded} before it
+   * has loaded, the returned promise is cancelled and the load is dropped if
+   * it has not yet started, or its result disposed when it reaches the sync
+   * stage. If the asset is already being loaded with a lower priority, the
+   * priority of its load and those of its dependencies are raised.
+   */
+  public <T> Promise<? extends T> load(final AssetDesc<T> asset, final LoadPriority priority) {
+    log.traceEntry("load(asset: {}, priority: {})", asset, priority);
 
     final AssetContainer container0 = loadedAssets.get(asset);
-    if (container0 != null) return container0.retain().get(asset.type);
+    if (container0 != null) {
+      prioritize(container0, priority);
+      return container0.retain().get(asset.type);
+    }
 
     final Promise<T> promise = sync.newPromise();
-    promise.setUncancellable();
     promise.addListener(future -> {
       final Throwable cause = future.cause();
-      if (cause != null) {
+      if (cause != null && !future.isCancelled()) {
         log.warn("Failed to load asset {}", asset, cause);
       }
     });
@@ -201,7 +338,8 @@ public final class AssetManager implements Disposable {
     }
 
     final AssetContainer container = AssetContainer.wrap(asset, promise, dependencies);
-    final Promise[] promises = loadDependencies(promise, container);
+    container.priority = priority;
+    final Promise[] promises = loadDependencies(promise, container, priority);
     loadedAssets.put(asset, container);
     if (promise.isDone()) return promise; // one or more dependencies was invalid
 
@@ -211,20 +349,29 @@ public final class AssetManager implements Disposable {
       return promise;
     }
 
+    if (dependencies.length == 0) {
+      submit(container);
+      return promise;
+    }
+
     final EventExecutor executor = async.next();
     executor.execute(() -> {
-      if (dependencies.length == 0) {
-        ioAsync(executor, container);
-      } else {
-        PromiseCombiner combiner = new PromiseCombiner(executor);
-        for (Promise dependency : promises) {
-          combiner.add((Future) dependency);
+      PromiseCombiner combiner = new PromiseCombiner(executor);
+      for (Promise dependency : promises) {
+        combiner.add((Future) dependency);
+      }
+
+      Promise<Void> combinerPromise = executor.newPromise();
+      combinerPromise.addListener((FutureListener<Void>) future -> {
+        if (!future.isSuccess()) {
+          promise.tryFailure(new InvalidDependency(
+              asset, "Failed to load one or more dependencies.", future.cause()));
+          return;
         }
 
-        Promise<Void> combinerPromise = executor.newPromise();
-        combinerPromise.addListener((FutureListener<Void>) future -> ioAsync(executor, container));
-        combiner.finish(combinerPromise);
-      }
+        submit(container);
+      });
+      combiner.finish(combinerPromise);
     });
 
     return promise;
@@ -0,0 +1,16 @@
+package com.riiablo.asset;
+
+/**
+ * Priority classes of asset loads. Pending loads of a higher priority are
+ * started and synced before those of a lower priority.
+ *
+ * @see AssetManager#load(AssetDesc, LoadPriority)
+ */
+public enum LoadPriority {
+  /** assets of the player's own entity and UI */
+  PLAYER,
+  /** assets of entities currently on screen */
+  VISIBLE,
+  /** assets which may be needed soon, e.g., entities just off screen */
+  PREFETCH
+}
@@ -0,0 +1,174 @@
+package com.riiablo.asset;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import java.util.ArrayDeque;
+
+import com.riiablo.logger.LogManager;
+import com.riiablo.logger.Logger;
+
+/**
+ * Starts queued loads on an executor group in priority order while the
+ * estimated bytes of the loads in flight remain within a budget. A load which
+ * exceeds the remaining budget waits until enough loads complete, blocking
+ * any loads queued behind it, unless nothing is in flight, s.t., a single
+ * load larger than the budget cannot stall the queue.
+ */
+final class LoadScheduler {
+  private static final Logger log = LogManager.getLogger(LoadScheduler.class);
+
+  static abstract class Task {
+    /** guarded by the scheduler, may be raised until started */
+    LoadPriority priority;
+    final long bytes;
+    long queuedNanos;
+    long startedNanos;
+    boolean started;
+
+    Task(LoadPriority priority, long bytes) {
+      this.priority = priority;
+      this.bytes = bytes;
+    }
+
+    /** whether this task should be dropped instead of started */
+    abstract boolean cancelled();
+
+    /** releases any resources held by this task when it is dropped */
+    abstract void cancel();
+
+    /**
+     * Starts this task, which must call {@link LoadScheduler#complete(Task)}
+     * once its async stage has completed or failed.
+     */
+    abstract void start(EventExecutor executor);
+  }
+
+  final EventExecutorGroup group;
+  final long maxInFlightBytes;
+  final ArrayDeque<Task>[] queues;
+  final LoadStats[] stats;
+  long inFlightBytes;
+  int inFlight;
+
+  @SuppressWarnings("unchecked")
+  LoadScheduler(EventExecutorGroup group, long maxInFlightBytes) {
+    if (maxInFlightBytes <= 0) {
+      throw new IllegalArgumentException("maxInFlightBytes(" + maxInFlightBytes + ") <= " + 0);
+    }
+
+    this.group = group;
+    this.maxInFlightBytes = maxInFlightBytes;
+    final LoadPriority[] priorities = LoadPriority.values();
+    queues = new ArrayDeque[priorities.length];
+    stats = new LoadStats[priorities.length];
+    for (LoadPriority priority : priorities) {
+      queues[priority.ordinal()] = new ArrayDeque<>();
+      stats[priority.ordinal()] = new LoadStats(priority);
+    }
+  }
+
+  LoadStats stats(LoadPriority priority) {
+    return stats[priority.ordinal()];
+  }
+
+  synchronized long inFlightBytes() {
+    return inFlightBytes;
+  }
+
+  void submit(Task task) {
+    task.queuedNanos = System.nanoTime();
+    final LoadPriority priority;
+    synchronized (this) {
+      priority = task.priority;
+      queues[priority.ordinal()].add(task);
+    }
+
+    stats(priority).queued.incrementAndGet();
+    drain();
+  }
+
+  /**
+   * Raises the priority of a task which has not yet started to the specified
+   * priority, moving it to the back of the queue of that priority if it has
+   * already been submitted. Tasks with the same or a higher priority are
+   * unaffected.
+   */
+  void prioritize(Task task, LoadPriority priority) {
+    final LoadPriority previous;
+    synchronized (this) {
+      previous = task.priority;
+      if (task.started || priority.compareTo(previous) >= 0) return;
+      task.priority = priority;
+      if (!queues[previous.ordinal()].remove(task)) return; // not yet submitted
+      queues[priority.ordinal()].add(task);
+    }
+
+    stats(previous).queued.decrementAndGet();
+    stats(priority).queued.incrementAndGet();
+    if (log.debugEnabled()) log.debug("Raised {} from {}", task, previous);
+    drain();
+  }
+
+  void complete(Task task) {
+    synchronized (this) {
+      inFlight--;
+      inFlightBytes -= task.bytes;
+    }
+
+    stats(task.priority).completed(System.nanoTime() - task.startedNanos);
+    drain();
+  }
+
+  void drain() {
+    Task task;
+    while ((task = poll()) != null) {
+      try {
+        task.start(group.next());
+      } catch (Throwable t) {
+        log.error("Failed to start {}", task, t);
+        complete(task);
+      }
+    }
+  }
+
+  /** removes the next task which may be started, or null if there is none */
+  private Task poll() {
+    for (;;) {
+      Task cancelled = null;
+      Task task = null;
+      synchronized (this) {
+        for (ArrayDeque<Task> queue : queues) {
+          final Task head = queue.peek();
+          if (head == null) continue;
+          if (head.cancelled()) {
+            cancelled = queue.poll();
+            break;
+          }
+
+          if (inFlight > 0 && inFlightBytes + head.bytes > maxInFlightBytes) return null;
+          task = queue.poll();
+          task.started = true;
+          inFlight++;
+          inFlightBytes += task.bytes;
+          break;
+        }
+      }
+
+      if (cancelled != null) {
+        final LoadStats stats = stats(cancelled.priority);
+        stats.queued.decrementAndGet();
+        stats.cancelled.incrementAndGet();
+        if (log.debugEnabled()) log.debug("Dropping cancelled {}", cancelled);
+        cancelled.cancel();
+        continue;
+      }
+
+      if (task != null) {
+        task.startedNanos = System.nanoTime();
+        stats(task.priority).started(task.startedNanos - task.queuedNanos);
+      }
+
+      return task;
+    }
+  }
+}
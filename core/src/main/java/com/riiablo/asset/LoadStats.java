@@ -0,0 +1,98 @@
+package com.riiablo.asset;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the loads scheduled with a single {@link LoadPriority}. Wait
+ * time is measured from when a load is queued until it is started, and load
+ * time from when it is started until its async stage completes.
+ */
+public final class LoadStats {
+  final LoadPriority priority;
+  final AtomicInteger queued = new AtomicInteger();
+  final AtomicInteger inFlight = new AtomicInteger();
+  final AtomicLong started = new AtomicLong();
+  final AtomicLong completed = new AtomicLong();
+  final AtomicLong cancelled = new AtomicLong();
+  final AtomicLong waitNanos = new AtomicLong();
+  final AtomicLong maxWaitNanos = new AtomicLong();
+  final AtomicLong loadNanos = new AtomicLong();
+
+  LoadStats(LoadPriority priority) {
+    this.priority = priority;
+  }
+
+  void started(long waitNanos) {
+    queued.decrementAndGet();
+    inFlight.incrementAndGet();
+    started.incrementAndGet();
+    this.waitNanos.addAndGet(waitNanos);
+    long max;
+    while ((max = maxWaitNanos.get()) < waitNanos && !maxWaitNanos.compareAndSet(max, waitNanos));
+  }
+
+  void completed(long loadNanos) {
+    inFlight.decrementAndGet();
+    completed.incrementAndGet();
+    this.loadNanos.addAndGet(loadNanos);
+  }
+
+  public LoadPriority priority() {
+    return priority;
+  }
+
+  /** number of loads waiting to be started */
+  public int queued() {
+    return queued.get();
+  }
+
+  /** number of loads started which have not completed their async stage */
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  public long started() {
+    return started.get();
+  }
+
+  public long completed() {
+    return completed.get();
+  }
+
+  /** number of loads which were unloaded before they were started */
+  public long cancelled() {
+    return cancelled.get();
+  }
+
+  public long waitNanos() {
+    return waitNanos.get();
+  }
+
+  public long maxWaitNanos() {
+    return maxWaitNanos.get();
+  }
+
+  public long loadNanos() {
+    return loadNanos.get();
+  }
+
+  public float averageWaitMillis() {
+    final long started = started();
+    return started == 0 ? 0 : (float) waitNanos() / started / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public float averageLoadMillis() {
+    final long completed = completed();
+    return completed == 0 ? 0 : (float) loadNanos() / completed / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s[queued=%d, inFlight=%d, started=%d, completed=%d, cancelled=%d, avgWait=%.2fms, maxWait=%.2fms, avgLoad=%.2fms]",
+        priority, queued(), inFlight(), started(), completed(), cancelled(),
+        averageWaitMillis(), (float) maxWaitNanos() / TimeUnit.MILLISECONDS.toNanos(1), averageLoadMillis());
+  }
+}
@@ -2,37 +2,61 @@ package com.riiablo.asset;
 
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.Promise;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ordered by priority, then by the order messages were wrapped.
+ */
+final class SyncMessage<T> implements Comparable<SyncMessage<?>> {
+  static final AtomicLong sequence = new AtomicLong();
 
-final class SyncMessage<T> {
   static <T> SyncMessage<T> wrap(
       AssetContainer container,
       Promise<T> promise,
       AssetLoader loader,
-      T object
+      T object,
+      LoadPriority priority
   ) {
-    return new SyncMessage<>(container, promise, loader, object);
+    return new SyncMessage<>(container, promise, loader, object, priority);
   }
 
   final AssetContainer container;
   final Promise<T> promise;
   final AssetLoader loader;
   final T object;
+  final LoadPriority priority;
+  final long order;
 
   SyncMessage(
       AssetContainer container,
       Promise<T> promise,
       AssetLoader loader,
-      T object
+      T object,
+      LoadPriority priority
   ) {
     assert container.promise == promise : "container.promise != promise";
     this.container = container;
     this.promise = promise;
     this.loader = loader;
     this.object = object;
+    this.priority = priority;
+    this.order = sequence.getAndIncrement();
+  }
+
+  @Override
+  public int compareTo(SyncMessage<?> other) {
+    final int cmp = priority.compareTo(other.priority);
+    return cmp != 0 ? cmp : Long.compare(order, other.order);
   }
 
   @SuppressWarnings("unchecked") // guaranteed by loader contract
   Future<?> loadSync(AssetManager assets) {
+    if (promise.isCancelled()) {
+      // asset was unloaded while loading
+      AssetUtils.dispose(object);
+      return promise;
+    }
+
     loader.loadSync(promise, assets, container.asset, object);
     promise.trySuccess(object);
     return promise;
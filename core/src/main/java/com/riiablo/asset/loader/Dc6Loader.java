@@ -40,6 +40,14 @@ public class Dc6Loader extends AssetLoader<Dc6> {
     return new AssetDesc[] { header };
   }
 
+  @Override
+  protected long estimateSize0(AssetManager assets, AssetDesc<Dc6> asset, FileHandle handle) {
+    DcParams params = asset.params(DcParams.class);
+    if (params.direction < 0) return super.estimateSize0(assets, asset, handle);
+    Dc6 dc6 = assets.getDepNow(AssetDesc.of(asset, PARENT_DC));
+    return dc6.dirOffset(params.direction + 1) - dc6.dirOffset(params.direction);
+  }
+
   @Override
   protected <F extends FileHandle> Future<?> ioAsync0(
       EventExecutor executor,
@@ -19,20 +19,12 @@ import com.riiablo.file.Dcc;
 import com.riiablo.file.DccDecoder;
 import com.riiablo.logger.LogManager;
 import com.riiablo.logger.Logger;
-import com.riiablo.util.Pool;
 
 public class DccLoader extends AssetLoader<Dcc> {
   private static final Logger log = LogManager.getLogger(DccLoader.class);
 
   private static final DcParams PARENT_DC = DcParams.of(-1);
 
-  private final Pool<DccDecoder> decoders = new Pool<DccDecoder>(true, false, 4, 8) {
-    @Override
-    protected DccDecoder newInstance() {
-      return new DccDecoder();
-    }
-  };
-
   @Override
   protected AssetDesc[] dependencies0(AssetDesc<Dcc> asset) {
     DcParams params = asset.params(DcParams.class);
@@ -48,6 +40,14 @@ public class DccLoader extends AssetLoader<Dcc> {
         "Dcc does not support DcParams#combineFrames=1");
   }
 
+  @Override
+  protected long estimateSize0(AssetManager assets, AssetDesc<Dcc> asset, FileHandle handle) {
+    DcParams params = asset.params(DcParams.class);
+    if (params.direction < 0) return super.estimateSize0(assets, asset, handle);
+    Dcc dcc = assets.getDepNow(AssetDesc.of(asset, PARENT_DC));
+    return dcc.dirOffset(params.direction + 1) - dcc.dirOffset(params.direction);
+  }
+
   @Override
   protected <F extends FileHandle> Future<?> ioAsync0(
       EventExecutor executor,
@@ -84,13 +84,8 @@ public class DccLoader extends AssetLoader<Dcc> {
       assert data instanceof ByteBuf;
       ByteBuf buffer = (ByteBuf) data; // borrowed, don't release
       dcc.read(buffer, params.direction);
-      DccDecoder decoder = decoders.obtain();
-      try {
-        log.trace("decoding {}", asset);
-        decoder.decode(dcc, params.direction);
-      } finally {
-        decoders.release(decoder);
-      }
+      log.trace("decoding {}", asset);
+      DccDecoder.get().decode(dcc, params.direction); // confined to async executor thread
       return dcc;
     } else {
       assert data instanceof InputStream;
@@ -2,6 +2,7 @@ package com.riiablo.attributes;
 
 import java.io.PrintStream;
 import java.nio.charset.Charset;
+import java.util.BitSet;
 import java.util.Iterator;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 
@@ -46,6 +47,23 @@ public final class Attributes implements Iterable<StatRef> {
     return attributes;
   }
 
+  /**
+   * Returns an attributes capable of holding a standard number of aggregated
+   * stats whose lists are stored within the specified slab. The attributes
+   * should be {@link #release() released} once it is no longer used.
+   *
+   * @see #obtainStandard()
+   */
+  public static Attributes obtainStandard(StatListSlab slab) {
+    final Attributes attributes = obtain();
+    attributes.reset(Type.STANDARD);
+    attributes.list = new StatList(slab).reset(StatList.MAX_LISTS);
+    attributes.base = new StatList(slab).reset(1).buildList();
+    attributes.agg = new StatList(slab).reset(1).buildList();
+    attributes.rem = new StatList(slab).reset(1).buildList();
+    return attributes;
+  }
+
   /**
    * Returns an attributes capable of holding a small number of aggregated
    * stats. This is intended for compact items or other entities which may
@@ -61,6 +79,23 @@ public final class Attributes implements Iterable<StatRef> {
     return attributes;
   }
 
+  /**
+   * Returns an attributes capable of holding a small number of aggregated
+   * stats whose lists are stored within the specified slab. The attributes
+   * should be {@link #release() released} once it is no longer used.
+   *
+   * @see #obtainCompact()
+   */
+  public static Attributes obtainCompact(StatListSlab slab) {
+    final Attributes attributes = obtain();
+    attributes.reset(Type.COMPACT);
+    attributes.list = new StatList(slab).reset(StatList.MAX_LISTS);
+    attributes.base = new StatList(slab).reset(1).buildList();
+    attributes.agg = new StatList(slab).reset(1).buildList();
+    attributes.rem = new StatList(slab).reset(1).buildList();
+    return attributes;
+  }
+
   /**
    * Wraps the specified stat list in an attributes.
    */
@@ -175,6 +210,42 @@ public final class Attributes implements Iterable<StatRef> {
     return this;
   }
 
+  /**
+   * Resets only the specified stats of the aggregate to their base values and
+   * removes them from the remaining stats.
+   */
+  Attributes reset(final BitSet stats) {
+    agg.removeAll(stats);
+    agg.putAll(base, stats);
+    rem.removeAll(stats);
+    return this;
+  }
+
+  /**
+   * Replaces the base of this attributes with a copy-on-write copy of the
+   * specified list, e.g., the base stats shared by all monsters of the same
+   * type. The storage of the list is only copied if the base of this
+   * attributes is mutated.
+   *
+   * @see StatListRef#share()
+   */
+  public Attributes shareBase(final StatListRef base) {
+    this.base.release();
+    this.base = base.share();
+    return this;
+  }
+
+  /**
+   * Returns the storage of the lists of this attributes to their slabs. This
+   * attributes must not be used afterwards.
+   */
+  public void release() {
+    list.release();
+    base.release();
+    agg.release();
+    rem.release();
+  }
+
   public void clear()  {
     list.forceClear();
     base.clear();
@@ -1,5 +1,7 @@
 package com.riiablo.attributes;
 
+import java.util.BitSet;
+
 import com.riiablo.codec.excel.CharStats;
 import com.riiablo.codec.excel.ItemStatCost;
 import com.riiablo.logger.LogManager;
@@ -29,25 +31,67 @@ public final class AttributesUpdater {
     return UpdateSequence.obtain().reset(this, attrs, listFlags, opBase, charStats);
   }
 
+  /**
+   * Returns an update which retains its sequence of lists and, once applied,
+   * recomputes only the stats affected by changes to that sequence.
+   *
+   * @see IncrementalUpdate
+   */
+  public IncrementalUpdate incremental(final Attributes attrs, final CharStats.Entry charStats) {
+    return incremental(attrs, StatListFlags.FLAG_NONE, attrs, charStats);
+  }
+
+  public IncrementalUpdate incremental(
+      final Attributes attrs,
+      final int listFlags,
+      final Attributes opBase,
+      final CharStats.Entry charStats) {
+    return new IncrementalUpdate(this, attrs, listFlags, opBase, charStats);
+  }
+
   void add(
       final Attributes attrs,
       final StatListRef stats) {
-    add(attrs.base(), attrs.aggregate(), attrs.remaining(), stats);
+    add(attrs, stats, null);
+  }
+
+  /**
+   * @param filter ids of the stats to add, or {@code null} to add all stats
+   */
+  void add(
+      final Attributes attrs,
+      final StatListRef stats,
+      final BitSet filter) {
+    add(attrs.base(), attrs.aggregate(), attrs.remaining(), stats, filter);
   }
 
   void apply(
       final Attributes attrs,
       final CharStats.Entry charStats,
       final Attributes opBase) {
-    apply(attrs.base(), attrs.aggregate(), attrs.remaining(), opBase, charStats);
+    apply(attrs, charStats, opBase, null);
+  }
+
+  /**
+   * @param filter ids of the remaining stats to apply, or {@code null} to
+   *               apply all remaining stats
+   */
+  void apply(
+      final Attributes attrs,
+      final CharStats.Entry charStats,
+      final Attributes opBase,
+      final BitSet filter) {
+    apply(attrs.base(), attrs.aggregate(), attrs.remaining(), opBase, charStats, filter);
   }
 
   static void add(
       final StatListRef base,
       final StatListRef agg,
       final StatListRef rem,
-      final StatListRef stats) {
+      final StatListRef stats,
+      final BitSet filter) {
     for (StatRef stat : stats) {
+      if (filter != null && !filter.get(stat.id())) continue;
       final ItemStatCost.Entry entry = stat.entry();
       try {
         MDC.put("addStat", stat.id());
@@ -73,9 +117,15 @@ public final class AttributesUpdater {
       final StatListRef agg,
       final StatListRef rem,
       final Attributes opBase,
-      final CharStats.Entry charStats) {
+      final CharStats.Entry charStats,
+      final BitSet filter) {
     for (final StatList.StatIterator it = rem.statIterator(); it.hasNext();) {
       final StatRef stat = it.next();
+      if (filter != null && !filter.get(stat.id())) {
+        it.pushback();
+        continue;
+      }
+
       final ItemStatCost.Entry entry = stat.entry();
       try {
         MDC.put("applyStat", stat.id());
@@ -0,0 +1,135 @@
+package com.riiablo.attributes;
+
+import java.util.BitSet;
+
+import com.badlogic.gdx.utils.Array;
+
+import com.riiablo.codec.excel.CharStats;
+import com.riiablo.logger.LogManager;
+import com.riiablo.logger.Logger;
+
+/**
+ * Update which retains its sequence of lists s.t. subsequent applies only
+ * recompute the stats affected by changes to the sequence.
+ * <p/>
+ * Adding or removing a list marks its stats as dirty. On {@link #apply()},
+ * the dirty stats are expanded to every stat they may affect or be affected
+ * by (see {@link StatDependencies}), those stats are reset to their base
+ * values and the update is replayed for only those stats. The first apply and
+ * any apply following {@link #invalidate()} perform a full update.
+ * <p/>
+ * If the contents of a list within the sequence are changed, the list should
+ * be {@link #markDirty(StatListRef) marked dirty} both before and after it
+ * is changed, otherwise stats removed from it would not be recomputed.
+ */
+public final class IncrementalUpdate {
+  private static final Logger log = LogManager.getLogger(IncrementalUpdate.class);
+
+  private final AttributesUpdater updater;
+  private final Attributes attrs;
+  private final StatDependencies dependencies;
+  private final Array<StatListRef> sequence = new Array<>(StatListRef.class);
+  private final BitSet dirty = new BitSet();
+  private final BitSet components = new BitSet();
+
+  private Attributes opBase;
+  private CharStats.Entry charStats;
+  private boolean invalidated = true;
+
+  IncrementalUpdate(
+      final AttributesUpdater updater,
+      final Attributes attrs,
+      final int listFlags,
+      final Attributes opBase,
+      final CharStats.Entry charStats) {
+    this.updater = updater;
+    this.attrs = attrs;
+    this.opBase = opBase;
+    this.charStats = charStats;
+    this.dependencies = StatDependencies.get();
+    if (!attrs.type().updatable()) return;
+    if (!attrs.type().isValid(listFlags)) return;
+
+    final StatList list = attrs.list();
+    for (int i = 0, s = list.numLists(); i < s; i++) {
+      if (((listFlags >> i) & 1) == 1) {
+        sequence.add(list.get(i));
+      }
+    }
+  }
+
+  public Attributes attributes() {
+    return attrs;
+  }
+
+  public IncrementalUpdate add(final StatListRef stats) {
+    if (log.traceEnabled()) log.traceEntry("add(stats: {})", stats);
+    sequence.add(stats);
+    return markDirty(stats);
+  }
+
+  public IncrementalUpdate remove(final StatListRef stats) {
+    if (log.traceEnabled()) log.traceEntry("remove(stats: {})", stats);
+    if (!sequence.removeValue(stats, true)) {
+      throw new IllegalArgumentException("sequence does not contain stats(" + stats + ")");
+    }
+
+    return markDirty(stats);
+  }
+
+  /**
+   * Marks the stats currently within the specified list as dirty.
+   */
+  public IncrementalUpdate markDirty(final StatListRef stats) {
+    for (StatRef stat : stats) dirty.set(stat.id());
+    return this;
+  }
+
+  /**
+   * Marks the specified stat as dirty, e.g., when a stat of the op base used
+   * by this update changes.
+   */
+  public IncrementalUpdate markDirty(final short stat) {
+    dirty.set(stat);
+    return this;
+  }
+
+  /**
+   * Forces the next apply to perform a full update.
+   */
+  public IncrementalUpdate invalidate() {
+    invalidated = true;
+    return this;
+  }
+
+  public IncrementalUpdate setOpBase(final Attributes opBase) {
+    this.opBase = opBase;
+    return invalidate();
+  }
+
+  public IncrementalUpdate setCharStats(final CharStats.Entry charStats) {
+    this.charStats = charStats;
+    return invalidate();
+  }
+
+  public Attributes apply() {
+    final StatListRef[] sequence = this.sequence.items;
+    final int sequenceLength = this.sequence.size;
+    if (invalidated) {
+      final UpdateSequence update = updater.update(attrs, StatListFlags.FLAG_NONE, opBase, charStats);
+      for (int i = 0; i < sequenceLength; i++) update.add(sequence[i]);
+      invalidated = false;
+      dirty.clear();
+      return update.apply();
+    }
+
+    if (dirty.isEmpty()) return attrs;
+    dependencies.close(dirty, components);
+    if (log.traceEnabled()) log.trace("Recomputing stats {}", dirty);
+    attrs.reset(dirty);
+    for (int i = 0; i < sequenceLength; i++) updater.add(attrs, sequence[i], dirty);
+    updater.apply(attrs, charStats, opBase, dirty);
+    dirty.clear();
+    return attrs;
+  }
+}
@@ -0,0 +1,87 @@
+package com.riiablo.attributes;
+
+import java.util.BitSet;
+import org.apache.commons.lang3.StringUtils;
+
+import com.riiablo.Riiablo;
+import com.riiablo.codec.excel.ItemStatCost;
+
+/**
+ * Partitions stats into groups which may affect each other's aggregate values
+ * when attributes are updated. A stat with an op modifies its op_stat using
+ * its op_base, and whether it is aggregated depends on its op_stat being
+ * aggregated, so these relations are treated as undirected edges and stats
+ * are grouped by the connected components they form. Replaying an update for
+ * whole components yields the same values as a full update.
+ */
+final class StatDependencies {
+  private static StatDependencies instance;
+
+  static synchronized StatDependencies get() {
+    final ItemStatCost table = Riiablo.files.ItemStatCost;
+    if (instance == null || instance.table != table) {
+      instance = new StatDependencies(table);
+    }
+
+    return instance;
+  }
+
+  final ItemStatCost table;
+  private final int[] components;
+
+  StatDependencies(ItemStatCost table) {
+    this.table = table;
+
+    int numStats = 0;
+    for (ItemStatCost.Entry entry : table) {
+      numStats = Math.max(numStats, entry.ID + 1);
+    }
+
+    final int[] components = this.components = new int[numStats];
+    for (int i = 0; i < numStats; i++) components[i] = i;
+    for (ItemStatCost.Entry entry : table) {
+      if (entry.op <= 0) continue;
+      if (StringUtils.isNotEmpty(entry.op_base)) union(entry.ID, table.index(entry.op_base));
+      if (entry.op_stat == null) continue;
+      for (String op_stat : entry.op_stat) {
+        if (StringUtils.isEmpty(op_stat)) break;
+        union(entry.ID, table.index(op_stat));
+      }
+    }
+
+    for (int i = 0; i < numStats; i++) components[i] = find(i);
+  }
+
+  private int find(int stat) {
+    final int[] components = this.components;
+    while (components[stat] != stat) {
+      stat = components[stat] = components[components[stat]];
+    }
+
+    return stat;
+  }
+
+  private void union(final int stat, final int other) {
+    if (other < 0 || other >= components.length) return;
+    final int root = find(stat);
+    final int otherRoot = find(other);
+    if (root != otherRoot) components[Math.max(root, otherRoot)] = Math.min(root, otherRoot);
+  }
+
+  /**
+   * Adds every stat which shares a component with a stat within the set.
+   *
+   * @param stats      ids of the stats to close over
+   * @param components scratch set used to collect components
+   */
+  void close(final BitSet stats, final BitSet components) {
+    components.clear();
+    for (int i = stats.nextSetBit(0); i >= 0; i = stats.nextSetBit(i + 1)) {
+      if (i < this.components.length) components.set(this.components[i]);
+    }
+
+    for (int i = 0, s = this.components.length; i < s; i++) {
+      if (components.get(this.components[i])) stats.set(i);
+    }
+  }
+}
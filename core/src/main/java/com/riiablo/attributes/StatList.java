@@ -1,6 +1,7 @@
 package com.riiablo.attributes;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -17,6 +18,14 @@ public final class StatList {
     return new StatList().reset(1).buildList();
   }
 
+  /**
+   * Returns a list backed by the specified slab. The list should be
+   * {@link StatListRef#release() released} once it is no longer used.
+   */
+  public static StatListRef obtain(StatListSlab slab) {
+    return new StatList(slab).reset(1).buildList();
+  }
+
   static final int MAX_LISTS = Byte.SIZE;
   static final int DEFAULT_SIZE = 32;
   static final int MAX_SIZE = 1 << Byte.SIZE;
@@ -31,10 +40,23 @@ public final class StatList {
   private static final long UINT_MAX_VALUE = (1L << Integer.SIZE) - 1;
 
   private final byte[] offsets = new byte[index(MAX_LISTS)];
-  private final short[] ids;
-  private final int[] params;
-  private final int[] values;
-  private final byte[] flags;
+
+  /**
+   * Stats are stored within {@code [base, base + maxSize)} of these arrays,
+   * which are either owned by this list or a page of {@link #slab}. Indexes
+   * used by this class and its refs are relative to {@code base}.
+   */
+  private short[] ids;
+  private int[] params;
+  private int[] values;
+  private byte[] flags;
+  private int base;
+
+  private final StatListSlab slab;
+  private int block = -1;
+
+  /** storage is shared with the list this list was shared from */
+  private boolean shared;
 
   private final int maxSize;
   private int maxLists;
@@ -54,10 +76,100 @@ public final class StatList {
   StatList(int maxSize) {
     assert maxSize >= 0 && maxSize <= MAX_SIZE;
     this.maxSize = maxSize;
-    ids = new short[maxSize];
-    params = new int[maxSize];
-    values = new int[maxSize];
-    flags = new byte[maxSize];
+    this.slab = null;
+    allocate();
+  }
+
+  StatList(StatListSlab slab) {
+    this.maxSize = slab.blockSize;
+    this.slab = slab;
+    allocate();
+  }
+
+  /** @see #share() */
+  private StatList(StatList src) {
+    maxSize = src.maxSize;
+    slab = src.slab;
+    ids = src.ids;
+    params = src.params;
+    values = src.values;
+    flags = src.flags;
+    base = src.base;
+    shared = true;
+    System.arraycopy(src.offsets, 0, offsets, 0, offsets.length);
+    maxLists = src.maxLists;
+    numLists = src.numLists;
+    tail = src.tail;
+    listsMask = src.listsMask;
+  }
+
+  private void allocate() {
+    if (slab == null) {
+      ids = new short[maxSize];
+      params = new int[maxSize];
+      values = new int[maxSize];
+      flags = new byte[maxSize];
+      base = 0;
+    } else {
+      final int block = this.block = slab.allocate();
+      final StatListSlab.Page page = slab.page(block);
+      ids = page.ids;
+      params = page.params;
+      values = page.values;
+      flags = page.flags;
+      base = slab.offset(block);
+    }
+  }
+
+  /**
+   * Copies the storage of a shared list before it is mutated. Indexes are
+   * relative, so refs and iterators of this list remain valid.
+   */
+  private void mutate() {
+    if (!shared) return;
+    if (log.traceEnabled()) log.trace("copying shared storage of {}", this);
+    final short[] ids = this.ids;
+    final int[] params = this.params;
+    final int[] values = this.values;
+    final byte[] flags = this.flags;
+    final int base = this.base;
+    allocate();
+    shared = false;
+    System.arraycopy(ids, base, this.ids, this.base, tail);
+    System.arraycopy(params, base, this.params, this.base, tail);
+    System.arraycopy(values, base, this.values, this.base, tail);
+    System.arraycopy(flags, base, this.flags, this.base, tail);
+  }
+
+  /**
+   * Returns a copy-on-write copy of this list. This list is frozen and its
+   * storage is shared with the copy until the copy is first mutated, e.g.,
+   * each monster of a type may share the base stats of that type. This list
+   * must not be mutated or {@link #release() released} while it is shared.
+   */
+  StatList share() {
+    freeze();
+    return new StatList(this);
+  }
+
+  boolean isShared() {
+    return shared;
+  }
+
+  /**
+   * Returns the storage of this list to its slab, if any. This list must not
+   * be used afterwards.
+   */
+  void release() {
+    if (block >= 0) {
+      slab.free(block);
+      block = -1;
+    }
+
+    ids = null;
+    params = null;
+    values = null;
+    flags = null;
   }
 
   StatList reset(final int maxLists) {
@@ -73,6 +185,7 @@ public final class StatList {
 
   StatList truncate(final int maxLists) {
     log.traceEntry("truncate(maxLists: {})", maxLists);
+    mutate();
     assert maxLists > 0 : "maxLists(" + maxLists + ") <= " + 0;
     assert maxLists <= this.maxLists : "maxLists(" + maxLists + ") > this.maxLists(" + this.maxLists + ")";
     for (int i = maxLists, s = this.maxLists; i < s; i++) {
@@ -120,6 +233,7 @@ public final class StatList {
   StatList clear() {
     log.traceEntry("clear()");
     assertMutable();
+    mutate();
     numLists = 0;
     tail = 0;
     return this;
@@ -128,6 +242,7 @@ public final class StatList {
   StatList clear(final int list) {
     log.traceEntry("clear(list: {})", list);
     assertMutable(list);
+    mutate();
     setEndingOffset(list, startingOffset(list));
     return this;
   }
@@ -159,6 +274,7 @@ public final class StatList {
   int newList(final int capacity) {
     log.traceEntry("newList(capacity: {})", capacity);
     assertMutable(numLists);
+    mutate();
     if (numLists >= maxLists) {
       throw new IndexOutOfBoundsException("Max number of lists has already been created: maxLists(" + maxLists + ")");
     }
@@ -200,7 +316,7 @@ public final class StatList {
   }
 
   boolean containsAny(final int list, final short stat) {
-    return contains(list) && Arrays.binarySearch(ids, startingOffset(list), endingOffset(list), stat) >= 0;
+    return contains(list) && binarySearch(ids, startingOffset(list), endingOffset(list), stat) >= 0;
   }
 
   boolean containsEncoded(final int list, final short stat, final int encodedParams) {
@@ -217,6 +333,7 @@ public final class StatList {
         "putEncoded(stat: %d (%s), encodedParams: %d (0x%3$x), encodedValues: %d (0x%4$x))",
         stat, entry, encodedParams, encodedValues);
     assertMutable(list);
+    mutate();
 
     final int encoding = entry.Encode;
     if (log.warnEnabled() && !Stat.encodingSupported(encoding)) log.warn(
@@ -266,28 +383,28 @@ public final class StatList {
   }
 
   int setEncoded(final int list, final int index, final int encodedValues) {
-    final short stat = ids[index];
+    final short stat = ids[base + index];
     assertSimple(stat);
     assert equalsEncoded(index, stat, 0);
     return setEncoded(list, index, stat, entry(stat), 0, encodedValues);
   }
 
   int set(final int list, final int index, final int value) {
-    final short stat = ids[index];
+    final short stat = ids[base + index];
     assertSimple(stat);
     assert equalsEncoded(index, stat, 0);
     return setEncoded(list, index, stat, entry(stat), 0, Stat.encode(stat, value));
   }
 
   int set(final int list, final int index, final long value) {
-    final short stat = ids[index];
+    final short stat = ids[base + index];
     assertSimple(stat);
     assert value <= UINT_MAX_VALUE : "value(" + value + ") > " + UINT_MAX_VALUE;
     return setEncoded(list, index, stat, entry(stat), 0, asInt(value));
   }
 
   int set(final int list, final int index, final float value) {
-    final short stat = ids[index];
+    final short stat = ids[base + index];
     assertSimple(stat);
     return setEncoded(list, index, stat, entry(stat), 0, asInt(stat, value));
   }
@@ -304,6 +421,7 @@ public final class StatList {
     }
 
     assertMutable();
+    mutate();
     clear();
     System.arraycopy(src.offsets, 0, this.offsets, 0, index(src.numLists));
     arraycopy(src, 0, this, 0, src.tail);
@@ -320,6 +438,7 @@ public final class StatList {
     }
 
     assertMutable(list);
+    mutate();
     clear(list);
     final int startOffset = startingOffset(list);
     ensureCapacity(list, startOffset, src.size());
@@ -327,23 +446,62 @@ public final class StatList {
     arraycopy(srcParent, srcParent.startingOffset(src.list), this, startOffset, srcSize);
   }
 
+  /**
+   * Copies the stats of {@code src} whose ids are within {@code stats} into
+   * the specified list, replacing any existing stats with the same params.
+   */
+  void putAll(final int list, final StatListRef src, final BitSet stats) {
+    if (log.traceEnabled()) log.traceEntry("putAll(list: {}, src: {}, stats: {})", list, src, stats);
+    assertMutable(list);
+    mutate();
+    final StatList srcParent = src.parent();
+    for (int i = srcParent.startingOffset(src.list), s = srcParent.endingOffset(src.list); i < s; i++) {
+      final short stat = srcParent.id(i);
+      if (!stats.get(stat)) continue;
+      int index = indexOfEncoded(list, stat, srcParent.encodedParams(i));
+      if (index < 0) ensureCapacity(list, index = ~index, 1);
+      arraycopy(srcParent, i, this, index, 1);
+    }
+  }
+
+  /**
+   * Removes all stats from the specified list whose ids are within
+   * {@code stats}.
+   */
+  void removeAll(final int list, final BitSet stats) {
+    if (log.traceEnabled()) log.traceEntry("removeAll(list: {}, stats: {})", list, stats);
+    assertMutable(list);
+    mutate();
+    final short[] ids = this.ids;
+    final int endOffset = endingOffset(list);
+    int head = startingOffset(list);
+    for (int i = head; i < endOffset; i++) {
+      if (stats.get(ids[base + i])) continue;
+      if (head != i) arraycopy(i, head, 1);
+      head++;
+    }
+
+    setEndingOffset(list, head);
+  }
+
   int addEncoded(final int list, final int index, final int encodedValues) {
     assert contains(list, index);
     assert encoding(index) <= 2 : "#addEncoded() unsupported for encoding(" + encoding(index) + ")";
-    final short stat = ids[index];
+    final short stat = ids[base + index];
     assertSimple(stat);
     assert equalsEncoded(index, stat, 0);
+    mutate();
     if (log.traceEnabled()) log.tracefEntry(
         "addEncoded(stat: %d (%s), encodedValues: %d (0x%3$x))",
         stat, entry(index), encodedValues);
-    values[index] += encodedValues;
-    flags[index] |= FLAG_MODIFIED;
+    values[base + index] += encodedValues;
+    flags[base + index] |= FLAG_MODIFIED;
     if (log.debugEnabled()) log.debug(indexDebugString(index));
     return index;
   }
 
   int add(final int list, final int index, final int value) {
-    return addEncoded(list, index, Stat.encode(ids[index], value));
+    return addEncoded(list, index, Stat.encode(ids[base + index], value));
   }
 
   int add(final int list, final int index, final long value) {
@@ -351,25 +509,26 @@ public final class StatList {
   }
 
   int add(final int list, final int index, final float value) {
-    return addEncoded(list, index, asInt(ids[index], value));
+    return addEncoded(list, index, asInt(ids[base + index], value));
   }
 
   int subEncoded(final int list, final int index, final int encodedValues) {
     assert contains(list, index);
     assert encoding(index) <= 2 : "#subEncoded() unsupported for encoding(" + encoding(index) + ")";
-    final short stat = ids[index];
+    final short stat = ids[base + index];
     assertSimple(stat);
     assert equalsEncoded(index, stat, 0);
+    mutate();
     if (log.traceEnabled()) log.tracefEntry(
         "subEncoded(stat: %d (%s), encodedValues: %d (0x%3$x))",
         stat, entry(index), encodedValues);
-    values[index] -= encodedValues;
+    values[base + index] -= encodedValues;
     if (log.debugEnabled()) log.debug(indexDebugString(index));
     return index;
   }
 
   int sub(final int list, final int index, final int value) {
-    return subEncoded(list, index, Stat.encode(ids[index], value));
+    return subEncoded(list, index, Stat.encode(ids[base + index], value));
   }
 
   int sub(final int list, final int index, final long value) {
@@ -377,7 +536,7 @@ public final class StatList {
   }
 
   int sub(final int list, final int index, final float value) {
-    return subEncoded(list, index, asInt(ids[index], value));
+    return subEncoded(list, index, asInt(ids[base + index], value));
   }
 
   private static int asInt(final long value) {
@@ -391,26 +550,26 @@ public final class StatList {
 
   int asInt(final int index) {
     assert Stat.numEncodedValues(encoding(index)) == 1;
-    return (flags[index] & FLAG_FIXED) == FLAG_FIXED
-        ? Stat.decode(ids[index], encodedValues(index))
+    return (flags[base + index] & FLAG_FIXED) == FLAG_FIXED
+        ? Stat.decode(ids[base + index], encodedValues(index))
         : encodedValues(index);
   }
 
   long asLong(final int index) {
     assert Stat.numEncodedValues(encoding(index)) == 1;
-    return (flags[index] & FLAG_FIXED) == FLAG_FIXED
-        ? Stat.decode(ids[index], encodedValues(index))
+    return (flags[base + index] & FLAG_FIXED) == FLAG_FIXED
+        ? Stat.decode(ids[base + index], encodedValues(index))
         : encodedValues(index);
   }
 
   float asFixed(final int index) {
     assert Stat.numEncodedValues(encoding(index)) == 1;
-    assert entry(ids[index]).ValShift == 8 : "entry.ValShift(" + entry(ids[index]).ValShift + ") != " + 8;
+    assert entry(ids[base + index]).ValShift == 8 : "entry.ValShift(" + entry(ids[base + index]).ValShift + ") != " + 8;
     return Fixed.intBitsToFloat(encodedValues(index), 8);
   }
 
   String asString(final int index) {
-    final byte flags = this.flags[index];
+    final byte flags = this.flags[base + index];
     return (flags & FLAG_FIXED) == 0
         ? (flags & FLAG_LONG) == 0
             ? String.valueOf(asLong(index))
@@ -421,11 +580,11 @@ public final class StatList {
   int value0(final int index) {
     switch (encoding(index)) {
       default: // fall-through
-      case 0: return values[index];
-      case 1: return values[index];
-      case 2: return values[index];
-      case 3: return values[index] & 0xFF;
-      case 4: return values[index] & 0x3;
+      case 0: return values[base + index];
+      case 1: return values[base + index];
+      case 2: return values[base + index];
+      case 3: return values[base + index] & 0xFF;
+      case 4: return values[base + index] & 0x3;
     }
   }
 
@@ -435,8 +594,8 @@ public final class StatList {
       case 0: return 0;
       case 1: return 0;
       case 2: return 0;
-      case 3: return (values[index] >>> 8) & 0xFF;
-      case 4: return (values[index] >>> 2) & 0x3FF;
+      case 3: return (values[base + index] >>> 8) & 0xFF;
+      case 4: return (values[base + index] >>> 2) & 0x3FF;
     }
   }
 
@@ -447,18 +606,18 @@ public final class StatList {
       case 1: return 0;
       case 2: return 0;
       case 3: return 0;
-      case 4: return (values[index] >>> 12) & 0x3FF;
+      case 4: return (values[base + index] >>> 12) & 0x3FF;
     }
   }
 
   int param0(final int index) {
     switch (encoding(index)) {
       default: // fall-through
-      case 0: return params[index];
-      case 1: return params[index];
-      case 2: return params[index] & 0x3F;
-      case 3: return params[index] & 0x3F;
-      case 4: return params[index];
+      case 0: return params[base + index];
+      case 1: return params[base + index];
+      case 2: return params[base + index] & 0x3F;
+      case 3: return params[base + index] & 0x3F;
+      case 4: return params[base + index];
     }
   }
 
@@ -467,14 +626,14 @@ public final class StatList {
       default: // fall-through
       case 0: return 0;
       case 1: return 0;
-      case 2: return (params[index] >>> 6) & 0x3FF;
-      case 3: return (params[index] >>> 6) & 0x3FF;
+      case 2: return (params[base + index] >>> 6) & 0x3FF;
+      case 3: return (params[base + index] >>> 6) & 0x3FF;
       case 4: return 0;
     }
   }
 
   String indexDebugString(final int index) {
-    final byte flags = this.flags[index];
+    final byte flags = this.flags[base + index];
     final StringBuilder sb = new StringBuilder(32);
     if ((flags & FLAG_MODIFIED) == FLAG_MODIFIED) {
       sb.append('*');
@@ -482,7 +641,7 @@ public final class StatList {
 
     sb.append(entry(index))
         .append('(')
-        .append(ids[index])
+        .append(ids[base + index])
         .append(")=");
 
     final int encoding = flags & ENCODING_MASK;
@@ -517,10 +676,10 @@ public final class StatList {
         .append("list", list)
         .append("immutable", !isMutable(list))
         .append("size", endIndex - startIndex)
-        .append("ids", '{' + StringUtils.join(ids, ',', startIndex, endIndex) + '}')
-        .append("values", '{' + StringUtils.join(values, ',', startIndex, endIndex) + '}')
-        .append("params", '{' + StringUtils.join(params, ',', startIndex, endIndex) + '}')
-        .append("flags", '{' + StringUtils.join(flags, ',', startIndex, endIndex) + '}')
+        .append("ids", '{' + StringUtils.join(ids, ',', base + startIndex, base + endIndex) + '}')
+        .append("values", '{' + StringUtils.join(values, ',', base + startIndex, base + endIndex) + '}')
+        .append("params", '{' + StringUtils.join(params, ',', base + startIndex, base + endIndex) + '}')
+        .append("flags", '{' + StringUtils.join(flags, ',', base + startIndex, base + endIndex) + '}')
         .build();
   }
 
@@ -533,23 +692,23 @@ public final class StatList {
         .append("tail", tail)
         .append("maxSize", maxSize)
         .append("offsets", '{' + StringUtils.join(offsets, ',', 0, index(numLists)) + '}')
-        .append("ids", '{' + StringUtils.join(ids, ',', 0, tail) + '}')
-        .append("values", '{' + StringUtils.join(values, ',', 0, tail) + '}')
-        .append("params", '{' + StringUtils.join(params, ',', 0, tail) + '}')
-        .append("flags", '{' + StringUtils.join(flags, ',', 0, tail) + '}')
+        .append("ids", '{' + StringUtils.join(ids, ',', base, base + tail) + '}')
+        .append("values", '{' + StringUtils.join(values, ',', base, base + tail) + '}')
+        .append("params", '{' + StringUtils.join(params, ',', base, base + tail) + '}')
+        .append("flags", '{' + StringUtils.join(flags, ',', base, base + tail) + '}')
         .build();
   }
 
   boolean equalsEncoded(final int index, final short stat, final int encodedParams) {
-    return ids[index] == stat && params[index] == encodedParams;
+    return ids[base + index] == stat && params[base + index] == encodedParams;
   }
 
   short id(final int index) {
-    return ids[index];
+    return ids[base + index];
   }
 
   ItemStatCost.Entry entry(final int index) {
-    return entry(ids[index]);
+    return entry(ids[base + index]);
   }
 
   static ItemStatCost.Entry entry(final short stat) {
@@ -557,23 +716,24 @@ public final class StatList {
   }
 
   int encoding(final int index) {
-    return flags[index] & ENCODING_MASK;
+    return flags[base + index] & ENCODING_MASK;
   }
 
   boolean modified(final int index) {
-    return (flags[index] & FLAG_MODIFIED) == FLAG_MODIFIED;
+    return (flags[base + index] & FLAG_MODIFIED) == FLAG_MODIFIED;
   }
 
   void forceUnmodified(final int index) {
-    flags[index] &= ~FLAG_MODIFIED;
+    mutate();
+    flags[base + index] &= ~FLAG_MODIFIED;
   }
 
   int encodedValues(final int index) {
-    return values[index];
+    return values[base + index];
   }
 
   int encodedParams(final int index) {
-    return params[index];
+    return params[base + index];
   }
 
   private final void assertSimple(final short stat) {
@@ -594,15 +754,16 @@ public final class StatList {
     if (log.traceEnabled()) log.traceEntry(
         "arraycopy(src: {}, srcIndex: {}, dst: {}, dstIndex: {}, length: {})",
         src, srcIndex, dst, dstIndex, length);
-    System.arraycopy(src.ids, srcIndex, dst.ids, dstIndex, length);
-    System.arraycopy(src.params, srcIndex, dst.params, dstIndex, length);
-    System.arraycopy(src.values, srcIndex, dst.values, dstIndex, length);
-    System.arraycopy(src.flags, srcIndex, dst.flags, dstIndex, length);
+    System.arraycopy(src.ids, src.base + srcIndex, dst.ids, dst.base + dstIndex, length);
+    System.arraycopy(src.params, src.base + srcIndex, dst.params, dst.base + dstIndex, length);
+    System.arraycopy(src.values, src.base + srcIndex, dst.values, dst.base + dstIndex, length);
+    System.arraycopy(src.flags, src.base + srcIndex, dst.flags, dst.base + dstIndex, length);
   }
 
   private void ensureCapacity(final int list, final int index, final int capacity) {
     log.traceEntry("ensureCapacity(list: {}, index: {}, capacity: {})", list, index, capacity);
     assertMutable();
+    mutate();
     final int endOffset = endingOffset(list);
     assert index <= endOffset : "index(" + index + ") > list.endOffset(" + endOffset + ")";
     final int shiftLength = endOffset - index;
@@ -641,10 +802,11 @@ public final class StatList {
         "setEncoded(index: %d, stat: %d (%s), param: %d (0x%4$x), value: %d (0x%5$x))",
         index, stat, entry, encodedParams, encodedValue);
     assert isMutable(list);
-    ids[index] = stat;
-    params[index] = encodedParams;
-    values[index] = encodedValue;
-    flags[index] = encodeFlags(entry);
+    mutate();
+    ids[base + index] = stat;
+    params[base + index] = encodedParams;
+    values[base + index] = encodedValue;
+    flags[base + index] = encodeFlags(entry);
     if (log.debugEnabled()) log.debug(indexDebugString(index));
     return index;
   }
@@ -682,12 +844,12 @@ public final class StatList {
   int indexOfEncoded(final int list, final short stat, final int encodedParams, boolean first) {
     final int listStart = startingOffset(list);
     final int listEnd = endingOffset(list);
-    final int index = Arrays.binarySearch(ids, listStart, listEnd, stat);
+    final int index = binarySearch(ids, listStart, listEnd, stat);
     if (index >= 0) {
       final int startIndex = firstIndexOf(stat, index, listStart);
       if (first) return startIndex;
       final int endIndex = lastIndexOf(stat, index, listEnd);
-      return Arrays.binarySearch(params, startIndex, endIndex, encodedParams);
+      return binarySearch(params, startIndex, endIndex, encodedParams);
     } else {
       return index;
     }
@@ -702,17 +864,29 @@ public final class StatList {
     return indexOfEncoded(list, ref.id(), ref.encodedParams());
   }
 
+  /** @see Arrays#binarySearch(short[], int, int, short) with relative indexes */
+  private int binarySearch(final short[] a, final int fromIndex, final int toIndex, final short key) {
+    final int index = Arrays.binarySearch(a, base + fromIndex, base + toIndex, key);
+    return index >= 0 ? index - base : index + base;
+  }
+
+  /** @see Arrays#binarySearch(int[], int, int, int) with relative indexes */
+  private int binarySearch(final int[] a, final int fromIndex, final int toIndex, final int key) {
+    final int index = Arrays.binarySearch(a, base + fromIndex, base + toIndex, key);
+    return index >= 0 ? index - base : index + base;
+  }
+
   private int firstIndexOf(final short stat, final int startIndex, final int listStart) {
     int i = startIndex - 1;
     final short[] ids = this.ids;
-    while (i >= listStart && ids[i] == stat) i--;
+    while (i >= listStart && ids[base + i] == stat) i--;
     return i + 1;
   }
 
   private int lastIndexOf(final short stat, final int startIndex, final int listEnd) {
     int i = startIndex + 1;
     final short[] ids = this.ids;
-    for (final int s = listEnd; i < s && ids[i] == stat; i++);
+    for (final int s = listEnd; i < s && ids[base + i] == stat; i++);
     return i;
   }
 
@@ -1,5 +1,6 @@
 package com.riiablo.attributes;
 
+import java.util.BitSet;
 import java.util.Iterator;
 
 import com.riiablo.logger.LogManager;
@@ -247,6 +248,35 @@ public final class StatListRef implements Iterable<StatRef> {
     return this;
   }
 
+  StatListRef putAll(final StatListRef src, final BitSet ids) {
+    stats.putAll(list, src, ids);
+    return this;
+  }
+
+  StatListRef removeAll(final BitSet ids) {
+    stats.removeAll(list, ids);
+    return this;
+  }
+
+  /**
+   * Returns a copy-on-write copy of this list's parent, freezing the parent.
+   *
+   * @see StatList#share()
+   */
+  public StatListRef share() {
+    return new StatListRef(stats.share(), list);
+  }
+
+  /**
+   * Returns the storage of this list's parent to its slab. The parent and all
+   * refs to it must not be used afterwards.
+   *
+   * @see StatList#release()
+   */
+  public void release() {
+    stats.release();
+  }
+
   public StatListRef setAll(final StatListRef src) {
     stats.setAll(list, src);
     return this;
@@ -0,0 +1,96 @@
+package com.riiablo.attributes;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Arena which backs many {@link StatList stat lists} with a few large
+ * primitive arrays. Storage is divided into pages of fixed size blocks and
+ * each list is assigned a block, s.t., lists do not carry their own arrays
+ * and lists allocated together are stored contiguously. This is intended for
+ * entities which exist in large numbers, e.g., monsters and ground items.
+ * <p/>
+ * Blocks are returned to the slab when their list is
+ * {@link StatListRef#release() released} and reused by subsequent lists.
+ * Pages are never freed.
+ */
+public final class StatListSlab {
+  public static final int DEFAULT_BLOCKS_PER_PAGE = 256;
+
+  static final class Page {
+    final short[] ids;
+    final int[] params;
+    final int[] values;
+    final byte[] flags;
+
+    Page(int size) {
+      ids = new short[size];
+      params = new int[size];
+      values = new int[size];
+      flags = new byte[size];
+    }
+  }
+
+  final int blockSize;
+  final int blocksPerPage;
+  private final Array<Page> pages = new Array<>(Page.class);
+  private final IntArray free = new IntArray();
+  private int allocated;
+
+  public StatListSlab() {
+    this(StatList.DEFAULT_SIZE, DEFAULT_BLOCKS_PER_PAGE);
+  }
+
+  /**
+   * @param blockSize     max number of stats within each list
+   * @param blocksPerPage number of lists stored within each page
+   */
+  public StatListSlab(int blockSize, int blocksPerPage) {
+    if (blockSize <= 0 || blockSize > StatList.MAX_SIZE) {
+      throw new IllegalArgumentException("blockSize(" + blockSize + ") must be in (0, " + StatList.MAX_SIZE + "]");
+    }
+    if (blocksPerPage <= 0) {
+      throw new IllegalArgumentException("blocksPerPage(" + blocksPerPage + ") <= " + 0);
+    }
+
+    this.blockSize = blockSize;
+    this.blocksPerPage = blocksPerPage;
+  }
+
+  synchronized int allocate() {
+    if (free.size == 0) {
+      final int page = pages.size;
+      pages.add(new Page(blockSize * blocksPerPage));
+      for (int i = blocksPerPage - 1; i >= 0; i--) {
+        free.add(page * blocksPerPage + i); // lowest block popped first
+      }
+    }
+
+    allocated++;
+    return free.pop();
+  }
+
+  synchronized void free(int block) {
+    assert block >= 0 && block < pages.size * blocksPerPage : "block(" + block + ") is not within this slab";
+    allocated--;
+    free.add(block);
+  }
+
+  synchronized Page page(int block) {
+    return pages.get(block / blocksPerPage);
+  }
+
+  int offset(int block) {
+    return (block % blocksPerPage) * blockSize;
+  }
+
+  /** number of blocks in use */
+  public synchronized int size() {
+    return allocated;
+  }
+
+  /** number of blocks allocated across all pages */
+  public synchronized int capacity() {
+    return pages.size * blocksPerPage;
+  }
+}
@@ -242,7 +242,13 @@ public class ClientNetworkReceiver extends IntervalSystem {
   private void Disconnect(D2GS packet) {
     Disconnect disconnect = (Disconnect) packet.data(new Disconnect());
     int serverEntityId = disconnect.entityId();
+    if (serverEntityId == Engine.INVALID_ENTITY) {
+      Gdx.app.error(TAG, "Server is full");
+      return;
+    }
+
     int entityId = syncIds.get(serverEntityId);
+    if (entityId == Engine.INVALID_ENTITY) return; // despawned, out of view
 
     CharData data = mPlayer.get(entityId).data;
 
@@ -344,7 +350,7 @@ public class ClientNetworkReceiver extends IntervalSystem {
 
   private void Synchronize(EntitySync entityData) {
     int entityId = syncIds.get(entityData.entityId());
-    if ((entityData.flags() & EntityFlags.deleted) == EntityFlags.deleted) {
+    if ((entityData.flags() & (EntityFlags.deleted | EntityFlags.despawned)) != 0) {
       if (entityId != Engine.INVALID_ENTITY) {
         world.delete(entityId);
       }
@@ -424,6 +430,14 @@ public class ClientNetworkReceiver extends IntervalSystem {
 
     cofs.updateTransform(entityId, tFlags);
     cofs.updateAlpha(entityId, aFlags);
+
+    int removed = entityData.removed();
+    if (removed != 0) {
+      if (DEBUG_SYNC) Gdx.app.debug(TAG, String.format("%d removed 0x%04X", entityId, removed));
+      if ((removed & (1 << ComponentP.PositionP)) != 0) mPosition.remove(entityId);
+      if ((removed & (1 << ComponentP.VelocityP)) != 0) mVelocity.remove(entityId);
+      if ((removed & (1 << ComponentP.AngleP)) != 0) mAngle.remove(entityId);
+    }
   }
 
   private void GroundToCursor(D2GS packet) {
@@ -19,6 +19,7 @@ import com.riiablo.engine.server.component.Box2DBody;
 import com.riiablo.engine.server.component.Casting;
 import com.riiablo.engine.server.component.Class;
 import com.riiablo.engine.server.component.MovementModes;
+import com.riiablo.engine.server.component.Networked;
 import com.riiablo.engine.server.component.Position;
 import com.riiablo.engine.server.component.Sequence;
 import com.riiablo.engine.server.component.Target;
@@ -31,6 +32,7 @@ import com.riiablo.engine.server.event.SkillDoEvent;
 import com.riiablo.engine.server.event.SkillStartEvent;
 import com.riiablo.logger.LogManager;
 import com.riiablo.logger.Logger;
+import com.riiablo.net.packet.d2gs.ComponentP;
 import com.riiablo.skill.SkillCodes;
 
 public class Actioneer extends PassiveSystem {
@@ -43,6 +45,7 @@ public class Actioneer extends PassiveSystem {
   protected ComponentMapper<Angle> mAngle;
   protected ComponentMapper<AttributesWrapper> mAttributesWrapper;
   protected ComponentMapper<Target> mTarget;
+  protected ComponentMapper<Networked> mNetworked;
 
   // teleport-specific components
   protected ComponentMapper<Position> mPosition;
@@ -94,6 +97,7 @@ public class Actioneer extends PassiveSystem {
 
     Vector2 entityPos = mPosition.get(entityId).position;
     mAngle.get(entityId).target.set(targetVec).sub(entityPos).nor();
+    Networked.dirty(mNetworked, entityId, ComponentP.AngleP);
     mSequence.create(entityId).sequence(mode, mMovementModes.get(entityId).NU);
     mCasting.create(entityId).set(skillId, targetId, targetVec);
     events.dispatch(SkillCastEvent.obtain(entityId, skillId, targetId, targetVec));
@@ -187,6 +191,7 @@ public class Actioneer extends PassiveSystem {
         break;
       case 27: // teleport
         mPosition.get(entityId).position.set(targetVec);
+        Networked.dirty(mNetworked, entityId, ComponentP.PositionP);
         Box2DBody box2dWrapper = mBox2DBody.get(entityId);
         if (box2dWrapper != null) box2dWrapper.body.setTransform(targetVec, 0);
         break;
@@ -3,18 +3,25 @@ package com.riiablo.engine.server;
 import com.artemis.ComponentMapper;
 import com.artemis.annotations.All;
 import com.artemis.systems.IteratingSystem;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.riiablo.engine.server.component.Box2DBody;
+import com.riiablo.engine.server.component.Networked;
 import com.riiablo.engine.server.component.Position;
+import com.riiablo.net.packet.d2gs.ComponentP;
 
 @All({Box2DBody.class, Position.class})
 public class Box2DSynchronizerPost extends IteratingSystem {
   protected ComponentMapper<Box2DBody> mBox2DBody;
   protected ComponentMapper<Position> mPosition;
+  protected ComponentMapper<Networked> mNetworked;
 
   @Override
   protected void process(int entityId) {
     Body body = mBox2DBody.get(entityId).body;
-    mPosition.get(entityId).position.set(body.getPosition());
+    Vector2 position = mPosition.get(entityId).position;
+    if (position.equals(body.getPosition())) return;
+    position.set(body.getPosition());
+    Networked.dirty(mNetworked, entityId, ComponentP.PositionP);
   }
 }
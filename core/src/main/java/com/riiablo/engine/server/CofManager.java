@@ -9,10 +9,12 @@ import com.riiablo.engine.server.component.CofAlphas;
 import com.riiablo.engine.server.component.CofComponents;
 import com.riiablo.engine.server.component.CofReference;
 import com.riiablo.engine.server.component.CofTransforms;
+import com.riiablo.engine.server.component.Networked;
 import com.riiablo.engine.server.event.AlphaChangeEvent;
 import com.riiablo.engine.server.event.ModeChangeEvent;
 import com.riiablo.engine.server.event.TransformChangeEvent;
 import com.riiablo.engine.server.event.WClassChangeEvent;
+import com.riiablo.net.packet.d2gs.ComponentP;
 
 import net.mostlyoriginal.api.event.common.EventSystem;
 
@@ -23,6 +25,7 @@ public class CofManager extends BaseEntitySystem {
   protected ComponentMapper<CofDirtyComponents> mCofDirtyComponents;
   protected ComponentMapper<CofAlphas> mCofAlphas;
   protected ComponentMapper<CofTransforms> mCofTransforms;
+  protected ComponentMapper<Networked> mNetworked;
 
   protected EventSystem event;
 
@@ -63,6 +66,7 @@ public class CofManager extends BaseEntitySystem {
     if (component[c] == code) return Dirty.NONE;
     if (code == CofComponents.COMPONENT_NULL && component[c] == CofComponents.COMPONENT_LIT) return Dirty.NONE;
     component[c] = code;
+    Networked.dirty(mNetworked, id, ComponentP.CofComponentsP);
     return mCofDirtyComponents.create(id).flags |= (1 << c);
   }
 
@@ -70,6 +74,7 @@ public class CofManager extends BaseEntitySystem {
     float[] alpha = mCofAlphas.get(id).alpha;
     if (alpha[c] == a) return Dirty.NONE;
     alpha[c] = a;
+    Networked.dirty(mNetworked, id, ComponentP.CofAlphasP);
     return 1 << c;
   }
 
@@ -82,6 +87,7 @@ public class CofManager extends BaseEntitySystem {
     byte[] transform = mCofTransforms.get(id).transform;
     if (transform[c] == packedTransform) return Dirty.NONE;
     transform[c] = packedTransform;
+    Networked.dirty(mNetworked, id, ComponentP.CofTransformsP);
     return 1 << c;
   }
 
@@ -2,6 +2,7 @@ package com.riiablo.engine.server;
 
 import com.artemis.ComponentMapper;
 import com.artemis.annotations.All;
+import com.artemis.annotations.Wire;
 import com.artemis.systems.IteratingSystem;
 
 import com.badlogic.gdx.math.Vector2;
@@ -10,6 +11,9 @@ import com.riiablo.engine.server.component.Missile;
 import com.riiablo.engine.server.component.Position;
 import com.riiablo.logger.LogManager;
 import com.riiablo.logger.Logger;
+import com.riiablo.map.CollisionMap;
+import com.riiablo.map.DT1;
+import com.riiablo.map.Map;
 
 @All({Missile.class, Position.class})
 public class MissileHandler extends IteratingSystem {
@@ -18,6 +22,12 @@ public class MissileHandler extends IteratingSystem {
   protected ComponentMapper<Missile> mMissile;
   protected ComponentMapper<Position> mPosition;
 
+  /** missiles pass over anything which does not block line of sight */
+  static final int COLLISION_FLAGS = DT1.Tile.FLAG_BLOCK_LIGHT_LOS;
+
+  @Wire(name = "map", failOnNull = false)
+  protected Map map;
+
   @Override
   protected void process(int entityId) {
     final Vector2 position = mPosition.get(entityId).position;
@@ -25,6 +35,18 @@ public class MissileHandler extends IteratingSystem {
     if (missile.start.dst(position) >= missile.range) {
       log.debug("Missile {} is out of range, disposing", entityId);
       world.delete(entityId);
+      return;
+    }
+
+    final CollisionMap collision = map != null ? map.collision() : null;
+    if (collision != null && collision.isBuilt()) {
+      if (collision.lineOccupied(missile.last, position, COLLISION_FLAGS, 0)) {
+        log.debug("Missile {} collided, disposing", entityId);
+        world.delete(entityId);
+        return;
+      }
+
+      missile.last.set(position);
     }
   }
 }
@@ -10,14 +10,18 @@ import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Pools;
 import com.riiablo.engine.server.component.Angle;
+import com.riiablo.engine.server.component.Networked;
 import com.riiablo.engine.server.component.Pathfind;
 import com.riiablo.engine.server.component.Position;
 import com.riiablo.engine.server.component.Running;
 import com.riiablo.engine.server.component.Size;
 import com.riiablo.engine.server.component.Velocity;
+import com.riiablo.map.CollisionMap;
 import com.riiablo.map.DT1;
 import com.riiablo.map.Map;
 import com.riiablo.map.pfa.GraphPath;
+import com.riiablo.map.pfa.PathFinder;
+import com.riiablo.net.packet.d2gs.ComponentP;
 
 import java.util.Iterator;
 
@@ -29,10 +33,15 @@ public class Pathfinder extends IteratingSystem {
   protected ComponentMapper<Angle> mAngle;
   protected ComponentMapper<Velocity> mVelocity;
   protected ComponentMapper<Running> mRunning;
+  protected ComponentMapper<Networked> mNetworked;
 
   @Wire(name = "map")
   protected Map map;
 
+  /** path finder used to search, or {@code null} to use the map's default */
+  @Wire(name = "pathFinder", failOnNull = false)
+  protected PathFinder pathFinder;
+
   private final Vector2 tmpVec2 = new Vector2();
   private final Ray<Vector2> ray = new Ray<>(new Vector2(), new Vector2());
   private final Collision<Vector2> collision = new Collision<>(new Vector2(), new Vector2());
@@ -81,6 +90,8 @@ public class Pathfinder extends IteratingSystem {
     mAngle.get(entityId).target.set(tmpVec2).nor();
 
     velocity.velocity.set(tmpVec2).setLength(speed);
+    Networked.dirty(mNetworked, entityId, ComponentP.AngleP);
+    Networked.dirty(mNetworked, entityId, ComponentP.VelocityP);
   }
 
   public boolean findPath(int src, Vector2 target) {
@@ -91,6 +102,7 @@ public class Pathfinder extends IteratingSystem {
     if (target == null) {
       mPathfind.remove(src);
       mVelocity.get(src).velocity.setZero();
+      Networked.dirty(mNetworked, src, ComponentP.VelocityP);
       return false;
     }
 
@@ -113,6 +125,8 @@ public class Pathfinder extends IteratingSystem {
 
           Velocity velocity = mVelocity.get(src);
           velocity.velocity.set(tmpVec2);
+          Networked.dirty(mNetworked, src, ComponentP.AngleP);
+          Networked.dirty(mNetworked, src, ComponentP.VelocityP);
 
           mPathfind.remove(src);
           Pools.free(path);
@@ -131,7 +145,17 @@ public class Pathfinder extends IteratingSystem {
   }
 
   protected boolean findPath(int src, Vector2 srcPos, Vector2 targetPos, int flags, int size, GraphPath path) {
-    boolean success = map.findPath(srcPos, targetPos, flags, size, path);
+    CollisionMap collision = map.collision();
+    if (collision.isBuilt() && !collision.lineOccupied(srcPos, targetPos, flags, size)) {
+      // unobstructed, skip searching
+      path.clear();
+      path.add(MathUtils.round(srcPos.x), MathUtils.round(srcPos.y));
+      path.add(MathUtils.round(targetPos.x), MathUtils.round(targetPos.y));
+      mPathfind.create(src).set(path);
+      return true;
+    }
+
+    boolean success = map.findPath(pathFinder, srcPos, targetPos, flags, size, path);
     if (success) {
       map.smoothPath(flags, size, path);
       mPathfind.create(src).set(path);
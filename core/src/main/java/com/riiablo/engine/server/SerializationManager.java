@@ -18,6 +18,7 @@ import com.riiablo.engine.server.component.DS1ObjectWrapper;
 import com.riiablo.engine.server.component.Flags;
 import com.riiablo.engine.server.component.Item;
 import com.riiablo.engine.server.component.Monster;
+import com.riiablo.engine.server.component.Networked;
 import com.riiablo.engine.server.component.Player;
 import com.riiablo.engine.server.component.Position;
 import com.riiablo.engine.server.component.Velocity;
@@ -60,7 +61,11 @@ public class SerializationManager extends PassiveSystem {
   private Class<? extends Component>[] deserializers;
   private final EntitySync sync = new EntitySync();
 
+  /** mask used to serialize all components of an entity */
+  public static final int ALL_COMPONENTS = 0xFFFFFFFF;
+
   protected ComponentMapper<Flags> mFlags;
+  protected ComponentMapper<Networked> mNetworked;
 
   protected ComponentMapper<com.riiablo.engine.server.component.Class> mClass;
   protected ComponentMapper<CofComponents> mCofComponents;
@@ -71,6 +76,8 @@ public class SerializationManager extends PassiveSystem {
   protected ComponentMapper<Angle> mAngle;
   protected ComponentMapper<DS1ObjectWrapper> mDS1ObjectWrapper;
   protected ComponentMapper[] cm;
+  /** mappers of the components serialized for each {@link ComponentP} data type */
+  protected ComponentMapper[] mappers;
 
   protected ComponentManager componentManager;
   protected CofManager cofs;
@@ -119,28 +126,76 @@ public class SerializationManager extends PassiveSystem {
     cm[ComponentP.WarpP] = null;
     cm[ComponentP.MonsterP] = null;
     cm[ComponentP.ItemP] = null;
+
+    mappers = new ComponentMapper[ComponentP.names.length];
+    for (int i = 0; i < deserializers.length; i++) {
+      if (deserializers[i] != null) mappers[i] = world.getMapper(deserializers[i]);
+    }
+  }
+
+  /**
+   * @return mask of the {@link ComponentP} data types of the components the
+   *         specified entity has
+   */
+  public int componentMask(int entityId) {
+    int mask = 0;
+    for (int i = 0, s = mappers.length; i < s; i++) {
+      ComponentMapper mapper = mappers[i];
+      if (mapper != null && mapper.has(entityId)) mask |= (1 << i);
+    }
+
+    return mask;
   }
 
-  @SuppressWarnings("unchecked")
   public int serialize(FlatBufferBuilder builder, int entityId) {
+    return serialize(builder, entityId, mFlags.get(entityId).flags);
+  }
+
+  /**
+   * Serializes the specified entity using {@code flags} instead of the flags of
+   * the entity. Entities flagged as {@link EntityFlags#deleted deleted} or
+   * {@link EntityFlags#despawned despawned} are serialized without components.
+   */
+  public int serialize(FlatBufferBuilder builder, int entityId, int flags) {
+    return serialize(builder, entityId, flags, ALL_COMPONENTS);
+  }
+
+  /**
+   * Serializes the components of the specified entity whose
+   * {@link ComponentP} data type bit is set within {@code componentMask}.
+   */
+  public int serialize(FlatBufferBuilder builder, int entityId, int flags, int componentMask) {
+    return serialize(builder, entityId, flags, componentMask, 0);
+  }
+
+  /**
+   * Serializes the components of the specified entity whose
+   * {@link ComponentP} data type bit is set within {@code componentMask},
+   * along with a mask of the data types which were {@code removed} from it.
+   *
+   * @see #componentMask(int)
+   */
+  @SuppressWarnings("unchecked")
+  public int serialize(FlatBufferBuilder builder, int entityId, int flags, int componentMask, int removed) {
     dataType.clear();
     data.clear();
     components.clear();
 
     int type = mClass.get(entityId).type.ordinal();
 
-    int flags = mFlags.get(entityId).flags;
-    if ((flags & EntityFlags.deleted) == EntityFlags.deleted) {
+    if ((flags & (EntityFlags.deleted | EntityFlags.despawned)) != 0) {
       int dataTypeOffset = EntitySync.createComponentTypeVector(builder, ArrayUtils.EMPTY_BYTE_ARRAY);
       int dataOffset = EntitySync.createComponentVector(builder, ArrayUtils.EMPTY_INT_ARRAY);
-      return EntitySync.createEntitySync(builder, entityId, type, flags, dataTypeOffset, dataOffset);
+      return EntitySync.createEntitySync(builder, entityId, type, flags, dataTypeOffset, dataOffset, 0);
     }
 
     componentManager.getComponentsFor(entityId, components);
     for (Component c : components) {
       FlatBuffersSerializer serializer = serializers.get(c.getClass());
       if (serializer == null) continue;
-      dataType.add(serializer.getDataType());
+      byte componentType = serializer.getDataType();
+      if ((componentMask & (1 << componentType)) == 0) continue;
+      dataType.add(componentType);
       data.add(serializer.putData(builder, c));
     }
 
@@ -158,7 +213,7 @@ public class SerializationManager extends PassiveSystem {
     for (int i = 0; i < dataSize; i++) builder.addOffset(data[i]);
     int dataOffset = builder.endVector();
 
-    return EntitySync.createEntitySync(builder, entityId, type, flags, dataTypeOffset, dataOffset);
+    return EntitySync.createEntitySync(builder, entityId, type, flags, dataTypeOffset, dataOffset, removed);
   }
 
   public void deserialize(int entityId, D2GS packet) {
@@ -216,6 +271,7 @@ public class SerializationManager extends PassiveSystem {
           Class<? extends Component> clazz = deserializers[dataType];
           FlatBuffersSerializer serializer = serializers.get(clazz);
           serializer.getData(sync, i, cm[dataType].get(entityId));
+          Networked.dirty(mNetworked, entityId, dataType);
           break;
         }
       }
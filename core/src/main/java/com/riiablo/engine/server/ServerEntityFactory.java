@@ -8,11 +8,13 @@ import com.artemis.ComponentMapper;
 
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntMap;
 
 import com.riiablo.Riiablo;
 import com.riiablo.ai.AI;
 import com.riiablo.attributes.Attributes;
 import com.riiablo.attributes.Stat;
+import com.riiablo.attributes.StatList;
 import com.riiablo.attributes.StatListRef;
 import com.riiablo.codec.excel.Levels;
 import com.riiablo.codec.excel.LvlWarp;
@@ -78,6 +80,9 @@ public class ServerEntityFactory extends EntityFactory {
   protected WarpInteractor warpInteractor;
   protected ItemInteractor itemInteractor;
 
+  /** base stats of each monster type, shared by the bases of all such monsters */
+  protected final IntMap<StatListRef> monsterBases = new IntMap<>();
+
   @Override
   public int createPlayer(CharData charData, Vector2 position) {
     int id = super.createEntity(Class.Type.PLR, "player");
@@ -155,8 +160,10 @@ public class ServerEntityFactory extends EntityFactory {
     // TODO: move this somewhere else (a special class?)
     {
       Attributes attrs = Attributes.obtainStandard();
+      attrs.shareBase(monsterBase(monsterId));
+
+      // rolled per monster, copies the shared base on write
       StatListRef base = attrs.base();
-      base.clear();
       final float hitpoints = MathUtils.random(monstats.minHP[0], monstats.maxHP[0]);
       base.put(Stat.hitpoints, hitpoints);
       base.put(Stat.maxhp, hitpoints);
@@ -200,6 +207,17 @@ public class ServerEntityFactory extends EntityFactory {
     return id;
   }
 
+  /**
+   * Returns the base stats of the specified monster type, which are shared by
+   * the bases of all monsters of that type and only copied by a monster once
+   * its base is mutated.
+   */
+  StatListRef monsterBase(int monsterId) {
+    StatListRef base = monsterBases.get(monsterId);
+    if (base == null) monsterBases.put(monsterId, base = StatList.obtain());
+    return base;
+  }
+
   @Override
   public int createWarp(int index, float x, float y) {
     final int mainIndex   = DT1.Tile.Index.mainIndex(index);
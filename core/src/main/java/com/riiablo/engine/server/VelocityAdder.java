@@ -3,16 +3,23 @@ package com.riiablo.engine.server;
 import com.artemis.ComponentMapper;
 import com.artemis.annotations.All;
 import com.artemis.systems.IteratingSystem;
+import com.badlogic.gdx.math.Vector2;
+import com.riiablo.engine.server.component.Networked;
 import com.riiablo.engine.server.component.Position;
 import com.riiablo.engine.server.component.Velocity;
+import com.riiablo.net.packet.d2gs.ComponentP;
 
 @All({Position.class, Velocity.class})
 public class VelocityAdder extends IteratingSystem {
   protected ComponentMapper<Position> mPosition;
   protected ComponentMapper<Velocity> mVelocity;
+  protected ComponentMapper<Networked> mNetworked;
 
   @Override
   protected void process(int entityId) {
-    mPosition.get(entityId).position.mulAdd(mVelocity.get(entityId).velocity, world.delta);
+    Vector2 velocity = mVelocity.get(entityId).velocity;
+    if (velocity.isZero()) return;
+    mPosition.get(entityId).position.mulAdd(velocity, world.delta);
+    Networked.dirty(mNetworked, entityId, ComponentP.PositionP);
   }
 }
@@ -12,9 +12,11 @@ import com.riiablo.engine.Engine;
 import com.riiablo.engine.server.component.Box2DBody;
 import com.riiablo.engine.server.component.Interactable;
 import com.riiablo.engine.server.component.MapWrapper;
+import com.riiablo.engine.server.component.Networked;
 import com.riiablo.engine.server.component.Position;
 import com.riiablo.engine.server.component.Warp;
 import com.riiablo.map.Map;
+import com.riiablo.net.packet.d2gs.ComponentP;
 
 public class WarpInteractor extends PassiveSystem implements Interactable.Interactor {
   private static final String TAG = "WarpInteractor";
@@ -23,6 +25,7 @@ public class WarpInteractor extends PassiveSystem implements Interactable.Intera
   protected ComponentMapper<Position> mPosition;
   protected ComponentMapper<MapWrapper> mMapWrapper;
   protected ComponentMapper<Box2DBody> mBox2DBody;
+  protected ComponentMapper<Networked> mNetworked;
 
   protected Pathfinder pathfinder;
   protected Actioneer actioneer;
@@ -43,6 +46,7 @@ public class WarpInteractor extends PassiveSystem implements Interactable.Intera
     Vector2 dstWarpPos = mPosition.get(dstWarpEntity).position;
     Vector2 position = mPosition.get(src).position;
     position.set(dstWarpPos);
+    Networked.dirty(mNetworked, src, ComponentP.PositionP);
 
     Box2DBody box2dWrapper = mBox2DBody.get(src);
     if (box2dWrapper != null) box2dWrapper.body.setTransform(position, 0);
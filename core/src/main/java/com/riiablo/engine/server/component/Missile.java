@@ -15,6 +15,8 @@ public class Missile extends PooledComponent {
   public float range = 0;
   public AssetDescriptor<DCC> missileDescriptor;
   public final Vector2 start = new Vector2();
+  /** position collisions were last checked from */
+  public final Vector2 last = new Vector2();
 
   @Override
   protected void reset() {
@@ -22,11 +24,13 @@ public class Missile extends PooledComponent {
     range = 0;
     missileDescriptor = null;
     start.setZero();
+    last.setZero();
   }
 
   public Missile set(Missiles.Entry missile, Vector2 start, float range) {
     this.missile = missile;
     this.start.set(start);
+    this.last.set(start);
     this.range = range;
     this.missileDescriptor = new AssetDescriptor<>(Class.Type.MIS.PATH + '\\' + missile.CelFile + ".dcc", DCC.class);
     return this;
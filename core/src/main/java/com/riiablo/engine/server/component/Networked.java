@@ -1,10 +1,28 @@
 package com.riiablo.engine.server.component;
 
 import com.artemis.Component;
+import com.artemis.ComponentMapper;
 import com.artemis.annotations.EntityId;
 import com.riiablo.engine.Engine;
+import com.riiablo.net.packet.d2gs.ComponentP;
 
 public class Networked extends Component {
   @EntityId
   public int serverId = Engine.INVALID_ENTITY;
+
+  /**
+   * Mask of {@link ComponentP} data types written since the entity was last
+   * synchronized, set by the systems writing them s.t. unchanged components
+   * don't need to be compared.
+   */
+  public int dirty;
+
+  /**
+   * Flags the specified {@link ComponentP} data type of the entity as changed,
+   * if the entity is networked.
+   */
+  public static void dirty(ComponentMapper<Networked> mNetworked, int entityId, byte dataType) {
+    Networked networked = mNetworked.get(entityId);
+    if (networked != null) networked.dirty |= (1 << dataType);
+  }
 }
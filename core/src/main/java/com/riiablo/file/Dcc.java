@@ -14,6 +14,7 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
 import com.riiablo.codec.Palette;
 import com.riiablo.codec.util.BBox;
+import com.riiablo.graphics.RuntimeAtlas;
 import com.riiablo.io.BitConstraints;
 import com.riiablo.io.BitInput;
 import com.riiablo.io.ByteInput;
@@ -127,6 +128,36 @@ public final class Dcc extends Dc<Dcc.DccDirection> {
     }
   }
 
+  /**
+   * Packs the frames of the specified direction into {@code atlas} instead of
+   * creating a texture for each frame. Frames which cannot be packed fall
+   * back to their own textures. Regions are keyed by the path of this file,
+   * s.t. frames released by a disposed dcc are revived when it is loaded
+   * again. Must be called on the GL thread.
+   */
+  public void uploadTextures(int d, RuntimeAtlas atlas) {
+    final DccDirection direction = directions[d];
+    final DccFrame[] frame = direction.frames;
+    final Pixmap[] pixmap = direction.pixmap;
+    final Texture[] texture = direction.texture;
+    final RuntimeAtlas.Region[] region = direction.region;
+    for (int f = 0; f < numFrames; f++) {
+      region[f] = atlas.pack(new RuntimeAtlas.FrameKey(handle.path(), d, f), pixmap[f]);
+      if (region[f] == null) texture[f] = new Texture(pixmap[f]);
+      pixmap[f].dispose();
+      pixmap[f] = null;
+    }
+
+    atlas.upload();
+    for (int f = 0; f < numFrames; f++) {
+      if (region[f] != null) {
+        frame[f].texture.setRegion(region[f]);
+      } else {
+        frame[f].texture.setRegion(texture[f]);
+      }
+    }
+  }
+
   public static final class DccDirection extends Dc.Direction<DccFrame> {
     static final int HasRawPixelEncoding = 1 << 0;
     static final int CompressEqualCells = 1 << 1;
@@ -148,6 +179,7 @@ public final class Dcc extends Dc<Dcc.DccDirection> {
     final BBox box;
     final Pixmap[] pixmap;
     final Texture[] texture;
+    final RuntimeAtlas.Region[] region;
 
     // Dcc
     final int uncompressedSize;
@@ -187,6 +219,7 @@ public final class Dcc extends Dc<Dcc.DccDirection> {
       box = new BBox().prepare();
       pixmap = new Pixmap[numFrames];
       texture = new Texture[numFrames];
+      region = new RuntimeAtlas.Region[numFrames];
       DccFrame[] frames = this.frames = new DccFrame[numFrames];
 
       long extraBytes = 0;
@@ -260,6 +293,13 @@ public final class Dcc extends Dc<Dcc.DccDirection> {
         texture[i].dispose();
         texture[i] = null;
       }
+
+      log.trace("releasing dcc atlas regions");
+      for (int i = 0, s = region.length; i < s; i++) {
+        if (region[i] == null) continue;
+        region[i].release();
+        region[i] = null;
+      }
     }
 
     @Override
@@ -1,9 +1,17 @@
 package com.riiablo.file;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
 import io.netty.util.internal.PlatformDependent;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.BufferUtils;
 
 import com.riiablo.codec.util.BBox;
@@ -11,30 +19,143 @@ import com.riiablo.file.Dcc.DccDirection;
 import com.riiablo.file.Dcc.DccFrame;
 import com.riiablo.graphics.PaletteIndexedPixmap;
 
+/**
+ * Decodes the directions of a {@link Dcc}. Decoders are not thread-safe, but
+ * retain the capacity of their buffers between decodings, growing them only
+ * as large as the largest direction decoded, so a decoder should be reused,
+ * e.g., using the decoder {@link #get() confined} to the decoding thread.
+ */
 public final class DccDecoder {
   static final boolean DEBUG = !true;
   static final int MAX_FRAMES = 256;
 
-  final DirectionBuffer directionBuffer = new DirectionBuffer();
-  final FrameBuffer[] frameBuffer = new FrameBuffer[MAX_FRAMES]; {
-    for (int i = 0; i < MAX_FRAMES; i++) {
-      frameBuffer[i] = new FrameBuffer();
+  private static final FastThreadLocal<DccDecoder> decoders = new FastThreadLocal<DccDecoder>() {
+    @Override
+    protected DccDecoder initialValue() {
+      return new DccDecoder();
+    }
+  };
+
+  /**
+   * Returns the decoder confined to the calling thread.
+   */
+  public static DccDecoder get() {
+    return decoders.get();
+  }
+
+  /**
+   * Returns the number of bytes required to store every frame of the
+   * specified direction, which must have already been read.
+   */
+  public static int directionSize(Dcc dcc, int d) {
+    final DccDirection dir = dcc.directions[d];
+    if (dir == null) throw new IllegalArgumentException(dcc.handle + " direction " + d + " has not been read");
+    return dir.box.width * dir.box.height * dcc.numFrames;
+  }
+
+  /**
+   * Decodes the specified directions of a dcc concurrently with one task per
+   * direction submitted to {@code group}, each task using the decoder
+   * confined to the thread executing it. Directions must have already been
+   * {@link Dcc#read(ByteBuf, int) read}.
+   *
+   * @param pixels buffer which the frames of each direction are written into
+   *               in the order of {@code directions} (see
+   *               {@link #decode(Dcc, int, ByteBuf)}), or {@code null} to
+   *               allocate a pixmap for each frame instead. The writer index
+   *               is advanced immediately, but the contents are not valid
+   *               until the returned future completes.
+   */
+  public static Future<Dcc> decodeAsync(
+      final EventExecutorGroup group,
+      final Promise<Dcc> promise,
+      final Dcc dcc,
+      final int[] directions,
+      final ByteBuf pixels
+  ) {
+    final int numDirections = directions.length;
+    final ByteBuffer[] dst = new ByteBuffer[numDirections];
+    if (pixels != null) {
+      if (pixels.nioBufferCount() != 1) {
+        throw new IllegalArgumentException("pixels.nioBufferCount(" + pixels.nioBufferCount() + ") != " + 1);
+      }
+
+      int length = 0;
+      for (int d : directions) length += directionSize(dcc, d);
+      pixels.ensureWritable(length);
+
+      // independent views created here, buffer internals are not thread-safe
+      int writerIndex = pixels.writerIndex();
+      for (int i = 0; i < numDirections; i++) {
+        final int size = directionSize(dcc, directions[i]);
+        dst[i] = pixels.nioBuffer(writerIndex, size);
+        writerIndex += size;
+      }
+
+      pixels.writerIndex(writerIndex);
+    } else {
+      for (int d : directions) directionSize(dcc, d); // validates read
+    }
+
+    if (numDirections == 0) return promise.setSuccess(dcc);
+    final AtomicInteger remaining = new AtomicInteger(numDirections);
+    for (int i = 0; i < numDirections; i++) {
+      final int d = directions[i];
+      final ByteBuffer buffer = dst[i];
+      group.execute(() -> {
+        if (promise.isDone()) return; // another direction failed
+        try {
+          get().decode(dcc, d, dcc.directions[d], buffer);
+        } catch (Throwable t) {
+          promise.tryFailure(t);
+          return;
+        }
+
+        if (remaining.decrementAndGet() == 0) promise.trySuccess(dcc);
+      });
     }
+
+    return promise;
   }
+
+  final DirectionBuffer directionBuffer = new DirectionBuffer();
+  final FrameBuffer[] frameBuffer = new FrameBuffer[MAX_FRAMES]; // allocated as needed
   final PixelBuffer pixelBuffer = new PixelBuffer();
   final Bitmap bmp = new Bitmap();
+  final int[] pixelStack = new int[4];
 
+  /**
+   * Decodes the specified direction, allocating a pixmap for each frame.
+   */
   public void decode(Dcc dcc, int d) {
-    decode(dcc, d, dcc.directions[d]);
+    decode(dcc, d, dcc.directions[d], null);
+  }
+
+  /**
+   * Decodes the specified direction, writing its frames consecutively into
+   * {@code pixels} starting at its writer index instead of allocating a
+   * pixmap for each frame. Each frame is {@code box.width * box.height}
+   * palette indexes, see {@link #directionSize(Dcc, int)}.
+   */
+  public void decode(Dcc dcc, int d, ByteBuf pixels) {
+    if (pixels.nioBufferCount() != 1) {
+      throw new IllegalArgumentException("pixels.nioBufferCount(" + pixels.nioBufferCount() + ") != " + 1);
+    }
+
+    final int length = directionSize(dcc, d);
+    pixels.ensureWritable(length);
+    final int writerIndex = pixels.writerIndex();
+    decode(dcc, d, dcc.directions[d], pixels.nioBuffer(writerIndex, length));
+    pixels.writerIndex(writerIndex + length);
   }
 
-  void decode(Dcc dcc, int d, DccDirection dir) {
+  void decode(Dcc dcc, int d, DccDirection dir, ByteBuffer pixels) {
     directionBuffer.clear(dir);
     pixelBuffer.clear(directionBuffer.size);
     decodeFrames(dir, dcc.numFrames);
 
     bmp.reset(dir);
-    buildFrames(dir, dcc.numFrames);
+    buildFrames(dir, dcc.numFrames, pixels);
 
     assert dir.equalCellBitStream.bitsRemaining() == 0;
     assert dir.pixelMaskBitStream.bitsRemaining() == 0;
@@ -81,7 +202,8 @@ public final class DccDecoder {
   }
 
   void decodeFrame(DccDirection dir, DccFrame frame, int f) {
-    final FrameBuffer frameBuffer = this.frameBuffer[f];
+    FrameBuffer frameBuffer = this.frameBuffer[f];
+    if (frameBuffer == null) frameBuffer = this.frameBuffer[f] = new FrameBuffer();
     frameBuffer.clear(directionBuffer, frame);
 
     final int stride = directionBuffer.cellsW;
@@ -95,7 +217,7 @@ public final class DccDecoder {
     int pixelMask, numPixels;
     boolean rawEncoded;
     int lastPixel, decodedPixels, pixelDisplacement;
-    final int[] pixelStack = new int[4];
+    final int[] pixelStack = this.pixelStack;
     final int[] NUM_PIXELS = PixelBuffer.PIXEL_TABLE;
     for (int cy = 0, fCell = 0; cy < fCellsH; cy++) {
       final int dCy = dCellH + cy;
@@ -165,15 +287,20 @@ public final class DccDecoder {
 
   /**
    * consumes {@link #pixelBuffer} and remaining pixel codes from dcc stream to
-   * construct frames into {@link #bmp}
+   * construct frames into {@link #bmp}, copying each into {@code pixels} or
+   * a new pixmap if {@code pixels} is {@code null}
    */
-  void buildFrames(DccDirection dir, int numFrames) {
+  void buildFrames(DccDirection dir, int numFrames, ByteBuffer pixels) {
     final Pixmap[] pixmap = dir.pixmap;
     for (int f = 0, s = numFrames; f < s; f++) {
       bmp.flip();
       buildFrame(dir, f);
-      final Pixmap p = pixmap[f] = new PaletteIndexedPixmap(dir.box.width, dir.box.height);
-      BufferUtils.copy(bmp.frontBuffer, 0, p.getPixels().rewind(), bmp.length);
+      if (pixels != null) {
+        pixels.put(bmp.frontBuffer, 0, bmp.length);
+      } else {
+        final Pixmap p = pixmap[f] = new PaletteIndexedPixmap(dir.box.width, dir.box.height);
+        BufferUtils.copy(bmp.frontBuffer, 0, p.getPixels().rewind(), bmp.length);
+      }
     }
   }
 
@@ -266,7 +393,7 @@ public final class DccDecoder {
      * data\global\monsters\os\lh\oslhlita2hth.dcc 3 343,203
      * data\global\monsters\os\lh\oslhlita2hth.dcc 5 445,178
      */
-    static final int MAX_SIZE = 0x10000;
+    static final int DEFAULT_CAPACITY = 0x800; // grown to fit larger directions
     static final byte CELL_SIZE = 4; // 4x4
 
     DccDirection direction;
@@ -274,12 +401,27 @@ public final class DccDecoder {
     int cellsH;
     int size; // cellsW * cellsH
 
-    final byte[] w = PlatformDependent.allocateUninitializedArray(MAX_SIZE);
-    final byte[] h = PlatformDependent.allocateUninitializedArray(MAX_SIZE);
-    final short[] xLast = new short[MAX_SIZE];
-    final short[] yLast = new short[MAX_SIZE];
-    final byte[] wLast = PlatformDependent.allocateUninitializedArray(MAX_SIZE);
-    final byte[] hLast = PlatformDependent.allocateUninitializedArray(MAX_SIZE);
+    int capacity;
+    byte[] w;
+    byte[] h;
+    short[] xLast;
+    short[] yLast;
+    byte[] wLast;
+    byte[] hLast;
+
+    DirectionBuffer() {
+      allocate(DEFAULT_CAPACITY);
+    }
+
+    void allocate(int capacity) {
+      this.capacity = capacity;
+      w = PlatformDependent.allocateUninitializedArray(capacity);
+      h = PlatformDependent.allocateUninitializedArray(capacity);
+      xLast = new short[capacity];
+      yLast = new short[capacity];
+      wLast = PlatformDependent.allocateUninitializedArray(capacity);
+      hLast = PlatformDependent.allocateUninitializedArray(capacity);
+    }
 
     void set(int i, byte w, byte h) {
       this.w[i] = w;
@@ -313,6 +455,7 @@ public final class DccDecoder {
       cellsW = (width + 3) / 4;
       cellsH = (height + 3) / 4;
       size = cellsW * cellsH;
+      if (size > capacity) allocate(MathUtils.nextPowerOfTwo(size)); // cells are all reset below
 
       final int defCellsW = width >>> 2; // 4's
       final byte remCellsW = (byte) (width & 0x3); // <4
@@ -366,7 +509,7 @@ public final class DccDecoder {
    * with dimensions of 1x2, 1x2, 1x1, 1x1.
    */
   static final class FrameBuffer {
-    static final int MAX_SIZE = DirectionBuffer.MAX_SIZE;
+    static final int DEFAULT_CAPACITY = 0x100; // grown to fit larger frames
     static final byte CELL_SIZE = DirectionBuffer.CELL_SIZE;
 
     DirectionBuffer directionBuffer;
@@ -376,10 +519,23 @@ public final class DccDecoder {
     int cellsH;
     int size; // cellsW * cellsH
 
-    final short[] x = new short[MAX_SIZE];
-    final short[] y = new short[MAX_SIZE];
-    final byte[] w = PlatformDependent.allocateUninitializedArray(MAX_SIZE);
-    final byte[] h = PlatformDependent.allocateUninitializedArray(MAX_SIZE);
+    int capacity;
+    short[] x;
+    short[] y;
+    byte[] w;
+    byte[] h;
+
+    FrameBuffer() {
+      allocate(DEFAULT_CAPACITY);
+    }
+
+    void allocate(int capacity) {
+      this.capacity = capacity;
+      x = new short[capacity];
+      y = new short[capacity];
+      w = PlatformDependent.allocateUninitializedArray(capacity);
+      h = PlatformDependent.allocateUninitializedArray(capacity);
+    }
 
     void set(int i, short x, short y, byte w, byte h) {
         this.x[i] = x;
@@ -493,6 +649,7 @@ public final class DccDecoder {
       this.cellsW = cellsW;
       this.cellsH = cellsH;
       size = cellsW * cellsH;
+      if (size > capacity) allocate(MathUtils.nextPowerOfTwo(size)); // cells are all reset below
 
       int i = 0;
       final short xReset = (short) (f.xMin - d.xMin);
@@ -545,16 +702,16 @@ public final class DccDecoder {
     };
 
     static final int DEFAULT_BUFFER_CAPACITY = 5625; // or 120000?
-    static final int DEFAULT_QUEUE_CAPACITY = 0x100000;
+    static final int DEFAULT_QUEUE_CAPACITY = 0x4000;
 
-    final int bufferCapacity;
-    final short[] lastFrame; // can be simplified to bool/bitset later to represent it was ever touched
-    final int[] lastCell; // cell mapped to this buffer cell (queue index)
+    int bufferCapacity;
+    short[] lastFrame; // can be simplified to bool/bitset later to represent it was ever touched
+    int[] lastCell; // cell mapped to this buffer cell (queue index)
 
-    final int queueCapacity;
-    final short[] frame; // frame pushing this cell
-    final int[] cell; // fCell of this cell
-    final byte[] pixels; // pixels of the cell
+    int queueCapacity;
+    short[] frame; // frame pushing this cell
+    int[] cell; // fCell of this cell
+    byte[] pixels; // pixels of the cell
     int iter;
     int size;
 
@@ -574,6 +731,12 @@ public final class DccDecoder {
     }
 
     void clear(int bufferSize) {
+      if (bufferSize > bufferCapacity) {
+        bufferCapacity = MathUtils.nextPowerOfTwo(bufferSize);
+        lastFrame = new short[bufferCapacity];
+        lastCell = new int[bufferCapacity];
+      }
+
       Arrays.fill(lastFrame, 0, bufferSize, (short) -1);
       Arrays.fill(lastCell, 0, bufferSize, -1);
       iter = 0;
@@ -612,6 +775,7 @@ public final class DccDecoder {
     void enqueue(int dCell, int frame, int fCell, int pixelMask, int[] pixelStack, int stackPtr) {
       lastFrame[dCell] = (short) frame; // touch buffer dCell
 
+      if (size >= queueCapacity) grow();
       final int queuePtr = size++;
       this.frame[queuePtr] = (short) frame;
       this.cell[queuePtr] = fCell;
@@ -630,12 +794,23 @@ public final class DccDecoder {
         // System.out.println(String.format("      %d 0x%02x", i, pixels[queuePtr][i] & 0xff));
       }
     }
+
+    /** doubles the queue capacity, retaining queued cells */
+    void grow() {
+      final int capacity = queueCapacity << 1;
+      frame = Arrays.copyOf(frame, capacity);
+      cell = Arrays.copyOf(cell, capacity);
+      final byte[] pixels = PlatformDependent.allocateUninitializedArray(capacity << 2);
+      System.arraycopy(this.pixels, 0, pixels, 0, size << 2);
+      this.pixels = pixels;
+      queueCapacity = capacity;
+    }
   }
 
   static final class Bitmap {
-    static final int MAX_SIZE = 0x40000;
-    final byte[] colormap0 = PlatformDependent.allocateUninitializedArray(MAX_SIZE);
-    final byte[] colormap1 = PlatformDependent.allocateUninitializedArray(MAX_SIZE);
+    static final int DEFAULT_CAPACITY = 0x10000;
+    byte[] colormap0 = PlatformDependent.allocateUninitializedArray(DEFAULT_CAPACITY);
+    byte[] colormap1 = PlatformDependent.allocateUninitializedArray(DEFAULT_CAPACITY);
     byte[] frontBuffer;
     byte[] backBuffer;
     int width, height;
@@ -665,6 +840,11 @@ public final class DccDecoder {
       this.height = height;
       stride = width;
       length = width * height;
+      if (length > colormap0.length) {
+        final int capacity = MathUtils.nextPowerOfTwo(length);
+        frontBuffer = colormap0 = PlatformDependent.allocateUninitializedArray(capacity);
+        backBuffer = colormap1 = PlatformDependent.allocateUninitializedArray(capacity);
+      }
       // TODO: only need to reset the buffer which becomes new front
       // Arrays.fill(colormap0, 0, length, (byte) 0);
       // Arrays.fill(colormap1, 0, length, (byte) 0);
@@ -0,0 +1,423 @@
+package com.riiablo.file;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Disposable;
+
+import com.riiablo.logger.LogManager;
+import com.riiablo.logger.Logger;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+
+/**
+ * Bounded cache of decoded frame pixel data shared across the entities which
+ * display the same sprites.
+ * <p/>
+ * Entries are keyed by (file path, direction, transform) and contain the
+ * palette indexed pixels of every frame of the direction, i.e., the output of
+ * {@link DccDecoder#decode(Dcc, int, ByteBuf)}. Transforms are opaque ids
+ * chosen by callers caching transformed variants, e.g., a colormap index,
+ * otherwise {@link #NO_TRANSFORM}.
+ * <p/>
+ * The cache is bounded by the total size of its entries and evicts the least
+ * recently used entries, admitting a new entry over its eviction victim only
+ * if the new entry has been requested more frequently (TinyLFU), s.t., a burst
+ * of one-off sprites does not flush frequently displayed ones. Access
+ * frequencies are approximated using a count-min sketch which is periodically
+ * aged.
+ * <p/>
+ * Evicted entries may optionally be spilled into a memory-mapped file, which
+ * is treated as a ring, i.e., when it is full all spilled entries are
+ * discarded and it is written from the beginning again.
+ * <p/>
+ * Buffers returned by this cache are retained for the caller and must be
+ * released by the caller.
+ */
+public final class DecodedSpriteCache implements Disposable {
+  private static final Logger log = LogManager.getLogger(DecodedSpriteCache.class);
+
+  public static final int NO_TRANSFORM = -1;
+  public static final int DEFAULT_EXPECTED_ENTRIES = 4096;
+
+  final long maxBytes;
+  final LinkedHashMap<Key, ByteBuf> entries = new LinkedHashMap<>(16, 0.75f, true);
+  final FrequencySketch sketch;
+  final Spill spill;
+  final Key lookup = new Key();
+  long bytes;
+
+  final AtomicLong hits = new AtomicLong();
+  final AtomicLong misses = new AtomicLong();
+  final AtomicLong evictions = new AtomicLong();
+  final AtomicLong evictedBytes = new AtomicLong();
+  final AtomicLong rejections = new AtomicLong();
+  final AtomicLong spillHits = new AtomicLong();
+  final AtomicLong spillWrites = new AtomicLong();
+
+  public DecodedSpriteCache(long maxBytes) {
+    this(maxBytes, DEFAULT_EXPECTED_ENTRIES);
+  }
+
+  /**
+   * @param maxBytes        max total size of cached pixel data
+   * @param expectedEntries approximate number of distinct entries which will
+   *                        be requested, used to size the frequency sketch
+   */
+  public DecodedSpriteCache(long maxBytes, int expectedEntries) {
+    if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes(" + maxBytes + ") <= " + 0);
+    this.maxBytes = maxBytes;
+    this.sketch = new FrequencySketch(expectedEntries);
+    this.spill = null;
+  }
+
+  /**
+   * @param spillFile  file which evicted entries are spilled into, deleted
+   *                   when this cache is disposed
+   * @param spillBytes size of the spill file
+   */
+  public DecodedSpriteCache(long maxBytes, int expectedEntries, File spillFile, int spillBytes) throws IOException {
+    if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes(" + maxBytes + ") <= " + 0);
+    if (spillBytes <= 0) throw new IllegalArgumentException("spillBytes(" + spillBytes + ") <= " + 0);
+    this.maxBytes = maxBytes;
+    this.sketch = new FrequencySketch(expectedEntries);
+    this.spill = new Spill(spillFile, spillBytes);
+  }
+
+  @Override
+  public synchronized void dispose() {
+    for (ByteBuf pixels : entries.values()) pixels.release();
+    entries.clear();
+    bytes = 0;
+    if (spill != null) spill.dispose();
+  }
+
+  /** max total size of cached pixel data */
+  public long maxBytes() {
+    return maxBytes;
+  }
+
+  /** total size of cached pixel data */
+  public synchronized long bytes() {
+    return bytes;
+  }
+
+  /** number of cached entries, excluding spilled entries */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /** number of requests served from memory or the spill file */
+  public long hits() {
+    return hits.get();
+  }
+
+  /** number of requests which were not cached */
+  public long misses() {
+    return misses.get();
+  }
+
+  /** number of entries evicted to make room for others */
+  public long evictions() {
+    return evictions.get();
+  }
+
+  /** total size of entries evicted to make room for others */
+  public long evictedBytes() {
+    return evictedBytes.get();
+  }
+
+  /** number of entries which were not admitted over less frequent entries */
+  public long rejections() {
+    return rejections.get();
+  }
+
+  /** number of requests served from the spill file */
+  public long spillHits() {
+    return spillHits.get();
+  }
+
+  /** number of evicted entries written into the spill file */
+  public long spillWrites() {
+    return spillWrites.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "DecodedSpriteCache[bytes=%d/%d, hits=%d, misses=%d, evictions=%d, evictedBytes=%d, rejections=%d, spillHits=%d, spillWrites=%d]",
+        bytes(), maxBytes, hits(), misses(), evictions(), evictedBytes(), rejections(), spillHits(), spillWrites());
+  }
+
+  /**
+   * Returns the cached pixels of the specified direction, or {@code null} if
+   * they are not cached.
+   */
+  public ByteBuf get(String path, int d, int transform) {
+    final ByteBuf spilled;
+    final Key key;
+    synchronized (this) {
+      final Key lookup = this.lookup.set(path, d, transform);
+      sketch.increment(lookup.hash);
+      final ByteBuf pixels = entries.get(lookup);
+      if (pixels != null) {
+        hits.incrementAndGet();
+        return pixels.retainedDuplicate();
+      }
+
+      if (spill == null || (spilled = spill.read(lookup)) == null) {
+        misses.incrementAndGet();
+        return null;
+      }
+
+      key = lookup.copy();
+    }
+
+    hits.incrementAndGet();
+    spillHits.incrementAndGet();
+    return put(key, spilled);
+  }
+
+  /**
+   * Caches the pixels of the specified direction. The reference to
+   * {@code pixels} is transferred to the returned buffer, which is retained
+   * by the cache if the entry was admitted.
+   */
+  public ByteBuf put(String path, int d, int transform, ByteBuf pixels) {
+    return put(new Key().set(path, d, transform), pixels);
+  }
+
+  /**
+   * Returns the cached pixels of the specified direction, decoding and
+   * caching them if they are not cached. The direction must have already been
+   * {@link Dcc#read(ByteBuf, int) read}.
+   */
+  public ByteBuf decode(Dcc dcc, int d) {
+    final String path = dcc.handle().path();
+    final ByteBuf cached = get(path, d, NO_TRANSFORM);
+    if (cached != null) return cached;
+    final ByteBuf pixels = ByteBufAllocator.DEFAULT.directBuffer(DccDecoder.directionSize(dcc, d));
+    try {
+      DccDecoder.get().decode(dcc, d, pixels);
+    } catch (Throwable t) {
+      pixels.release();
+      throw t;
+    }
+
+    return put(path, d, NO_TRANSFORM, pixels);
+  }
+
+  synchronized ByteBuf put(Key key, ByteBuf pixels) {
+    final int weight = pixels.readableBytes();
+    if (weight > maxBytes) {
+      rejections.incrementAndGet();
+      return pixels;
+    }
+
+    final ByteBuf existing = entries.get(key);
+    if (existing != null) {
+      // lost a race decoding the same direction, keep the existing entry
+      pixels.release();
+      return existing.retainedDuplicate();
+    }
+
+    if (bytes + weight > maxBytes) {
+      final Key victim = entries.keySet().iterator().next();
+      if (sketch.frequency(key.hash) <= sketch.frequency(victim.hash)) {
+        if (log.traceEnabled()) log.trace("Rejected {} over {}", key, victim);
+        rejections.incrementAndGet();
+        return pixels;
+      }
+
+      evict(weight);
+    }
+
+    entries.put(key, pixels);
+    bytes += weight;
+    return pixels.retainedDuplicate();
+  }
+
+  void evict(int weight) {
+    final Iterator<Map.Entry<Key, ByteBuf>> it = entries.entrySet().iterator();
+    while (bytes + weight > maxBytes && it.hasNext()) {
+      final Map.Entry<Key, ByteBuf> entry = it.next();
+      final ByteBuf pixels = entry.getValue();
+      final int evicted = pixels.readableBytes();
+      it.remove();
+      bytes -= evicted;
+      evictions.incrementAndGet();
+      evictedBytes.addAndGet(evicted);
+      if (log.traceEnabled()) log.trace("Evicted {} ({} bytes)", entry.getKey(), evicted);
+      if (spill != null && spill.write(entry.getKey(), pixels)) spillWrites.incrementAndGet();
+      pixels.release();
+    }
+  }
+
+  static final class Key {
+    String path;
+    int direction;
+    int transform;
+    int hash;
+
+    Key set(String path, int direction, int transform) {
+      this.path = path;
+      this.direction = direction;
+      this.transform = transform;
+      int hash = path.hashCode();
+      hash = 31 * hash + direction;
+      hash = 31 * hash + transform;
+      this.hash = hash;
+      return this;
+    }
+
+    Key copy() {
+      return new Key().set(path, direction, transform);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      final Key other = (Key) o;
+      return hash == other.hash
+          && direction == other.direction
+          && transform == other.transform
+          && path.equals(other.path);
+    }
+
+    @Override
+    public String toString() {
+      return path + "[d=" + direction + ",t=" + transform + "]";
+    }
+  }
+
+  /**
+   * Count-min sketch of 4-bit saturating counters used to approximate the
+   * access frequency of keys. Counters are halved once the number of
+   * increments reaches 10x the sketch width, s.t., old accesses decay.
+   */
+  static final class FrequencySketch {
+    static final int DEPTH = 4;
+    static final int MAX_COUNT = 15;
+    static final int[] SEEDS = { 0x97cb3127, 0xb3c7e6ad, 0x5bd1e995, 0x3c6ef372 };
+
+    final byte[] table;
+    final int width;
+    final int mask;
+    final int sampleSize;
+    int additions;
+
+    FrequencySketch(int expectedEntries) {
+      width = MathUtils.nextPowerOfTwo(Math.max(expectedEntries, 16));
+      mask = width - 1;
+      sampleSize = 10 * width;
+      table = new byte[DEPTH * width];
+    }
+
+    int indexOf(int hash, int i) {
+      int h = (hash ^ SEEDS[i]) * 0x9e3779b9;
+      h ^= h >>> 16;
+      return i * width + (h & mask);
+    }
+
+    void increment(int hash) {
+      final byte[] table = this.table;
+      for (int i = 0; i < DEPTH; i++) {
+        final int index = indexOf(hash, i);
+        if (table[index] < MAX_COUNT) table[index]++;
+      }
+
+      if (++additions >= sampleSize) reset();
+    }
+
+    int frequency(int hash) {
+      int frequency = MAX_COUNT;
+      for (int i = 0; i < DEPTH; i++) {
+        frequency = Math.min(frequency, table[indexOf(hash, i)]);
+      }
+
+      return frequency;
+    }
+
+    void reset() {
+      final byte[] table = this.table;
+      for (int i = 0, s = table.length; i < s; i++) table[i] >>>= 1;
+      additions >>>= 1;
+    }
+  }
+
+  /**
+   * Memory-mapped file which evicted entries are appended to. When the file
+   * is full, the index is cleared and entries are written from the beginning.
+   */
+  static final class Spill implements Disposable {
+    final File file;
+    final ByteBuffer map;
+    final Map<Key, Long> index = new HashMap<>();
+    int position;
+
+    Spill(File file, int capacity) throws IOException {
+      this.file = file;
+      RandomAccessFile raf = null;
+      try {
+        raf = new RandomAccessFile(file, "rw");
+        raf.setLength(capacity);
+        final FileChannel fc = raf.getChannel();
+        map = fc.map(READ_WRITE, 0, capacity);
+      } finally {
+        IOUtils.closeQuietly(raf);
+      }
+    }
+
+    @Override
+    public void dispose() {
+      index.clear();
+      FileUtils.deleteQuietly(file);
+    }
+
+    boolean write(Key key, ByteBuf pixels) {
+      final int length = pixels.readableBytes();
+      if (length > map.capacity()) return false;
+      if (position + length > map.capacity()) {
+        log.debug("Spill file {} full, discarding {} entries", file, index.size());
+        index.clear();
+        position = 0;
+      }
+
+      final ByteBuffer dst = map.duplicate();
+      dst.position(position).limit(position + length);
+      pixels.getBytes(pixels.readerIndex(), dst);
+      index.put(key, ((long) position << 32) | length);
+      position += length;
+      return true;
+    }
+
+    ByteBuf read(Key key) {
+      final Long region = index.get(key);
+      if (region == null) return null;
+      final int offset = (int) (region >>> 32);
+      final int length = (int) (long) region;
+      final ByteBuffer src = map.duplicate();
+      src.position(offset).limit(offset + length);
+      return ByteBufAllocator.DEFAULT.directBuffer(length).writeBytes(src);
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package com.riiablo.graphics;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import com.riiablo.logger.LogManager;
+import com.riiablo.logger.Logger;
+
+/**
+ * Packs palette indexed pixmaps, e.g., decoded sprite frames, into shared
+ * texture pages s.t. sprites drawn from the same page can be batched without
+ * flushing.
+ * <p/>
+ * Packed pixmaps are handed out as {@link Region regions} keyed by a caller
+ * supplied key and reference counted. Keys are compared by value and should
+ * not reference the decoded sprite, e.g., a {@link FrameKey}, s.t. released
+ * regions can be revived once the sprite is loaded again. Regions which are no longer referenced
+ * remain packed and may be revived using {@link #get(Object)} until their
+ * space is needed, at which point they are evicted in the order they were
+ * released. Space within pages is managed by a {@link ShelfAllocator}.
+ * <p/>
+ * Packing only modifies the pixmap of each page, so it may be performed
+ * without a GL context. {@link #upload()} creates or updates the textures of
+ * modified pages and must be called on the GL thread before drawing.
+ */
+public final class RuntimeAtlas implements Disposable {
+  private static final Logger log = LogManager.getLogger(RuntimeAtlas.class);
+
+  public static final int DEFAULT_PAGE_SIZE = 2048;
+  public static final int DEFAULT_MAX_PAGES = 8;
+  public static final int DEFAULT_PADDING = 1;
+
+  final int pageSize;
+  final int maxPages;
+  final int padding;
+  final Array<Page> pages = new Array<>(Page.class);
+  final ObjectMap<Object, Region> regions = new ObjectMap<>();
+  final Array<Region> released = new Array<>(true, 16, Region.class);
+  long evictions;
+
+  public RuntimeAtlas() {
+    this(DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, DEFAULT_PADDING);
+  }
+
+  /**
+   * @param pageSize width and height of each page
+   * @param maxPages max number of pages before released regions are evicted
+   * @param padding  number of pixels separating regions
+   */
+  public RuntimeAtlas(int pageSize, int maxPages, int padding) {
+    if (pageSize <= 0) throw new IllegalArgumentException("pageSize(" + pageSize + ") <= " + 0);
+    if (maxPages <= 0) throw new IllegalArgumentException("maxPages(" + maxPages + ") <= " + 0);
+    if (padding < 0) throw new IllegalArgumentException("padding(" + padding + ") < " + 0);
+    this.pageSize = pageSize;
+    this.maxPages = maxPages;
+    this.padding = padding;
+  }
+
+  @Override
+  public void dispose() {
+    for (Page page : pages) page.dispose();
+    pages.clear();
+    regions.clear();
+    released.clear();
+  }
+
+  public int numPages() {
+    return pages.size;
+  }
+
+  public Page page(int i) {
+    return pages.get(i);
+  }
+
+  /** number of packed regions, including released regions */
+  public int size() {
+    return regions.size;
+  }
+
+  /** number of released regions evicted to make space for others */
+  public long evictions() {
+    return evictions;
+  }
+
+  /**
+   * Returns the region packed with the specified key, retaining it, or
+   * {@code null} if no such region is packed.
+   */
+  public Region get(Object key) {
+    final Region region = regions.get(key);
+    if (region == null) return null;
+    if (region.refCnt++ == 0) released.removeValue(region, true);
+    return region;
+  }
+
+  /**
+   * Packs the specified pixmap, or retains the existing region if one is
+   * already packed with the specified key.
+   *
+   * @return the packed region, or {@code null} if the pixmap could not be
+   *         packed, e.g., it is larger than a page or all pages are full of
+   *         referenced regions
+   */
+  public Region pack(Object key, Pixmap pixmap) {
+    final Region existing = get(key);
+    if (existing != null) return existing;
+
+    final int width = pixmap.getWidth();
+    final int height = pixmap.getHeight();
+    final int paddedWidth = width + padding;
+    final int paddedHeight = height + padding;
+    if (paddedWidth > pageSize || paddedHeight > pageSize) return null;
+
+    Page page = null;
+    int allocation = ShelfAllocator.NONE;
+    for (int i = 0, s = pages.size; i < s && allocation == ShelfAllocator.NONE; i++) {
+      page = pages.get(i);
+      allocation = page.allocator.allocate(paddedWidth, paddedHeight);
+    }
+
+    if (allocation == ShelfAllocator.NONE && pages.size < maxPages) {
+      page = new Page(pages.size, pageSize);
+      pages.add(page);
+      log.debug("Allocated atlas page {} ({}x{})", page.index, pageSize, pageSize);
+      allocation = page.allocator.allocate(paddedWidth, paddedHeight);
+    }
+
+    while (allocation == ShelfAllocator.NONE && released.size > 0) {
+      final Region evicted = released.removeIndex(0);
+      evict(evicted);
+      page = evicted.page;
+      allocation = page.allocator.allocate(paddedWidth, paddedHeight);
+    }
+
+    if (allocation == ShelfAllocator.NONE) return null;
+
+    final int x = ShelfAllocator.x(allocation);
+    final int y = ShelfAllocator.y(allocation);
+    page.pixmap.drawPixmap(pixmap, x, y);
+    page.dirty = true;
+
+    final Region region = new Region(this, key, page, allocation, x, y, width, height);
+    if (page.texture != null) region.setRegion(page.texture, x, y, width, height);
+    page.regions.add(region);
+    regions.put(key, region);
+    return region;
+  }
+
+  /**
+   * Releases a reference to the specified region. Regions which are no longer
+   * referenced remain packed until evicted.
+   */
+  public void release(Region region) {
+    if (region.atlas != this) throw new IllegalArgumentException("region(" + region + ") not packed within this atlas");
+    if (region.refCnt <= 0) throw new IllegalStateException("region(" + region + ") already released");
+    if (--region.refCnt == 0) released.add(region);
+  }
+
+  void evict(Region region) {
+    if (log.traceEnabled()) log.trace("Evicting {}", region);
+    regions.remove(region.key);
+    final Page page = region.page;
+    page.regions.removeValue(region, true);
+    page.allocator.free(region.allocation, region.width + padding, region.height + padding);
+    page.pixmap.fillRectangle(region.x, region.y, region.width, region.height); // color is 0
+    evictions++;
+  }
+
+  /**
+   * Creates the textures of new pages and uploads modified pages. Must be
+   * called on the GL thread.
+   */
+  public void upload() {
+    for (Page page : pages) {
+      if (!page.dirty) continue;
+      page.dirty = false;
+      if (page.texture == null) {
+        page.texture = new Texture(page.pixmap);
+        for (Region region : page.regions) {
+          region.setRegion(page.texture, region.x, region.y, region.width, region.height);
+        }
+      } else {
+        page.texture.draw(page.pixmap, 0, 0);
+      }
+    }
+  }
+
+  /**
+   * Identifies a frame of a sprite by the path of its file, its direction and
+   * its index within the direction.
+   */
+  public static final class FrameKey {
+    final String path;
+    final int direction;
+    final int frame;
+
+    public FrameKey(String path, int direction, int frame) {
+      if (path == null) throw new IllegalArgumentException("path cannot be null");
+      this.path = path;
+      this.direction = direction;
+      this.frame = frame;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof FrameKey)) return false;
+      final FrameKey other = (FrameKey) obj;
+      return direction == other.direction && frame == other.frame && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return (path.hashCode() * 31 + direction) * 31 + frame;
+    }
+
+    @Override
+    public String toString() {
+      return path + "#" + direction + ":" + frame;
+    }
+  }
+
+  public static final class Page implements Disposable {
+    final int index;
+    final ShelfAllocator allocator;
+    final Pixmap pixmap;
+    final Array<Region> regions = new Array<>(false, 64, Region.class);
+    Texture texture;
+    boolean dirty;
+
+    Page(int index, int size) {
+      this.index = index;
+      this.allocator = new ShelfAllocator(size, size);
+      this.pixmap = new PaletteIndexedPixmap(size, size);
+      pixmap.setColor(0);
+      pixmap.fill();
+    }
+
+    @Override
+    public void dispose() {
+      pixmap.dispose();
+      if (texture != null) texture.dispose();
+    }
+
+    public int index() {
+      return index;
+    }
+
+    public Pixmap pixmap() {
+      return pixmap;
+    }
+
+    public Texture texture() {
+      return texture;
+    }
+
+    public ShelfAllocator allocator() {
+      return allocator;
+    }
+  }
+
+  public static final class Region extends TextureRegion {
+    final RuntimeAtlas atlas;
+    final Object key;
+    final Page page;
+    final int allocation;
+    final int x;
+    final int y;
+    final int width;
+    final int height;
+    int refCnt = 1;
+
+    Region(RuntimeAtlas atlas, Object key, Page page, int allocation, int x, int y, int width, int height) {
+      this.atlas = atlas;
+      this.key = key;
+      this.page = page;
+      this.allocation = allocation;
+      this.x = x;
+      this.y = y;
+      this.width = width;
+      this.height = height;
+    }
+
+    public Page page() {
+      return page;
+    }
+
+    public int x() {
+      return x;
+    }
+
+    public int y() {
+      return y;
+    }
+
+    public int width() {
+      return width;
+    }
+
+    public int height() {
+      return height;
+    }
+
+    public int refCnt() {
+      return refCnt;
+    }
+
+    public void release() {
+      atlas.release(this);
+    }
+
+    @Override
+    public String toString() {
+      return key + "@" + page.index + "[" + x + "," + y + "," + width + "x" + height + "]";
+    }
+  }
+}
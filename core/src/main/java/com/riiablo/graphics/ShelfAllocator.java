@@ -0,0 +1,204 @@
+package com.riiablo.graphics;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Allocates rectangles within a fixed size page using shelves, i.e., rows of
+ * allocations of similar height stacked from the top of the page. Each shelf
+ * tracks its free horizontal spans, s.t., freed rectangles are coalesced and
+ * reused by later allocations and trailing empty shelves are reclaimed. This
+ * suits decoded sprite frames, since the frames of a direction typically
+ * share the same height.
+ * <p/>
+ * Allocations are returned packed into an int, see {@link #x(int)} and
+ * {@link #y(int)}.
+ */
+public final class ShelfAllocator {
+  public static final int NONE = -1;
+
+  /** max height a shelf may exceed an allocation before it is not preferred */
+  static final float MAX_WASTE = 0.5f;
+
+  static final class Shelf {
+    final int y;
+    final int height;
+    final IntArray free = new IntArray(); // x0, w0, x1, w1, ... ordered by x
+    int allocations;
+
+    Shelf(int y, int height, int width) {
+      this.y = y;
+      this.height = height;
+      free.add(0, width);
+    }
+
+    /** index of the first free span at least {@code width} wide, or -1 */
+    int find(int width) {
+      final int[] free = this.free.items;
+      for (int i = 0, s = this.free.size; i < s; i += 2) {
+        if (free[i + 1] >= width) return i;
+      }
+
+      return -1;
+    }
+
+    int take(int span, int width) {
+      final int[] free = this.free.items;
+      final int x = free[span];
+      free[span] += width;
+      free[span + 1] -= width;
+      if (free[span + 1] == 0) this.free.removeRange(span, span + 1);
+      allocations++;
+      return x;
+    }
+
+    void give(int x, int width) {
+      final IntArray free = this.free;
+      int i = 0;
+      while (i < free.size && free.items[i] < x) i += 2;
+      free.insert(i, x);
+      free.insert(i + 1, width);
+      if (i + 2 < free.size && x + width == free.items[i + 2]) {
+        free.items[i + 1] += free.items[i + 3];
+        free.removeRange(i + 2, i + 3);
+      }
+      if (i > 0 && free.items[i - 2] + free.items[i - 1] == x) {
+        free.items[i - 1] += free.items[i + 1];
+        free.removeRange(i, i + 1);
+      }
+
+      allocations--;
+    }
+  }
+
+  final int width;
+  final int height;
+  final Array<Shelf> shelves = new Array<>(Shelf.class);
+  int top;
+  long area;
+
+  public ShelfAllocator(int width, int height) {
+    if (width <= 0 || width > 0xFFFF) throw new IllegalArgumentException("width(" + width + ") not in (0, " + 0xFFFF + "]");
+    if (height <= 0 || height > 0xFFFF) throw new IllegalArgumentException("height(" + height + ") not in (0, " + 0xFFFF + "]");
+    this.width = width;
+    this.height = height;
+  }
+
+  public static int x(int allocation) {
+    return allocation >>> 16;
+  }
+
+  public static int y(int allocation) {
+    return allocation & 0xFFFF;
+  }
+
+  public int width() {
+    return width;
+  }
+
+  public int height() {
+    return height;
+  }
+
+  public int numShelves() {
+    return shelves.size;
+  }
+
+  /** fraction of the page area which is allocated */
+  public float occupancy() {
+    return (float) area / ((long) width * height);
+  }
+
+  public boolean isEmpty() {
+    return area == 0;
+  }
+
+  public void clear() {
+    shelves.clear();
+    top = 0;
+    area = 0;
+  }
+
+  /**
+   * Allocates a rectangle of the specified size.
+   *
+   * @return packed position of the rectangle, or {@link #NONE} if there is
+   *         no space for it
+   */
+  public int allocate(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("width(" + width + ") and height(" + height + ") must be > 0");
+    }
+    if (width > this.width || height > this.height) return NONE;
+
+    // prefer the shortest shelf which will fit without too much waste
+    final Shelf[] shelves = this.shelves.items;
+    final int maxHeight = height + (int) (height * MAX_WASTE);
+    Shelf best = null;
+    int bestSpan = -1;
+    for (int i = 0, s = this.shelves.size; i < s; i++) {
+      final Shelf shelf = shelves[i];
+      if (shelf.height < height || shelf.height > maxHeight) continue;
+      if (best != null && shelf.height >= best.height) continue;
+      final int span = shelf.find(width);
+      if (span < 0) continue;
+      best = shelf;
+      bestSpan = span;
+    }
+
+    if (best == null && top + height <= this.height) {
+      best = new Shelf(top, height, this.width);
+      bestSpan = 0;
+      this.shelves.add(best);
+      top += height;
+    }
+
+    if (best == null) {
+      // page is full, accept any shelf which fits
+      for (int i = 0, s = this.shelves.size; i < s; i++) {
+        final Shelf shelf = shelves[i];
+        if (shelf.height < height) continue;
+        if (best != null && shelf.height >= best.height) continue;
+        final int span = shelf.find(width);
+        if (span < 0) continue;
+        best = shelf;
+        bestSpan = span;
+      }
+
+      if (best == null) return NONE;
+    }
+
+    final int x = best.take(bestSpan, width);
+    area += (long) width * height;
+    return (x << 16) | best.y;
+  }
+
+  /**
+   * Frees a rectangle previously returned by {@link #allocate(int, int)}.
+   */
+  public void free(int allocation, int width, int height) {
+    final int x = x(allocation);
+    final int y = y(allocation);
+    final Shelf[] shelves = this.shelves.items;
+    int index = -1;
+    for (int i = 0, s = this.shelves.size; i < s; i++) {
+      if (shelves[i].y == y) {
+        index = i;
+        break;
+      }
+    }
+
+    if (index < 0) throw new IllegalArgumentException("no shelf at y(" + y + ")");
+    final Shelf shelf = shelves[index];
+    shelf.give(x, width);
+    area -= (long) width * height;
+
+    // reclaim trailing empty shelves
+    while (this.shelves.size > 0) {
+      final Shelf last = this.shelves.peek();
+      if (last.allocations > 0) break;
+      this.shelves.pop();
+      top = last.y;
+    }
+  }
+}
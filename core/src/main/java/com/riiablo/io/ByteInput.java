@@ -7,6 +7,7 @@ import java.nio.charset.Charset;
 import java.util.Arrays;
 import org.apache.commons.lang3.StringUtils;
 
+import com.riiablo.table.DataInput;
 import com.riiablo.util.DebugUtils;
 
 /**
@@ -19,7 +20,7 @@ import com.riiablo.util.DebugUtils;
  * @see #unalign()
  */
 // TODO: improve placeholder documentation
-public class ByteInput {
+public class ByteInput implements DataInput {
   private static final ByteInput EMPTY_BYTEINPUT = new ByteInput(Unpooled.EMPTY_BUFFER.asReadOnly());
   public static ByteInput emptyByteInput() {
     return EMPTY_BYTEINPUT;
@@ -4,7 +4,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
 
-public class ByteOutput {
+import com.riiablo.table.DataOutput;
+
+public class ByteOutput implements DataOutput {
   public static ByteOutput wrap(byte[] bytes) {
     return wrap(Unpooled.wrappedBuffer(bytes));
   }
@@ -6,11 +6,13 @@ import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
 
 import com.riiablo.Riiablo;
 import com.riiablo.attributes.Attributes;
 import com.riiablo.attributes.AttributesUpdater;
 import com.riiablo.attributes.Stat;
+import com.riiablo.attributes.StatList;
 import com.riiablo.attributes.StatListFlags;
 import com.riiablo.attributes.StatListRef;
 import com.riiablo.attributes.UpdateSequence;
@@ -97,6 +99,9 @@ public class Item {
   static final int SET_ID_SIZE      = 12;
   static final int UNIQUE_ID_SIZE   = 12;
 
+  /** base stats of each item code, shared by the bases of all such items */
+  private static final ObjectMap<String, StatListRef> BASE_PROPS = new ObjectMap<>();
+
   static final Array<Item> EMPTY_SOCKETS_ARRAY = new Array<Item>(0) {
     @Override
     public void add(Item value) {
@@ -221,11 +226,29 @@ public class Item {
     attrs = (flags & ITEMFLAG_COMPACT) == ITEMFLAG_COMPACT
         ? Attributes.obtainCompact()
         : Attributes.obtainStandard();
-    StatListRef baseProps = attrs.base();
+    attrs.shareBase(baseProps(base));
+    // TODO: copy base item stats
+  }
+
+  /**
+   * Returns the base stats of items of the specified base. The list is shared
+   * by the bases of all such items, and is only copied by an item once its
+   * base is mutated, e.g., by its durability.
+   */
+  static StatListRef baseProps(ItemEntry base) {
+    synchronized (BASE_PROPS) {
+      StatListRef baseProps = BASE_PROPS.get(base.code);
+      if (baseProps == null) BASE_PROPS.put(base.code, baseProps = createBaseProps(base));
+      return baseProps;
+    }
+  }
+
+  static StatListRef createBaseProps(ItemEntry base) {
+    StatListRef baseProps = StatList.obtain();
     baseProps.put(Stat.item_levelreq, base.levelreq);
-    switch (getBaseType()) {
+    switch (getBaseType(base)) {
       case WEAPON: {
-        Weapons.Entry weapon = getBase();
+        Weapons.Entry weapon = (Weapons.Entry) base;
         baseProps.put(Stat.mindamage, weapon.mindam);
         baseProps.put(Stat.maxdamage, weapon.maxdam);
         baseProps.put(Stat.secondary_mindamage, weapon._2handmindam);
@@ -237,7 +260,7 @@ public class Item {
         break;
       }
       case ARMOR: {
-        Armor.Entry armor = getBase();
+        Armor.Entry armor = (Armor.Entry) base;
         baseProps.put(Stat.reqstr, armor.reqstr);
         baseProps.put(Stat.reqdex, 0);
         baseProps.put(Stat.toblock, armor.block); // FIXME: apply Riiablo.charData.getCharacterClass().entry().BlockFactor for view stats
@@ -246,12 +269,11 @@ public class Item {
         break;
       }
       case MISC: {
-        Misc.Entry misc = getBase();
         break;
       }
       default: throw new AssertionError();
     }
-    // TODO: copy base item stats
+    return baseProps;
   }
 
   void setEar(int charClass, int charLevel, String charName) {
@@ -284,6 +306,10 @@ public class Item {
 
   enum ItemEntryType { WEAPON, ARMOR, MISC }
   public ItemEntryType getBaseType() {
+    return getBaseType(base);
+  }
+
+  static ItemEntryType getBaseType(ItemEntry base) {
     if (base instanceof Weapons.Entry) {
       return ItemEntryType.WEAPON;
     } else if (base instanceof Armor.Entry) {
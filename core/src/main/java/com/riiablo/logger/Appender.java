@@ -1,6 +1,12 @@
 package com.riiablo.logger;
 
 public interface Appender {
+  /**
+   * Appends the specified event. Appenders are responsible for
+   * {@link LogEvent#release() releasing} the message of the event, however
+   * the event itself is recycled once this method returns, so appenders which
+   * defer encoding must copy it.
+   */
   void append(LogEvent event);
   Encoder encoder();
 }
@@ -1,18 +1,117 @@
 package com.riiablo.logger;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
 import java.io.OutputStream;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Appender which encodes and writes events on a background thread.
+ * <p/>
+ * Events are copied into preallocated slots of a bounded ring buffer, s.t.,
+ * appending neither allocates nor locks. Producers claim slots by CAS on a
+ * shared cursor and publish them through per-slot sequence numbers. The
+ * worker drains every published slot, encodes the batch into a reused direct
+ * buffer and then writes and flushes the output stream once per batch.
+ * <p/>
+ * What happens when the ring buffer is full is determined by the
+ * {@link OverflowPolicy}. Events which are dropped, or which could not be
+ * encoded or written are counted rather than reported, since the worker has
+ * nowhere else to report them.
+ */
 public class AsyncOutputStreamAppender implements Appender, Runnable {
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+
+  /** max number of events encoded before the buffer is written */
+  static final int MAX_BATCH_SIZE = 1024;
+  static final int INITIAL_BUFFER_SIZE = 1 << 16;
+  static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  public enum OverflowPolicy {
+    /** producers wait until a slot is available */
+    BLOCK,
+    /**
+     * events less specific than or equal to the overflow level are dropped,
+     * more specific events wait until a slot is available
+     */
+    DROP_LOWEST_LEVEL,
+    /**
+     * like {@link #DROP_LOWEST_LEVEL}, however one out of every sample rate
+     * overflowing events is kept
+     */
+    SAMPLE
+  }
+
   private final OutputStream out;
   private final Encoder encoder = new RiiabloEncoder();
 
+  private final OverflowPolicy overflowPolicy;
+  private final Level overflowLevel;
+  private final int sampleRate;
+
+  private final LogEvent[] slots;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private volatile long head;
+  private volatile boolean waiting;
+
+  private final ByteBuf buffer = Unpooled.directBuffer(INITIAL_BUFFER_SIZE);
+  private final ByteBufOutputStream bufferOut = new ByteBufOutputStream(buffer);
+
+  private final AtomicLong queued = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong overflowed = new AtomicLong();
+  private final AtomicLong sampled = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+
   private final Thread thread;
-  private final BlockingQueue<LogEvent> queue = new ArrayBlockingQueue<>(65536);
 
   public AsyncOutputStreamAppender(OutputStream out) {
+    this(out, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+  }
+
+  public AsyncOutputStreamAppender(OutputStream out, int capacity, OverflowPolicy overflowPolicy) {
+    this(out, capacity, overflowPolicy, Level.INFO, 16);
+  }
+
+  /**
+   * @param capacity       number of slots, rounded up to the next power of two
+   * @param overflowPolicy policy used when all slots are in use
+   * @param overflowLevel  most specific level which may be dropped by
+   *                       {@link OverflowPolicy#DROP_LOWEST_LEVEL} and
+   *                       {@link OverflowPolicy#SAMPLE}
+   * @param sampleRate     one out of every {@code sampleRate} overflowing
+   *                       events is kept by {@link OverflowPolicy#SAMPLE}
+   */
+  public AsyncOutputStreamAppender(
+      OutputStream out,
+      int capacity,
+      OverflowPolicy overflowPolicy,
+      Level overflowLevel,
+      int sampleRate) {
+    if (capacity <= 0) throw new IllegalArgumentException("capacity(" + capacity + ") <= " + 0);
+    if (sampleRate <= 0) throw new IllegalArgumentException("sampleRate(" + sampleRate + ") <= " + 0);
     this.out = out;
+    this.overflowPolicy = overflowPolicy;
+    this.overflowLevel = overflowLevel;
+    this.sampleRate = sampleRate;
+
+    capacity = MathUtils.nextPowerOfTwo(capacity);
+    mask = capacity - 1;
+    slots = new LogEvent[capacity];
+    sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new LogEvent();
+      sequences.set(i, i);
+    }
 
     thread = new Thread(this);
     thread.setName("AsyncOutputStreamAppender-Worker");
@@ -25,26 +124,145 @@ public class AsyncOutputStreamAppender implements Appender, Runnable {
     return encoder;
   }
 
+  public OverflowPolicy overflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public int capacity() {
+    return slots.length;
+  }
+
+  /** number of events accepted into the ring buffer */
+  public long queued() {
+    return queued.get();
+  }
+
+  /** number of events dropped by the overflow policy */
+  public long dropped() {
+    return dropped.get();
+  }
+
+  /** number of events appended while the ring buffer was full */
+  public long overflowed() {
+    return overflowed.get();
+  }
+
+  /** number of events which could not be encoded or written */
+  public long failed() {
+    return failed.get();
+  }
+
+  /** number of events waiting to be encoded */
+  public int pending() {
+    return (int) (tail.get() - head);
+  }
+
   @Override
   public void append(LogEvent event) {
-    boolean added = queue.offer(event);
-    assert added : "event(" + event + ") could not be added to queue!";
+    if (tryPublish(event)) return;
+    overflowed.incrementAndGet();
+    if (drop(event.level)) {
+      dropped.incrementAndGet();
+      event.release();
+      return;
+    }
+
+    while (!tryPublish(event)) {
+      if (waiting) LockSupport.unpark(thread);
+      LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+    }
+  }
+
+  private boolean drop(Level level) {
+    // the worker cannot wait on itself, e.g., if an encoded message logs
+    if (Thread.currentThread() == thread) return true;
+    switch (overflowPolicy) {
+      case BLOCK:
+        return false;
+      case DROP_LOWEST_LEVEL:
+        return level.isLessSpecificThan(overflowLevel);
+      case SAMPLE:
+        return level.isLessSpecificThan(overflowLevel)
+            && sampled.getAndIncrement() % sampleRate != 0;
+      default:
+        throw new AssertionError("Unsupported overflow policy: " + overflowPolicy);
+    }
+  }
+
+  /**
+   * Claims the next slot, copies the event into it and publishes it.
+   *
+   * @return {@code false} if the ring buffer is full
+   */
+  private boolean tryPublish(LogEvent event) {
+    final AtomicLongArray sequences = this.sequences;
+    for (;;) {
+      final long position = tail.get();
+      final int index = (int) position & mask;
+      final long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          slots[index].set(event);
+          sequences.set(index, position + 1);
+          queued.incrementAndGet();
+          if (waiting) LockSupport.unpark(thread);
+          return true;
+        }
+      } else if (difference < 0) {
+        return false;
+      }
+    }
   }
 
   @Override
   public void run() {
-    LogEvent event = null;
+    final LogEvent[] slots = this.slots;
+    final AtomicLongArray sequences = this.sequences;
+    final int capacity = slots.length;
+    long head = this.head;
     for (;;) {
-      try {
-        event = queue.take();
-        encoder.encode(event, out);
-      } catch (InterruptedException ignored) {
-      } finally {
-        if (event != null) {
+      int batchSize = 0;
+      while (batchSize < MAX_BATCH_SIZE) {
+        final int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) break;
+        final LogEvent event = slots[index];
+        try {
+          encoder.encode(event, bufferOut);
+        } catch (Throwable t) {
+          failed.incrementAndGet();
+        } finally {
           event.release();
-          event = null;
+          event.reset();
         }
+
+        // slot is released before the batch is written
+        sequences.lazySet(index, head + capacity);
+        this.head = ++head;
+        batchSize++;
+      }
+
+      if (batchSize > 0) {
+        write(batchSize);
+        continue;
       }
+
+      waiting = true;
+      if (sequences.get((int) head & mask) != head + 1) {
+        LockSupport.parkNanos(this, MAX_PARK_NANOS);
+      }
+
+      waiting = false;
+    }
+  }
+
+  private void write(int batchSize) {
+    try {
+      buffer.readBytes(out, buffer.readableBytes());
+      out.flush();
+    } catch (Throwable t) {
+      failed.addAndGet(batchSize);
+    } finally {
+      buffer.clear();
     }
   }
 }
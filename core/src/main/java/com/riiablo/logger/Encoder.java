@@ -4,4 +4,10 @@ import java.io.OutputStream;
 
 public interface Encoder {
   void encode(LogEvent event, OutputStream out);
+
+  /**
+   * Returns how the source locations of events passed to this encoder should
+   * be captured.
+   */
+  LocationCapture locationCapture();
 }
@@ -0,0 +1,29 @@
+package com.riiablo.logger;
+
+/**
+ * Determines how the source location of a log call is captured for an
+ * {@link Encoder}.
+ *
+ * @see Encoder#locationCapture()
+ */
+public enum LocationCapture {
+  /**
+   * Locations are not captured, {@link LogEvent#source()} will be
+   * {@code null} and encoders should fall back to {@link LogEvent#loggerName()}.
+   */
+  NONE,
+
+  /**
+   * Locations are resolved once per call site and cached by the logger. Call
+   * sites are identified by the class, method and position of the caller, so
+   * calls sharing the same message pattern report their own locations. Java 8
+   * cannot identify the caller without capturing the stack trace, so there
+   * this only deduplicates locations.
+   */
+  CACHED,
+
+  /**
+   * Locations are resolved by walking the stack on every call.
+   */
+  FULL
+}
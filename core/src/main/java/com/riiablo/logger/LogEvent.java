@@ -1,12 +1,15 @@
 package com.riiablo.logger;
 
 import com.riiablo.logger.message.Message;
+import com.riiablo.util.Pool;
 
-public final class LogEvent {
+public final class LogEvent implements Pool.Poolable {
   Level level;
   Message message;
   StackTraceElement source;
-  StringMap mdc;
+  String loggerName;
+  /** owned by this event, s.t. a reused event copies the MDC without allocating */
+  final StringMap mdc = StringMap.frozen();
 
   LogEvent() {}
 
@@ -18,13 +21,33 @@ public final class LogEvent {
     this.level = level;
     this.message = message;
     this.source = source;
-    this.mdc = mdc;
+    this.mdc.set(mdc);
   }
 
+  /** copies the fields of the specified event into this event */
+  void set(LogEvent other) {
+    level = other.level;
+    message = other.message;
+    source = other.source;
+    loggerName = other.loggerName;
+    mdc.set(other.mdc);
+  }
+
+  /** releases the message of this event */
   public void release() {
     message.release();
   }
 
+  /** clears the references held by this event, does not release the message */
+  @Override
+  public void reset() {
+    level = null;
+    message = null;
+    source = null;
+    loggerName = null;
+    mdc.clear();
+  }
+
   public Level level() {
     return level;
   }
@@ -33,10 +56,20 @@ public final class LogEvent {
     return message;
   }
 
+  /**
+   * Returns the location of the log call, or {@code null} if locations are
+   * not captured.
+   *
+   * @see LocationCapture
+   */
   public StackTraceElement source() {
     return source;
   }
 
+  public String loggerName() {
+    return loggerName;
+  }
+
   public StringMap mdc() {
     return mdc;
   }
@@ -1,5 +1,12 @@
 package com.riiablo.logger;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.riiablo.logger.StackLocator.CallSite;
+
 import com.riiablo.logger.message.Message;
 import com.riiablo.logger.message.MessageFactory;
 import com.riiablo.logger.message.PooledFormattedMessageFactory;
@@ -10,6 +17,12 @@ import com.riiablo.util.Pool;
 public final class Logger {
   private static final String FQCN = Logger.class.getName();
 
+  private static final StackLocator STACK_LOCATOR = StackLocator.getInstance();
+  private static final Function<Stream<?>, StackTraceElement> CALLER = STACK_LOCATOR.finder(FQCN);
+
+  /** max number of call sites cached by each logger, bounds the cache of dynamically loaded code */
+  static final int MAX_CACHED_LOCATIONS = 256;
+
   private static final Pool<LogEvent> POOL = new Pool<LogEvent>(true, true, 512, Integer.MAX_VALUE) {
     @Override
     protected LogEvent newInstance() {
@@ -25,6 +38,11 @@ public final class Logger {
   private Level level = Level.WARN;
   private boolean deferred;
 
+  /** locations keyed by call site */
+  private final ConcurrentMap<CallSite, StackTraceElement> locations = new ConcurrentHashMap<>();
+  private final Function<Stream<?>, StackTraceElement> cachedCaller
+      = STACK_LOCATOR.finder(FQCN, locations, MAX_CACHED_LOCATIONS);
+
   Logger(final String name) {
     this(name, PooledParameterizedMessageFactory.INSTANCE, PooledFormattedMessageFactory.INSTANCE);
   }
@@ -81,7 +99,7 @@ public final class Logger {
       MessageFactory factory,
       String message, Object... args) {
     if (enabled(level)) {
-      log(level, factory.newMessage(message, args), getLocation());
+      log(level, factory.newMessage(message, args), captureLocation());
     }
   }
 
@@ -90,7 +108,7 @@ public final class Logger {
       MessageFactory factory,
       String message, Object arg0) {
     if (enabled(level)) {
-      log(level, factory.newMessage(message, arg0), getLocation());
+      log(level, factory.newMessage(message, arg0), captureLocation());
     }
   }
 
@@ -101,7 +119,7 @@ public final class Logger {
       Object arg0, Object arg1) {
     if (enabled(level)) {
       log(level, factory.newMessage(message,
-          arg0, arg1), getLocation());
+          arg0, arg1), captureLocation());
     }
   }
 
@@ -112,7 +130,7 @@ public final class Logger {
       Object arg0, Object arg1, Object arg2) {
     if (enabled(level)) {
       log(level, factory.newMessage(message,
-          arg0, arg1, arg2), getLocation());
+          arg0, arg1, arg2), captureLocation());
     }
   }
 
@@ -123,7 +141,7 @@ public final class Logger {
       Object arg0, Object arg1, Object arg2, Object arg3) {
     if (enabled(level)) {
       log(level, factory.newMessage(message,
-          arg0, arg1, arg2, arg3), getLocation());
+          arg0, arg1, arg2, arg3), captureLocation());
     }
   }
 
@@ -134,7 +152,7 @@ public final class Logger {
       Object arg0, Object arg1, Object arg2, Object arg3, Object arg4) {
     if (enabled(level)) {
       log(level, factory.newMessage(message,
-          arg0, arg1, arg2, arg3, arg4), getLocation());
+          arg0, arg1, arg2, arg3, arg4), captureLocation());
     }
   }
 
@@ -146,7 +164,7 @@ public final class Logger {
       Object arg5) {
     if (enabled(level)) {
       log(level, factory.newMessage(message,
-          arg0, arg1, arg2, arg3, arg4, arg5), getLocation());
+          arg0, arg1, arg2, arg3, arg4, arg5), captureLocation());
     }
   }
 
@@ -158,7 +176,7 @@ public final class Logger {
       Object arg5, Object arg6) {
     if (enabled(level)) {
       log(level, factory.newMessage(message,
-          arg0, arg1, arg2, arg3, arg4, arg5, arg6), getLocation());
+          arg0, arg1, arg2, arg3, arg4, arg5, arg6), captureLocation());
     }
   }
 
@@ -170,7 +188,7 @@ public final class Logger {
       Object arg5, Object arg6, Object arg7) {
     if (enabled(level)) {
       log(level, factory.newMessage(message,
-          arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7), getLocation());
+          arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7), captureLocation());
     }
   }
 
@@ -182,7 +200,7 @@ public final class Logger {
       Object arg5, Object arg6, Object arg7, Object arg8) {
     if (enabled(level)) {
       log(level, factory.newMessage(message,
-          arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7, arg8), getLocation());
+          arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7, arg8), captureLocation());
     }
   }
 
@@ -194,7 +212,7 @@ public final class Logger {
       Object arg5, Object arg6, Object arg7, Object arg8, Object arg9) {
     if (enabled(level)) {
       log(level, factory.newMessage(message,
-          arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7, arg8, arg9), getLocation());
+          arg0, arg1, arg2, arg3, arg4, arg5, arg6, arg7, arg8, arg9), captureLocation());
     }
   }
 
@@ -206,8 +224,13 @@ public final class Logger {
     event.level = level;
     event.message = message;
     event.source = location;
-    event.mdc = MDC.freeze();
-    appender.append(event);
+    event.loggerName = name;
+    event.mdc.set(MDC.map());
+    try {
+      appender.append(event);
+    } finally {
+      POOL.release(event);
+    }
   }
 
   public boolean enabled(final Level level) {
@@ -860,29 +883,26 @@ public final class Logger {
   }
 
   private StackTraceElement getLocation() {
-    return getLocation(FQCN);
+    return STACK_LOCATOR.calling(FQCN, CALLER);
   }
 
   /**
-   * Borrowed from Log4j2
+   * Captures the location of a log call as configured by the
+   * {@link Encoder#locationCapture() encoder} of this logger's appender.
    */
-  private StackTraceElement getLocation(final String fqcn) {
-    if (fqcn == null) {
-      return null;
+  private StackTraceElement captureLocation() {
+    switch (appender.encoder().locationCapture()) {
+      case NONE:
+        return null;
+      case CACHED:
+        return getCachedLocation();
+      case FULL:
+      default:
+        return getLocation();
     }
+  }
 
-    final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
-    boolean found = false;
-    for (int i = 0; i < stackTrace.length; i++) {
-      final String className = stackTrace[i].getClassName();
-      if (fqcn.equals(className)) {
-        found = true;
-        continue;
-      }
-      if (found && !fqcn.equals(className)) {
-        return stackTrace[i];
-      }
-    }
-    return null;
+  private StackTraceElement getCachedLocation() {
+    return STACK_LOCATOR.calling(FQCN, cachedCaller, locations, MAX_CACHED_LOCATIONS);
   }
 }
@@ -38,4 +38,9 @@ public class MDC {
   public static StringMap freeze() {
     return threadLocal.get().freeze();
   }
+
+  /** returns the mutable map of the current thread, copy it to retain it */
+  static StringMap map() {
+    return threadLocal.get();
+  }
 }
@@ -16,7 +16,7 @@ public class RiiabloEncoder extends SimpleEncoder {
 
   private Thread context;
   private boolean fullMode;
-  private StringMap mdc;
+  private final StringMap mdc = StringMap.frozen();
   private int depth;
 
   public boolean isFullMode() {
@@ -35,7 +35,7 @@ public class RiiabloEncoder extends SimpleEncoder {
       } else {
         encodeCompactMode(event, out, buffer);
       }
-      out.write(buffer.toString().getBytes(US_ASCII));
+      write(buffer, out);
       newLine(out);
       encodeStackTrace(event, out);
     } catch (Throwable t) {
@@ -71,24 +71,22 @@ public class RiiabloEncoder extends SimpleEncoder {
         startingDepth = 0;
       }
 
-      if (!mdc.equals(this.mdc)) {
+      if (!mdc.contentEquals(this.mdc)) {
         final int dirty = mdc.getDirtyDepth();
         if (dirty < depth && dirty < startingDepth) {
           startingDepth = dirty;
         }
 
-        if (this.mdc != null) {
-          final int diff = this.mdc.firstDifference(mdc, startingDepth);
-          if (diff >= depth && this.depth != depth) {
-            startingDepth = Math.max(depth - 1, 0);
-          } else {
-            startingDepth = diff;
-          }
+        final int diff = this.mdc.firstDifference(mdc, startingDepth);
+        if (diff >= depth && this.depth != depth) {
+          startingDepth = Math.max(depth - 1, 0);
+        } else {
+          startingDepth = diff;
         }
 
         encodeCompactMDC(mdc, out, buffer, startingDepth, depth);
         assert this.depth == depth;
-        this.mdc = mdc;
+        this.mdc.set(mdc); // event mdcs are reused
       }
 
       buffer.append(spaces, 0, depth * DEPTH_STEP);
@@ -106,7 +104,7 @@ public class RiiabloEncoder extends SimpleEncoder {
       mdc.appendEntry(d, buffer);
       buffer.append('}');
       if (FLUSH_COMPACT_MDCS) {
-        out.write(buffer.toString().getBytes(US_ASCII));
+        write(buffer, out);
         newLine(out);
         buffer.setLength(0);
       } else {
@@ -1,5 +1,6 @@
 package com.riiablo.logger;
 
+import io.netty.buffer.ByteBufOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
@@ -8,18 +9,32 @@ import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
+import com.badlogic.gdx.math.MathUtils;
+
 public class SimpleEncoder implements Encoder {
   static final Charset US_ASCII = Charset.forName("US-ASCII");
   final CharSequence lineSeparator = System.getProperty("line.separator");
   final byte[] newLine = lineSeparator.toString().getBytes(US_ASCII);
 
   private final StringBuilder buffer = new StringBuilder(1024);
+  private byte[] bytes = new byte[1024];
+
+  private LocationCapture locationCapture = LocationCapture.CACHED;
+
+  @Override
+  public LocationCapture locationCapture() {
+    return locationCapture;
+  }
+
+  public void setLocationCapture(LocationCapture locationCapture) {
+    this.locationCapture = locationCapture;
+  }
 
   @Override
   public void encode(LogEvent event, OutputStream out) {
     try {
       encodeMessage(event, buffer);
-      out.write(buffer.toString().getBytes(US_ASCII));
+      write(buffer, out);
       newLine(out);
       encodeStackTrace(event, out);
     } catch (Throwable t) {
@@ -29,6 +44,28 @@ public class SimpleEncoder implements Encoder {
     }
   }
 
+  /**
+   * Writes {@code chars} to {@code out} as US-ASCII, replacing unmappable
+   * chars with {@code '?'}. Chars are encoded directly into the buffer of
+   * {@link ByteBufOutputStream}s, otherwise into a reused array.
+   */
+  protected void write(CharSequence chars, OutputStream out) throws IOException {
+    final int length = chars.length();
+    if (out instanceof ByteBufOutputStream) {
+      ((ByteBufOutputStream) out).buffer().writeCharSequence(chars, US_ASCII);
+      return;
+    }
+
+    byte[] bytes = this.bytes;
+    if (bytes.length < length) bytes = this.bytes = new byte[MathUtils.nextPowerOfTwo(length)];
+    for (int i = 0; i < length; i++) bytes[i] = ascii(chars.charAt(i));
+    out.write(bytes, 0, length);
+  }
+
+  static byte ascii(char c) {
+    return c < 0x80 ? (byte) c : (byte) '?';
+  }
+
   protected void newLine(OutputStream out) throws IOException {
     out.write(newLine);
     out.flush();
@@ -38,7 +75,8 @@ public class SimpleEncoder implements Encoder {
     buffer.append(StringUtils.rightPad(event.level().name(), 5));
     buffer.append(' ');
     buffer.append('[');
-    buffer.append(ClassUtils.getShortClassName(event.source().getClassName()));
+    final StackTraceElement source = event.source();
+    buffer.append(ClassUtils.getShortClassName(source != null ? source.getClassName() : event.loggerName()));
     buffer.append(']');
     buffer.append(' ');
     buffer.append(event.message().format());
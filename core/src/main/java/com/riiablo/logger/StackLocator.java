@@ -0,0 +1,276 @@
+package com.riiablo.logger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Locates the caller of a class within the current stack. Uses
+ * {@code java.lang.StackWalker} when it is available at runtime, which only
+ * materializes the frames it visits, otherwise falls back to
+ * {@link Throwable#getStackTrace()}.
+ * <p/>
+ * Locations may be cached by {@link CallSite call site}. When walking frames,
+ * call sites are identified by the class, method and bytecode index of the
+ * caller's frame, s.t., the location of each call site is only materialized
+ * once. Java 8 has no {@code StackWalker}, so the stack trace is captured on
+ * every call regardless, and call sites are identified by the line of the
+ * caller's element instead, which only deduplicates the elements.
+ */
+final class StackLocator {
+  private static final StackLocator INSTANCE = new StackLocator();
+
+  static StackLocator getInstance() {
+    return INSTANCE;
+  }
+
+  private final Object walker;
+  private final MethodHandle walk;
+  private final MethodHandle getClassName;
+  private final MethodHandle getMethodName;
+  private final MethodHandle getByteCodeIndex;
+  private final MethodHandle toStackTraceElement;
+
+  /** reused to look up cached locations without allocating */
+  private static final ThreadLocal<CallSite> KEY = new ThreadLocal<CallSite>() {
+    @Override
+    protected CallSite initialValue() {
+      return new CallSite();
+    }
+  };
+
+  private StackLocator() {
+    Object walker = null;
+    MethodHandle walk = null;
+    MethodHandle getClassName = null;
+    MethodHandle getMethodName = null;
+    MethodHandle getByteCodeIndex = null;
+    MethodHandle toStackTraceElement = null;
+    try {
+      final Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+      final Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame");
+      final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      walker = walkerClass.getMethod("getInstance").invoke(null);
+      walk = lookup.findVirtual(walkerClass, "walk",
+          MethodType.methodType(Object.class, Function.class));
+      getClassName = lookup.findVirtual(frameClass, "getClassName",
+          MethodType.methodType(String.class));
+      getMethodName = lookup.findVirtual(frameClass, "getMethodName",
+          MethodType.methodType(String.class));
+      getByteCodeIndex = lookup.findVirtual(frameClass, "getByteCodeIndex",
+          MethodType.methodType(int.class));
+      toStackTraceElement = lookup.findVirtual(frameClass, "toStackTraceElement",
+          MethodType.methodType(StackTraceElement.class));
+    } catch (Throwable t) {
+      walker = null; // StackWalker requires Java 9
+    }
+
+    this.walker = walker;
+    this.walk = walk;
+    this.getClassName = getClassName;
+    this.getMethodName = getMethodName;
+    this.getByteCodeIndex = getByteCodeIndex;
+    this.toStackTraceElement = toStackTraceElement;
+  }
+
+  boolean usesStackWalker() {
+    return walker != null;
+  }
+
+  /**
+   * Returns a function which finds the first frame following the frames of
+   * the specified class. Functions are immutable and should be reused.
+   */
+  Function<Stream<?>, StackTraceElement> finder(final String fqcn) {
+    return new Function<Stream<?>, StackTraceElement>() {
+      @Override
+      public StackTraceElement apply(Stream<?> frames) {
+        try {
+          boolean found = false;
+          for (Iterator<?> it = frames.iterator(); it.hasNext();) {
+            final Object frame = it.next();
+            final String className = (String) getClassName.invoke(frame);
+            if (fqcn.equals(className)) {
+              found = true;
+            } else if (found) {
+              return (StackTraceElement) toStackTraceElement.invoke(frame);
+            }
+          }
+
+          return null;
+        } catch (Throwable t) {
+          throw new IllegalStateException(t);
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns a function which finds the first frame following the frames of
+   * the specified class, and which caches the location of each call site
+   * within {@code locations} while it holds fewer than {@code maxLocations}.
+   *
+   * @see #finder(String)
+   */
+  Function<Stream<?>, StackTraceElement> finder(
+      final String fqcn,
+      final ConcurrentMap<CallSite, StackTraceElement> locations,
+      final int maxLocations) {
+    return new Function<Stream<?>, StackTraceElement>() {
+      @Override
+      public StackTraceElement apply(Stream<?> frames) {
+        try {
+          boolean found = false;
+          for (Iterator<?> it = frames.iterator(); it.hasNext();) {
+            final Object frame = it.next();
+            final String className = (String) getClassName.invoke(frame);
+            if (fqcn.equals(className)) {
+              found = true;
+            } else if (found) {
+              final CallSite key = KEY.get().set(
+                  className,
+                  (String) getMethodName.invoke(frame),
+                  (int) getByteCodeIndex.invoke(frame));
+              final StackTraceElement location = locations.get(key);
+              if (location != null) return location;
+              return cache(locations, maxLocations, key,
+                  (StackTraceElement) toStackTraceElement.invoke(frame));
+            }
+          }
+
+          return null;
+        } catch (Throwable t) {
+          throw new IllegalStateException(t);
+        }
+      }
+    };
+  }
+
+  /**
+   * @param fqcn   fully qualified name of the class whose caller to locate
+   * @param finder {@link #finder(String) finder} for {@code fqcn}
+   */
+  StackTraceElement calling(String fqcn, Function<Stream<?>, StackTraceElement> finder) {
+    if (walker != null) {
+      try {
+        return (StackTraceElement) walk.invoke(walker, finder);
+      } catch (Throwable ignored) {
+        // fall back to the stack trace
+      }
+    }
+
+    return calling(fqcn);
+  }
+
+  /**
+   * Locates the caller of the specified class, caching its location by call
+   * site.
+   *
+   * @param finder {@link #finder(String, ConcurrentMap, int) finder} for
+   *               {@code fqcn} and {@code locations}
+   */
+  StackTraceElement calling(
+      String fqcn,
+      Function<Stream<?>, StackTraceElement> finder,
+      ConcurrentMap<CallSite, StackTraceElement> locations,
+      int maxLocations) {
+    if (walker != null) {
+      try {
+        return (StackTraceElement) walk.invoke(walker, finder);
+      } catch (Throwable ignored) {
+        // fall back to the stack trace
+      }
+    }
+
+    final StackTraceElement location = calling(fqcn);
+    if (location == null) return null;
+    final CallSite key = KEY.get().set(
+        location.getClassName(),
+        location.getMethodName(),
+        location.getLineNumber());
+    final StackTraceElement cached = locations.get(key);
+    if (cached != null) return cached;
+    return cache(locations, maxLocations, key, location);
+  }
+
+  static StackTraceElement cache(
+      ConcurrentMap<CallSite, StackTraceElement> locations,
+      int maxLocations,
+      CallSite key,
+      StackTraceElement location) {
+    if (locations.size() >= maxLocations) return location;
+    final StackTraceElement existing = locations.putIfAbsent(key.copy(), location);
+    return existing != null ? existing : location;
+  }
+
+  /**
+   * Borrowed from Log4j2
+   */
+  static StackTraceElement calling(final String fqcn) {
+    if (fqcn == null) {
+      return null;
+    }
+
+    final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+    boolean found = false;
+    for (int i = 0; i < stackTrace.length; i++) {
+      final String className = stackTrace[i].getClassName();
+      if (fqcn.equals(className)) {
+        found = true;
+        continue;
+      }
+      if (found && !fqcn.equals(className)) {
+        return stackTrace[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Identifies a call site by its class, method and position within that
+   * method, i.e., its bytecode index when walking frames, otherwise its line.
+   */
+  static final class CallSite {
+    String className;
+    String methodName;
+    int position;
+
+    CallSite set(String className, String methodName, int position) {
+      this.className = className;
+      this.methodName = methodName;
+      this.position = position;
+      return this;
+    }
+
+    CallSite copy() {
+      return new CallSite().set(className, methodName, position);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = className.hashCode();
+      result = 31 * result + methodName.hashCode();
+      result = 31 * result + position;
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) return true;
+      if (!(obj instanceof CallSite)) return false;
+      final CallSite other = (CallSite) obj;
+      return position == other.position
+          && className.equals(other.className)
+          && methodName.equals(other.methodName);
+    }
+
+    @Override
+    public String toString() {
+      return className + "." + methodName + "@" + position;
+    }
+  }
+}
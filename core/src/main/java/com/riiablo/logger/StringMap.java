@@ -37,6 +37,16 @@ public class StringMap {
     other.dirtyDepth = Integer.MAX_VALUE;
   }
 
+  /**
+   * Returns an empty frozen map whose entries may only be replaced by
+   * {@link #set(StringMap)}, e.g., the MDC owned by a reused log event.
+   */
+  static StringMap frozen() {
+    StringMap map = new StringMap();
+    map.immutable = true;
+    return map;
+  }
+
   private void inflateTable(final int size) {
     assert !immutable;
     assert this.size == 0;
@@ -143,12 +153,50 @@ public class StringMap {
     indexes.clear();
     size = 0;
     dirtyDepth = 0;
+    toString = null;
     assert size == indexes.size;
     if (immutableCopy != null) {
       immutableCopy = null;
     }
   }
 
+  /**
+   * Replaces the entries of this frozen map with copies of the entries of the
+   * specified map. The storage of this map is reused, s.t. this only
+   * allocates if this map has never held as many entries. Like
+   * {@link #freeze()}, copying a mutable map consumes its dirty depth.
+   */
+  void set(StringMap other) {
+    assertImmutable();
+    assert other.keys.length == other.vals.length;
+    assert other.size == other.indexes.size;
+    if (other == this) return;
+    final int size = other.size;
+    if (keys.length < size) {
+      keys = new String[size];
+      vals = new String[size];
+    }
+
+    System.arraycopy(other.keys, 0, keys, 0, size);
+    System.arraycopy(other.vals, 0, vals, 0, size);
+    if (size < this.size) {
+      Arrays.fill(keys, size, this.size, null);
+      Arrays.fill(vals, size, this.size, null);
+    }
+
+    indexes.clear();
+    indexes.putAll(other.indexes);
+    this.size = size;
+    dirtyDepth = Math.min(other.dirtyDepth, size);
+    toString = null;
+    if (!other.immutable) other.dirtyDepth = Integer.MAX_VALUE;
+  }
+
+  /** returns whether this map has the same entries as the specified map, in order */
+  boolean contentEquals(StringMap other) {
+    return size == other.size && firstDifference(other, 0) == size;
+  }
+
   public int size() {
     assert size == indexes.size;
     return size;
@@ -1,18 +1,14 @@
 package com.riiablo.map;
 
-import com.artemis.annotations.Wire;
-
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.net.Socket;
 
 import com.riiablo.Riiablo;
 import com.riiablo.codec.excel.Levels;
 import com.riiablo.codec.excel.LvlPrest;
 import com.riiablo.codec.excel.MonStats;
-import com.riiablo.engine.EntityFactory;
 import com.riiablo.map.Map.Preset;
 import com.riiablo.map.Map.Zone;
+import com.riiablo.map2.random.Random;
 
 public enum Act1MapBuilder implements MapBuilder {
   INSTANCE;
@@ -21,14 +17,8 @@ public enum Act1MapBuilder implements MapBuilder {
   private static final boolean DEBUG       = true;
   private static final boolean DEBUG_BUILD = DEBUG && true;
 
-  @Wire(name = "factory")
-  protected EntityFactory factory;
-
-  @Wire(name = "client.socket", failOnNull = false)
-  protected Socket socket;
-
   @Override
-  public void generate(Map map, int seed, int diff) {
+  public void generate(Map map, Random random, int diff) {
     int def = Map.ACT_DEF[0];
     LvlPrest.Entry preset = Riiablo.files.LvlPrest.get(def);
     Levels.Entry   level  = Riiablo.files.Levels.get(preset.LevelId);
@@ -36,7 +26,7 @@ public enum Act1MapBuilder implements MapBuilder {
 
     int fileId[] = new int[6];
     int numFiles = Preset.getPresets(preset, fileId);
-    int select = MathUtils.random(numFiles - 1);
+    int select = random.nextInt(numFiles);
     String fileName = preset.File[select];
     if (DEBUG_BUILD) Gdx.app.debug(TAG, "Select " + fileName);
 
@@ -106,23 +96,22 @@ public enum Act1MapBuilder implements MapBuilder {
       }
 
       @Override
-      public void generate(Zone zone, DT1s dt1s, int tx, int ty) {
+      public void generate(Zone zone, DT1s dt1s, Random random, int tx, int ty) {
         final int startY = ty;
         for (int x = 0; x < zone.gridSizeX; x++, tx++, ty = startY) {
           for (int y = 0; y < zone.gridSizeY; y++, ty++) {
             // TODO: Zone.index() can be replaced with incrementer
-            zone.getLayer(Map.FLOOR_OFFSET)[Zone.index(zone.tilesX, tx, ty)] = dt1s.get(0);
-            if (socket != null) continue;
-            if (MathUtils.randomBoolean(SPAWN_MULT * zone.level.MonDen[zone.diff] / 100000f)) {
-              int i = MathUtils.random(monsters.length - 1);
-              MonStats.Entry monster = monsters[i];
+            zone.getLayer(Map.FLOOR_OFFSET)[Zone.index(zone.tilesX, tx, ty)] = dt1s.get(0, random);
+            if (random.nextFloat() < SPAWN_MULT * zone.level.MonDen[zone.diff] / 100000f) {
+              int i = random.nextInt(monsters.length);
+              final MonStats.Entry monster = monsters[i];
               int count = monster.MinGrp == monster.MaxGrp
                   ? monster.MaxGrp
-                  : MathUtils.random(monster.MinGrp, monster.MaxGrp);
+                  : monster.MinGrp + random.nextInt(monster.MaxGrp - monster.MinGrp + 1);
               for (i = 0; i < count; i++) {
-                float px = zone.getGlobalX(tx * DT1.Tile.SUBTILE_SIZE) + MathUtils.random(-2f, 2f);
-                float py = zone.getGlobalY(ty * DT1.Tile.SUBTILE_SIZE) + MathUtils.random(-2f, 2f);
-                factory.createMonster(monster, px, py);
+                final float px = zone.getGlobalX(tx * DT1.Tile.SUBTILE_SIZE) + random.nextFloat() * 4f - 2f;
+                final float py = zone.getGlobalY(ty * DT1.Tile.SUBTILE_SIZE) + random.nextFloat() * 4f - 2f;
+                zone.defer(z -> z.map.factory.createMonster(monster, px, py)); // entities are created on the caller
               }
             }
           }
@@ -1,12 +1,12 @@
 package com.riiablo.map;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.math.MathUtils;
 import com.riiablo.Riiablo;
 import com.riiablo.codec.excel.Levels;
 import com.riiablo.codec.excel.LvlPrest;
 import com.riiablo.map.Map.Preset;
 import com.riiablo.map.Map.Zone;
+import com.riiablo.map2.random.Random;
 
 public enum Act3MapBuilder implements MapBuilder {
   INSTANCE;
@@ -16,7 +16,7 @@ public enum Act3MapBuilder implements MapBuilder {
   private static final boolean DEBUG_BUILD = DEBUG && true;
 
   @Override
-  public void generate(Map map, int seed, int diff) {
+  public void generate(Map map, Random random, int diff) {
     int def = Map.ACT_DEF[2];
     LvlPrest.Entry preset = Riiablo.files.LvlPrest.get(def);
     Levels.Entry   level  = Riiablo.files.Levels.get(preset.LevelId);
@@ -24,7 +24,7 @@ public enum Act3MapBuilder implements MapBuilder {
 
     int fileId[] = new int[6];
     int numFiles = Preset.getPresets(preset, fileId);
-    int select = MathUtils.random(numFiles - 1);
+    int select = random.nextInt(numFiles);
     String fileName = preset.File[select];
     if (DEBUG_BUILD) Gdx.app.debug(TAG, "Select " + fileName);
 
@@ -0,0 +1,311 @@
+package com.riiablo.map;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+import com.riiablo.map.Map.Zone;
+
+/**
+ * Act-wide copy of the collision flags of the zones of a map, used for walk,
+ * line of sight and missile blocking queries without looking up zones.
+ * <p/>
+ * Each {@link DT1.Tile tile flag} is packed into its own bit plane, which is
+ * only allocated once a subtile sets it. Planes are tiled in blocks of
+ * {@value #BLOCK_WIDTH}x{@value #BLOCK_HEIGHT} subtiles, s.t. each block is a
+ * single cache line and each row of a block a single word, which lets
+ * occupancy queries test up to {@value #BLOCK_WIDTH} subtiles of a row at
+ * once. Each row of blocks is stored as its own stripe, which is only
+ * allocated once a subtile within it is set. Subtiles outside of every zone
+ * are always occupied.
+ * <p/>
+ * Queries take a mask of flags, and a subtile is occupied if any of them is
+ * set on it, i.e., {@code (flags(x, y) & mask) != 0}, the same as the path
+ * finders, s.t., e.g., a subtile which only blocks line of sight does not
+ * block walking.
+ * <p/>
+ * Built by {@link Map#generate()} once the zones have generated their flags
+ * and kept up to date by {@link Map#or}. Maps generated from a
+ * {@link MapTemplate} {@link #share(CollisionMap) share} the stripes of the
+ * template and copy them as they are written.
+ */
+public final class CollisionMap {
+  static final int BLOCK_WIDTH = Long.SIZE;
+  static final int BLOCK_HEIGHT = 8;
+  static final int BLOCK_WORDS = BLOCK_HEIGHT;
+  static final int NUM_PLANES = Byte.SIZE;
+
+  boolean built;
+  int x0, y0;
+  int width, height;
+  int blocksX, blocksY;
+  int stripeWords;
+  long[][] voids; // subtiles outside of every zone, never written once built
+  final long[][][] planes = new long[NUM_PLANES][][];
+  final boolean[][] shared = new boolean[NUM_PLANES][]; // stripes to copy before writing
+
+  public boolean isBuilt() {
+    return built;
+  }
+
+  public int getX() { return x0; }
+  public int getY() { return y0; }
+  public int getWidth() { return width; }
+  public int getHeight() { return height; }
+
+  public void clear() {
+    built = false;
+    voids = null;
+    Arrays.fill(planes, null);
+    Arrays.fill(shared, null);
+    x0 = y0 = 0;
+    width = height = 0;
+    blocksX = blocksY = 0;
+    stripeWords = 0;
+  }
+
+  public void build(Array<Zone> zones) {
+    clear();
+    if (zones.size == 0) return;
+
+    int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE;
+    int x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+    for (Zone zone : zones) {
+      x0 = Math.min(x0, zone.x);
+      y0 = Math.min(y0, zone.y);
+      x1 = Math.max(x1, zone.x + zone.width);
+      y1 = Math.max(y1, zone.y + zone.height);
+    }
+
+    this.x0 = x0;
+    this.y0 = y0;
+    width = x1 - x0;
+    height = y1 - y0;
+    blocksX = (width + BLOCK_WIDTH - 1) / BLOCK_WIDTH;
+    blocksY = (height + BLOCK_HEIGHT - 1) / BLOCK_HEIGHT;
+    stripeWords = blocksX * BLOCK_WORDS;
+    voids = new long[blocksY][];
+    for (int by = 0; by < blocksY; by++) {
+      Arrays.fill(voids[by] = new long[stripeWords], -1L);
+    }
+
+    for (Zone zone : zones) {
+      if (zone.flags == null) continue;
+      final int offsetX = zone.x - x0;
+      final int offsetY = zone.y - y0;
+      for (int y = 0; y < zone.height; y++) {
+        final int ly = offsetY + y;
+        final int by = ly / BLOCK_HEIGHT;
+        for (int x = 0; x < zone.width; x++) {
+          final int lx = offsetX + x;
+          final int word = word(lx, ly);
+          final long bit = 1L << lx;
+          voids[by][word] &= ~bit;
+          final int flags = zone.flags(x, y);
+          if (flags != 0) set(by, word, bit, flags);
+        }
+      }
+    }
+
+    // stripes entirely within zones need not be stored
+    for (int by = 0; by < blocksY; by++) {
+      if (isEmpty(voids[by])) voids[by] = null;
+    }
+
+    built = true;
+  }
+
+  /**
+   * Copies the bounds of the specified collision map and shares its stripes,
+   * which are copied once they are written to by {@link #or}. The specified
+   * collision map must not be written to afterwards.
+   */
+  public void share(CollisionMap src) {
+    clear();
+    if (!src.built) return;
+    x0 = src.x0;
+    y0 = src.y0;
+    width = src.width;
+    height = src.height;
+    blocksX = src.blocksX;
+    blocksY = src.blocksY;
+    stripeWords = src.stripeWords;
+    voids = src.voids;
+    for (int p = 0; p < NUM_PLANES; p++) {
+      if (src.planes[p] == null) continue;
+      planes[p] = src.planes[p].clone();
+      Arrays.fill(shared[p] = new boolean[blocksY], true);
+    }
+
+    built = true;
+  }
+
+  static boolean isEmpty(long[] words) {
+    for (long word : words) if (word != 0) return false;
+    return true;
+  }
+
+  /** @return index of the word containing the specified subtile within its stripe */
+  static int word(int lx, int ly) {
+    return (lx / BLOCK_WIDTH) * BLOCK_WORDS + (ly % BLOCK_HEIGHT);
+  }
+
+  void set(int by, int word, long bit, int flags) {
+    for (int p = 0; p < NUM_PLANES; p++) {
+      if ((flags & (1 << p)) == 0) continue;
+      long[][] plane = planes[p];
+      if (plane == null) plane = planes[p] = new long[blocksY][];
+      long[] stripe = plane[by];
+      final boolean[] shared = this.shared[p];
+      if (stripe == null) {
+        stripe = plane[by] = new long[stripeWords];
+      } else if (shared != null && shared[by]) {
+        stripe = plane[by] = stripe.clone();
+      }
+
+      if (shared != null) shared[by] = false;
+      stripe[word] |= bit;
+    }
+  }
+
+  /**
+   * Sets the specified flags at the specified world subtile. Subtiles outside
+   * of the built bounds are ignored.
+   */
+  public void or(int x, int y, int flags) {
+    if (!built) return;
+    final int lx = x - x0;
+    final int ly = y - y0;
+    if (lx < 0 || lx >= width || ly < 0 || ly >= height) return;
+    set(ly / BLOCK_HEIGHT, word(lx, ly), 1L << lx, flags & 0xFF);
+  }
+
+  /** @return flags set at the specified world subtile, or 0xFF if outside */
+  public int flags(int x, int y) {
+    final int lx = x - x0;
+    final int ly = y - y0;
+    if (!built || lx < 0 || lx >= width || ly < 0 || ly >= height) return 0xFF;
+    final int by = ly / BLOCK_HEIGHT;
+    final int word = word(lx, ly);
+    final long bit = 1L << lx;
+    final long[] voids = this.voids[by];
+    if (voids != null && (voids[word] & bit) != 0) return 0xFF;
+    int flags = 0;
+    for (int p = 0; p < NUM_PLANES; p++) {
+      final long[][] plane = planes[p];
+      if (plane == null) continue;
+      final long[] stripe = plane[by];
+      if (stripe != null && (stripe[word] & bit) != 0) flags |= 1 << p;
+    }
+
+    return flags;
+  }
+
+  /**
+   * @return whether the specified world subtile is outside of every zone or
+   *         has any of the specified flags set
+   */
+  public boolean occupied(int x, int y, int flags) {
+    return rowOccupied(x, x, y, flags);
+  }
+
+  /**
+   * @return whether any subtile within the specified box is outside of every
+   *         zone or has any of the specified flags set
+   */
+  public boolean boxOccupied(int x, int y, int width, int height, int flags) {
+    if (width <= 0 || height <= 0) return false;
+    for (int dy = y, y1 = y + height; dy < y1; dy++) {
+      if (rowOccupied(x, x + width - 1, dy, flags)) return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * @param size clearance required along the line, i.e., subtiles within
+   *             {@code size - 1} of the line are also tested
+   *
+   * @see #lineOccupied(int, int, int, int, int, int)
+   */
+  public boolean lineOccupied(Vector2 src, Vector2 dst, int flags, int size) {
+    return lineOccupied(
+        MathUtils.round(src.x), MathUtils.round(src.y),
+        MathUtils.round(dst.x), MathUtils.round(dst.y),
+        flags, size);
+  }
+
+  /**
+   * Tests the subtiles covered by the line between the specified world
+   * subtiles, row by row, s.t. the subtiles of shallow lines are tested
+   * together.
+   *
+   * @param size clearance required along the line, i.e., subtiles within
+   *             {@code size - 1} of the line are also tested
+   *
+   * @return whether any tested subtile is outside of every zone or has any
+   *         of the specified flags set
+   */
+  public boolean lineOccupied(int x0, int y0, int x1, int y1, int flags, int size) {
+    final int r = Math.max(size - 1, 0);
+    final int dx = x1 - x0;
+    final int dy = y1 - y0;
+    final int steps = Math.abs(dy);
+    if (steps == 0) {
+      return boxOccupied(Math.min(x0, x1) - r, y0 - r, Math.abs(dx) + 1 + 2 * r, 1 + 2 * r, flags);
+    }
+
+    final int sy = dy > 0 ? 1 : -1;
+    for (int i = 0; i <= steps; i++) {
+      final int y = y0 + sy * i;
+      int xa = x0 + MathUtils.round(dx * (Math.max(i - 0.5f, 0) / steps));
+      int xb = x0 + MathUtils.round(dx * (Math.min(i + 0.5f, steps) / steps));
+      if (xa > xb) {
+        final int tmp = xa;
+        xa = xb;
+        xb = tmp;
+      }
+
+      if (r == 0) {
+        if (rowOccupied(xa, xb, y, flags)) return true;
+      } else if (boxOccupied(xa - r, y - r, xb - xa + 1 + 2 * r, 1 + 2 * r, flags)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  boolean rowOccupied(int xa, int xb, int y, int flags) {
+    if (!built) return true;
+    final int ly = y - y0;
+    final int lxa = xa - x0;
+    final int lxb = xb - x0;
+    if (ly < 0 || ly >= height || lxa < 0 || lxb >= width) return true;
+
+    final long[][][] planes = this.planes;
+    final int by = ly / BLOCK_HEIGHT;
+    final int row = ly % BLOCK_HEIGHT;
+    final long[] voids = this.voids[by];
+    final int bx0 = lxa / BLOCK_WIDTH;
+    final int bx1 = lxb / BLOCK_WIDTH;
+    for (int bx = bx0; bx <= bx1; bx++) {
+      long mask = -1L;
+      if (bx == bx0) mask &= -1L << lxa;
+      if (bx == bx1) mask &= -1L >>> (BLOCK_WIDTH - 1 - (lxb % BLOCK_WIDTH));
+      final int word = bx * BLOCK_WORDS + row;
+      if (voids != null && (voids[word] & mask) != 0) return true;
+      for (int p = 0; p < NUM_PLANES; p++) {
+        if ((flags & (1 << p)) == 0) continue;
+        final long[][] plane = planes[p];
+        if (plane == null) continue;
+        final long[] stripe = plane[by];
+        if (stripe != null && (stripe[word] & mask) != 0) return true;
+      }
+    }
+
+    return false;
+  }
+}
@@ -1,6 +1,7 @@
 package com.riiablo.map;
 
-import com.badlogic.gdx.math.MathUtils;
+import java.util.Random;
+
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntIntMap;
 import com.badlogic.gdx.utils.IntMap;
@@ -40,29 +41,32 @@ public class DT1s {
     return true;
   }
 
-  public DT1.Tile get(int orientation, int mainIndex, int subIndex) {
-    int id = DT1.Tile.Index.create(orientation, mainIndex, subIndex);
-    Array<DT1.Tile> tiles = this.tiles.get(id);
-    return next(id, tiles);
+  /**
+   * Tiles sharing an id are selected by rarity using the specified random
+   * generator. Generation must only read the tiles, s.t. zones sharing them
+   * may be generated concurrently.
+   */
+  public DT1.Tile get(int orientation, int mainIndex, int subIndex, Random random) {
+    return get(DT1.Tile.Index.create(orientation, mainIndex, subIndex), random);
   }
 
-  public DT1.Tile get(DS1.Cell cell) {
-    Array<DT1.Tile> tiles = this.tiles.get(cell.id);
-    return next(cell.id, tiles);
+  public DT1.Tile get(DS1.Cell cell, Random random) {
+    return get(cell.id, random);
   }
 
-  public DT1.Tile get(int id) {
+  public DT1.Tile get(int id, Random random) {
     Array<DT1.Tile> tiles = this.tiles.get(id);
-    return next(id, tiles);
+    return next(id, tiles, random);
   }
 
-  private DT1.Tile next(int id, Array<DT1.Tile> tiles) {
+  private DT1.Tile next(int id, Array<DT1.Tile> tiles, Random random) {
     if (tiles == null) return null;
     int sum = prob.get(id, 0);
-    int random = sum == 0 ? 0 : MathUtils.random(sum - 1);
-    for (DT1.Tile tile : tiles) {
-      random -= tile.rarity;
-      if (random <= 0) {
+    int r = sum == 0 ? 0 : random.nextInt(sum);
+    for (int i = 0, s = tiles.size; i < s; i++) {
+      DT1.Tile tile = tiles.get(i);
+      r -= tile.rarity;
+      if (r <= 0) {
         return tile;
       }
     }
@@ -1,12 +1,13 @@
 package com.riiablo.map;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import com.artemis.ComponentMapper;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.ai.pfa.GraphPath;
 import com.badlogic.gdx.ai.pfa.SmoothableGraphPath;
 import com.badlogic.gdx.ai.utils.Collision;
 import com.badlogic.gdx.ai.utils.Ray;
@@ -32,8 +33,13 @@ import com.riiablo.codec.excel.LvlTypes;
 import com.riiablo.engine.Engine;
 import com.riiablo.engine.EntityFactory;
 import com.riiablo.engine.server.component.Warp;
-import com.riiablo.map.pfa.AStarPathFinder;
+import com.riiablo.map.pfa.GraphPath;
+import com.riiablo.map.pfa.HierarchicalPathFinder;
+import com.riiablo.map.pfa.IntAStarPathFinder;
+import com.riiablo.map.pfa.PathFinder;
 import com.riiablo.map.pfa.Point2;
+import com.riiablo.map2.random.Random;
+import com.riiablo.map2.random.Seed;
 
 public class Map implements Disposable {
   private static final String TAG = "Map";
@@ -321,12 +327,27 @@ public class Map implements Disposable {
   final int diff;
   int act = -1;
 
+  /** generator of the act being built, zones are seeded from it */
+  final Random random = new Random();
+
   final IntMap<DT1s> dt1s = new IntMap<>();
-  final Array<Zone> zones = new Array<>(); // TODO: replace with R-tree? https://en.wikipedia.org/wiki/R-tree
+  final Array<Zone> zones = new Array<>();
+  final ZoneIndex zoneIndex = new ZoneIndex();
+  final CollisionMap collision = new CollisionMap();
+
+  MapTemplates templates;
+  MapTemplate template;
 
   ComponentMapper<Warp> mWarp;
   EntityFactory factory;
 
+  /**
+   * whether deferred zone actions, e.g., monster spawns, are run once zones
+   * are generated. Spawns are drawn from the zone random either way, s.t.,
+   * maps generate the same layout regardless.
+   */
+  boolean spawnEntities = true;
+
   public Map(int seed, int diff) {
     this.seed = seed;
     this.diff = diff;
@@ -336,6 +357,22 @@ public class Map implements Disposable {
     return act;
   }
 
+  /**
+   * Sets the cache this map shares the tiles and flags of its zones with, if
+   * any, with other maps generating the same act, seed and difficulty.
+   */
+  public void setTemplates(MapTemplates templates) {
+    this.templates = templates;
+  }
+
+  /**
+   * Sets whether this map creates the entities spawned by its zones, e.g.,
+   * clients receiving entities from a server should not.
+   */
+  public void setSpawnEntities(boolean spawnEntities) {
+    this.spawnEntities = spawnEntities;
+  }
+
   public void setAct(int act) {
     if (this.act != act) {
       this.act = act;
@@ -358,20 +395,92 @@ public class Map implements Disposable {
   }
 
   public void generate() {
-    /**
-     * FIXME: throwing nested iterator error if not creating new wrapper
-     *        nested iterator is within systems which use Map#getZone()
-     */
-    for (Zone zone : new Array.ArrayIterator<>(zones)) zone.generate();
+    generate(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Generates the tiles and flags of the zones. Zones only draw from their
+   * own seeded generator, so they are generated in parallel on the specified
+   * pool and the result is identical for a given seed. Loading presets and
+   * creating entities are not thread-safe and are done on the calling thread
+   * before and after.
+   * <p/>
+   * If {@link #setTemplates templates} are set, zones are copied from the
+   * template of this act, seed and difficulty instead, or generated and
+   * captured as the template, and only the flags set afterwards are copied
+   * by each map.
+   */
+  public void generate(ForkJoinPool pool) {
+    // copied, iterating zones here threw nested iterator errors within
+    // systems which use Map#getZone()
+    final Zone[] zones = this.zones.toArray(Zone.class);
+    if (template != null) throw new IllegalStateException("zones have already been generated from a template");
+    if (templates != null) template = templates.acquire(zones, seed, diff, act);
+    if (template != null) {
+      template.copyTo(zones);
+    } else {
+      for (Zone zone : zones) zone.prepare();
+      pool.invoke(new GenerateZones(zones, 0, zones.length));
+      if (templates != null) template = templates.capture(zones, seed, diff, act);
+    }
+
+    if (template != null) {
+      collision.share(template.collision);
+    } else {
+      collision.build(this.zones);
+    }
+
+    for (Zone zone : zones) zone.spawn();
+  }
+
+  void releaseTemplate() {
+    if (template == null) return;
+    templates.release(template);
+    template = null;
+  }
+
+  static final class GenerateZones extends RecursiveAction {
+    final Zone[] zones;
+    final int from, to;
+
+    GenerateZones(Zone[] zones, int from, int to) {
+      this.zones = zones;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= 1) {
+        if (from < to) zones[from].generate();
+        return;
+      }
+
+      final int mid = (from + to) >>> 1;
+      invokeAll(new GenerateZones(zones, from, mid), new GenerateZones(zones, mid, to));
+    }
   }
 
   @Override
   public void dispose() {
     for (Zone zone : zones) Zone.free(zone);
     zones.clear();
+    zoneIndex.clear();
+    collision.clear();
+    releaseTemplate();
     for (DT1s dt1s : this.dt1s.values()) dt1s.clear();
     dt1s.clear();
     mapGraph.clear();
+    hierarchicalPathFinder.clear();
+  }
+
+  public Array<Zone> getZones() {
+    return zones;
+  }
+
+  /** collision flags of the zones, built once they have been generated */
+  public CollisionMap collision() {
+    return collision;
   }
 
   public Array<AssetDescriptor> getDependencies() {
@@ -381,18 +490,53 @@ public class Map implements Disposable {
   }
 
   public void generate(int act) {
-    MathUtils.random.setSeed(seed);
-    Riiablo.cofs.active = updateCofs(act);
+    layout(act);
+    updateCofs();
+  }
+
+  /**
+   * Lays out the zones of the specified act. Only this map is modified, s.t.
+   * maps may be laid out concurrently, unlike {@link #generate(int)} which
+   * also sets the COFs of the act shared by every map.
+   */
+  public void layout(int act) {
+    this.act = act;
+    random.setSeed(((long) seed << 32) | act);
     switch (act) {
-      case 0: Act1MapBuilder.INSTANCE.generate(this, seed, diff); break;
-      case 1: Act2MapBuilder.INSTANCE.generate(this, seed, diff); break;
-      case 2: Act3MapBuilder.INSTANCE.generate(this, seed, diff); break;
-      case 3: Act4MapBuilder.INSTANCE.generate(this, seed, diff); break;
-      case 4: Act5MapBuilder.INSTANCE.generate(this, seed, diff); break;
+      case 0: Act1MapBuilder.INSTANCE.generate(this, random, diff); break;
+      case 1: Act2MapBuilder.INSTANCE.generate(this, random, diff); break;
+      case 2: Act3MapBuilder.INSTANCE.generate(this, random, diff); break;
+      case 3: Act4MapBuilder.INSTANCE.generate(this, random, diff); break;
+      case 4: Act5MapBuilder.INSTANCE.generate(this, random, diff); break;
     }
+
+    seedZones();
+    indexZones();
   }
 
-  private COFD2 updateCofs(int act) {
+  /**
+   * Derives the seed of each zone from the act's generator in zone order,
+   * s.t. zones may be generated in any order.
+   */
+  void seedZones() {
+    for (Zone zone : zones) zone.seed = Seed.from(random.nextLong(), random.nextLong());
+  }
+
+  /**
+   * Indexes the bounds of the zones s.t. {@link #getZone(int, int)} is
+   * constant time. Zones added or moved afterwards invalidate the index until
+   * this is called again.
+   */
+  void indexZones() {
+    zoneIndex.build(zones);
+  }
+
+  /** Sets {@code Riiablo.cofs.active} to the COFs of the act of this map */
+  public void updateCofs() {
+    Riiablo.cofs.active = getCofs(act);
+  }
+
+  private static COFD2 getCofs(int act) {
     switch (act) {
       case 0:  return Riiablo.cofs.cmncof_a1;
       case 1:  return Riiablo.cofs.cmncof_a2;
@@ -403,14 +547,51 @@ public class Map implements Disposable {
     }
   }
 
-  private MapGraph        mapGraph   = new MapGraph(this);
-  private AStarPathFinder pathFinder = new AStarPathFinder(mapGraph, true);
+  private MapGraph               mapGraph   = new MapGraph(this);
+  private IntAStarPathFinder     pathFinder = new IntAStarPathFinder(this, true);
+  private HierarchicalPathFinder hierarchicalPathFinder = new HierarchicalPathFinder(this, pathFinder);
 
-  public boolean findPath(Vector2 src, Vector2 dst, GraphPath<Point2> path) {
+  public PathFinder getPathFinder() {
+    return pathFinder;
+  }
+
+  public HierarchicalPathFinder getHierarchicalPathFinder() {
+    return hierarchicalPathFinder;
+  }
+
+  public boolean findPath(Vector2 src, Vector2 dst, GraphPath path) {
     return findPath(src, dst, DT1.Tile.FLAG_BLOCK_WALK, 0, path);
   }
 
-  public boolean findPath(Vector2 src, Vector2 dst, int flags, int size, GraphPath<Point2> path) {
+  public boolean findPath(Vector2 src, Vector2 dst, int flags, int size, GraphPath path) {
+    return findPath(pathFinder, src, dst, flags, size, path);
+  }
+
+  /**
+   * Path finders searching packed coordinates are searched directly, others
+   * search {@link Point2} nodes interned by the {@link MapGraph}.
+   * <p/>
+   * A subtile blocks the path if any of {@code flags} is set on it, i.e.,
+   * {@code (flags(x, y) & flags) != 0}, and subtiles outside of any zone
+   * always block it.
+   *
+   * @param pathFinder path finder to search with, or {@code null} to use the
+   *                   default path finder of this map
+   */
+  public boolean findPath(PathFinder pathFinder, Vector2 src, Vector2 dst, int flags, int size, GraphPath path) {
+    if (pathFinder == null) pathFinder = this.pathFinder;
+    if (pathFinder instanceof IntAStarPathFinder) {
+      path.clear();
+      if (dst == null) return false;
+      if ((flags(dst) & flags) != 0) return false;
+      return ((IntAStarPathFinder) pathFinder).search(src, dst, flags, size, path);
+    } else if (pathFinder instanceof HierarchicalPathFinder) {
+      path.clear();
+      if (dst == null) return false;
+      if ((flags(dst) & flags) != 0) return false;
+      return ((HierarchicalPathFinder) pathFinder).search(src, dst, flags, size, path);
+    }
+
     return mapGraph.searchNodePath(pathFinder, src, dst, flags, size, path);
   }
 
@@ -484,14 +665,33 @@ public class Map implements Disposable {
     return zone.flags(x - zone.x, y - zone.y);
   }
 
+  /**
+   * Returns the flags at the specified world subtile, checking the specified
+   * zone before looking one up, s.t. callers which already know their zone
+   * can skip the lookup.
+   */
+  public int flags(Zone zone, int x, int y) {
+    if (zone == null || !zone.contains(x, y)) return flags(x, y);
+    return zone.flags(x - zone.x, y - zone.y);
+  }
+
+  /**
+   * Sets the specified flags on the subtiles covered by an object, e.g., the
+   * body of a static object, and invalidates the path finding graphs of the
+   * zones changed.
+   */
   void or(Vector2 position, int width, int height, int flags) {
     if (width == 0 || height == 0) return;
     int x0 = round(position.x - width  / 2f);
     int y0 = round(position.y - height / 2f);
+    Zone invalidated = null;
     for (int x = 0, dx = x0; x < width; x++, dx++) {
       for (int y = 0, dy = y0; y < height; y++, dy++) {
         Zone zone = getZone(dx, dy);
-        if (zone != null) zone.or(dx - zone.x, dy - zone.y, flags);
+        if (zone == null) continue;
+        if (zone != invalidated) hierarchicalPathFinder.invalidate(invalidated = zone);
+        zone.or(dx - zone.x, dy - zone.y, flags);
+        collision.or(dx, dy, flags);
       }
     }
   }
@@ -519,6 +719,7 @@ public class Map implements Disposable {
   }
 
   public Zone getZone(int x, int y) {
+    if (zoneIndex.valid) return zoneIndex.get(x, y);
     for (Zone zone : zones) if (zone.contains(x, y)) return zone;
     return null;
   }
@@ -539,6 +740,7 @@ public class Map implements Disposable {
     Zone zone = Zone.obtain(this, level, diff, gridSizeX, gridSizeY);
     if (DEBUG_ZONES) Gdx.app.debug(TAG, zone.toString());
     zones.add(zone);
+    zoneIndex.clear();
     return zone;
   }
 
@@ -546,11 +748,15 @@ public class Map implements Disposable {
     Zone zone = Zone.obtain(this, level, diff, gridSizeX, gridSizeY, gridsX, gridsY);
     if (DEBUG_ZONES) Gdx.app.debug(TAG, zone.toString());
     zones.add(zone);
+    zoneIndex.clear();
     return zone;
   }
 
   public static class Zone implements Pool.Poolable, Disposable {
     static final int[] sizes = {80 * 80, 200 * 200};
+    static final int PAGE_SHIFT = 10;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
     @SuppressWarnings("unchecked")
     static final Pool<DT1.Tile[]>[] tilePools = (Pool<DT1.Tile[]>[]) new Pool[sizes.length];
     @SuppressWarnings("unchecked")
@@ -563,7 +769,10 @@ public class Map implements Disposable {
     static DT1.Tile[] obtainTileArray(int size) {
       for (int i = 0; i < sizes.length; i++) {
         if (size <= sizes[i]) {
-          DT1.Tile[] tiles = tilePools[i].obtain();
+          final DT1.Tile[] tiles;
+          synchronized (tilePools[i]) { // zones generate concurrently
+            tiles = tilePools[i].obtain();
+          }
           Arrays.fill(tiles, 0, size, null);
           return tiles;
         }
@@ -576,7 +785,9 @@ public class Map implements Disposable {
       if (layer == null) return;
       for (int i = 0; i < sizes.length; i++) {
         if (layer.length <= sizes[i]) {
-          tilePools[i].free(layer);
+          synchronized (tilePools[i]) {
+            tilePools[i].free(layer);
+          }
           return;
         }
       }
@@ -585,7 +796,10 @@ public class Map implements Disposable {
     static byte[] obtainByteArray(int size) {
       for (int i = 0; i < sizes.length; i++) {
         if (size <= sizes[i] * DT1.Tile.NUM_SUBTILES) {
-          byte[] bytes = bytePools[i].obtain();
+          final byte[] bytes;
+          synchronized (bytePools[i]) {
+            bytes = bytePools[i].obtain();
+          }
           Arrays.fill(bytes, 0, size, (byte) 0);
           return bytes;
         }
@@ -597,7 +811,9 @@ public class Map implements Disposable {
     static void free(byte[] b) {
       for (int i = 0; i < sizes.length; i++) {
         if (b.length <= sizes[i] * DT1.Tile.NUM_SUBTILES) {
-          bytePools[i].free(b);
+          synchronized (bytePools[i]) {
+            bytePools[i].free(b);
+          }
           return;
         }
       }
@@ -618,6 +834,7 @@ public class Map implements Disposable {
     LvlTypes.Entry type;
     DT1s           dt1s;
     byte           flags[];
+    byte           overlay[][]; // copy-on-write pages of flags, if shared
     final DT1.Tile tiles[][] = new DT1.Tile[Map.MAX_LAYERS][];
     Preset         presets[][];
 
@@ -635,10 +852,14 @@ public class Map implements Disposable {
 
     static final Generator EMPTY_GENERATOR = new Generator() {
       @Override public void init(Zone zone) {}
-      @Override public void generate(Zone zone, DT1s dt1s, int tx, int ty) {}
+      @Override public void generate(Zone zone, DT1s dt1s, Random random, int tx, int ty) {}
     };
     Generator generator = EMPTY_GENERATOR;
 
+    Seed seed;
+    final Random random = new Random();
+    final Array<Deferred> deferred = new Array<>(false, 16, Deferred.class);
+
     static final Pool<Zone> pool = Pools.get(Zone.class, 16);
 
     static Zone obtain(Map map, Levels.Entry level, int diff, int gridSizeX, int gridSizeY) {
@@ -705,10 +926,13 @@ public class Map implements Disposable {
       tx = ty = 0;
       tilesX = tilesY = 0;
 
-      free(flags);
-      flags = null;
+      if (overlay == null) {
+        free(flags);
+        for (DT1.Tile[] layer : tiles) free(layer);
+      }
 
-      for (DT1.Tile[] layer : tiles) free(layer);
+      flags = null;
+      overlay = null;
       Arrays.fill(tiles, null);
 
       //for (Preset[] x : presets) for (Preset y : x) if (y != null) y.dispose();
@@ -723,6 +947,8 @@ public class Map implements Disposable {
       warps = EMPTY_INT_INT_MAP;
       generator = EMPTY_GENERATOR;
       specials = EMPTY_INT_CELL_MAP;
+      seed = null;
+      deferred.clear();
     }
 
     @Override
@@ -750,8 +976,16 @@ public class Map implements Disposable {
       this.y = y;
       tx = x / DT1.Tile.SUBTILE_SIZE;
       ty = y / DT1.Tile.SUBTILE_SIZE;
+      if (map != null) map.zoneIndex.clear();
     }
 
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getGridSizeX() { return gridSizeX; }
+    public int getGridSizeY() { return gridSizeY; }
+
     public boolean isTown() {
       return town;
     }
@@ -770,11 +1004,40 @@ public class Map implements Disposable {
     }
 
     public int flags(int x, int y) {
-      return flags[index(width, x, y)] & 0xFF;
+      final int i = index(width, x, y);
+      if (overlay != null) {
+        final byte[] page = overlay[i >>> PAGE_SHIFT];
+        if (page != null) return page[i & PAGE_MASK] & 0xFF;
+      }
+
+      return flags[i] & 0xFF;
     }
 
     public int or(int x, int y, int flags) {
-      return (this.flags[index(width, x, y)] |= flags) & 0xFF;
+      final int i = index(width, x, y);
+      if (overlay == null) return (this.flags[i] |= flags) & 0xFF;
+      final int p = i >>> PAGE_SHIFT;
+      byte[] page = overlay[p];
+      if (page == null) {
+        final int from = p << PAGE_SHIFT;
+        page = overlay[p] = Arrays.copyOfRange(this.flags, from, from + PAGE_SIZE);
+      }
+
+      return (page[i & PAGE_MASK] |= flags) & 0xFF;
+    }
+
+    /**
+     * Marks the tiles and flags of this zone as shared, s.t. they are not
+     * freed with this zone and flags set afterwards are written to pages of
+     * {@value #PAGE_SIZE} subtiles copied from the shared flags.
+     */
+    void share() {
+      overlay = new byte[(width * height + PAGE_SIZE - 1) >>> PAGE_SHIFT][];
+    }
+
+    /** @return whether the tiles and flags of this zone are shared */
+    boolean isShared() {
+      return overlay != null;
     }
 
     public Material material(int tx, int ty) {
@@ -872,27 +1135,62 @@ public class Map implements Disposable {
       }
     }
 
+    /**
+     * Prepares this zone to be generated. Not thread-safe, presets are loaded
+     * from the asset manager.
+     */
+    void prepare() {
+      generator.init(this);
+      dt1s = map.dt1s.get(type.Id);
+      if (seed != null) random.seed(seed);
+      for (Preset[] x : presets) for (Preset y : x) if (y != null) y.finishLoading();
+    }
+
+    /**
+     * Generates the tiles and flags of this zone. May be called concurrently
+     * with other zones, anything touching shared state, e.g., creating
+     * entities, must be {@link #defer(Deferred) deferred}.
+     */
     void generate() {
 //      boolean allNull = true;
 //      for (int i = 0; allNull && i < MAX_LAYERS; i++) allNull = tiles[i] == null;
 //      Validate.validState(allNull, "tiles have already been loaded");
-      generator.init(this);
-      dt1s = map.dt1s.get(type.Id);
       tiles[Map.FLOOR_OFFSET] = Zone.obtainTileArray(tilesX * tilesY);
       for (int x = 0, gridX = 0, gridY = 0; x < gridsX; x++, gridX += gridSizeX, gridY = 0) {
         for (int y = 0; y < gridsY; y++, gridY += gridSizeY) {
           Preset preset = presets[x][y];
           if (preset == null) {
-            generator.generate(this, dt1s, gridX, gridY);
+            generator.generate(this, dt1s, random, gridX, gridY);
             continue;
           }
 
-          preset.finishLoading();
           preset.copyTo(this, gridX, gridY);
         }
       }
     }
 
+    /**
+     * Defers an action until every zone has been generated. Actions are
+     * replayed for maps generated from the same {@link MapTemplate}, so they
+     * must look up any state of the map from the zone they are run with
+     * rather than capture it.
+     */
+    void defer(Deferred action) {
+      deferred.add(action);
+    }
+
+    /**
+     * Runs the deferred actions of this zone in the order they were deferred,
+     * if its map {@link Map#setSpawnEntities spawns entities}.
+     */
+    void spawn() {
+      if (map.spawnEntities) {
+        for (int i = 0, s = deferred.size; i < s; i++) deferred.get(i).run(this);
+      }
+
+      deferred.clear();
+    }
+
     Vector2 find(int id) {
       for (Preset[] x : presets) {
         for (Preset y : x) if (y != null) {
@@ -934,7 +1232,18 @@ public class Map implements Disposable {
 
     interface Generator {
       void init(Zone zone);
-      void generate(Zone zone, DT1s dt1s, int tx, int ty);
+
+      /**
+       * Generates the grid at the specified tile. Random choices must be
+       * drawn from {@code random}, and entities must be created using
+       * {@link Zone#defer(Deferred)}.
+       */
+      void generate(Zone zone, DT1s dt1s, Random random, int tx, int ty);
+    }
+
+    interface Deferred {
+      /** @param zone zone being spawned, of the map the action is run for */
+      void run(Zone zone);
     }
   }
 
@@ -1063,7 +1372,7 @@ public class Map implements Disposable {
               continue;
             }
 
-            DT1.Tile tile = zone.tiles[layer][zone.tileIndex(tx, ty)] = zone.dt1s.get(cell);
+            DT1.Tile tile = zone.tiles[layer][zone.tileIndex(tx, ty)] = zone.dt1s.get(cell, zone.random);
             // FIXME: These are "empty"/"unknown" tiles, in caves, they fill in the gaps
             if (tile == null) {
               continue;
@@ -1135,14 +1444,14 @@ public class Map implements Disposable {
             //  System.out.println("found it! " + String.format("%08x", cell.value));
             //}
 
-            DT1.Tile tile = zone.tiles[layer][zone.tileIndex(tx, ty)] = zone.dt1s.get(cell);
+            DT1.Tile tile = zone.tiles[layer][zone.tileIndex(tx, ty)] = zone.dt1s.get(cell, zone.random);
             or(zone, tx, ty, tile);
 
             // Special case, because LEFT_NORTH_CORNER_WALL don't seem to exist, but they contain
             // collision data for RIGHT_NORTH_CORNER_WALL, ORing the data just in case some
             // RIGHT_NORTH_CORNER_WALL actually does anything
             if (cell.orientation == Orientation.RIGHT_NORTH_CORNER_WALL) {
-              DT1.Tile sibling = zone.dt1s.get(Orientation.LEFT_NORTH_CORNER_WALL, cell.mainIndex, cell.subIndex);
+              DT1.Tile sibling = zone.dt1s.get(Orientation.LEFT_NORTH_CORNER_WALL, cell.mainIndex, cell.subIndex, zone.random);
               or(zone, tx, ty, sibling);
             }
           }
@@ -1167,7 +1476,7 @@ public class Map implements Disposable {
               continue;
             }
 
-            zone.tiles[layer][zone.tileIndex(tx, ty)] = zone.dt1s.get(cell);
+            zone.tiles[layer][zone.tileIndex(tx, ty)] = zone.dt1s.get(cell, zone.random);
           }
         }
       }
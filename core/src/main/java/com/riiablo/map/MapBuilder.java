@@ -1,5 +1,18 @@
 package com.riiablo.map;
 
+import com.riiablo.map2.random.Random;
+
+/**
+ * Lays out the zones of an act. Builders are shared by every map, so state of
+ * the map being built, e.g., its entity factory, must be looked up from the
+ * map or its zones rather than held by the builder, s.t. maps may be built
+ * concurrently.
+ */
 public interface MapBuilder {
-  void generate(Map map, int seed, int diff);
+  /**
+   * @param random generator seeded for the act, every random choice made by
+   *               the builder must be drawn from it s.t. generation is
+   *               deterministic for a given map seed
+   */
+  void generate(Map map, Random random, int diff);
 }
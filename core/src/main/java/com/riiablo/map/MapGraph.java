@@ -18,6 +18,9 @@ public class MapGraph {
   final Point2 tmpPoint = new Point2();
   final ObjectSet<Point2> identity = new ObjectSet<>();
 
+  /** zone of the last walkability check, neighbors usually share it */
+  Map.Zone zone;
+
   public MapGraph(Map map) {
     this.map = map;
     raycaster = new RaycastCollisionDetector(map, this);
@@ -26,6 +29,7 @@ public class MapGraph {
 
   public void clear() {
     identity.clear();
+    zone = null;
   }
 
   public Point2 getOrCreate(Vector2 src) {
@@ -41,7 +45,6 @@ public class MapGraph {
     if (existing == null) {
       existing = new Point2(src);
       identity.add(existing);
-      existing.updateClearance(map, 0);
     }
 
     return existing;
@@ -50,7 +53,7 @@ public class MapGraph {
   public boolean searchNodePath(PathFinder pathFinder, Vector2 src, Vector2 dst, int flags, int size, GraphPath<Point2> outPath) {
     outPath.clear();
     if (dst == null) return false;
-    if (map.flags(dst) != 0) return false;
+    if ((map.flags(dst) & flags) != 0) return false;
     Point2 srcP = getOrCreate(src);
     Point2 dstP = getOrCreate(dst);
     return searchNodePath(pathFinder, srcP, dstP, flags, size, outPath);
@@ -81,11 +84,25 @@ public class MapGraph {
   public boolean tryNeighbor(Array<Point2> neighbors, int flags, int x, int y) {
     if (!isWalkable(x, y, flags)) return false;
     Point2 point = getOrCreate(x, y);
+    point.updateClearance(map, flags);
     neighbors.add(point);
     return true;
   }
 
+  /**
+   * Returns whether the subtile at the given world coordinates has none of
+   * {@code flags} set, e.g., a subtile blocking only line of sight is walkable
+   * if only {@link DT1.Tile#FLAG_BLOCK_WALK} is searched for.
+   * Subtiles outside of any zone are never walkable.
+   */
   public boolean isWalkable(int x, int y, int flags) {
-    return map.flags(x, y) == 0;
+    Map.Zone zone = this.zone;
+    if (zone == null || !zone.contains(x, y)) {
+      zone = map.getZone(x, y);
+      if (zone == null) return false;
+      this.zone = zone;
+    }
+
+    return (zone.flags(x - zone.getX(), y - zone.getY()) & flags) == 0;
   }
 }
@@ -0,0 +1,140 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntMap;
+
+import com.riiablo.Riiablo;
+import com.riiablo.codec.excel.Levels;
+import com.riiablo.map.Map.Preset;
+import com.riiablo.map.Map.Zone;
+
+/**
+ * Tiles and flags of the zones of an act generated for a seed and difficulty,
+ * shared by every {@link Map} generating the same act from {@link MapTemplates}.
+ * <p/>
+ * Templates are captured from the first map generating the act, which hands
+ * its tile and flag arrays to the template. Neither are written to once
+ * captured, maps {@link Zone#share() share} them and only copy the pages of
+ * flags they set afterwards, e.g., doors and objects. Templates hold a
+ * reference to the tiles they depend on s.t. they remain loaded while no map
+ * is using the template.
+ */
+final class MapTemplate implements Disposable {
+  final long key;
+  final ZoneTemplate[] zones;
+  final CollisionMap collision = new CollisionMap();
+  final Array<AssetDescriptor> dependencies = new Array<>(false, 64);
+
+  int refs;
+  boolean cached;
+
+  static final class ZoneTemplate {
+    final Levels.Entry level;
+    final int x, y;
+    final int width, height;
+    final byte[] flags;
+    final DT1.Tile[][] tiles;
+    final Preset[][] presets;
+    final IntMap<DS1.Cell> specials;
+    final Zone.Deferred[] spawns;
+
+    ZoneTemplate(Zone zone) {
+      level    = zone.level;
+      x        = zone.x;
+      y        = zone.y;
+      width    = zone.width;
+      height   = zone.height;
+      flags    = zone.flags;
+      tiles    = zone.tiles.clone();
+      presets  = zone.presets;
+      specials = zone.specials;
+      spawns   = zone.deferred.toArray();
+    }
+
+    boolean matches(Zone zone) {
+      return level == zone.level
+          && x == zone.x && y == zone.y
+          && width == zone.width && height == zone.height;
+    }
+
+    void copyTo(Zone zone) {
+      if (zone.flags != null) Zone.free(zone.flags);
+      zone.flags    = flags;
+      zone.share();
+      System.arraycopy(tiles, 0, zone.tiles, 0, tiles.length);
+      zone.presets  = presets;
+      zone.specials = specials;
+      zone.dt1s     = zone.map.dt1s.get(zone.type.Id);
+      zone.deferred.addAll(spawns);
+    }
+  }
+
+  /**
+   * Captures the tiles and flags of the specified generated zones, which
+   * share them with the template afterwards.
+   */
+  static MapTemplate capture(long key, Zone[] zones) {
+    MapTemplate template = new MapTemplate(key, zones.length);
+    Array<Zone> captured = new Array<>(zones);
+    for (int i = 0; i < zones.length; i++) {
+      final Zone zone = zones[i];
+      template.zones[i] = new ZoneTemplate(zone);
+      template.dependencies.addAll(zone.getDependencies());
+      zone.share();
+    }
+
+    template.collision.build(captured);
+    template.retain();
+    return template;
+  }
+
+  MapTemplate(long key, int numZones) {
+    this.key = key;
+    zones = new ZoneTemplate[numZones];
+  }
+
+  /** @return whether the specified zones were laid out as the zones of this template */
+  boolean matches(Zone[] zones) {
+    if (zones.length != this.zones.length) return false;
+    for (int i = 0; i < zones.length; i++) {
+      if (!this.zones[i].matches(zones[i])) return false;
+    }
+
+    return true;
+  }
+
+  /** Shares the tiles and flags of this template with the specified zones */
+  void copyTo(Zone[] zones) {
+    for (int i = 0; i < zones.length; i++) this.zones[i].copyTo(zones[i]);
+  }
+
+  /**
+   * Retains the dependencies of this template. They have already been loaded
+   * by the map the template was captured from, so this only references them
+   * and holds the asset manager while doing so, s.t. maps of other games may
+   * be generated concurrently.
+   */
+  void retain() {
+    synchronized (Riiablo.assets) {
+      for (AssetDescriptor asset : dependencies) {
+        Riiablo.assets.load(asset);
+        Riiablo.assets.finishLoadingAsset(asset);
+      }
+    }
+  }
+
+  @Override
+  public void dispose() {
+    for (ZoneTemplate zone : zones) {
+      if (zone == null) continue;
+      Zone.free(zone.flags);
+      for (DT1.Tile[] layer : zone.tiles) Zone.free(layer);
+    }
+
+    for (AssetDescriptor asset : dependencies) Riiablo.assets.unload(asset.fileName);
+    dependencies.clear();
+    collision.clear();
+  }
+}
@@ -0,0 +1,99 @@
+package com.riiablo.map;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+
+import com.riiablo.map.Map.Zone;
+
+/**
+ * Cache of {@link MapTemplate templates} keyed by seed, difficulty and act,
+ * shared by maps s.t. concurrent games generating the same act only hold
+ * copies of the flags they set.
+ * <p/>
+ * Templates are reference counted by the maps generated from them. Up to
+ * {@link #maxIdle} templates which are no longer used are kept for maps
+ * generated later, after which the least recently used are disposed.
+ *
+ * @see Map#setTemplates(MapTemplates)
+ */
+public final class MapTemplates {
+  public static final int DEFAULT_MAX_IDLE = 4;
+
+  final int maxIdle;
+  final LongMap<MapTemplate> templates = new LongMap<>();
+  final Array<MapTemplate> idle = new Array<>(); // least recently used first
+
+  public MapTemplates() {
+    this(DEFAULT_MAX_IDLE);
+  }
+
+  public MapTemplates(int maxIdle) {
+    if (maxIdle < 0) throw new IllegalArgumentException("maxIdle(" + maxIdle + ") < " + 0);
+    this.maxIdle = maxIdle;
+  }
+
+  static long key(int seed, int diff, int act) {
+    return ((long) seed << 32) | ((diff & 0xFFFF) << 16) | (act & 0xFFFF);
+  }
+
+  /**
+   * @return the template generated for the specified act, seed and
+   *         difficulty if its zones were laid out as the specified zones,
+   *         otherwise {@code null}
+   */
+  synchronized MapTemplate acquire(Zone[] zones, int seed, int diff, int act) {
+    MapTemplate template = templates.get(key(seed, diff, act));
+    if (template == null || !template.matches(zones)) return null;
+    if (template.refs++ == 0) idle.removeValue(template, true);
+    return template;
+  }
+
+  /**
+   * Captures the specified zones as the template for the specified act,
+   * seed and difficulty. The template is only cached if there is none yet.
+   */
+  synchronized MapTemplate capture(Zone[] zones, int seed, int diff, int act) {
+    final long key = key(seed, diff, act);
+    MapTemplate template = MapTemplate.capture(key, zones);
+    template.refs = 1;
+    if (!templates.containsKey(key)) {
+      templates.put(key, template);
+      template.cached = true;
+    }
+
+    return template;
+  }
+
+  synchronized void release(MapTemplate template) {
+    assert template.refs > 0 : "template has already been released";
+    if (--template.refs > 0) return;
+    if (!template.cached) {
+      template.dispose();
+      return;
+    }
+
+    idle.add(template);
+    while (idle.size > maxIdle) evict(idle.removeIndex(0));
+  }
+
+  void evict(MapTemplate template) {
+    templates.remove(template.key);
+    template.cached = false;
+    template.dispose();
+  }
+
+  /** @return number of cached templates, including those in use */
+  public synchronized int size() {
+    return templates.size;
+  }
+
+  /** @return number of cached templates which are no longer used */
+  public synchronized int idle() {
+    return idle.size;
+  }
+
+  /** Disposes the cached templates which are no longer used */
+  public synchronized void clear() {
+    while (idle.size > 0) evict(idle.pop());
+  }
+}
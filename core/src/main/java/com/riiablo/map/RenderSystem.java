@@ -723,7 +723,7 @@ public class RenderSystem extends BaseEntitySystem {
       TextureRegion texture;
       int subst = map.warpSubsts.get(tile.id, -1);
       if (subst != -1) { // TODO: Performance can be improved if the reference is updated to below subst
-        texture = map.dt1s.get(zone.level.LevelType).get(subst).texture;
+        texture = map.dt1s.get(zone.level.LevelType).get(subst, MathUtils.random).texture;
       } else {
         texture = tile.texture;
       }
@@ -791,7 +791,7 @@ public class RenderSystem extends BaseEntitySystem {
           if (py + tile.texture.getRegionHeight() < renderMinY) break;
           batch.draw(tile.texture, px, py);
           if (tile.orientation == Orientation.RIGHT_NORTH_CORNER_WALL) {
-            Tile sibling = zone.dt1s.get(Orientation.LEFT_NORTH_CORNER_WALL, tile.mainIndex, tile.subIndex);
+            Tile sibling = zone.dt1s.get(Orientation.LEFT_NORTH_CORNER_WALL, tile.mainIndex, tile.subIndex, MathUtils.random);
             batch.draw(sibling.texture, px, py);
           }
           // fall-through to continue
@@ -0,0 +1,124 @@
+package com.riiablo.map;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.utils.Array;
+
+import com.riiablo.map.Map.Zone;
+
+/**
+ * Uniform grid of zone ids over the bounds of the zones of an act, used to
+ * look up the zone containing a world subtile in constant time.
+ * <p/>
+ * Each cell records the zone which covers it entirely, which is returned
+ * without any further checks, or the only zone which covers part of it, which
+ * is returned if it contains the subtile. Cells covered by more than one zone
+ * fall back to scanning the zones. Zones are tile aligned, so with the
+ * default cell size of one tile, cells are only partially covered when zones
+ * are not.
+ */
+final class ZoneIndex {
+  static final int DEFAULT_CELL_SIZE = DT1.Tile.SUBTILE_SIZE;
+  static final int MAX_CELLS = 1 << 20;
+
+  static final short EMPTY = -1;
+  static final short MANY = Short.MIN_VALUE;
+
+  /** partially covered cells are encoded as {@code PARTIAL - id} */
+  static final int PARTIAL = -2;
+
+  Zone[] zones;
+  short[] cells;
+  int x0, y0;
+  int cellSize;
+  int cols, rows;
+  boolean valid;
+
+  void clear() {
+    valid = false;
+  }
+
+  void build(Array<Zone> zones) {
+    build(zones, DEFAULT_CELL_SIZE);
+  }
+
+  void build(Array<Zone> zones, int cellSize) {
+    if (cellSize <= 0) throw new IllegalArgumentException("cellSize(" + cellSize + ") <= " + 0);
+    if (zones.size > Short.MAX_VALUE + PARTIAL) {
+      throw new IllegalArgumentException("zones.size(" + zones.size + ") > " + (Short.MAX_VALUE + PARTIAL));
+    }
+
+    clear();
+    this.zones = null;
+    this.cells = null;
+    if (zones.size == 0) return;
+
+    int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE;
+    int x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+    for (Zone zone : zones) {
+      x0 = Math.min(x0, zone.x);
+      y0 = Math.min(y0, zone.y);
+      x1 = Math.max(x1, zone.x + zone.width);
+      y1 = Math.max(y1, zone.y + zone.height);
+    }
+
+    // coarsen the grid of sparse acts s.t. it stays bounded
+    int cols, rows;
+    for (;;) {
+      cols = (x1 - x0 + cellSize - 1) / cellSize;
+      rows = (y1 - y0 + cellSize - 1) / cellSize;
+      if ((long) cols * rows <= MAX_CELLS) break;
+      cellSize <<= 1;
+    }
+
+    final short[] cells = new short[cols * rows];
+    Arrays.fill(cells, EMPTY);
+    for (int id = 0, s = zones.size; id < s; id++) {
+      final Zone zone = zones.get(id);
+      if (zone.width <= 0 || zone.height <= 0) continue;
+      final int zx0 = zone.x - x0, zx1 = zx0 + zone.width;
+      final int zy0 = zone.y - y0, zy1 = zy0 + zone.height;
+      for (int cy = zy0 / cellSize, cy1 = (zy1 - 1) / cellSize; cy <= cy1; cy++) {
+        final int top = cy * cellSize;
+        final boolean coversY = zy0 <= top && top + cellSize <= zy1;
+        for (int cx = zx0 / cellSize, cx1 = (zx1 - 1) / cellSize; cx <= cx1; cx++) {
+          final int left = cx * cellSize;
+          final boolean covers = coversY && zx0 <= left && left + cellSize <= zx1;
+          final int cell = cy * cols + cx;
+          cells[cell] = cells[cell] == EMPTY
+              ? (short) (covers ? id : PARTIAL - id)
+              : MANY;
+        }
+      }
+    }
+
+    this.zones = zones.toArray(Zone.class);
+    this.cells = cells;
+    this.x0 = x0;
+    this.y0 = y0;
+    this.cellSize = cellSize;
+    this.cols = cols;
+    this.rows = rows;
+    valid = true;
+  }
+
+  /** @return zone containing the specified world subtile, or null if none */
+  Zone get(int x, int y) {
+    final int dx = x - x0;
+    final int dy = y - y0;
+    if (dx < 0 || dy < 0) return null;
+    final int cx = dx / cellSize;
+    final int cy = dy / cellSize;
+    if (cx >= cols || cy >= rows) return null;
+    final short id = cells[cy * cols + cx];
+    if (id >= 0) return zones[id];
+    if (id == EMPTY) return null;
+    if (id != MANY) {
+      final Zone zone = zones[PARTIAL - id];
+      return zone.contains(x, y) ? zone : null;
+    }
+
+    for (Zone zone : zones) if (zone.contains(x, y)) return zone;
+    return null;
+  }
+}
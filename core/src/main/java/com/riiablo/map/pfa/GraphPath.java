@@ -14,11 +14,37 @@ import java.util.Iterator;
 public class GraphPath extends DefaultGraphPath<Point2> implements SmoothableGraphPath<Point2, Vector2>, Pool.Poolable {
   private Vector2 tmp = new Vector2();
 
+  /** points owned by this path, reused by {@link #add(int, int)} once cleared */
+  private final Array<Point2> points = new Array<>(Point2.class);
+  private int numPoints;
+
   @Override
   public void reset() {
     clear();
   }
 
+  @Override
+  public void clear() {
+    super.clear();
+    numPoints = 0;
+  }
+
+  /**
+   * Appends a point owned by this path, s.t., building paths from coordinates
+   * does not allocate once the path has been reused.
+   */
+  public void add(int x, int y) {
+    Point2 point;
+    if (numPoints < points.size) {
+      point = points.get(numPoints);
+    } else {
+      points.add(point = new Point2());
+    }
+
+    numPoints++;
+    nodes.add(point.set(x, y));
+  }
+
   public boolean isEmpty() {
     return nodes.isEmpty();
   }
@@ -0,0 +1,505 @@
+package com.riiablo.map.pfa;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import com.riiablo.map.DT1;
+import com.riiablo.map.Map;
+import com.riiablo.map.Map.Zone;
+
+/**
+ * Hierarchical path finder (HPA*). Each zone is divided into clusters along
+ * its preset grid, subdivided s.t. no cluster is larger than
+ * {@link #MAX_CLUSTER_SIZE} subtiles. Entrances are found along the borders
+ * shared by adjacent clusters, and the costs of the shortest paths between
+ * the entrances of each cluster form an abstract graph of the zone. Searches
+ * run on the abstract graph and are then refined into subtile paths one
+ * cluster at a time using {@link IntAStarPathFinder}.
+ * <p/>
+ * Abstract graphs are built by {@link #build()} once the map is generated,
+ * or on the first search within a zone otherwise. Changing the flags of a
+ * zone {@link #invalidate invalidates} its graphs, which are then rebuilt by
+ * the next search within the zone, or {@link #rebuild rebuilt} eagerly. A subtile blocks a graph if any of the flags it was
+ * built for is set on it, the same as the subtile searches, and so a graph is
+ * built for each combination of flags searched for within a zone. Graphs do
+ * not account for entity size, so searches
+ * within a single cluster, across zones or which fail to refine fall back to
+ * searching the subtiles directly. Both the abstract search and refinement
+ * search packed coordinates, s.t. no {@link Point2} nodes are interned.
+ */
+public class HierarchicalPathFinder implements PathFinder {
+  /** max width and height of a cluster in subtiles */
+  static final int MAX_CLUSTER_SIZE = 8 * DT1.Tile.SUBTILE_SIZE;
+  /** entrances wider than this have a transition at each end */
+  static final int MAX_ENTRANCE_WIDTH = 6;
+
+  final Map map;
+  final IntAStarPathFinder local;
+  /** abstract graphs of each zone, keyed by the flags they were built for */
+  final ObjectMap<Zone, IntMap<ZoneGraph>> graphs = new ObjectMap<>();
+
+  // cluster-bounded dijkstra, cells are indexed within the cluster
+  final IntBinaryHeap cellOpen = new IntBinaryHeap();
+  final int[] cellSearchIds = new int[MAX_CLUSTER_SIZE * MAX_CLUSTER_SIZE];
+  final boolean[] cellClosed = new boolean[MAX_CLUSTER_SIZE * MAX_CLUSTER_SIZE];
+  int cellSearchId;
+
+  // abstract search, the start and goal are indexed after the zone's nodes
+  final IntBinaryHeap open = new IntBinaryHeap();
+  int searchId;
+  int[] searchIds = IntBinaryHeap.EMPTY_INT_ARRAY;
+  boolean[] closed = new boolean[0];
+  float[] g = IntBinaryHeap.EMPTY_FLOAT_ARRAY;
+  int[] parents = IntBinaryHeap.EMPTY_INT_ARRAY;
+  float[] goalCosts = IntBinaryHeap.EMPTY_FLOAT_ARRAY;
+
+  final FloatArray startCosts = new FloatArray();
+  final FloatArray endCosts = new FloatArray();
+  final IntArray waypoints = new IntArray();
+  final IntArray segment = new IntArray();
+  final IntArray path = new IntArray();
+
+  public HierarchicalPathFinder(Map map, IntAStarPathFinder local) {
+    this.map = map;
+    this.local = local;
+    cellOpen.ensureCapacity(MAX_CLUSTER_SIZE * MAX_CLUSTER_SIZE);
+  }
+
+  /** Builds the abstract graphs of all zones of the map for walking */
+  public void build() {
+    for (Zone zone : map.getZones()) graph(zone, DT1.Tile.FLAG_BLOCK_WALK);
+  }
+
+  public void clear() {
+    graphs.clear();
+  }
+
+  /** Rebuilds the abstract graphs of the specified zone after its flags change */
+  public void rebuild(Zone zone) {
+    final IntMap<ZoneGraph> graphs = this.graphs.get(zone);
+    if (graphs == null) {
+      graph(zone, DT1.Tile.FLAG_BLOCK_WALK);
+      return;
+    }
+
+    final IntArray flags = graphs.keys().toArray();
+    for (int i = 0, s = flags.size; i < s; i++) {
+      graphs.put(flags.get(i), new ZoneGraph(zone, flags.get(i)).build(this));
+    }
+  }
+
+  /**
+   * Discards the abstract graphs of the specified zone after its flags change,
+   * s.t. they are rebuilt by the next search within the zone.
+   */
+  public void invalidate(Zone zone) {
+    final IntMap<ZoneGraph> graphs = this.graphs.get(zone);
+    if (graphs != null) graphs.clear();
+  }
+
+  ZoneGraph graph(Zone zone, int flags) {
+    IntMap<ZoneGraph> graphs = this.graphs.get(zone);
+    if (graphs == null) this.graphs.put(zone, graphs = new IntMap<>(4));
+    ZoneGraph graph = graphs.get(flags);
+    if (graph == null) graphs.put(flags, graph = new ZoneGraph(zone, flags).build(this));
+    return graph;
+  }
+
+  public boolean search(Vector2 src, Vector2 dst, int flags, int size, GraphPath outPath) {
+    outPath.clear();
+    boolean found = search(
+        Map.round(src.x), Map.round(src.y),
+        Map.round(dst.x), Map.round(dst.y),
+        flags, size, path);
+    if (found) IntAStarPathFinder.toGraphPath(path, outPath);
+    return found;
+  }
+
+  @Override
+  public boolean search(Point2 startNode, Point2 endNode, int flags, int size, com.badlogic.gdx.ai.pfa.GraphPath<Point2> outPath) {
+    boolean found = search(startNode.x, startNode.y, endNode.x, endNode.y, flags, size, path);
+    if (found) IntAStarPathFinder.toGraphPath(path, outPath);
+    return found;
+  }
+
+  /**
+   * Searches for a path between the specified points.
+   *
+   * @param outPath packed coordinates of the path, including the start and end
+   */
+  public boolean search(int srcX, int srcY, int dstX, int dstY, int flags, int size, IntArray outPath) {
+    outPath.clear();
+    final Zone zone = map.getZone(srcX, srcY);
+    if (zone == null) return false;
+    if (!zone.contains(dstX, dstY)) return local.search(srcX, srcY, dstX, dstY, flags, size, outPath);
+
+    final ZoneGraph graph = graph(zone, flags);
+    final int srcCluster = graph.cluster(srcX, srcY);
+    final int dstCluster = graph.cluster(dstX, dstY);
+    if (srcCluster == dstCluster) return local.search(srcX, srcY, dstX, dstY, flags, size, outPath);
+
+    if (!searchAbstract(graph, srcX, srcY, srcCluster, dstX, dstY, dstCluster)
+        || !refine(srcX, srcY, dstX, dstY, flags, size, outPath)) {
+      return local.search(srcX, srcY, dstX, dstY, flags, size, outPath);
+    }
+
+    return true;
+  }
+
+  /**
+   * Searches the abstract graph of a zone, populating {@link #waypoints} with
+   * the packed coordinates of the entrances along the path.
+   */
+  boolean searchAbstract(ZoneGraph graph, int srcX, int srcY, int srcCluster, int dstX, int dstY, int dstCluster) {
+    final IntArray srcNodes = graph.clusterNodes[srcCluster];
+    final IntArray dstNodes = graph.clusterNodes[dstCluster];
+    distances(graph, srcCluster, srcX, srcY, srcNodes, startCosts);
+    distances(graph, dstCluster, dstX, dstY, dstNodes, endCosts);
+
+    final int numNodes = graph.numNodes();
+    final int start = numNodes;
+    final int goal = numNodes + 1;
+    ensureCapacity(numNodes + 2);
+    if (++searchId < 0) {
+      Arrays.fill(searchIds, 0);
+      searchId = 1;
+    }
+
+    Arrays.fill(goalCosts, 0, numNodes, Float.POSITIVE_INFINITY);
+    for (int i = 0, s = dstNodes.size; i < s; i++) goalCosts[dstNodes.get(i)] = endCosts.get(i);
+
+    open.clear();
+    visit(start, -1, 0f, Vector2.dst(srcX, srcY, dstX, dstY));
+    while (!open.isEmpty()) {
+      final int node = open.pop();
+      closed[node] = true;
+      if (node == goal) {
+        waypoints.clear();
+        for (int n = parents[goal]; n != start; n = parents[n]) {
+          waypoints.add(IntAStarPathFinder.pack(graph.nodeX.get(n), graph.nodeY.get(n)));
+        }
+
+        waypoints.reverse();
+        return true;
+      }
+
+      if (node == start) {
+        for (int i = 0, s = srcNodes.size; i < s; i++) {
+          final int neighbor = srcNodes.get(i);
+          relax(graph, node, neighbor, startCosts.get(i), dstX, dstY);
+        }
+
+        continue;
+      }
+
+      final IntArray edges = graph.edges.get(node);
+      final FloatArray costs = graph.costs.get(node);
+      for (int i = 0, s = edges.size; i < s; i++) {
+        relax(graph, node, edges.get(i), costs.get(i), dstX, dstY);
+      }
+
+      final float goalCost = goalCosts[node];
+      if (goalCost != Float.POSITIVE_INFINITY) {
+        final float g = this.g[node] + goalCost;
+        if (searchIds[goal] != searchId) {
+          visit(goal, node, g, g);
+        } else if (!closed[goal] && g < this.g[goal]) {
+          this.g[goal] = g;
+          parents[goal] = node;
+          open.decreaseValue(goal, g);
+        }
+      }
+    }
+
+    return false;
+  }
+
+  void ensureCapacity(int numNodes) {
+    if (searchIds.length >= numNodes) return;
+    searchIds = new int[numNodes];
+    closed = new boolean[numNodes];
+    g = new float[numNodes];
+    parents = new int[numNodes];
+    goalCosts = new float[numNodes];
+    open.ensureCapacity(numNodes);
+    searchId = 0;
+  }
+
+  void visit(int node, int parent, float g, float f) {
+    searchIds[node] = searchId;
+    closed[node] = false;
+    this.g[node] = g;
+    parents[node] = parent;
+    open.add(node, f);
+  }
+
+  void relax(ZoneGraph graph, int node, int neighbor, float cost, int dstX, int dstY) {
+    if (cost == Float.POSITIVE_INFINITY) return;
+    final float g = this.g[node] + cost;
+    if (searchIds[neighbor] != searchId) {
+      final float h = Vector2.dst(graph.nodeX.get(neighbor), graph.nodeY.get(neighbor), dstX, dstY);
+      visit(neighbor, node, g, g + h);
+    } else if (!closed[neighbor] && g < this.g[neighbor]) {
+      open.decreaseValue(neighbor, open.getValue(neighbor) - this.g[neighbor] + g);
+      this.g[neighbor] = g;
+      parents[neighbor] = node;
+    }
+  }
+
+  /**
+   * Refines {@link #waypoints} into a subtile path, each segment of which is
+   * within a single cluster or crosses between two adjacent clusters.
+   */
+  boolean refine(int srcX, int srcY, int dstX, int dstY, int flags, int size, IntArray outPath) {
+    outPath.clear();
+    int x = srcX, y = srcY;
+    for (int i = 0, s = waypoints.size; i <= s; i++) {
+      final int nextX, nextY;
+      if (i < s) {
+        nextX = IntAStarPathFinder.unpackX(waypoints.get(i));
+        nextY = IntAStarPathFinder.unpackY(waypoints.get(i));
+      } else {
+        nextX = dstX;
+        nextY = dstY;
+      }
+
+      if (x == nextX && y == nextY) continue;
+      if (!local.search(x, y, nextX, nextY, flags, size, segment)) return false;
+      // each segment starts where the last one ended
+      final int offset = outPath.size == 0 ? 0 : 1;
+      outPath.addAll(segment, offset, segment.size - offset);
+      x = nextX;
+      y = nextY;
+    }
+
+    return true;
+  }
+
+  /**
+   * Computes the costs of the shortest paths from the specified point to each
+   * of {@code targets} within the bounds of the specified cluster, or
+   * {@link Float#POSITIVE_INFINITY} if a target is unreachable.
+   */
+  void distances(ZoneGraph graph, int cluster, int srcX, int srcY, IntArray targets, FloatArray out) {
+    out.clear();
+    out.setSize(targets.size);
+    Arrays.fill(out.items, 0, targets.size, Float.POSITIVE_INFINITY);
+
+    final Zone zone = graph.zone;
+    final int flags = graph.flags;
+    final int clusterX = cluster % graph.clustersX;
+    final int clusterY = cluster / graph.clustersX;
+    final int x0 = clusterX * graph.clusterWidth;
+    final int y0 = clusterY * graph.clusterHeight;
+    final int width = Math.min(graph.clusterWidth, zone.getWidth() - x0);
+    final int height = Math.min(graph.clusterHeight, zone.getHeight() - y0);
+    final int zoneX = zone.getX();
+    final int zoneY = zone.getY();
+
+    if (++cellSearchId < 0) {
+      Arrays.fill(cellSearchIds, 0);
+      cellSearchId = 1;
+    }
+
+    cellOpen.clear();
+    final int startCell = (srcY - zoneY - y0) * width + (srcX - zoneX - x0);
+    cellSearchIds[startCell] = cellSearchId;
+    cellClosed[startCell] = false;
+    cellOpen.add(startCell, 0f);
+
+    int remaining = targets.size;
+    while (!cellOpen.isEmpty() && remaining > 0) {
+      final int cell = cellOpen.pop();
+      cellClosed[cell] = true;
+      final float g = cellOpen.getValue(cell);
+      final int x = x0 + cell % width;
+      final int y = y0 + cell / width;
+      for (int i = 0, s = targets.size; i < s; i++) {
+        final int target = targets.get(i);
+        if (graph.nodeX.get(target) == zoneX + x && graph.nodeY.get(target) == zoneY + y) {
+          out.items[i] = g;
+          remaining--;
+        }
+      }
+
+      for (int dy = -1; dy <= 1; dy++) {
+        final int ny = y + dy;
+        if (ny < y0 || ny >= y0 + height) continue;
+        for (int dx = -1; dx <= 1; dx++) {
+          final int nx = x + dx;
+          if ((dx == 0 && dy == 0) || nx < x0 || nx >= x0 + width) continue;
+          if ((zone.flags(nx, ny) & flags) != 0) continue;
+          final int neighbor = (ny - y0) * width + (nx - x0);
+          final float cost = g + (dx != 0 && dy != 0 ? IntAStarPathFinder.DIAGONAL_COST : 1f);
+          if (cellSearchIds[neighbor] != cellSearchId) {
+            cellSearchIds[neighbor] = cellSearchId;
+            cellClosed[neighbor] = false;
+            cellOpen.add(neighbor, cost);
+          } else if (!cellClosed[neighbor] && cost < cellOpen.getValue(neighbor)) {
+            cellOpen.decreaseValue(neighbor, cost);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Abstract graph of a zone. Nodes are subtiles on either side of the
+   * entrances between adjacent clusters, connected to the node across the
+   * entrance and to the nodes within the same cluster which they can reach.
+   */
+  static class ZoneGraph {
+    final Zone zone;
+    /** subtiles with any of these flags set are blocked */
+    final int flags;
+    final int clusterWidth, clusterHeight;
+    final int clustersX, clustersY;
+    final IntArray[] clusterNodes;
+
+    final IntArray nodeX = new IntArray();
+    final IntArray nodeY = new IntArray();
+    final Array<IntArray> edges = new Array<>();
+    final Array<FloatArray> costs = new Array<>();
+    final IntIntMap nodes = new IntIntMap();
+
+    ZoneGraph(Zone zone, int flags) {
+      this.zone = zone;
+      this.flags = flags;
+      clusterWidth = clusterSize(zone.getGridSizeX() * DT1.Tile.SUBTILE_SIZE);
+      clusterHeight = clusterSize(zone.getGridSizeY() * DT1.Tile.SUBTILE_SIZE);
+      clustersX = MathUtils.ceil(zone.getWidth() / (float) clusterWidth);
+      clustersY = MathUtils.ceil(zone.getHeight() / (float) clusterHeight);
+      clusterNodes = new IntArray[clustersX * clustersY];
+      for (int i = 0; i < clusterNodes.length; i++) clusterNodes[i] = new IntArray();
+    }
+
+    /** @return largest size not exceeding the max which evenly divides grid */
+    static int clusterSize(int gridSize) {
+      if (gridSize <= 0) return MAX_CLUSTER_SIZE;
+      return gridSize / MathUtils.ceil(gridSize / (float) MAX_CLUSTER_SIZE);
+    }
+
+    int numNodes() {
+      return nodeX.size;
+    }
+
+    /** @return cluster containing the specified world subtile */
+    int cluster(int x, int y) {
+      return ((y - zone.getY()) / clusterHeight) * clustersX + (x - zone.getX()) / clusterWidth;
+    }
+
+    ZoneGraph build(HierarchicalPathFinder finder) {
+      for (int cy = 0; cy < clustersY; cy++) {
+        for (int cx = 0; cx < clustersX; cx++) {
+          if (cx + 1 < clustersX) addEntrances(cx, cy, true);
+          if (cy + 1 < clustersY) addEntrances(cx, cy, false);
+        }
+      }
+
+      final FloatArray distances = new FloatArray();
+      for (int cluster = 0; cluster < clusterNodes.length; cluster++) {
+        final IntArray nodes = clusterNodes[cluster];
+        for (int i = 0, s = nodes.size; i < s; i++) {
+          final int node = nodes.get(i);
+          finder.distances(this, cluster, nodeX.get(node), nodeY.get(node), nodes, distances);
+          for (int j = i + 1; j < s; j++) {
+            final float cost = distances.get(j);
+            if (cost != Float.POSITIVE_INFINITY) connect(node, nodes.get(j), cost);
+          }
+        }
+      }
+
+      return this;
+    }
+
+    /**
+     * Adds the entrances along the border between a cluster and the cluster to
+     * its right if {@code horizontal}, otherwise the cluster below it.
+     */
+    void addEntrances(int cx, int cy, boolean horizontal) {
+      final int length, x, y;
+      if (horizontal) {
+        x = (cx + 1) * clusterWidth - 1;
+        y = cy * clusterHeight;
+        length = Math.min(clusterHeight, zone.getHeight() - y);
+      } else {
+        x = cx * clusterWidth;
+        y = (cy + 1) * clusterHeight - 1;
+        length = Math.min(clusterWidth, zone.getWidth() - x);
+      }
+
+      int runStart = -1;
+      for (int i = 0; i <= length; i++) {
+        final boolean open;
+        if (i == length) {
+          open = false;
+        } else if (horizontal) {
+          open = (zone.flags(x, y + i) & flags) == 0 && (zone.flags(x + 1, y + i) & flags) == 0;
+        } else {
+          open = (zone.flags(x + i, y) & flags) == 0 && (zone.flags(x + i, y + 1) & flags) == 0;
+        }
+
+        if (open) {
+          if (runStart == -1) runStart = i;
+          continue;
+        } else if (runStart == -1) {
+          continue;
+        }
+
+        final int runEnd = i - 1;
+        if (runEnd - runStart + 1 > MAX_ENTRANCE_WIDTH) {
+          addTransition(x, y, runStart, horizontal);
+          addTransition(x, y, runEnd, horizontal);
+        } else {
+          addTransition(x, y, (runStart + runEnd) >>> 1, horizontal);
+        }
+
+        runStart = -1;
+      }
+    }
+
+    void addTransition(int x, int y, int offset, boolean horizontal) {
+      final int ax = horizontal ? x : x + offset;
+      final int ay = horizontal ? y + offset : y;
+      final int bx = horizontal ? ax + 1 : ax;
+      final int by = horizontal ? ay : ay + 1;
+      final int a = node(ax, ay);
+      final int b = node(bx, by);
+      connect(a, b, 1f);
+    }
+
+    /** @return node at the specified zone subtile, adding it if necessary */
+    int node(int x, int y) {
+      final int worldX = zone.getX() + x;
+      final int worldY = zone.getY() + y;
+      final int key = IntAStarPathFinder.pack(worldX, worldY);
+      int node = nodes.get(key, -1);
+      if (node == -1) {
+        node = nodeX.size;
+        nodes.put(key, node);
+        nodeX.add(worldX);
+        nodeY.add(worldY);
+        edges.add(new IntArray(false, 8));
+        costs.add(new FloatArray(false, 8));
+        clusterNodes[cluster(worldX, worldY)].add(node);
+      }
+
+      return node;
+    }
+
+    void connect(int a, int b, float cost) {
+      edges.get(a).add(b);
+      costs.get(a).add(cost);
+      edges.get(b).add(a);
+      costs.get(b).add(cost);
+    }
+  }
+}
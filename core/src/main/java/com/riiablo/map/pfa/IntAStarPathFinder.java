@@ -0,0 +1,287 @@
+package com.riiablo.map.pfa;
+
+import java.util.Arrays;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+
+import com.riiablo.map.Map;
+
+/**
+ * A* over packed int coordinates. Unlike {@link AStarPathFinder}, nodes are
+ * not {@link Point2} instances interned by {@link com.riiablo.map.MapGraph},
+ * but indexes into arrays covering the zones containing the start and end of
+ * the search, and the open list is an {@link IntBinaryHeap} of node indexes.
+ * The nodes of the start zone are followed by those of the end zone, s.t. the
+ * arrays are sized to the zones searched rather than the area between them.
+ * Node arrays are stamped with the id of the search which last touched them,
+ * so they never need to be cleared, and are only reallocated when larger
+ * zones are searched, s.t., searches do not allocate.
+ * <p/>
+ * Nodes outside of the start and end zones are not walkable, nor are nodes
+ * with any of the flags searched for set.
+ */
+public class IntAStarPathFinder implements PathFinder {
+  static final int MAX_EXPANSIONS = 300;
+  static final float DIAGONAL_COST = (float) Math.sqrt(2);
+
+  static final byte UNVISITED = Point2.UNVISITED;
+  static final byte OPEN      = Point2.OPEN;
+  static final byte CLOSED    = Point2.CLOSED;
+
+  static final byte UNKNOWN_CLEARANCE = -1;
+
+  static final int[] EMPTY_INT_ARRAY = IntBinaryHeap.EMPTY_INT_ARRAY;
+  static final float[] EMPTY_FLOAT_ARRAY = IntBinaryHeap.EMPTY_FLOAT_ARRAY;
+  static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+
+  final Map map;
+  public AStarPathFinder.Metrics metrics;
+
+  Map.Zone srcZone, dstZone;
+  /** index of the first node of the end zone */
+  int dstOffset;
+
+  int searchId;
+  int[] searchIds = EMPTY_INT_ARRAY;
+  byte[] categories = EMPTY_BYTE_ARRAY;
+  byte[] clearances = EMPTY_BYTE_ARRAY;
+  float[] g = EMPTY_FLOAT_ARRAY;
+  int[] parents = EMPTY_INT_ARRAY;
+
+  final IntBinaryHeap open = new IntBinaryHeap();
+
+  final IntArray path = new IntArray();
+
+  public IntAStarPathFinder(Map map) {
+    this(map, false);
+  }
+
+  public IntAStarPathFinder(Map map, boolean calculateMetrics) {
+    this.map = map;
+    if (calculateMetrics) this.metrics = new AStarPathFinder.Metrics();
+  }
+
+  public static int pack(int x, int y) {
+    return (x << 16) | (y & 0xFFFF);
+  }
+
+  public static int unpackX(int packed) {
+    return packed >> 16;
+  }
+
+  public static int unpackY(int packed) {
+    return (short) packed;
+  }
+
+  /** Appends the points of a path of packed coordinates to {@code outPath} */
+  static void toGraphPath(IntArray path, com.badlogic.gdx.ai.pfa.GraphPath<Point2> outPath) {
+    final int[] items = path.items;
+    if (outPath instanceof GraphPath) {
+      final GraphPath graphPath = (GraphPath) outPath;
+      for (int i = 0, s = path.size; i < s; i++) {
+        graphPath.add(unpackX(items[i]), unpackY(items[i]));
+      }
+    } else {
+      for (int i = 0, s = path.size; i < s; i++) {
+        outPath.add(new Point2(unpackX(items[i]), unpackY(items[i])));
+      }
+    }
+  }
+
+  public boolean search(Vector2 src, Vector2 dst, int flags, int size, GraphPath outPath) {
+    outPath.clear();
+    boolean found = search(
+        Map.round(src.x), Map.round(src.y),
+        Map.round(dst.x), Map.round(dst.y),
+        flags, size, path);
+    if (found) toGraphPath(path, outPath);
+    return found;
+  }
+
+  @Override
+  public boolean search(Point2 startNode, Point2 endNode, int flags, int size, com.badlogic.gdx.ai.pfa.GraphPath<Point2> outPath) {
+    boolean found = search(startNode.x, startNode.y, endNode.x, endNode.y, flags, size, path);
+    if (found) toGraphPath(path, outPath);
+    return found;
+  }
+
+  /**
+   * Searches for a path between the specified points.
+   *
+   * @param outPath packed coordinates of the path, including the start and end
+   */
+  public boolean search(int srcX, int srcY, int dstX, int dstY, int flags, int size, IntArray outPath) {
+    outPath.clear();
+    if (!initSearch(srcX, srcY, dstX, dstY)) return false;
+    final int startNode = index(srcX, srcY);
+    final int endNode = index(dstX, dstY);
+    touch(startNode);
+    parents[startNode] = -1;
+    g[startNode] = 0f;
+    addToOpenList(startNode, heuristic(srcX, srcY, dstX, dstY));
+
+    int limit = 0;
+    do {
+      final int current = open.pop();
+      categories[current] = CLOSED;
+      if (current == endNode) {
+        generateNodePath(current, outPath);
+        return true;
+      }
+
+      visitChildren(current, dstX, dstY, flags, size);
+      if (metrics != null) metrics.visitedNodes++;
+    } while (!open.isEmpty() && limit++ < MAX_EXPANSIONS);
+    return false;
+  }
+
+  boolean initSearch(int srcX, int srcY, int dstX, int dstY) {
+    if (metrics != null) metrics.reset();
+    srcZone = map.getZone(srcX, srcY);
+    if (srcZone == null) return false;
+    dstZone = srcZone.contains(dstX, dstY) ? srcZone : map.getZone(dstX, dstY);
+    if (dstZone == null) return false;
+
+    dstOffset = srcZone.getWidth() * srcZone.getHeight();
+    ensureCapacity(dstZone == srcZone ? dstOffset : dstOffset + dstZone.getWidth() * dstZone.getHeight());
+
+    if (++searchId < 0) {
+      Arrays.fill(searchIds, 0);
+      searchId = 1;
+    }
+
+    open.clear();
+    return true;
+  }
+
+  void ensureCapacity(int numNodes) {
+    if (searchIds.length >= numNodes) return;
+    searchIds = new int[numNodes];
+    categories = new byte[numNodes];
+    clearances = new byte[numNodes];
+    g = new float[numNodes];
+    parents = new int[numNodes];
+    open.ensureCapacity(numNodes);
+    searchId = 0;
+  }
+
+  /** @return node at the specified point, which must be within the start or end zone */
+  int index(int x, int y) {
+    if (srcZone.contains(x, y)) return (y - srcZone.getY()) * srcZone.getWidth() + (x - srcZone.getX());
+    return dstOffset + (y - dstZone.getY()) * dstZone.getWidth() + (x - dstZone.getX());
+  }
+
+  int nodeX(int node) {
+    if (node < dstOffset) return srcZone.getX() + node % srcZone.getWidth();
+    return dstZone.getX() + (node - dstOffset) % dstZone.getWidth();
+  }
+
+  int nodeY(int node) {
+    if (node < dstOffset) return srcZone.getY() + node / srcZone.getWidth();
+    return dstZone.getY() + (node - dstOffset) / dstZone.getWidth();
+  }
+
+  void touch(int node) {
+    if (searchIds[node] != searchId) {
+      searchIds[node] = searchId;
+      categories[node] = UNVISITED;
+      clearances[node] = UNKNOWN_CLEARANCE;
+    }
+  }
+
+  int mapFlags(int x, int y) {
+    if (srcZone.contains(x, y)) return srcZone.flags(x - srcZone.getX(), y - srcZone.getY());
+    if (dstZone.contains(x, y)) return dstZone.flags(x - dstZone.getX(), y - dstZone.getY());
+    return map.flags(x, y);
+  }
+
+  /** @return whether the specified point is within the searched zones and none of {@code flags} are set */
+  boolean isWalkable(int x, int y, int flags) {
+    if (srcZone.contains(x, y)) return (srcZone.flags(x - srcZone.getX(), y - srcZone.getY()) & flags) == 0;
+    if (dstZone.contains(x, y)) return (dstZone.flags(x - dstZone.getX(), y - dstZone.getY()) & flags) == 0;
+    return false;
+  }
+
+  /** @see Point2#updateClearance(Map, int) */
+  int clearance(int node, int x, int y, int flags) {
+    byte clearance = clearances[node];
+    if (clearance != UNKNOWN_CLEARANCE) return clearance;
+    final Point2[][] near = Point2.NEAR;
+size:
+    for (clearance = 0; clearance < near.length; clearance++) {
+      for (Point2 p : near[clearance]) {
+        if ((mapFlags(x + p.x, y + p.y) & flags) != 0) {
+          break size;
+        }
+      }
+    }
+
+    return clearances[node] = clearance;
+  }
+
+  static float heuristic(int x1, int y1, int x2, int y2) {
+    return Vector2.dst(x1, y1, x2, y2);
+  }
+
+  void visitChildren(int node, int dstX, int dstY, int flags, int size) {
+    final int x = nodeX(node);
+    final int y = nodeY(node);
+    tryNeighbor(node, x - 1, y    , 1f, dstX, dstY, flags, size);
+    tryNeighbor(node, x    , y - 1, 1f, dstX, dstY, flags, size);
+    tryNeighbor(node, x    , y + 1, 1f, dstX, dstY, flags, size);
+    tryNeighbor(node, x + 1, y    , 1f, dstX, dstY, flags, size);
+
+    tryNeighbor(node, x - 1, y - 1, DIAGONAL_COST, dstX, dstY, flags, size);
+    tryNeighbor(node, x - 1, y + 1, DIAGONAL_COST, dstX, dstY, flags, size);
+    tryNeighbor(node, x + 1, y - 1, DIAGONAL_COST, dstX, dstY, flags, size);
+    tryNeighbor(node, x + 1, y + 1, DIAGONAL_COST, dstX, dstY, flags, size);
+  }
+
+  void tryNeighbor(int node, int x, int y, float cost, int dstX, int dstY, int flags, int size) {
+    if (!isWalkable(x, y, flags)) return;
+    final int neighbor = index(x, y);
+    touch(neighbor);
+    if (size > 0 && clearance(neighbor, x, y, flags) < size) return;
+    final float g = this.g[node] + cost;
+    switch (categories[neighbor]) {
+      case UNVISITED:
+        this.g[neighbor] = g;
+        parents[neighbor] = node;
+        addToOpenList(neighbor, g + heuristic(x, y, dstX, dstY));
+        break;
+      case OPEN:
+        if (this.g[neighbor] <= g) return;
+        open.decreaseValue(neighbor, open.getValue(neighbor) - this.g[neighbor] + g);
+        this.g[neighbor] = g;
+        parents[neighbor] = node;
+        break;
+      case CLOSED:
+        if (this.g[neighbor] <= g) return;
+        final float h = open.getValue(neighbor) - this.g[neighbor];
+        this.g[neighbor] = g;
+        parents[neighbor] = node;
+        addToOpenList(neighbor, g + h);
+        break;
+      default:
+        throw new AssertionError("Invalid node category: " + categories[neighbor]);
+    }
+  }
+
+  void generateNodePath(int node, IntArray outPath) {
+    for (; node != -1; node = parents[node]) {
+      outPath.add(pack(nodeX(node), nodeY(node)));
+    }
+
+    outPath.reverse();
+  }
+
+  void addToOpenList(int node, float estimatedTotalCost) {
+    open.add(node, estimatedTotalCost);
+    categories[node] = OPEN;
+    if (metrics != null) {
+      metrics.openListAdditions++;
+      metrics.openListPeak = Math.max(metrics.openListPeak, open.size);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.riiablo.map.pfa;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids within [0, capacity) ordered by float values.
+ * The position of each id is tracked, s.t., the value of an id within the
+ * heap can be decreased in place. Values of ids are retained once popped.
+ * <p/>
+ * Does not allocate unless grown.
+ */
+public class IntBinaryHeap {
+  static final int[] EMPTY_INT_ARRAY = new int[0];
+  static final float[] EMPTY_FLOAT_ARRAY = new float[0];
+
+  int[] heap = new int[256];
+  int[] indexes = EMPTY_INT_ARRAY;
+  float[] values = EMPTY_FLOAT_ARRAY;
+  public int size;
+
+  /** Ensures ids within [0, numIds) can be added, values are not retained */
+  public void ensureCapacity(int numIds) {
+    if (values.length >= numIds) return;
+    indexes = new int[numIds];
+    values = new float[numIds];
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public float getValue(int id) {
+    return values[id];
+  }
+
+  public void add(int id, float value) {
+    if (size == heap.length) heap = Arrays.copyOf(heap, size << 1);
+    values[id] = value;
+    heap[size] = id;
+    indexes[id] = size;
+    siftUp(size++);
+  }
+
+  /** Decreases the value of an id which is within the heap */
+  public void decreaseValue(int id, float value) {
+    values[id] = value;
+    siftUp(indexes[id]);
+  }
+
+  public int pop() {
+    final int[] heap = this.heap;
+    final int id = heap[0];
+    if (--size > 0) {
+      heap[0] = heap[size];
+      indexes[heap[0]] = 0;
+      siftDown(0);
+    }
+
+    return id;
+  }
+
+  void siftUp(int index) {
+    final int[] heap = this.heap;
+    final float[] values = this.values;
+    final int id = heap[index];
+    final float value = values[id];
+    while (index > 0) {
+      final int parentIndex = (index - 1) >>> 1;
+      final int parent = heap[parentIndex];
+      if (value >= values[parent]) break;
+      heap[index] = parent;
+      indexes[parent] = index;
+      index = parentIndex;
+    }
+
+    heap[index] = id;
+    indexes[id] = index;
+  }
+
+  void siftDown(int index) {
+    final int[] heap = this.heap;
+    final float[] values = this.values;
+    final int size = this.size;
+    final int id = heap[index];
+    final float value = values[id];
+    while (true) {
+      int childIndex = (index << 1) + 1;
+      if (childIndex >= size) break;
+      int child = heap[childIndex];
+      final int rightIndex = childIndex + 1;
+      if (rightIndex < size && values[heap[rightIndex]] < values[child]) {
+        childIndex = rightIndex;
+        child = heap[rightIndex];
+      }
+
+      if (value <= values[child]) break;
+      heap[index] = child;
+      indexes[child] = index;
+      index = childIndex;
+    }
+
+    heap[index] = id;
+    indexes[id] = index;
+  }
+}
@@ -3,5 +3,11 @@ package com.riiablo.map.pfa;
 import com.badlogic.gdx.ai.pfa.GraphPath;
 
 public interface PathFinder {
+  /**
+   * @param flags subtiles with any of these flags set are not walkable, i.e.,
+   *              {@code (flags(x, y) & flags) != 0}, the same as the queries of
+   *              {@link com.riiablo.map.CollisionMap}
+   * @param size  min clearance of the subtiles along the path
+   */
   boolean search(Point2 startNode, Point2 endNode, int flags, int size, GraphPath<Point2> outPath);
 }
@@ -30,8 +30,7 @@ public class PathSmoother<N> {
       ray.start.set(path.getNodePosition(outId - 1));
       ray.end.set(path.getNodePosition(inId));
 
-      // FIXME: need to change this when raycaster supports flags and size
-      if (size <= 0) {
+      if (size <= 0 || raycaster.supportsSize()) {
         collidesUpper = collidesLower = raycaster.collides(ray, flags, size);
       } else {
         radius.set(ray.end).sub(ray.start).setLength(size / 2f);
@@ -11,6 +11,8 @@ public class Point2 extends BinaryHeap.Node implements Pool.Poolable {
 
   //public int index;
   byte clearance;
+  /** flags {@link #clearance} was computed for */
+  int clearanceFlags = -1;
 
   static final byte UNVISITED = 0;
   static final byte OPEN      = 1;
@@ -72,7 +74,7 @@ public class Point2 extends BinaryHeap.Node implements Pool.Poolable {
     return this;
   }
 
-  private static final Point2[][] NEAR = {
+  static final Point2[][] NEAR = {
       { // 1
         new Point2( 0,  0)
       },
@@ -118,18 +120,24 @@ public class Point2 extends BinaryHeap.Node implements Pool.Poolable {
       }
   };
 
+  /**
+   * Computes the clearance of this point, i.e., the size of the largest
+   * square centered on it without any subtile with any of {@code flags} set.
+   */
   public void updateClearance(Map map, int flags) {
+    if (clearanceFlags == flags) return;
     byte i;
 size:
     for (i = 0; i < NEAR.length; i++) {
       for (Point2 p : NEAR[i]) {
-        if (map.flags(x + p.x, y + p.y) != 0) {
+        if ((map.flags(x + p.x, y + p.y) & flags) != 0) {
           break size;
         }
       }
     }
 
     clearance = i;
+    clearanceFlags = flags;
   }
 
   @Override
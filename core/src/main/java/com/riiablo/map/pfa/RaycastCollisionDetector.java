@@ -3,6 +3,7 @@ package com.riiablo.map.pfa;
 import com.badlogic.gdx.ai.utils.Collision;
 import com.badlogic.gdx.ai.utils.Ray;
 import com.badlogic.gdx.math.Vector2;
+import com.riiablo.map.CollisionMap;
 import com.riiablo.map.Map;
 import com.riiablo.map.MapGraph;
 
@@ -21,18 +22,38 @@ public class RaycastCollisionDetector {
     this.graph = graph;
   }
 
+  boolean isWalkable(Vector2 sample, int flags) {
+    return graph.isWalkable(Map.round(sample.x), Map.round(sample.y), flags);
+  }
+
+  int clearance(Vector2 sample, int flags) {
+    Point2 point = graph.getOrCreate(sample);
+    point.updateClearance(map, flags);
+    return point.clearance;
+  }
+
+  /**
+   * Whether {@link #collides} accounts for {@code size}, i.e., the clearance
+   * along the ray, otherwise callers should cast rays along its edges.
+   */
+  public boolean supportsSize() {
+    return map.collision().isBuilt();
+  }
+
   public boolean collides(Ray<Vector2> ray, int flags, int size) {
     Vector2 start = ray.start;
     Vector2 end = ray.end;
+    CollisionMap collision = map.collision();
+    if (collision.isBuilt()) return collision.lineOccupied(start, end, flags, size);
 
     sample.set(start);
     delta.set(end).sub(start).setLength(DELTA);
     float add = delta.len();
     for (float curDist = 0, maxDist = start.dst(end); curDist < maxDist; curDist += add, sample.add(delta)) {
-      if (map.flags(sample) != 0) return true;
+      if (!isWalkable(sample, flags)) return true;
     }
 
-    return map.flags(end) != 0;
+    return !isWalkable(end, flags);
   }
 
 
@@ -47,7 +68,7 @@ public class RaycastCollisionDetector {
     delta.set(end).sub(start).setLength(DELTA);
     float add = delta.len();
     for (float curDist = 0, maxDist = start.dst(end); curDist < maxDist; curDist += add, last.set(sample), sample.add(delta)) {
-      if (map.flags(sample) != 0 || graph.getOrCreate(sample).clearance < size) {
+      if (!isWalkable(sample, flags) || clearance(sample, flags) < size) {
         return true;
       }
     }
@@ -0,0 +1,295 @@
+package com.riiablo.map2;
+
+import java.util.Comparator;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntSet;
+import com.badlogic.gdx.utils.Pool;
+
+import com.riiablo.codec.util.BBox;
+import com.riiablo.logger.LogManager;
+import com.riiablo.logger.Logger;
+import com.riiablo.map2.random.Random;
+import com.riiablo.map2.random.Seed;
+import com.riiablo.map2.util.ZoneGraph;
+
+import static com.riiablo.map2.DT1.Tile.SUBTILE_SIZE;
+
+/**
+ * Generates the chunks of streamed zones on demand around anchors, e.g.,
+ * players, and frees them once every anchor has moved away, s.t. the number
+ * of resident chunks is bounded by the anchors rather than how much of the
+ * map has been explored.
+ * <p/>
+ * Each {@link #update() update}, chunks within {@link #loadRadius} of an
+ * anchor are queued nearest first and at most {@link #budget} of them are
+ * generated, the rest are generated by later updates. Chunks further than
+ * {@link #evictRadius} from every anchor are freed back to {@link Chunk#pool}.
+ * Each chunk draws from a generator seeded by the map seed and its position,
+ * s.t. evicted chunks are generated identically once loaded again.
+ * <p/>
+ * Only chunks of zones {@link ZoneGraph#claim claimed} as streamed are loaded,
+ * and the streamer should be disposed before its zones.
+ */
+public class ChunkStreamer implements Disposable {
+  private static final Logger log = LogManager.getLogger(ChunkStreamer.class);
+
+  public static final int DEFAULT_BUDGET = 4; // chunks per update
+
+  static final int ZONE_BITS = 11;
+  static final int CHUNK_BITS = Integer.SIZE - 1 - ZONE_BITS;
+
+  public interface Generator {
+    /**
+     * Generates the tiles and flags of the specified chunk. Random choices
+     * must be drawn from {@code random} for chunks to be generated
+     * identically once evicted.
+     */
+    void generate(Zone zone, Chunk chunk, Random random);
+  }
+
+  static final class Request {
+    Zone zone;
+    int index;
+    long distance;
+  }
+
+  static final Comparator<Request> NEAREST_FIRST = new Comparator<Request>() {
+    @Override
+    public int compare(Request a, Request b) {
+      return Long.compare(a.distance, b.distance);
+    }
+  };
+
+  final ZoneGraph zones;
+  final Generator generator;
+  final long seed0, seed1;
+  final Random random = new Random();
+
+  final int loadRadius;  // subtiles
+  final int evictRadius; // subtiles
+  int budget = DEFAULT_BUDGET;
+
+  final IntArray anchors = new IntArray(); // x,y pairs of world subtiles
+
+  final Pool<Request> requests = new Pool<Request>() {
+    @Override
+    protected Request newObject() {
+      return new Request();
+    }
+  };
+  final Array<Request> pending = new Array<>(false, 64, Request.class);
+  final IntSet queued = new IntSet();
+  int backlog;
+
+  // chunks loaded by this streamer
+  final Array<Zone> residentZones = new Array<>(false, 64, Zone.class);
+  final IntArray residentIndexes = new IntArray(false, 64);
+
+  long generated;
+  long evicted;
+
+  /**
+   * @param loadRadius  distance in subtiles from an anchor within which
+   *                    chunks are loaded
+   * @param evictRadius distance in subtiles from every anchor beyond which
+   *                    chunks are evicted, at least {@code loadRadius} s.t.
+   *                    chunks along the edge are not reloaded as anchors
+   *                    move back and forth
+   */
+  public ChunkStreamer(ZoneGraph zones, Seed seed, Generator generator, int loadRadius, int evictRadius) {
+    if (loadRadius < 0) throw new IllegalArgumentException("loadRadius(" + loadRadius + ") < " + 0);
+    if (evictRadius < loadRadius) throw new IllegalArgumentException("evictRadius(" + evictRadius + ") < loadRadius(" + loadRadius + ")");
+    this.zones = zones;
+    this.generator = generator;
+    this.loadRadius = loadRadius;
+    this.evictRadius = evictRadius;
+    random.seed(seed);
+    seed0 = random.nextLong();
+    seed1 = random.nextLong();
+  }
+
+  public int getBudget() {
+    return budget;
+  }
+
+  /** @param budget maximum number of chunks generated per update */
+  public void setBudget(int budget) {
+    if (budget <= 0) throw new IllegalArgumentException("budget(" + budget + ") <= " + 0);
+    this.budget = budget;
+  }
+
+  public void clearAnchors() {
+    anchors.clear();
+  }
+
+  /** Adds an anchor at the specified world subtile until the anchors are cleared */
+  public void addAnchor(int x, int y) {
+    anchors.add(x, y);
+  }
+
+  /** @return number of chunks loaded by this streamer which are resident */
+  public int residentChunks() {
+    return residentZones.size;
+  }
+
+  /** @return number of chunks queued by the last update which were not generated */
+  public int pendingChunks() {
+    return backlog;
+  }
+
+  /** @return number of chunks generated since this streamer was created */
+  public long generatedChunks() {
+    return generated;
+  }
+
+  /** @return number of chunks evicted since this streamer was created */
+  public long evictedChunks() {
+    return evicted;
+  }
+
+  /**
+   * Evicts chunks away from every anchor, then generates up to
+   * {@link #budget} of the nearest chunks around the anchors.
+   */
+  public void update() {
+    evict();
+    queue();
+    generate();
+  }
+
+  void evict() {
+    final long r2 = (long) evictRadius * evictRadius;
+    for (int i = residentZones.size - 1; i >= 0; i--) {
+      final Zone zone = residentZones.get(i);
+      final int index = residentIndexes.get(i);
+      final Chunk chunk = zone.chunks.get(index);
+      if (nearestAnchor(chunk) <= r2) continue;
+      log.tracef("evict %s[%d] (%d,%d)", zone.name, index, chunk.xMin, chunk.yMin);
+      zone.evict(index % zone.xChunks, index / zone.xChunks);
+      residentZones.removeIndex(i);
+      residentIndexes.removeIndex(i);
+      evicted++;
+    }
+  }
+
+  void queue() {
+    requests.freeAll(pending);
+    pending.clear();
+    queued.clear();
+    final int r = loadRadius;
+    final long r2 = (long) r * r;
+    final int[] anchors = this.anchors.items;
+    for (int a = 0, s = this.anchors.size; a < s; a += 2) {
+      final int x = anchors[a];
+      final int y = anchors[a + 1];
+      for (int z = 0, numZones = zones.size(); z < numZones; z++) {
+        final Zone zone = zones.get(z);
+        if (distance(x, y, zone) > r2) continue;
+        final int chunkWidth = zone.chunkWidth * SUBTILE_SIZE;
+        final int chunkHeight = zone.chunkHeight * SUBTILE_SIZE;
+        final int cx0 = Math.max(Math.floorDiv(x - r - zone.xMin, chunkWidth), 0);
+        final int cy0 = Math.max(Math.floorDiv(y - r - zone.yMin, chunkHeight), 0);
+        final int cx1 = Math.min(Math.floorDiv(x + r - zone.xMin, chunkWidth), zone.xChunks - 1);
+        final int cy1 = Math.min(Math.floorDiv(y + r - zone.yMin, chunkHeight), zone.yChunks - 1);
+        for (int cy = cy0; cy <= cy1; cy++) {
+          for (int cx = cx0; cx <= cx1; cx++) {
+            if (zone.isResident(cx, cy)) continue;
+            final long distance = distance(x, y,
+                zone.xMin + cx * chunkWidth, zone.yMin + cy * chunkHeight,
+                chunkWidth, chunkHeight);
+            if (distance > r2) continue;
+            final int index = cy * zone.xChunks + cx;
+            if (!queued.add(key(z, index))) continue;
+            Request request = requests.obtain();
+            request.zone = zone;
+            request.index = index;
+            request.distance = distance;
+            pending.add(request);
+          }
+        }
+      }
+    }
+
+    pending.sort(NEAREST_FIRST);
+  }
+
+  void generate() {
+    int i = 0;
+    for (int s = Math.min(pending.size, budget); i < s; i++) {
+      final Request request = pending.get(i);
+      final Zone zone = request.zone;
+      final int index = request.index;
+      final Chunk chunk = zone.load(index % zone.xChunks, index / zone.xChunks);
+      seed(chunk);
+      generator.generate(zone, chunk, random);
+      residentZones.add(zone);
+      residentIndexes.add(index);
+      generated++;
+      log.tracef("generate %s[%d] (%d,%d)", zone.name, index, chunk.xMin, chunk.yMin);
+    }
+
+    backlog = pending.size - i;
+  }
+
+  static int key(int zone, int chunk) {
+    assert zone < (1 << ZONE_BITS) : "zone(" + zone + ") >= " + (1 << ZONE_BITS);
+    assert chunk < (1 << CHUNK_BITS) : "chunk(" + chunk + ") >= " + (1 << CHUNK_BITS);
+    return (zone << CHUNK_BITS) | chunk;
+  }
+
+  /** Seeds the generator from the position of the specified chunk */
+  void seed(Chunk chunk) {
+    final long position = ((long) chunk.xMin << 32) | (chunk.yMin & 0xFFFFFFFFL);
+    random.setState(mix(seed0 ^ position), mix(seed1 + position));
+  }
+
+  /** splitmix64 finalizer */
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /** @return squared distance from the specified chunk to the nearest anchor */
+  long nearestAnchor(Chunk chunk) {
+    long nearest = Long.MAX_VALUE;
+    final int[] anchors = this.anchors.items;
+    for (int a = 0, s = this.anchors.size; a < s; a += 2) {
+      nearest = Math.min(nearest, distance(anchors[a], anchors[a + 1], chunk));
+    }
+
+    return nearest;
+  }
+
+  static long distance(int x, int y, BBox box) {
+    return distance(x, y, box.xMin, box.yMin, box.width, box.height);
+  }
+
+  /** @return squared distance from the specified subtile to the specified box */
+  static long distance(int x, int y, int boxX, int boxY, int width, int height) {
+    final long dx = x < boxX ? boxX - x : x >= boxX + width ? x - (boxX + width - 1) : 0;
+    final long dy = y < boxY ? boxY - y : y >= boxY + height ? y - (boxY + height - 1) : 0;
+    return dx * dx + dy * dy;
+  }
+
+  /** Evicts every chunk loaded by this streamer */
+  @Override
+  public void dispose() {
+    for (int i = 0, s = residentZones.size; i < s; i++) {
+      final Zone zone = residentZones.get(i);
+      final int index = residentIndexes.get(i);
+      zone.evict(index % zone.xChunks, index / zone.xChunks);
+    }
+
+    evicted += residentZones.size;
+    residentZones.clear();
+    residentIndexes.clear();
+    requests.freeAll(pending);
+    pending.clear();
+    queued.clear();
+    backlog = 0;
+  }
+}
@@ -27,8 +27,17 @@ public final class Zone extends BBox implements Poolable, Disposable {
   public int yChunks;
   public final Array<Chunk> chunks = new Array<>(256);
   public final Array<Prefab> prefabs = new Array<>();
+  int resident;
 
   public static Zone obtain(String name, int x, int y, int width, int height, int chunkWidth, int chunkHeight) {
+    return obtain(name, x, y, width, height, chunkWidth, chunkHeight, false);
+  }
+
+  /**
+   * @param streamed whether chunks are only obtained once {@link #load loaded},
+   *                 otherwise every chunk is obtained up front
+   */
+  public static Zone obtain(String name, int x, int y, int width, int height, int chunkWidth, int chunkHeight, boolean streamed) {
     assert (width / SUBTILE_SIZE) % chunkWidth == 0
         : "width(" + width + ") / SUBTILE_SIZE(" + SUBTILE_SIZE + ") is not evenly divisible by chunkWidth(" + chunkWidth + ")";
     assert (height / SUBTILE_SIZE) % chunkHeight == 0
@@ -40,11 +49,17 @@ public final class Zone extends BBox implements Poolable, Disposable {
     zone.yChunks = height / SUBTILE_SIZE / chunkHeight;
     zone.chunkWidth = chunkWidth;
     zone.chunkHeight = chunkHeight;
+    if (streamed) {
+      zone.chunks.setSize(zone.xChunks * zone.yChunks);
+      return zone;
+    }
+
     obtainChunks(
         zone.xMin, zone.yMin,
         zone.chunks,
         zone.xChunks, zone.yChunks,
         zone.chunkWidth * SUBTILE_SIZE, zone.chunkHeight * SUBTILE_SIZE);
+    zone.resident = zone.chunks.size;
     return zone;
   }
 
@@ -73,8 +88,9 @@ public final class Zone extends BBox implements Poolable, Disposable {
 
   @Override
   public void reset() {
-    chunkPool.freeAll(chunks);
+    chunkPool.freeAll(chunks); // skips chunks which are not resident
     chunks.clear();
+    resident = 0;
     prefabPool.freeAll(prefabs);
     prefabs.clear();
   }
@@ -84,8 +100,45 @@ public final class Zone extends BBox implements Poolable, Disposable {
     pool.free(this);
   }
 
+  /** @return chunk at the specified chunk coordinates, or null if not resident */
   public Chunk get(int x, int y) {
-    return chunks.get(y * chunkWidth + x);
+    return chunks.get(y * xChunks + x);
+  }
+
+  public boolean isResident(int x, int y) {
+    return get(x, y) != null;
+  }
+
+  /** @return number of chunks which have been obtained */
+  public int residentChunks() {
+    return resident;
+  }
+
+  /** @return chunk at the specified chunk coordinates, obtaining it if not resident */
+  Chunk load(int x, int y) {
+    final int i = y * xChunks + x;
+    Chunk chunk = chunks.get(i);
+    if (chunk != null) return chunk;
+    final int chunkWidth = this.chunkWidth * SUBTILE_SIZE;
+    final int chunkHeight = this.chunkHeight * SUBTILE_SIZE;
+    chunk = Chunk.obtain(
+        xMin + x * chunkWidth,
+        yMin + y * chunkHeight,
+        chunkWidth,
+        chunkHeight);
+    chunks.set(i, chunk);
+    resident++;
+    return chunk;
+  }
+
+  /** Frees the chunk at the specified chunk coordinates, if resident */
+  void evict(int x, int y) {
+    final int i = y * xChunks + x;
+    Chunk chunk = chunks.get(i);
+    if (chunk == null) return;
+    chunks.set(i, null);
+    resident--;
+    chunkPool.free(chunk);
   }
 
   public Chunk init(int x, int y, int layers) {
@@ -122,7 +175,7 @@ public final class Zone extends BBox implements Poolable, Disposable {
   }
 
   void drawDebugChunk(Pixmap pixmap, int x, int y) {
-    for (Chunk chunk : chunks) chunk.drawDebug(CHUNK, pixmap, x, y);
+    for (Chunk chunk : chunks) if (chunk != null) chunk.drawDebug(CHUNK, pixmap, x, y);
   }
 
   void drawDebugPrefab(Pixmap pixmap, int x, int y) {
@@ -139,7 +192,7 @@ public final class Zone extends BBox implements Poolable, Disposable {
   }
 
   void drawDebugSubtile(Pixmap pixmap, int x, int y) {
-    for (Chunk chunk : chunks) chunk.drawDebug(SUBTILE, pixmap, x, y);
+    for (Chunk chunk : chunks) if (chunk != null) chunk.drawDebug(SUBTILE, pixmap, x, y);
     pixmap.setColor(color);
     pixmap.drawRectangle(x + xMin, y + yMin, width, height);
   }
@@ -46,7 +46,15 @@ public class ZoneGraph implements Disposable {
   }
 
   public Zone claim(String name, int x, int y, int width, int height, int chunkWidth, int chunkHeight) {
-    Zone element = Zone.obtain(name, x, y, width, height, chunkWidth, chunkHeight);
+    return claim(name, x, y, width, height, chunkWidth, chunkHeight, false);
+  }
+
+  /**
+   * @param streamed whether the chunks of the zone are only obtained once
+   *                 loaded, e.g., by a {@link com.riiablo.map2.ChunkStreamer}
+   */
+  public Zone claim(String name, int x, int y, int width, int height, int chunkWidth, int chunkHeight, boolean streamed) {
+    Zone element = Zone.obtain(name, x, y, width, height, chunkWidth, chunkHeight, streamed);
     Node n = Node.wrap(element);
     nodes.add(n);
     mode = UNSET;
@@ -63,6 +71,14 @@ public class ZoneGraph implements Disposable {
     throw new NoSuchElementException("no zone found containing (" + x + "," + y + ")");
   }
 
+  public int size() {
+    return nodes.size;
+  }
+
+  public Zone get(int i) {
+    return nodes.get(i).element;
+  }
+
   @Override
   public void dispose() {
     if (texture != null) texture.dispose();
@@ -0,0 +1,105 @@
+package com.riiablo.mpq_bytebuf;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tracks the decoding state of each sector of an {@link MpqFileHandle} buffer.
+ * <p/>
+ * Decoded sectors are tracked using an atomic bitmap, and sectors which are
+ * scheduled for decoding have their future published using CAS, s.t., only a
+ * single decoding task is ever submitted for a sector and concurrent requests
+ * for that sector will share the same future. Instances are bound to a single
+ * buffer, and a new instance is created whenever the handle reallocates its
+ * buffer.
+ */
+final class DecodedSectors {
+  final MpqFileHandle handle;
+  final ByteBuf buffer;
+  final int numSectors;
+  final AtomicLongArray bits;
+  final AtomicReferenceArray<Future<?>> futures;
+  final AtomicInteger numDecoded = new AtomicInteger();
+
+  /**
+   * @param numSectors number of sectors to track, files which are not split
+   *                   into sectors should use a single sector representing
+   *                   the entire buffer
+   */
+  DecodedSectors(MpqFileHandle handle, ByteBuf buffer, int numSectors) {
+    assert numSectors > 0 : "numSectors(" + numSectors + ") <= 0";
+    this.handle = handle;
+    this.buffer = buffer;
+    this.numSectors = numSectors;
+    this.bits = new AtomicLongArray((numSectors + Long.SIZE - 1) >>> 6);
+    this.futures = new AtomicReferenceArray<>(numSectors);
+  }
+
+  boolean get(final int sector) {
+    return (bits.get(sector >>> 6) & (1L << sector)) != 0;
+  }
+
+  /**
+   * Marks the specified sector as decoded.
+   *
+   * @return {@code true} if this call decoded the final sector
+   */
+  boolean set(final int sector) {
+    final int word = sector >>> 6;
+    final long mask = 1L << sector;
+    long value;
+    do {
+      value = bits.get(word);
+      if ((value & mask) != 0) return false;
+    } while (!bits.compareAndSet(word, value, value | mask));
+    return numDecoded.incrementAndGet() == numSectors;
+  }
+
+  /** marks all sectors as decoded, e.g., when restored from a cache */
+  void setAll() {
+    for (int i = 0; i < numSectors; i++) set(i);
+  }
+
+  boolean complete() {
+    return numDecoded.get() == numSectors;
+  }
+
+  /**
+   * Submits the specified decoding task for the specified sector if that
+   * sector has not already been submitted for decoding, otherwise returns the
+   * future of the existing task.
+   */
+  Future<?> submit(final EventExecutorGroup group, final int sector, final Runnable task) {
+    final Future<?> existing = futures.get(sector);
+    if (existing != null) return existing;
+    final EventExecutor executor = group.next();
+    final Promise<Void> promise = executor.newPromise();
+    if (!futures.compareAndSet(sector, null, promise)) return futures.get(sector);
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            task.run();
+            if (set(sector)) handle.onDecoded(DecodedSectors.this);
+            promise.setSuccess(null);
+          } catch (Throwable t) {
+            futures.compareAndSet(sector, promise, null); // allow retrying
+            promise.setFailure(t);
+          }
+        }
+      });
+    } catch (Throwable t) {
+      futures.compareAndSet(sector, promise, null); // allow retrying
+      promise.setFailure(t);
+    }
+
+    return promise;
+  }
+}
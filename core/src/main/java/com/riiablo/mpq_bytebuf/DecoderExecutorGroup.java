@@ -7,7 +7,6 @@ import io.netty.util.concurrent.EventExecutorGroup;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.Promise;
-import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 import com.riiablo.concurrent.PromiseCombiner;
@@ -97,7 +96,12 @@ public class DecoderExecutorGroup extends DefaultEventExecutorGroup {
       return numTasks;
     }
 
+    /**
+     * Submits the specified sector for decoding, or if that sector is already
+     * being decoded, awaits the existing decoding task.
+     */
     Future<?> submit(
+        DecodedSectors decoded,
         int sector,
         int sectorOffset,
         int sectorCSize,
@@ -113,8 +117,9 @@ public class DecoderExecutorGroup extends DefaultEventExecutorGroup {
           sectorFSize,
           dst,
           dstOffset);
-      final Future<?> future = group.submit(task);
+      final Future<?> future = decoded.submit(group, sector, task);
       combiner.add(future);
+      numTasks++;
       return future;
     }
 
@@ -244,7 +249,14 @@ public class DecoderExecutorGroup extends DefaultEventExecutorGroup {
     return new ArchiveReadTask(this, executor, handle, offset, length, dst, dstIndex);
   }
 
-  static final class ArchiveReadTask implements Callable<ByteBuf> {
+  static final class ArchiveReadTask implements Runnable {
+    /**
+     * Copies bytes from the mpq archive without locking. Copying from a
+     * ByteBuf backed by an nio buffer uses its internal nio buffer, which is
+     * not safe to share between threads, so either the memory is copied
+     * directly from its address, or using an independent view of the nio
+     * buffer.
+     */
     static ByteBuf getBytes(
         MpqFileHandle handle,
         int offset,
@@ -252,9 +264,12 @@ public class DecoderExecutorGroup extends DefaultEventExecutorGroup {
         ByteBuf dst,
         int dstIndex
     ) {
-      synchronized (handle.mpq.lock()) {
-        return dst.setBytes(dstIndex, handle.archive, offset, length);
+      final ByteBuf archive = handle.archive;
+      if (archive.hasMemoryAddress()) {
+        return dst.setBytes(dstIndex, archive, offset, length);
       }
+
+      return dst.setBytes(dstIndex, archive.nioBuffer(offset, length));
     }
 
     final EventExecutorGroup group;
@@ -287,12 +302,16 @@ public class DecoderExecutorGroup extends DefaultEventExecutorGroup {
      * Only to be used for reading complete uncompressed files
      */
     @Override
-    public ByteBuf call() {
-      return getBytes(handle, offset, length, dst, dstIndex);
+    public void run() {
+      getBytes(handle, offset, length, dst, dstIndex);
     }
 
-    Future<ByteBuf> submit() {
-      return group.submit(this);
+    /**
+     * Submits this task, or if the file is already being read, returns the
+     * existing future. Bit 0 of {@code decoded} is used as the decoded tag.
+     */
+    Future<?> submit(DecodedSectors decoded) {
+      return decoded.submit(group, 0, this);
     }
   }
 }
@@ -31,6 +31,8 @@ public final class Mpq implements Disposable {
 
   static final byte[] SIGNATURE = { 'M', 'P', 'Q', 0x1A };
 
+  static final int HEADER_SIZE = 0x20; // 32 B
+
   static final int DISK_SECTOR_SIZE = 0x200; // 512 B
 
   public static final short DEFAULT_LOCALE = 0x0000;
@@ -177,6 +179,8 @@ public final class Mpq implements Disposable {
   HashTable hashTable;
   Block[] blockTable;
 
+  MpqDecodedCache.Archive cache; // nullable
+
   Mpq(
       FileHandle handle,
       ByteBuf map,
@@ -204,10 +208,6 @@ public final class Mpq implements Disposable {
     this.blockTableSize = blockTableSize;
   }
 
-  Object lock() {
-    return this;
-  }
-
   @Override
   public void dispose() {
     map.unwrap().release();
@@ -371,6 +371,14 @@ public final class Mpq implements Disposable {
     return map;
   }
 
+  /**
+   * Attaches a persistent cache of decoded file contents to this mpq, or
+   * detaches the current cache if {@code cache} is {@code null}.
+   */
+  public void cache(MpqDecodedCache cache) {
+    this.cache = cache == null ? null : cache.attach(this);
+  }
+
   /** @deprecated for use in tests, use MpqFileResolver instead */
   @Deprecated
   boolean contains(final String filename, final short locale) {
@@ -512,6 +520,8 @@ public final class Mpq implements Disposable {
             mpq,
             index,
             filename.toString(),
+            blockId,
+            locale[index],
             block.offset,
             block.CSize,
             block.FSize,
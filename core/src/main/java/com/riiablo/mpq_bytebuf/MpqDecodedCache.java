@@ -0,0 +1,217 @@
+package com.riiablo.mpq_bytebuf;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import com.riiablo.logger.LogManager;
+import com.riiablo.logger.Logger;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * Persistent on-disk cache of decoded mpq file contents.
+ * <p/>
+ * Decoded files are keyed by (archive fingerprint, block index, locale) and
+ * stored as raw files beneath {@code root/<mpq>/<fingerprint>/}. The archive
+ * fingerprint combines the archive size, last modified time and a checksum of
+ * the archive header, hash table and block table, s.t., any modification of
+ * the archive will resolve to a new directory. Stale fingerprint directories
+ * are deleted when an archive is attached.
+ * <p/>
+ * Cached files are memory-mapped read-only and returned as direct buffers, so
+ * {@link MpqFileHandle#buffer()} can slice them without copying or decoding.
+ *
+ * @see MpqFileResolver#cache(MpqDecodedCache)
+ */
+public final class MpqDecodedCache {
+  private static final Logger log = LogManager.getLogger(MpqDecodedCache.class);
+
+  static final String EXTENSION = ".bin";
+  static final String TMP_EXTENSION = ".tmp";
+
+  final File root;
+
+  final AtomicLong hits = new AtomicLong();
+  final AtomicLong misses = new AtomicLong();
+  final AtomicLong writes = new AtomicLong();
+  final AtomicLong failures = new AtomicLong();
+
+  public MpqDecodedCache(FileHandle root) {
+    this(root.file());
+  }
+
+  public MpqDecodedCache(File root) {
+    this.root = root;
+  }
+
+  public File root() {
+    return root;
+  }
+
+  /** number of files which were served from the cache */
+  public long hits() {
+    return hits.get();
+  }
+
+  /** number of files which were not found in the cache and required decoding */
+  public long misses() {
+    return misses.get();
+  }
+
+  /** number of decoded files which were written into the cache */
+  public long writes() {
+    return writes.get();
+  }
+
+  /** number of files which could not be read from or written into the cache */
+  public long failures() {
+    return failures.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s[hits=%d, misses=%d, writes=%d, failures=%d]",
+        root, hits(), misses(), writes(), failures());
+  }
+
+  /**
+   * Attaches this cache to the specified mpq and invalidates any cached
+   * contents which were decoded from a different version of the archive.
+   */
+  Archive attach(Mpq mpq) {
+    final long fingerprint = fingerprint(mpq);
+    final File parent = new File(root, String.valueOf(mpq.name()));
+    final File dir = new File(parent, String.format("%016x", fingerprint));
+    final File[] children = parent.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        if (child.equals(dir)) continue;
+        log.debug("Invalidating stale cache {}", child);
+        FileUtils.deleteQuietly(child);
+      }
+    }
+
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      log.warn("Failed to create cache directory {}", dir);
+    }
+
+    log.debug("{} cache fingerprint {}", mpq, String.format("%016x", fingerprint));
+    return new Archive(this, dir, fingerprint);
+  }
+
+  /**
+   * Computes a fingerprint of the archive using its size, last modified time
+   * and a checksum of its header, hash table and block table.
+   */
+  static long fingerprint(Mpq mpq) {
+    final ByteBuf map = mpq.map();
+    final FileHandle handle = mpq.handle();
+    final long size = handle != null ? handle.length() : map.capacity();
+    final long lastModified = handle != null ? handle.lastModified() : 0L;
+    final CRC32 crc = new CRC32();
+    update(crc, map, 0, Math.min(Mpq.HEADER_SIZE, map.capacity()));
+    update(crc, map, mpq.hashTableOffset, mpq.hashTableSize * Mpq.HashTable.ENTRY_SIZE);
+    update(crc, map, mpq.blockTableOffset, mpq.blockTableSize * Mpq.Block.SIZE);
+    long hash = 17;
+    hash = 31 * hash + size;
+    hash = 31 * hash + lastModified;
+    hash = 31 * hash + crc.getValue();
+    return hash;
+  }
+
+  static void update(CRC32 crc, ByteBuf map, int offset, int length) {
+    final byte[] bytes = new byte[Math.min(length, 0x1000)];
+    for (int i = offset, s = offset + length; i < s; i += bytes.length) {
+      final int len = Math.min(bytes.length, s - i);
+      map.getBytes(i, bytes, 0, len);
+      crc.update(bytes, 0, len);
+    }
+  }
+
+  /** per-archive view of a {@link MpqDecodedCache} */
+  static final class Archive {
+    final MpqDecodedCache cache;
+    final File dir;
+    final long fingerprint;
+
+    Archive(MpqDecodedCache cache, File dir, long fingerprint) {
+      this.cache = cache;
+      this.dir = dir;
+      this.fingerprint = fingerprint;
+    }
+
+    File file(int blockId, short locale) {
+      return new File(dir, String.format("%08x-%04x%s", blockId, locale & 0xFFFF, EXTENSION));
+    }
+
+    /**
+     * Returns a read-only memory-mapped buffer containing the decoded contents
+     * of the specified block, or {@code null} if the block is not cached.
+     */
+    ByteBuf get(int blockId, short locale, int FSize) {
+      final File file = file(blockId, locale);
+      if (file.length() != FSize || !file.isFile()) {
+        cache.misses.incrementAndGet();
+        return null;
+      }
+
+      RandomAccessFile raf = null;
+      try {
+        raf = new RandomAccessFile(file, "r");
+        final FileChannel fc = raf.getChannel();
+        final ByteBuf buffer = Unpooled.wrappedBuffer(fc.map(READ_ONLY, 0, FSize));
+        cache.hits.incrementAndGet();
+        return buffer.asReadOnly();
+      } catch (IOException t) {
+        log.warn("Failed to map cached {}", file, t);
+        cache.failures.incrementAndGet();
+        cache.misses.incrementAndGet();
+        return null;
+      } finally {
+        IOUtils.closeQuietly(raf);
+      }
+    }
+
+    /**
+     * Writes the decoded contents of the specified block into the cache. The
+     * contents are written into a temporary file which is then renamed, s.t.,
+     * partially written files are never observed by {@link #get}.
+     */
+    void put(int blockId, short locale, ByteBuf buffer, int FSize) {
+      final File file = file(blockId, locale);
+      final File tmp = new File(dir, file.getName() + "." + Thread.currentThread().getId() + TMP_EXTENSION);
+      RandomAccessFile raf = null;
+      try {
+        raf = new RandomAccessFile(tmp, "rw");
+        raf.setLength(0);
+        final FileChannel fc = raf.getChannel();
+        buffer.getBytes(0, fc, 0L, FSize);
+        raf.close();
+        raf = null;
+        if (!tmp.renameTo(file)) {
+          FileUtils.deleteQuietly(file);
+          if (!tmp.renameTo(file)) throw new IOException("Failed to rename " + tmp + " to " + file);
+        }
+
+        cache.writes.incrementAndGet();
+      } catch (Throwable t) {
+        log.warn("Failed to cache {}", file, t);
+        cache.failures.incrementAndGet();
+        FileUtils.deleteQuietly(tmp);
+      } finally {
+        IOUtils.closeQuietly(raf);
+      }
+    }
+  }
+}
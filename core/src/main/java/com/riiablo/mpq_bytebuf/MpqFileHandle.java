@@ -27,8 +27,6 @@ import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
-import com.artemis.utils.BitVector;
-
 import com.badlogic.gdx.Files;
 import com.badlogic.gdx.files.FileHandle;
 
@@ -48,20 +46,19 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
   /*
    * Implementation note:
    *
-   * File decoding is thread-safe, however reading from mpq archive must be
-   * synchronized on Mpq#lock() due to an issue with concurrent copying from
-   * the underlying nio byte buffer.
+   * File decoding is thread-safe and lock-free once the buffer has been
+   * allocated. Reading from the mpq archive does not share any nio buffer
+   * state, see ArchiveReadTask#getBytes.
    *
-   * File decoding is split into relevant sectors without regard to whether a
-   * sector may already be decoding (or scheduled for decoding). This is a
-   * future optimization, but also plausibly a corner-case. The resulting
-   * behavior at this time is to schedule an additional decoding task for that
-   * sector, and when that task starts, lock and check if that sector has since
-   * been decoded, and thus skip decoding that sector.
+   * File decoding is split into relevant sectors. Decoded sectors are tracked
+   * by an atomic bitmap, and the future of each scheduled sector is published
+   * using CAS, s.t., a sector which is already decoding (or scheduled for
+   * decoding) is never scheduled again, and instead the existing future is
+   * shared by each request that requires that sector. See DecodedSectors.
    *
-   * Alternatively, this could be implemented by managing futures for discrete
-   * sector decode tasks and returning the existing future for a sector that
-   * may be scheduled again.
+   * If the mpq has a decoded cache attached, the buffer is first restored from
+   * a mapped slice of the cache with all sectors marked as decoded. Otherwise
+   * the buffer is written into the cache once its last sector is decoded.
    */
 
   private static final long REFCNT_FIELD_OFFSET =
@@ -90,6 +87,8 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
   public final Mpq mpq;
   final int index;
   public final String filename;
+  final int blockId;
+  final short locale;
   String toString;
 
   // MPQ block data
@@ -100,10 +99,11 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
 
   // Buffer
   ByteBuf archive; // direct slice of archive (compressed data)
-  final BitVector decoded = new BitVector();
+  volatile DecodedSectors decoded; // published last, see #initialize()
   int numSectors = -1; // number of sectors, single contiguous block of memory
   ByteBuf sectorOffsets; // direct slice of archive or decoded heap bytebuf
-  ByteBuf buffer; // heap bytebuf of decoded data
+  ByteBuf buffer; // heap bytebuf of decoded data, or mapped slice of cache
+  boolean cached; // whether buffer was restored from Mpq#cache
   int encryptionKey;
 
   MpqFileHandle(
@@ -111,6 +111,8 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
       Mpq mpq,
       int index,
       String filename,
+      int blockId,
+      short locale,
       int offset,
       int CSize,
       int FSize,
@@ -120,6 +122,8 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
     this.mpq = mpq;
     this.index = index;
     this.filename = filename;
+    this.blockId = blockId;
+    this.locale = locale;
 
     this.offset = offset;
     this.CSize = CSize;
@@ -249,14 +253,27 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
   }
 
   Future<ByteBuf> ensureReadable(EventExecutor executor, int offset, int length) {
-    if (numSectors < 0) {
-      readSectorOffsets();
-      allocateBuffer();
-    }
-
+    DecodedSectors decoded = this.decoded;
+    if (decoded == null) decoded = initialize();
     return numSectors == 0
-        ? readRawArchive(executor, offset, length)
-        : decodeSectors(executor, offset, length);
+        ? readRawArchive(executor, decoded, offset, length)
+        : decodeSectors(executor, decoded, offset, length);
+  }
+
+  /**
+   * Reads the sector offsets and allocates (or restores) the buffer. This is
+   * the only synchronized operation on the decoding path and is performed once
+   * per allocation of the buffer. {@link #decoded} is published last, s.t.,
+   * any thread observing it will also observe the initialized state.
+   */
+  synchronized DecodedSectors initialize() {
+    DecodedSectors decoded = this.decoded;
+    if (decoded != null) return decoded;
+    readSectorOffsets();
+    if (!restoreCached()) allocateBuffer();
+    decoded = new DecodedSectors(this, buffer, Math.max(numSectors, 1)); // using bit 0 as decoded tag for raw files
+    if (cached) decoded.setAll();
+    return this.decoded = decoded;
   }
 
   ByteBuf readSectorOffsets() {
@@ -270,7 +287,6 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
     final int sectorSize = mpq.sectorSize;
     final int numSectors = this.numSectors = ((FSize + sectorSize - 1) / sectorSize);
     final int sectorTableSize = (numSectors + 1) << 2; // accommodate offset of sector offset table
-    decoded.ensureCapacity(numSectors);
 
     if (!encrypted()) {
       sectorOffsets = archive.slice(0, sectorTableSize);
@@ -284,73 +300,111 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
     return sectorOffsets;
   }
 
+  /**
+   * Attempts to restore the decoded contents of this file from the mpq's
+   * decoded cache.
+   */
+  boolean restoreCached() {
+    assert buffer == null : "buffer != null";
+    final MpqDecodedCache.Archive cache = mpq.cache;
+    if (cache == null) return false;
+    final ByteBuf cachedBuffer = cache.get(blockId, locale, FSize);
+    if (cachedBuffer == null) return false;
+    if (DEBUG_MODE) log.trace("Restored {} from cache", this);
+    buffer = cachedBuffer;
+    cached = true;
+    return true;
+  }
+
+  /**
+   * Called once all sectors of {@code decoded} have been decoded. Writes the
+   * decoded contents of this file into the mpq's decoded cache.
+   */
+  void onDecoded(final DecodedSectors decoded) {
+    final MpqDecodedCache.Archive cache = mpq.cache;
+    if (cache == null || cached || this.decoded != decoded) return;
+    if (DEBUG_MODE) log.trace("Caching {}", this);
+    cache.put(blockId, locale, decoded.buffer, FSize);
+  }
+
   ByteBuf allocateBuffer() {
     assert buffer == null : "buffer != null";
     buffer = mpq.fileBuffer(FSize);
     return buffer;
   }
 
-  Future<ByteBuf> readRawArchive(EventExecutor executor, final int offset, final int length) {
+  Future<ByteBuf> readRawArchive(
+      EventExecutor executor,
+      final DecodedSectors decoded,
+      final int offset,
+      final int length
+  ) {
     assert numSectors == 0 : "copyBuffer requires numSectors=" + numSectors;
-    if (decoded(0)) { // using bit 0 as decoded tag for buffer
-      final ByteBuf buffer = this.buffer.slice(offset, length).writerIndex(length);
-      return executor.newSucceededFuture(buffer);
+    final ByteBuf buffer = decoded.buffer;
+    if (decoded.get(0)) { // using bit 0 as decoded tag for buffer
+      return executor.newSucceededFuture(buffer.slice(offset, length).writerIndex(length));
     }
 
     final Promise<ByteBuf> promise = executor.newPromise();
     decoder
         .newArchiveReadTask(executor, this, 0, FSize, buffer, 0)
-        .submit()
-        .addListener(new FutureListener<ByteBuf>() {
+        .submit(decoded)
+        .addListener(new FutureListener<Object>() {
           @Override
-          public void operationComplete(Future<ByteBuf> future) {
-            setDecoded(0, buffer); // using bit 0 as decoded tag for buffer
+          public void operationComplete(Future<Object> future) {
+            if (!future.isSuccess()) {
+              promise.setFailure(future.cause());
+              return;
+            }
+
             promise.setSuccess(buffer.slice(offset, length).writerIndex(length));
           }
         });
     return promise;
   }
 
-  Future<ByteBuf> decodeSectors(EventExecutor executor, final int offset, final int length) {
+  Future<ByteBuf> decodeSectors(
+      EventExecutor executor,
+      final DecodedSectors decoded,
+      final int offset,
+      final int length
+  ) {
+    final ByteBuf buffer = decoded.buffer;
+    final ByteBuf sectorOffsets = this.sectorOffsets;
     final int sectorSize = mpq.sectorSize;
     int startSector = offset / sectorSize;
     int endSector = (offset + length + sectorSize - 1) / sectorSize;
     DecodingTask task = null;
-    for (int i = startSector; i < endSector; i++) {
-      final int sector = i;
-      if (decoded(sector)) continue;
+    for (int sector = startSector; sector < endSector; sector++) {
+      if (decoded.get(sector)) continue;
       final int bufferOffset = sector * sectorSize;
       final int sectorOffset = sectorOffsets.getIntLE(sector << 2);
       final int nextSectorOffset = sectorOffsets.getIntLE((sector + 1) << 2);
       final int sectorCSize = nextSectorOffset - sectorOffset;
       final int sectorFSize = Math.min(FSize - bufferOffset, sectorSize);
       if (task == null) task = decoder.newDecodingTask(executor, this, offset, length);
-      // if (buffer == null) throw new AssertionError("buffer was null?");
-      final ByteBuf buffer = this.buffer;
-      task.submit(sector, sectorOffset, sectorCSize, sectorFSize, buffer, bufferOffset)
-          .addListener(new FutureListener<Object>() {
-            @Override
-            public void operationComplete(Future<Object> future) {
-              setDecoded(sector, buffer);
-            }
-          });
+      task.submit(decoded, sector, sectorOffset, sectorCSize, sectorFSize, buffer, bufferOffset);
     }
 
     if (task != null) {
-      if (DEBUG_MODE) log.trace("Submitting {} sectors for decoding", task.numTasks());
+      if (DEBUG_MODE) log.trace("Awaiting {} sectors for decoding", task.numTasks());
       final Promise<ByteBuf> aggregatePromise = executor.newPromise();
       task.combine(executor.<Void>newPromise())
           .addListener(new FutureListener<Void>() {
             @Override
             public void operationComplete(Future<Void> future) {
+              if (!future.isSuccess()) {
+                aggregatePromise.setFailure(future.cause());
+                return;
+              }
+
               aggregatePromise.setSuccess(buffer.slice(offset, length).writerIndex(length));
             }
           });
       return aggregatePromise;
     }
 
-    ByteBuf buffer = this.buffer.slice(offset, length).writerIndex(length);
-    return executor.newSucceededFuture(buffer);
+    return executor.newSucceededFuture(buffer.slice(offset, length).writerIndex(length));
   }
 
   /**
@@ -360,7 +414,8 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
    * @see #decoded(int, ByteBuf)
    */
   boolean decoded(final int sector) {
-    return decoded(sector, this.buffer);
+    final DecodedSectors decoded = this.decoded;
+    return decoded != null && decoded.get(sector);
   }
 
   /**
@@ -372,18 +427,8 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
    */
   boolean decoded(final int sector, final ByteBuf buffer) {
     assert buffer != null : "buffer cannot be null";
-    if (this.buffer != buffer) return false;
-    synchronized (decoded) { return decoded.get(sector); }
-  }
-
-  /**
-   * Marks the specified sector as decoded iff {@code buffer} is the backing
-   * buffer.
-   */
-  void setDecoded(final int sector, final ByteBuf buffer) {
-    assert buffer != null : "buffer cannot be null";
-    if (this.buffer != buffer) return;
-    synchronized (decoded) { decoded.unsafeSet(sector); }
+    final DecodedSectors decoded = this.decoded;
+    return decoded != null && decoded.buffer == buffer && decoded.get(sector);
   }
 
   public InputStream stream() {
@@ -446,11 +491,12 @@ public final class MpqFileHandle extends FileHandle implements ReferenceCounted
    * Called once {@link #refCnt()} is equals 0. Deallocates decoded sectors and
    * sector offsets which are shared amongst references of this file handle.
    */
-  void deallocate() {
+  synchronized void deallocate() {
     mpq.dispose(index);
     if (numSectors < 0) return;
+    decoded = null;
     numSectors = -1;
-    decoded.clear();
+    cached = false;
     releaseSectorOffsets();
     releaseBuffer();
   }
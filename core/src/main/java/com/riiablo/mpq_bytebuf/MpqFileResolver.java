@@ -43,6 +43,7 @@ public class MpqFileResolver implements FileHandleResolver, Disposable {
   final Array<Mpq> mpqs = Array.of(true, 16, Mpq.class);
   final ObjectMap<String, Mpq> lookup = new ObjectMap<>();
   final DecoderExecutorGroup decoder = new DecoderExecutorGroup(2);
+  MpqDecodedCache cache; // nullable
 
   public MpqFileResolver() {
     this(Riiablo.home);
@@ -58,6 +59,7 @@ public class MpqFileResolver implements FileHandleResolver, Disposable {
 
   @Override
   public void dispose() {
+    if (cache != null) log.info("Decoded cache {}", cache);
     decoder.shutdownGracefully();
     for (Mpq mpq : mpqs) mpq.dispose();
     mpqs.clear();
@@ -76,10 +78,26 @@ public class MpqFileResolver implements FileHandleResolver, Disposable {
   }
 
   public Mpq add(Mpq mpq) {
+    if (cache != null) mpq.cache(cache);
     mpqs.add(mpq);
     return mpq;
   }
 
+  /**
+   * Attaches a persistent cache of decoded file contents to all current and
+   * future mpqs of this resolver, or detaches it if {@code cache} is
+   * {@code null}.
+   */
+  public MpqFileResolver cache(MpqDecodedCache cache) {
+    this.cache = cache;
+    for (Mpq mpq : mpqs) mpq.cache(cache);
+    return this;
+  }
+
+  public MpqDecodedCache cache() {
+    return cache;
+  }
+
   public Mpq get(String name) {
     Mpq mpq = lookup.get(name);
     if (mpq == null) throw new RuntimeException("MPQ not found: " + name);
@@ -85,7 +85,6 @@ public final class MpqStream extends InputStream {
     final int numSectors = this.numSectors = ((handle.FSize + sectorSize - 1) / sectorSize);
     final int sectorTableSize = (numSectors + 1) << 2; // accommodate offset of sector offset table
     sectorOffsets = handle.archive.slice(0, sectorTableSize);
-    handle.decoded.ensureCapacity(numSectors); // allows unsafe methods used in decoding
 
     // TODO: double check, initial might be 1 off
     startSector = currentSector = offset / sectorSize;
@@ -0,0 +1,95 @@
+package com.riiablo.profiler;
+
+/**
+ * Histogram of sampled times using power of two microsecond buckets, so
+ * percentiles are only accurate to within a factor of two, but recording a
+ * sample is cheap and never allocates.
+ * <p/>
+ * Bucket {@code 0} contains samples under 1&micro;s and bucket {@code i}
+ * contains samples within [2<sup>i-1</sup>, 2<sup>i</sup>)&micro;s. The last
+ * bucket also contains all samples greater than it.
+ */
+public class Histogram {
+  public static final int NUM_BUCKETS = 24;
+
+  final long[] buckets = new long[NUM_BUCKETS];
+  long count;
+  long total;
+  long max;
+
+  static int bucket(long nanos) {
+    final long micros = nanos / 1000;
+    return Math.min(NUM_BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+  }
+
+  /** @return upper bound of the specified bucket in nanoseconds */
+  static long upperBound(int bucket) {
+    return (1L << bucket) * 1000;
+  }
+
+  /**
+   * Records a sample
+   *
+   * @param nanos time in nanoseconds
+   */
+  public void add(long nanos) {
+    buckets[bucket(nanos)]++;
+    count++;
+    total += nanos;
+    if (nanos > max) max = nanos;
+  }
+
+  public void reset() {
+    for (int i = 0; i < NUM_BUCKETS; i++) buckets[i] = 0;
+    count = 0;
+    total = 0;
+    max = 0;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /** @return number of samples within the specified bucket */
+  public long getCount(int bucket) {
+    return buckets[bucket];
+  }
+
+  /** @return average time in milliseconds */
+  public float getAverage() {
+    return count == 0 ? 0 : total / count / 1000000f;
+  }
+
+  /** @return max time in milliseconds */
+  public float getMax() {
+    return max / 1000000f;
+  }
+
+  /**
+   * Returns the upper bound of the bucket containing the specified percentile,
+   * or the max time if that is smaller.
+   *
+   * @param percentile within [0,1]
+   * @return time in milliseconds
+   */
+  public float getPercentile(float percentile) {
+    if (count == 0) return 0;
+    final long rank = (long) Math.ceil(percentile * count);
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      seen += buckets[i];
+      if (seen >= rank && seen > 0) {
+        final long bound = i < NUM_BUCKETS - 1 ? Math.min(upperBound(i), max) : max;
+        return bound / 1000000f;
+      }
+    }
+
+    return getMax();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("p50 %.2fms, p99 %.2fms, max %.2fms",
+        getPercentile(0.50f), getPercentile(0.99f), getMax());
+  }
+}
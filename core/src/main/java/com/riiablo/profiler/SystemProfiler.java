@@ -34,6 +34,8 @@ public class SystemProfiler implements ArtemisProfiler {
   protected long total;
   protected long sample;
 
+  protected final Histogram histogram = new Histogram();
+
   protected Color color;
   protected String name;
   protected BaseSystem system;
@@ -47,7 +49,7 @@ public class SystemProfiler implements ArtemisProfiler {
    *
    * @param name of the profiler
    */
-  SystemProfiler(String name) {
+  public SystemProfiler(String name) {
     this.name = name;
   }
 
@@ -131,6 +133,7 @@ public class SystemProfiler implements ArtemisProfiler {
       localMax = time;
       localMaxIndex = index;
     }
+    histogram.add(time);
     total -= times[index];
     samples++;
     times[index] = time;
@@ -150,6 +153,14 @@ public class SystemProfiler implements ArtemisProfiler {
     total += time;
   }
 
+  /**
+   * @return histogram of all samples since it was last reset, unlike the other
+   *         statistics which only cover the last {@link #SAMPLES} samples
+   */
+  public Histogram getHistogram() {
+    return histogram;
+  }
+
   public int getCurrentSampleIndex() {
     return index;
   }
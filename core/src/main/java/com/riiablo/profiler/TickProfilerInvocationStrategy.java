@@ -0,0 +1,65 @@
+package com.riiablo.profiler;
+
+import com.artemis.BaseSystem;
+import com.artemis.SystemInvocationStrategy;
+import com.artemis.utils.Bag;
+import com.artemis.utils.ImmutableBag;
+
+/**
+ * {@link SystemInvocationStrategy} that profiles every system of a headless
+ * world. Unlike {@link ProfilerInvocationStrategy}, profilers are owned by
+ * this strategy rather than {@link ProfilerManager}, so multiple worlds can be
+ * profiled at once, e.g., by a server hosting multiple games.
+ * <p/>
+ * In addition creates a {@link SystemProfiler} named "World" for the total
+ * time spent processing the world.
+ */
+public class TickProfilerInvocationStrategy extends SystemInvocationStrategy {
+  protected SystemProfiler worldProfiler;
+  protected SystemProfiler[] profilers;
+
+  @Override
+  protected void initialize() {
+    if (profilers != null) return;
+    worldProfiler = new SystemProfiler("World");
+    final ImmutableBag<BaseSystem> systems = world.getSystems();
+    profilers = new SystemProfiler[systems.size()];
+    for (int i = 0; i < systems.size(); i++) {
+      profilers[i] = new SystemProfiler(systems.get(i), world);
+    }
+  }
+
+  @Override
+  protected void process() {
+    if (profilers == null) initialize();
+    worldProfiler.start();
+    final Bag<BaseSystem> systems = this.systems;
+    final Object[] systemsData = systems.getData();
+    for (int i = 0, s = systems.size(); s > i; i++) {
+      if (disabled.get(i)) continue;
+      updateEntityStates();
+      final SystemProfiler profiler = profilers[i];
+      profiler.start();
+      ((BaseSystem) systemsData[i]).process();
+      profiler.stop();
+    }
+
+    updateEntityStates();
+    worldProfiler.stop();
+  }
+
+  public SystemProfiler getWorldProfiler() {
+    return worldProfiler;
+  }
+
+  /** @return profilers indexed in the order systems are processed */
+  public SystemProfiler[] getProfilers() {
+    return profilers;
+  }
+
+  /** Resets the histograms of all profilers */
+  public void resetHistograms() {
+    worldProfiler.histogram.reset();
+    for (SystemProfiler profiler : profilers) profiler.histogram.reset();
+  }
+}
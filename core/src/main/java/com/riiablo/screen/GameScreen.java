@@ -115,7 +115,6 @@ import com.riiablo.item.ItemGenerator;
 import com.riiablo.item.VendorGenerator;
 import com.riiablo.key.MappedKey;
 import com.riiablo.key.MappedKeyStateAdapter;
-import com.riiablo.map.Act1MapBuilder;
 import com.riiablo.map.Box2DPhysics;
 import com.riiablo.map.Map;
 import com.riiablo.map.MapManager;
@@ -499,6 +498,7 @@ public class GameScreen extends ScreenAdapter implements GameLoadingScreen.Loada
 
     config = new EngineConfig(0, 0);
     map = new Map(config.seed(), config.diff());
+    map.setSpawnEntities(socket == null); // networked entities are synced by the server
     mapManager = new MapManager();
     renderer = new RenderSystem(Riiablo.batch, map);
     iso = renderer.iso();
@@ -525,7 +525,6 @@ public class GameScreen extends ScreenAdapter implements GameLoadingScreen.Loada
 
     // hacked until I can rewrite into proper system
     engine.inject(map);
-    engine.inject(Act1MapBuilder.INSTANCE);
 
     if (mobileControls != null) engine.inject(mobileControls);
 
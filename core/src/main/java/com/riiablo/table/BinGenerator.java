@@ -1,5 +1,6 @@
 package com.riiablo.table;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 
@@ -9,31 +10,64 @@ import com.riiablo.io.ByteOutput;
 import com.riiablo.logger.LogManager;
 import com.riiablo.logger.Logger;
 
+/**
+ * Generates binary snapshots of the tables within {@link TableManifest} from
+ * their tsvs.
+ *
+ * @see Tables#loadBin(Table, FileHandle)
+ */
 public class BinGenerator {
   private static final Logger log = LogManager.getLogger(BinGenerator.class);
   String excelPath = "DATA\\GLOBAL\\EXCEL3".toLowerCase(); // string will be defined elsewhere in caps
 
-  void generate(FileHandle dst) {
+  /**
+   * @param tsvDir directory containing the tsvs of the tables
+   * @param dst    root directory to write the snapshots into
+   */
+  public void generate(FileHandle tsvDir, FileHandle dst) {
     if (!dst.exists()) throw new IllegalStateException("dst(" + dst + ") does not exist!");
     dst = dst.child(excelPath);
     dst.mkdirs();
     log.trace("dst: {}", dst);
 
     for (Table table : TableManifest.TABLES) {
-      generateBin(table, dst.child(table.getClass().getSimpleName() + ".bin"));
+      FileHandle tsv = tsvDir.child(tsvName(table));
+      if (!tsv.exists()) {
+        log.warn("Skipping {}, {} does not exist", table.getClass().getSimpleName(), tsv);
+        continue;
+      }
+
+      generateBin(table, tsv, dst.child(binName(table)));
     }
   }
 
-  void generateBin(Table table, FileHandle dst) {
+  /** @return name of the tsv of a table, e.g., monstats.txt */
+  public static String tsvName(Table table) {
+    return table.recordClass().getSimpleName().toLowerCase() + ".txt";
+  }
+
+  /** @return name of the binary snapshot of a table, e.g., MonStatsTable.bin */
+  public static String binName(Table table) {
+    return table.getClass().getSimpleName() + ".bin";
+  }
+
+  @SuppressWarnings("unchecked")
+  void generateBin(Table table, FileHandle tsv, FileHandle dst) {
     log.trace("generating {}", dst);
+    if (table.parser == null) Tables.loadTsv(table, tsv);
 
-    Serializer serializer = table.newSerializer();
-    ByteOutput out = ByteOutput.wrap(Unpooled.buffer());
-    for (Object record : table) {
-      // TODO: ByteOutput needs to implement DataOutput
-      // serializer.writeRecord(record, out);
-    }
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      Tables.writeBin(table, ByteOutput.wrap(buffer));
+      if (log.traceEnabled()) {
+        log.trace("dump of {}:\n{}", dst, ByteBufUtil.prettyHexDump(buffer));
+      }
 
-    log.trace("dump of {}:\n{}", dst, ByteBufUtil.prettyHexDump(out.buffer()));
+      dst.writeBytes(ByteBufUtil.getBytes(buffer), false);
+      log.info("Generated {} ({} records, {} bytes)",
+          dst, table.parser.parser().numRecords(), buffer.readableBytes());
+    } finally {
+      buffer.release();
+    }
   }
 }
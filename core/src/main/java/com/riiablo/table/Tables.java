@@ -1,7 +1,14 @@
 package com.riiablo.table;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 
+import com.riiablo.io.ByteInput;
+import com.riiablo.io.ByteOutput;
+import com.riiablo.io.InvalidFormat;
 import com.riiablo.logger.LogManager;
 import com.riiablo.logger.Logger;
 
@@ -10,6 +17,21 @@ public class Tables {
 
   private static final boolean USE_TSV_ONLY = !true;
 
+  /**
+   * Binary snapshot format:
+   * <pre>
+   * signature    4 bytes  {@link #SIGNATURE}
+   * version      int32    {@link #VERSION}
+   * schema hash  int64    {@link Serializer#schemaHash()} of the records
+   * records      int32    number of records, followed by each record as its
+   *                       record name and serialized fields
+   * </pre>
+   * All values are little endian. Snapshots are read in place, i.e., the file
+   * is memory-mapped when possible.
+   */
+  static final byte[] SIGNATURE = {'D', '2', 'T', 'B'};
+  static final int VERSION = 1;
+
   private Tables() {}
 
   public static <R, T extends Table<R>>
@@ -24,6 +46,7 @@ public class Tables {
         return loadBin(table, bin);
       } catch (Throwable t) {
         log.error("Failed to load {}, defaulting to tsv", bin, t);
+        resetTable(table);
         return loadTsv(table, tsv);
       }
     } else {
@@ -49,8 +72,67 @@ public class Tables {
   static <R, T extends Table<R>>
   T loadBin(T table, FileHandle bin) {
     log.info("Loading {}", bin);
-    //...
+    return loadBin(table, ByteInput.wrap(map(bin)));
+  }
+
+  static <R, T extends Table<R>>
+  T loadBin(T table, ByteInput in) {
+    in.readSignature(SIGNATURE);
+    final int version = in.read32();
+    if (version != VERSION) {
+      throw new InvalidFormat(in, "Unsupported version " + version + ", expected " + VERSION);
+    }
+
+    final long schemaHash = in.read64();
+    final long expectedSchemaHash = schemaHash(table);
+    if (schemaHash != expectedSchemaHash) {
+      throw new InvalidFormat(in, String.format(
+          "Schema hash %016x does not match %s (%016x)",
+          schemaHash, table.recordClass().getCanonicalName(), expectedSchemaHash));
+    }
+
+    table.initialize(in);
     table.initialize();
     return table;
   }
+
+  /**
+   * Writes a binary snapshot of a table which was loaded from a tsv.
+   */
+  static <R, T extends Table<R>>
+  void writeBin(T table, ByteOutput out) {
+    out.writeBytes(SIGNATURE);
+    out.write32(VERSION);
+    out.write64(schemaHash(table));
+    table.write(out);
+  }
+
+  /**
+   * Memory-maps the specified file if it resides on the file system,
+   * otherwise reads its contents.
+   */
+  static ByteBuf map(FileHandle handle) {
+    try {
+      return Unpooled.wrappedBuffer(handle.map());
+    } catch (GdxRuntimeException t) {
+      log.debug("Unable to map {}, reading instead", handle, t);
+      return Unpooled.wrappedBuffer(handle.readBytes());
+    }
+  }
+
+  /**
+   * Clears any state of a table which failed to load, s.t., it can be loaded
+   * again.
+   */
+  static void resetTable(Table<?> table) {
+    table.reset();
+  }
+
+  /**
+   * Returns the hash of the schema of the records of a table, as generated
+   * into its {@link Serializer} from the fields it serializes.
+   */
+  static long schemaHash(Table<?> table) {
+    return table.newSerializer().schemaHash();
+  }
 }
@@ -8,6 +8,9 @@ import static org.junit.jupiter.api.TestInstance.Lifecycle.*;
 
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.badlogic.gdx.files.FileHandle;
 
@@ -50,6 +53,45 @@ public class AssetManagerTest extends RiiabloTest {
     }
   }
 
+  @Test
+  void load_raises_priority_of_pending_load() {
+    AssetManager assets = new AssetManager(1, 4);
+    try {
+      List<String> started = new ArrayList<>();
+      LoadScheduler scheduler = assets.scheduler;
+      scheduler.submit(new LoadSchedulerTest.FakeTask("blocker", LoadPriority.PLAYER, 4, started));
+
+      AssetDesc<Object> dependency = AssetDesc.of("dependency", Object.class, new AssetParams<>());
+      AssetDesc<Object> asset = AssetDesc.of("asset", Object.class, new AssetParams<>());
+      AssetContainer dependencyContainer = pending(assets, dependency, started);
+      AssetContainer container = pending(assets, asset, started, dependency);
+      scheduler.submit(new LoadSchedulerTest.FakeTask("visible", LoadPriority.VISIBLE, 1, started));
+
+      assertSame(container.promise, assets.load(asset, LoadPriority.PLAYER));
+      assertEquals(2, container.refCnt());
+      assertEquals(LoadPriority.PLAYER, container.priority);
+      assertEquals(LoadPriority.PLAYER, container.task.priority);
+      assertEquals(LoadPriority.PLAYER, dependencyContainer.task.priority);
+      assertEquals(0, assets.stats(LoadPriority.PREFETCH).queued());
+
+      // already loading with a higher priority
+      assets.load(asset, LoadPriority.PREFETCH);
+      assertEquals(LoadPriority.PLAYER, container.priority);
+    } finally {
+      assets.dispose();
+    }
+  }
+
+  /** queues a placeholder load of the specified asset with the lowest priority */
+  static AssetContainer pending(AssetManager assets, AssetDesc asset, List<String> started, AssetDesc... dependencies) {
+    AssetContainer container = AssetContainer.wrap(asset, ImmediateEventExecutor.INSTANCE.newPromise(), dependencies);
+    container.priority = LoadPriority.PREFETCH;
+    container.task = new LoadSchedulerTest.FakeTask(asset.path(), LoadPriority.PREFETCH, 1, started);
+    assets.loadedAssets.put(asset, container);
+    assets.scheduler.submit(container.task);
+    return container;
+  }
+
   @Nested
   @TestInstance(PER_CLASS)
   class resolve {
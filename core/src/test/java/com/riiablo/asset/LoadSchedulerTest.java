@@ -0,0 +1,160 @@
+package com.riiablo.asset;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoadSchedulerTest {
+  static final class FakeTask extends LoadScheduler.Task {
+    final String name;
+    final List<String> started;
+    boolean cancelled;
+    boolean released;
+
+    FakeTask(String name, LoadPriority priority, long bytes, List<String> started) {
+      super(priority, bytes);
+      this.name = name;
+      this.started = started;
+    }
+
+    @Override
+    boolean cancelled() {
+      return cancelled;
+    }
+
+    @Override
+    void cancel() {
+      released = true;
+    }
+
+    @Override
+    void start(EventExecutor executor) {
+      started.add(name);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  @Test
+  public void starts_in_priority_order() {
+    List<String> started = new ArrayList<>();
+    LoadScheduler scheduler = new LoadScheduler(ImmediateEventExecutor.INSTANCE, 10);
+    FakeTask blocker = new FakeTask("blocker", LoadPriority.PREFETCH, 10, started);
+    scheduler.submit(blocker);
+    scheduler.submit(new FakeTask("prefetch", LoadPriority.PREFETCH, 1, started));
+    scheduler.submit(new FakeTask("visible", LoadPriority.VISIBLE, 1, started));
+    scheduler.submit(new FakeTask("player", LoadPriority.PLAYER, 1, started));
+    assertEquals(1, started.size());
+    assertEquals(3, scheduler.stats(LoadPriority.PREFETCH).queued()
+        + scheduler.stats(LoadPriority.VISIBLE).queued()
+        + scheduler.stats(LoadPriority.PLAYER).queued());
+
+    scheduler.complete(blocker);
+    assertArrayEquals(
+        new String[] { "blocker", "player", "visible", "prefetch" },
+        started.toArray(new String[0]));
+    assertEquals(3, scheduler.inFlightBytes());
+    assertEquals(1, scheduler.stats(LoadPriority.PREFETCH).completed());
+    assertEquals(1, scheduler.stats(LoadPriority.PLAYER).inFlight());
+  }
+
+  @Test
+  public void admits_within_budget() {
+    List<String> started = new ArrayList<>();
+    LoadScheduler scheduler = new LoadScheduler(ImmediateEventExecutor.INSTANCE, 8);
+    FakeTask a = new FakeTask("a", LoadPriority.VISIBLE, 4, started);
+    FakeTask b = new FakeTask("b", LoadPriority.VISIBLE, 4, started);
+    FakeTask c = new FakeTask("c", LoadPriority.VISIBLE, 4, started);
+    scheduler.submit(a);
+    scheduler.submit(b);
+    scheduler.submit(c);
+    assertEquals(2, started.size());
+    assertEquals(8, scheduler.inFlightBytes());
+    assertEquals(1, scheduler.stats(LoadPriority.VISIBLE).queued());
+
+    scheduler.complete(a);
+    assertEquals(3, started.size());
+    assertEquals(8, scheduler.inFlightBytes());
+    assertEquals(0, scheduler.stats(LoadPriority.VISIBLE).queued());
+  }
+
+  @Test
+  public void admits_oversized_when_idle() {
+    List<String> started = new ArrayList<>();
+    LoadScheduler scheduler = new LoadScheduler(ImmediateEventExecutor.INSTANCE, 8);
+    FakeTask large = new FakeTask("large", LoadPriority.VISIBLE, 64, started);
+    scheduler.submit(large);
+    assertEquals(1, started.size());
+    scheduler.submit(new FakeTask("small", LoadPriority.VISIBLE, 1, started));
+    assertEquals(1, started.size());
+    scheduler.complete(large);
+    assertEquals(2, started.size());
+  }
+
+  @Test
+  public void drops_cancelled() {
+    List<String> started = new ArrayList<>();
+    LoadScheduler scheduler = new LoadScheduler(ImmediateEventExecutor.INSTANCE, 4);
+    FakeTask blocker = new FakeTask("blocker", LoadPriority.PLAYER, 4, started);
+    FakeTask cancelled = new FakeTask("cancelled", LoadPriority.VISIBLE, 4, started);
+    FakeTask next = new FakeTask("next", LoadPriority.VISIBLE, 4, started);
+    scheduler.submit(blocker);
+    scheduler.submit(cancelled);
+    scheduler.submit(next);
+    cancelled.cancelled = true;
+
+    scheduler.complete(blocker);
+    assertArrayEquals(new String[] { "blocker", "next" }, started.toArray(new String[0]));
+    assertTrue(cancelled.released);
+    LoadStats stats = scheduler.stats(LoadPriority.VISIBLE);
+    assertEquals(1, stats.cancelled());
+    assertEquals(0, stats.queued());
+    assertEquals(1, stats.inFlight());
+  }
+
+  @Test
+  public void prioritizes_queued_tasks() {
+    List<String> started = new ArrayList<>();
+    LoadScheduler scheduler = new LoadScheduler(ImmediateEventExecutor.INSTANCE, 4);
+    FakeTask blocker = new FakeTask("blocker", LoadPriority.PLAYER, 4, started);
+    FakeTask prefetch = new FakeTask("prefetch", LoadPriority.PREFETCH, 1, started);
+    scheduler.submit(blocker);
+    scheduler.submit(prefetch);
+    scheduler.submit(new FakeTask("visible", LoadPriority.VISIBLE, 1, started));
+
+    scheduler.prioritize(prefetch, LoadPriority.PLAYER);
+    assertEquals(LoadPriority.PLAYER, prefetch.priority);
+    assertEquals(0, scheduler.stats(LoadPriority.PREFETCH).queued());
+    assertEquals(1, scheduler.stats(LoadPriority.PLAYER).queued());
+
+    // priorities are never lowered
+    scheduler.prioritize(prefetch, LoadPriority.PREFETCH);
+    assertEquals(LoadPriority.PLAYER, prefetch.priority);
+
+    scheduler.complete(blocker);
+    assertArrayEquals(
+        new String[] { "blocker", "prefetch", "visible" },
+        started.toArray(new String[0]));
+
+    // started tasks are unaffected
+    FakeTask visible = new FakeTask("started", LoadPriority.VISIBLE, 1, started);
+    scheduler.submit(visible);
+    assertTrue(visible.started);
+    scheduler.prioritize(visible, LoadPriority.PLAYER);
+    assertEquals(LoadPriority.VISIBLE, visible.priority);
+    assertEquals(2, scheduler.stats(LoadPriority.VISIBLE).inFlight());
+  }
+
+  @Test
+  public void rejects_invalid_budget() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new LoadScheduler(ImmediateEventExecutor.INSTANCE, 0));
+  }
+}
@@ -0,0 +1,209 @@
+package com.riiablo.attributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.*;
+
+import io.netty.buffer.Unpooled;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.ShortArray;
+
+import com.riiablo.CharacterClass;
+import com.riiablo.Riiablo;
+import com.riiablo.RiiabloTest;
+import com.riiablo.codec.excel.CharStats;
+import com.riiablo.codec.excel.ItemStatCost;
+import com.riiablo.io.BitInput;
+import com.riiablo.io.ByteInput;
+import com.riiablo.logger.Level;
+import com.riiablo.logger.LogManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests which assert that an {@link IncrementalUpdate} produces
+ * the same aggregate and remaining stats as a full update of the same
+ * sequence.
+ */
+public class IncrementalUpdateTest extends RiiabloTest {
+  @BeforeAll
+  public static void before() {
+    LogManager.setLevel("com.riiablo.attributes", Level.WARN);
+  }
+
+  private static Attributes genCharacterAttrs(byte[] data, int bytesToSkip, int length) {
+    ByteInput in = ByteInput.wrap(Unpooled.wrappedBuffer(data, bytesToSkip, length));
+    BitInput bitInput = in.skipBytes(2).unalign(); // skip signature
+    StatListReader reader = new StatListReader();
+    Attributes attrs = Attributes.obtainLarge();
+    reader.read(attrs.base(), bitInput, true);
+    return attrs;
+  }
+
+  private static Attributes genItemAttrs(byte[] data, long bitsToSkip, int length, int flags) {
+    final int offset = (int) (bitsToSkip >> 3);
+    final int bitOffset = (int) (bitsToSkip & 0x7);
+    if (length < 0) length = data.length - offset;
+    ByteInput in = ByteInput.wrap(Unpooled.wrappedBuffer(data, offset, length));
+    BitInput bitInput = in.unalign().skipBits(bitOffset);
+    StatListReader reader = new StatListReader();
+    Attributes attrs = Attributes.obtainStandard();
+    reader.read(attrs.list(), bitInput, flags);
+    return attrs;
+  }
+
+  private static Attributes genGemAttrs(String code) {
+    PropertiesGenerator properties = new PropertiesGenerator();
+    GemGenerator gems = new GemGenerator(properties);
+    return gems.set(Attributes.obtainCompact(), code);
+  }
+
+  private static Attributes tirant() {
+    return genCharacterAttrs(Gdx.files.internal("test/Tirant.d2s").readBytes(), 0x2fd, 0x33);
+  }
+
+  private static String encode(StatListRef stats) {
+    final StringBuilder builder = new StringBuilder(256);
+    for (StatRef stat : stats) {
+      builder
+          .append(stat.id()).append(':')
+          .append(stat.encodedParams()).append(':')
+          .append(stat.encodedValues()).append(',');
+    }
+
+    return builder.toString();
+  }
+
+  private static void assertUpdateEquals(Attributes expected, Attributes actual) {
+    assertEquals(encode(expected.aggregate()), encode(actual.aggregate()), "aggregate");
+    assertEquals(encode(expected.remaining()), encode(actual.remaining()), "remaining");
+  }
+
+  private static Attributes fullUpdate(
+      AttributesUpdater updater,
+      Attributes attrs,
+      CharStats.Entry charStats,
+      List<StatListRef> lists) {
+    final UpdateSequence update = updater.update(attrs, charStats);
+    for (StatListRef list : lists) update.add(list);
+    return update.apply();
+  }
+
+  @Test
+  public void Tirant_Spirit_Tal_Thul_Ort_Amn() {
+    final CharStats.Entry sorc = CharacterClass.SORCERESS.entry();
+    final AttributesUpdater updater = new AttributesUpdater();
+
+    Attributes spirit = genItemAttrs(Gdx.files.internal("test/Spirit.d2i").readBytes(), 216, 0x19, StatListFlags.FLAG_MAGIC | StatListFlags.FLAG_RUNE);
+    Attributes tal = genGemAttrs("r07");
+    Attributes thul = genGemAttrs("r10");
+    Attributes ort = genGemAttrs("r09");
+    Attributes amn = genGemAttrs("r11");
+    IncrementalUpdate spiritUpdate = updater.incremental(spirit, StatListFlags.FLAG_MAGIC | StatListFlags.FLAG_RUNE, null, null);
+    spiritUpdate.apply();
+    spiritUpdate
+        .add(tal.list(StatListFlags.GEM_SHIELD_LIST))
+        .add(thul.list(StatListFlags.GEM_SHIELD_LIST))
+        .add(ort.list(StatListFlags.GEM_SHIELD_LIST))
+        .add(amn.list(StatListFlags.GEM_SHIELD_LIST))
+        .apply();
+
+    Attributes expectedSpirit = genItemAttrs(Gdx.files.internal("test/Spirit.d2i").readBytes(), 216, 0x19, StatListFlags.FLAG_MAGIC | StatListFlags.FLAG_RUNE);
+    updater.update(expectedSpirit, StatListFlags.FLAG_MAGIC | StatListFlags.FLAG_RUNE, null, null)
+        .add(tal.list(StatListFlags.GEM_SHIELD_LIST))
+        .add(thul.list(StatListFlags.GEM_SHIELD_LIST))
+        .add(ort.list(StatListFlags.GEM_SHIELD_LIST))
+        .add(amn.list(StatListFlags.GEM_SHIELD_LIST))
+        .apply();
+    assertUpdateEquals(expectedSpirit, spirit);
+
+    final List<StatListRef> equipped = new ArrayList<>();
+    final Attributes tirant = tirant();
+    final Attributes expected = tirant();
+    final IncrementalUpdate tirantUpdate = updater.incremental(tirant, sorc);
+    tirantUpdate.apply();
+    assertUpdateEquals(fullUpdate(updater, expected, sorc, equipped), tirant);
+
+    equipped.add(spirit.remaining());
+    tirantUpdate.add(spirit.remaining()).apply();
+    assertUpdateEquals(fullUpdate(updater, expected, sorc, equipped), tirant);
+
+    equipped.remove(spirit.remaining());
+    tirantUpdate.remove(spirit.remaining()).apply();
+    assertUpdateEquals(fullUpdate(updater, expected, sorc, equipped), tirant);
+  }
+
+  /**
+   * Candidate stats for random lists: the stats of the base, the stats which
+   * have an op modifying them, and some unrelated stats.
+   */
+  private static short[] candidates(StatListRef base) {
+    final ShortArray candidates = new ShortArray();
+    for (StatRef stat : base) {
+      if (isSimple(stat.entry())) candidates.add(stat.id());
+    }
+
+    for (ItemStatCost.Entry entry : Riiablo.files.ItemStatCost) {
+      if (!isSimple(entry) || candidates.contains((short) entry.ID)) continue;
+      if (entry.op <= 0) {
+        if (entry.ID < 64) candidates.add((short) entry.ID);
+        continue;
+      }
+
+      for (String op_stat : entry.op_stat) {
+        if (StringUtils.isEmpty(op_stat)) break;
+        if (base.containsAny(Stat.index(op_stat))) {
+          candidates.add((short) entry.ID);
+          break;
+        }
+      }
+    }
+
+    return candidates.toArray();
+  }
+
+  private static boolean isSimple(ItemStatCost.Entry entry) {
+    return entry.Encode <= 2
+        && entry.Save_Param_Bits <= 0
+        && Stat.numEncodedParams(entry.Encode) == 0
+        && Stat.numEncodedValues(entry.Encode) == 1;
+  }
+
+  private static StatListRef randomList(Random random, short[] candidates) {
+    final StatListRef list = StatList.obtain();
+    for (int i = 0, s = 1 + random.nextInt(6); i < s; i++) {
+      list.add(candidates[random.nextInt(candidates.length)], 1 + random.nextInt(20));
+    }
+
+    return list;
+  }
+
+  @Test
+  public void random_sequences_match_full_update() {
+    final CharStats.Entry sorc = CharacterClass.SORCERESS.entry();
+    final AttributesUpdater updater = new AttributesUpdater();
+    final Attributes tirant = tirant();
+    final Attributes expected = tirant();
+    final short[] candidates = candidates(tirant.base());
+    final Random random = new Random(0);
+
+    final List<StatListRef> lists = new ArrayList<>();
+    final IncrementalUpdate update = updater.incremental(tirant, sorc);
+    update.apply();
+    for (int n = 0; n < 512; n++) {
+      if (lists.isEmpty() || (lists.size() < 16 && random.nextInt(3) > 0)) {
+        final StatListRef list = randomList(random, candidates);
+        lists.add(list);
+        update.add(list);
+      } else {
+        update.remove(lists.remove(random.nextInt(lists.size())));
+      }
+
+      update.apply();
+      assertUpdateEquals(fullUpdate(updater, expected, sorc, lists), tirant);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.riiablo.attributes;
+
+import org.junit.jupiter.api.*;
+
+import com.riiablo.RiiabloTest;
+import com.riiablo.logger.Level;
+import com.riiablo.logger.LogManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatListSlabTest extends RiiabloTest {
+  @BeforeAll
+  public static void before() {
+    LogManager.setLevel("com.riiablo.attributes", Level.WARN);
+  }
+
+  @Test
+  public void lists_do_not_overlap() {
+    StatListSlab slab = new StatListSlab(StatList.DEFAULT_SIZE, 2);
+    StatListRef[] lists = new StatListRef[5];
+    for (int i = 0; i < lists.length; i++) {
+      lists[i] = StatList.obtain(slab);
+      for (int j = 0; j < StatList.DEFAULT_SIZE; j++) {
+        lists[i].put((short) j, i * 100 + j);
+      }
+    }
+
+    assertEquals(5, slab.size());
+    assertEquals(6, slab.capacity());
+    for (int i = 0; i < lists.length; i++) {
+      assertEquals(StatList.DEFAULT_SIZE, lists[i].size());
+      for (int j = 0; j < StatList.DEFAULT_SIZE; j++) {
+        assertEquals(i * 100 + j, lists[i].getValue((short) j, -1));
+      }
+    }
+  }
+
+  @Test
+  public void released_blocks_are_reused() {
+    StatListSlab slab = new StatListSlab(StatList.DEFAULT_SIZE, 2);
+    StatListRef a = StatList.obtain(slab);
+    StatListRef b = StatList.obtain(slab);
+    a.put(Stat.strength, 10);
+    b.put(Stat.strength, 20);
+    a.release();
+    assertEquals(1, slab.size());
+
+    StatListRef c = StatList.obtain(slab);
+    assertTrue(c.isEmpty());
+    assertEquals(2, slab.size());
+    assertEquals(2, slab.capacity());
+    assertEquals(20, b.getValue(Stat.strength, -1));
+  }
+
+  @Test
+  public void shared_list_is_copied_on_write() {
+    StatListSlab slab = new StatListSlab();
+    StatListRef base = StatList.obtain(slab);
+    base.put(Stat.strength, 10);
+    base.put(Stat.dexterity, 20);
+
+    StatListRef a = base.share();
+    StatListRef b = base.share();
+    assertTrue(a.parent().isShared());
+    assertEquals(10, a.getValue(Stat.strength, -1));
+    assertEquals(1, slab.size());
+
+    a.add(Stat.strength, 5);
+    assertFalse(a.parent().isShared());
+    assertTrue(b.parent().isShared());
+    assertEquals(2, slab.size());
+    assertEquals(15, a.getValue(Stat.strength, -1));
+    assertEquals(20, a.getValue(Stat.dexterity, -1));
+    assertEquals(10, base.getValue(Stat.strength, -1));
+    assertEquals(10, b.getValue(Stat.strength, -1));
+
+    b.put(Stat.vitality, 30);
+    assertEquals(3, b.size());
+    assertEquals(2, base.size());
+  }
+
+  @Test
+  public void attributes_share_base() {
+    StatListSlab slab = new StatListSlab();
+    StatListRef base = StatList.obtain(slab);
+    base.put(Stat.strength, 10);
+
+    Attributes attrs = Attributes.obtainStandard(slab);
+    assertEquals(5, slab.size());
+    attrs.shareBase(base);
+    assertEquals(4, slab.size());
+    attrs.reset();
+    assertEquals(10, attrs.getValue(Stat.strength, -1));
+    attrs.release();
+    assertEquals(1, slab.size());
+  }
+}
@@ -7,11 +7,16 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
 import io.netty.util.concurrent.ImmediateEventExecutor;
 import io.netty.util.concurrent.Promise;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
@@ -24,6 +29,7 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.GdxNativesLoader;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 
 import com.riiablo.RiiabloTest;
@@ -139,6 +145,58 @@ public class DccDecoderTest {
     }
   }
 
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "data\\global\\chars\\ba\\hd\\bahdbhma11hs.dcc",
+      "data\\global\\monsters\\gt\\tr\\gttrlita1hth.dcc",
+  })
+  void decode_async_matches_pixmaps(String dccName) throws Exception {
+    GdxNativesLoader.load();
+    FileHandle testHome = InstallationFinder.getInstance().defaultHomeDir();
+    EventExecutor executor = ImmediateEventExecutor.INSTANCE;
+    EventExecutorGroup group = new DefaultEventExecutorGroup(4);
+    AssetDesc<Dcc> parent = AssetDesc.of(dccName, Dcc.class, DcParams.of(-1));
+    MpqFileResolver resolver = new MpqFileResolver(testHome);
+    MpqFileHandle dccHandle = resolver.resolve(parent);
+    ByteBuf pixels = PooledByteBufAllocator.DEFAULT.directBuffer();
+    try {
+      InputStream stream = dccHandle.bufferStream(executor, dccHandle.sectorSize()).get();
+      Dcc expected = Dcc.read(dccHandle.retain(), stream);
+      stream = dccHandle.bufferStream(executor, dccHandle.sectorSize()).get();
+      Dcc actual = Dcc.read(dccHandle.retain(), stream);
+      int[] directions = new int[expected.numDirections];
+      for (int d = 0; d < expected.numDirections; d++) {
+        int offset = expected.dirOffset(d);
+        int length = expected.dirOffset(d + 1) - offset;
+        expected.read(dccHandle.bufferAsync(executor, offset, length).get(), d);
+        actual.read(dccHandle.bufferAsync(executor, offset, length).get(), d);
+        new DccDecoder().decode(expected, d);
+        directions[d] = d;
+      }
+
+      DccDecoder.decodeAsync(group, executor.<Dcc>newPromise(), actual, directions, pixels).sync();
+      for (int d = 0; d < expected.numDirections; d++) {
+        for (int f = 0; f < expected.numFrames; f++) {
+          ByteBuffer expectedPixels = expected.directions[d].pixmap[f].getPixels();
+          int length = expectedPixels.remaining();
+          assertEquals(
+              ByteBufUtil.hexDump(Unpooled.wrappedBuffer(expectedPixels)),
+              ByteBufUtil.hexDump(pixels.readSlice(length)),
+              "d=" + d + ",f=" + f);
+        }
+      }
+
+      assertFalse(pixels.isReadable());
+      ReferenceCountUtil.release(expected, expected.refCnt());
+      ReferenceCountUtil.release(actual, actual.refCnt());
+    } finally {
+      pixels.release();
+      group.shutdownGracefully().syncUninterruptibly();
+      ReferenceCountUtil.release(dccHandle);
+      resolver.dispose();
+    }
+  }
+
   @BeforeEach
   public void beforeEach() {
     RiiabloTest.clearGdxContext();
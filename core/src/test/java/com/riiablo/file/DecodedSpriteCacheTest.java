@@ -0,0 +1,107 @@
+package com.riiablo.file;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+
+public class DecodedSpriteCacheTest {
+  private static ByteBuf pixels(int length, int value) {
+    final ByteBuf buffer = Unpooled.buffer(length);
+    for (int i = 0; i < length; i++) buffer.writeByte(value);
+    return buffer;
+  }
+
+  private static void request(DecodedSpriteCache cache, String path, int times) {
+    for (int i = 0; i < times; i++) {
+      final ByteBuf pixels = cache.get(path, 0, DecodedSpriteCache.NO_TRANSFORM);
+      if (pixels != null) pixels.release();
+    }
+  }
+
+  @Test
+  public void hit_returns_retained_duplicate() {
+    DecodedSpriteCache cache = new DecodedSpriteCache(1024);
+    assertNull(cache.get("a", 0, DecodedSpriteCache.NO_TRANSFORM));
+    ByteBuf put = cache.put("a", 0, DecodedSpriteCache.NO_TRANSFORM, pixels(16, 1));
+    put.release();
+    assertNull(cache.get("a", 1, DecodedSpriteCache.NO_TRANSFORM));
+    assertNull(cache.get("a", 0, 3));
+
+    ByteBuf hit = cache.get("a", 0, DecodedSpriteCache.NO_TRANSFORM);
+    assertNotNull(hit);
+    assertEquals(16, hit.readableBytes());
+    assertEquals(1, hit.getByte(0));
+    hit.release();
+    assertEquals(1, cache.hits());
+    assertEquals(3, cache.misses());
+    assertEquals(16, cache.bytes());
+
+    cache.dispose();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void evicts_least_recently_used() {
+    DecodedSpriteCache cache = new DecodedSpriteCache(32);
+    request(cache, "a", 1);
+    cache.put("a", 0, DecodedSpriteCache.NO_TRANSFORM, pixels(16, 1)).release();
+    request(cache, "b", 1);
+    cache.put("b", 0, DecodedSpriteCache.NO_TRANSFORM, pixels(16, 2)).release();
+    request(cache, "a", 1); // b is now least recently used
+
+    request(cache, "c", 4);
+    cache.put("c", 0, DecodedSpriteCache.NO_TRANSFORM, pixels(16, 3)).release();
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.evictions());
+    assertEquals(16, cache.evictedBytes());
+    request(cache, "a", 1);
+    request(cache, "c", 1);
+    long misses = cache.misses();
+    request(cache, "b", 1);
+    assertEquals(misses + 1, cache.misses());
+    cache.dispose();
+  }
+
+  @Test
+  public void rejects_less_frequent() {
+    DecodedSpriteCache cache = new DecodedSpriteCache(32);
+    request(cache, "a", 4);
+    cache.put("a", 0, DecodedSpriteCache.NO_TRANSFORM, pixels(16, 1)).release();
+    request(cache, "b", 4);
+    cache.put("b", 0, DecodedSpriteCache.NO_TRANSFORM, pixels(16, 2)).release();
+
+    request(cache, "c", 1);
+    ByteBuf rejected = cache.put("c", 0, DecodedSpriteCache.NO_TRANSFORM, pixels(16, 3));
+    assertEquals(1, rejected.refCnt());
+    assertEquals(3, rejected.getByte(0));
+    rejected.release();
+    assertEquals(1, cache.rejections());
+    assertEquals(0, cache.evictions());
+    assertEquals(2, cache.size());
+    cache.dispose();
+  }
+
+  @Test
+  public void spills_evicted() throws Exception {
+    File file = File.createTempFile("riiablo-sprites", ".bin");
+    DecodedSpriteCache cache = new DecodedSpriteCache(16, 16, file, 64);
+    request(cache, "a", 1);
+    cache.put("a", 0, DecodedSpriteCache.NO_TRANSFORM, pixels(16, 1)).release();
+    request(cache, "b", 2);
+    cache.put("b", 0, DecodedSpriteCache.NO_TRANSFORM, pixels(16, 2)).release();
+    assertEquals(1, cache.spillWrites());
+
+    ByteBuf spilled = cache.get("a", 0, DecodedSpriteCache.NO_TRANSFORM);
+    assertNotNull(spilled);
+    assertEquals(16, spilled.readableBytes());
+    for (int i = 0; i < 16; i++) assertEquals(1, spilled.getByte(i));
+    spilled.release();
+    assertEquals(1, cache.spillHits());
+
+    cache.dispose();
+    assertFalse(file.exists());
+  }
+}
@@ -0,0 +1,92 @@
+package com.riiablo.graphics;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+public class RuntimeAtlasTest {
+  @BeforeAll
+  public static void before() {
+    GdxNativesLoader.load();
+  }
+
+  private static Pixmap pixmap(int width, int height, int value) {
+    Pixmap pixmap = new PaletteIndexedPixmap(width, height);
+    for (int i = 0, s = width * height; i < s; i++) pixmap.getPixels().put(i, (byte) value);
+    return pixmap;
+  }
+
+  private static int pixel(Pixmap pixmap, int x, int y) {
+    return pixmap.getPixels().get(y * pixmap.getWidth() + x) & 0xFF;
+  }
+
+  @Test
+  public void packs_pixels_into_page() {
+    RuntimeAtlas atlas = new RuntimeAtlas(64, 1, 1);
+    Pixmap a = pixmap(8, 8, 1);
+    Pixmap b = pixmap(8, 8, 2);
+    try {
+      RuntimeAtlas.Region ra = atlas.pack("a", a);
+      RuntimeAtlas.Region rb = atlas.pack("b", b);
+      assertSame(ra.page(), rb.page());
+      assertEquals(9, rb.x()); // padded
+      Pixmap page = ra.page().pixmap();
+      assertEquals(1, pixel(page, ra.x(), ra.y()));
+      assertEquals(1, pixel(page, ra.x() + 7, ra.y() + 7));
+      assertEquals(0, pixel(page, ra.x() + 8, ra.y()));
+      assertEquals(2, pixel(page, rb.x(), rb.y()));
+
+      assertSame(ra, atlas.pack("a", a));
+      assertEquals(2, ra.refCnt());
+    } finally {
+      a.dispose();
+      b.dispose();
+      atlas.dispose();
+    }
+  }
+
+  @Test
+  public void evicts_released_regions() {
+    RuntimeAtlas atlas = new RuntimeAtlas(32, 1, 0);
+    Pixmap pixmap = pixmap(16, 16, 3);
+    try {
+      RuntimeAtlas.Region[] regions = new RuntimeAtlas.Region[4];
+      for (int i = 0; i < regions.length; i++) regions[i] = atlas.pack(i, pixmap);
+      assertNull(atlas.pack("full", pixmap));
+
+      regions[2].release();
+      regions[1].release();
+      assertNotNull(atlas.get(1)); // revived
+      RuntimeAtlas.Region region = atlas.pack("evicts", pixmap);
+      assertNotNull(region);
+      assertEquals(1, atlas.evictions());
+      assertNull(atlas.get(2));
+      assertEquals(regions[2].x(), region.x());
+      assertEquals(regions[2].y(), region.y());
+      assertEquals(1, atlas.numPages());
+    } finally {
+      pixmap.dispose();
+      atlas.dispose();
+    }
+  }
+
+  @Test
+  public void revives_regions_by_frame_key() {
+    RuntimeAtlas atlas = new RuntimeAtlas(64, 1, 1);
+    Pixmap pixmap = pixmap(8, 8, 4);
+    try {
+      RuntimeAtlas.Region region = atlas.pack(new RuntimeAtlas.FrameKey("a.dcc", 0, 1), pixmap);
+      region.release();
+      assertNull(atlas.get(new RuntimeAtlas.FrameKey("a.dcc", 0, 2)));
+      assertNull(atlas.get(new RuntimeAtlas.FrameKey("b.dcc", 0, 1)));
+      assertSame(region, atlas.pack(new RuntimeAtlas.FrameKey("a.dcc", 0, 1), pixmap));
+      assertEquals(1, region.refCnt());
+      assertEquals(1, atlas.size());
+    } finally {
+      pixmap.dispose();
+      atlas.dispose();
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.riiablo.graphics;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShelfAllocatorTest {
+  @Test
+  public void fills_shelf_left_to_right() {
+    ShelfAllocator allocator = new ShelfAllocator(64, 64);
+    int a = allocator.allocate(16, 16);
+    int b = allocator.allocate(16, 16);
+    int c = allocator.allocate(16, 12);
+    assertEquals(0, ShelfAllocator.x(a));
+    assertEquals(0, ShelfAllocator.y(a));
+    assertEquals(16, ShelfAllocator.x(b));
+    assertEquals(0, ShelfAllocator.y(b));
+    assertEquals(32, ShelfAllocator.x(c)); // within tolerated waste
+    assertEquals(0, ShelfAllocator.y(c));
+    assertEquals(1, allocator.numShelves());
+  }
+
+  @Test
+  public void opens_shelf_for_different_height() {
+    ShelfAllocator allocator = new ShelfAllocator(64, 64);
+    allocator.allocate(16, 32);
+    int b = allocator.allocate(16, 8);
+    assertEquals(0, ShelfAllocator.x(b));
+    assertEquals(32, ShelfAllocator.y(b));
+    assertEquals(2, allocator.numShelves());
+  }
+
+  @Test
+  public void returns_none_when_full() {
+    ShelfAllocator allocator = new ShelfAllocator(32, 32);
+    assertEquals(ShelfAllocator.NONE, allocator.allocate(33, 1));
+    for (int i = 0; i < 4; i++) assertNotEquals(ShelfAllocator.NONE, allocator.allocate(16, 16));
+    assertEquals(ShelfAllocator.NONE, allocator.allocate(1, 1));
+    assertEquals(1f, allocator.occupancy());
+  }
+
+  @Test
+  public void reuses_freed_space() {
+    ShelfAllocator allocator = new ShelfAllocator(64, 64);
+    int a = allocator.allocate(16, 16);
+    int b = allocator.allocate(16, 16);
+    int c = allocator.allocate(16, 16);
+    allocator.free(a, 16, 16);
+    allocator.free(b, 16, 16);
+    int d = allocator.allocate(32, 16); // coalesced
+    assertEquals(0, ShelfAllocator.x(d));
+    assertEquals(0, ShelfAllocator.y(d));
+
+    allocator.free(c, 16, 16);
+    allocator.free(d, 32, 16);
+    assertTrue(allocator.isEmpty());
+    assertEquals(0, allocator.numShelves());
+    int e = allocator.allocate(64, 64);
+    assertEquals(0, ShelfAllocator.y(e));
+  }
+}
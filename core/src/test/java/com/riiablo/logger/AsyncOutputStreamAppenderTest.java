@@ -0,0 +1,217 @@
+package com.riiablo.logger;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+
+import com.riiablo.logger.AsyncOutputStreamAppender.OverflowPolicy;
+import com.riiablo.logger.message.FormattedMessage;
+
+public class AsyncOutputStreamAppenderTest {
+  static final long TIMEOUT_MILLIS = 10000;
+  static final int CAPACITY = 4;
+
+  static LogEvent event(Level level, String message) {
+    LogEvent event = new LogEvent(level, new FormattedMessage(message), null, new StringMap());
+    event.loggerName = "test";
+    return event;
+  }
+
+  static String[] lines(ByteArrayOutputStream out) {
+    final String lines = out.toString();
+    return lines.isEmpty() ? new String[0] : lines.split(System.lineSeparator());
+  }
+
+  /** waits until at least {@code count} lines were written */
+  static String[] awaitLines(ByteArrayOutputStream out, int count) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    String[] lines;
+    while ((lines = lines(out)).length < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+
+    return lines;
+  }
+
+  static void await(AsyncOutputStreamAppender appender, long overflowed) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (appender.overflowed() < overflowed && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+
+    assertEquals(overflowed, appender.overflowed());
+  }
+
+  static Thread append(AsyncOutputStreamAppender appender, Level level, String message) {
+    Thread thread = new Thread(() -> appender.append(event(level, message)));
+    thread.start();
+    return thread;
+  }
+
+  static boolean contains(String[] lines, String message) {
+    for (String line : lines) if (line.endsWith(" " + message)) return true;
+    return false;
+  }
+
+  /** stalls the worker on its first write until released */
+  static final class StalledOutputStream extends ByteArrayOutputStream {
+    final CountDownLatch writing = new CountDownLatch(1);
+    final CountDownLatch released = new CountDownLatch(1);
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      writing.countDown();
+      try {
+        released.await();
+      } catch (InterruptedException t) {
+        Thread.currentThread().interrupt();
+      }
+
+      super.write(b, off, len);
+    }
+
+    /** appends an event and fills the ring buffer while the worker writes it */
+    void stall(AsyncOutputStreamAppender appender) throws InterruptedException {
+      appender.append(event(Level.INFO, "stall"));
+      writing.await();
+      for (int i = 0; i < appender.capacity(); i++) {
+        appender.append(event(Level.INFO, "fill-" + i));
+      }
+
+      assertEquals(appender.capacity(), appender.pending());
+    }
+  }
+
+  @Test
+  public void keeps_events_of_each_producer_in_order() throws Exception {
+    final int producers = 4;
+    final int events = 10000;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    AsyncOutputStreamAppender appender = new AsyncOutputStreamAppender(out, 64, OverflowPolicy.BLOCK);
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      final int producer = p;
+      threads[p] = new Thread(() -> {
+        for (int i = 0; i < events; i++) appender.append(event(Level.INFO, producer + ":" + i));
+      });
+    }
+
+    for (Thread thread : threads) thread.start();
+    for (Thread thread : threads) thread.join();
+
+    String[] lines = awaitLines(out, producers * events);
+    assertEquals(producers * events, lines.length);
+    assertEquals(producers * events, appender.queued());
+    assertEquals(0, appender.dropped());
+    assertEquals(0, appender.failed());
+
+    int[] next = new int[producers];
+    for (String line : lines) {
+      final String message = line.substring(line.lastIndexOf(' ') + 1);
+      final int separator = message.indexOf(':');
+      final int producer = Integer.parseInt(message.substring(0, separator));
+      final int event = Integer.parseInt(message.substring(separator + 1));
+      assertEquals(next[producer]++, event, line);
+    }
+
+    for (int p = 0; p < producers; p++) assertEquals(events, next[p]);
+  }
+
+  @Test
+  public void block_waits_for_a_slot() throws Exception {
+    StalledOutputStream out = new StalledOutputStream();
+    AsyncOutputStreamAppender appender = new AsyncOutputStreamAppender(out, CAPACITY, OverflowPolicy.BLOCK);
+    out.stall(appender);
+
+    Thread blocked = append(appender, Level.TRACE, "blocked");
+    await(appender, 1);
+    assertTrue(blocked.isAlive());
+
+    out.released.countDown();
+    blocked.join(TIMEOUT_MILLIS);
+    assertFalse(blocked.isAlive());
+
+    String[] lines = awaitLines(out, CAPACITY + 2);
+    assertEquals(CAPACITY + 2, lines.length);
+    assertTrue(contains(lines, "blocked"));
+    assertEquals(0, appender.dropped());
+  }
+
+  @Test
+  public void drop_lowest_level_drops_less_specific_events() throws Exception {
+    StalledOutputStream out = new StalledOutputStream();
+    AsyncOutputStreamAppender appender = new AsyncOutputStreamAppender(
+        out, CAPACITY, OverflowPolicy.DROP_LOWEST_LEVEL, Level.INFO, 1);
+    out.stall(appender);
+
+    appender.append(event(Level.DEBUG, "debug"));
+    appender.append(event(Level.INFO, "info"));
+    assertEquals(2, appender.dropped());
+
+    Thread blocked = append(appender, Level.WARN, "warn");
+    await(appender, 3);
+    assertTrue(blocked.isAlive());
+
+    out.released.countDown();
+    blocked.join(TIMEOUT_MILLIS);
+    assertFalse(blocked.isAlive());
+
+    String[] lines = awaitLines(out, CAPACITY + 2);
+    assertEquals(CAPACITY + 2, lines.length);
+    assertTrue(contains(lines, "warn"));
+    assertFalse(contains(lines, "debug"));
+    assertFalse(contains(lines, "info"));
+    assertEquals(2, appender.dropped());
+    assertEquals(CAPACITY + 2, appender.queued());
+  }
+
+  @Test
+  public void sample_keeps_one_out_of_every_sample_rate() throws Exception {
+    StalledOutputStream out = new StalledOutputStream();
+    AsyncOutputStreamAppender appender = new AsyncOutputStreamAppender(
+        out, CAPACITY, OverflowPolicy.SAMPLE, Level.INFO, 3);
+    out.stall(appender);
+
+    Thread first = append(appender, Level.DEBUG, "sample-0");
+    await(appender, 1);
+    appender.append(event(Level.DEBUG, "sample-1"));
+    appender.append(event(Level.DEBUG, "sample-2"));
+    assertEquals(2, appender.dropped());
+    Thread second = append(appender, Level.DEBUG, "sample-3");
+    await(appender, 4);
+    assertTrue(first.isAlive());
+    assertTrue(second.isAlive());
+
+    out.released.countDown();
+    first.join(TIMEOUT_MILLIS);
+    second.join(TIMEOUT_MILLIS);
+
+    String[] lines = awaitLines(out, CAPACITY + 3);
+    assertEquals(CAPACITY + 3, lines.length);
+    assertTrue(contains(lines, "sample-0"));
+    assertTrue(contains(lines, "sample-3"));
+    assertFalse(contains(lines, "sample-1"));
+    assertFalse(contains(lines, "sample-2"));
+    assertEquals(2, appender.dropped());
+  }
+
+  @Test
+  public void counts_failed_writes() throws Exception {
+    OutputStream out = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException();
+      }
+    };
+
+    AsyncOutputStreamAppender appender = new AsyncOutputStreamAppender(out, CAPACITY, OverflowPolicy.BLOCK);
+    appender.append(event(Level.ERROR, "failed"));
+    final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (appender.failed() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(1);
+    assertEquals(1, appender.failed());
+  }
+}
@@ -0,0 +1,132 @@
+package com.riiablo.logger;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoggerTest {
+  /** records the source and mdc of each event */
+  static final class RecordingAppender implements Appender {
+    final SimpleEncoder encoder = new SimpleEncoder();
+    final List<StackTraceElement> sources = new ArrayList<>();
+    final List<StringMap> mdcs = new ArrayList<>();
+    final List<String> mdcStrings = new ArrayList<>();
+
+    @Override
+    public void append(LogEvent event) {
+      sources.add(event.source());
+      mdcs.add(event.mdc());
+      mdcStrings.add(event.mdc().toString());
+      event.release();
+    }
+
+    @Override
+    public Encoder encoder() {
+      return encoder;
+    }
+  }
+
+  static Logger logger(RecordingAppender appender, LocationCapture locationCapture) {
+    appender.encoder.setLocationCapture(locationCapture);
+    Logger logger = new Logger(LoggerTest.class.getName());
+    logger.addAppender(appender);
+    logger.level(Level.TRACE);
+    return logger;
+  }
+
+  static void log(Logger logger, int i) {
+    logger.info("pattern {}", i);
+  }
+
+  @Test
+  public void caches_locations_by_call_site() {
+    RecordingAppender appender = new RecordingAppender();
+    Logger logger = logger(appender, LocationCapture.CACHED);
+    for (int i = 0; i < 2; i++) {
+      logger.info("pattern {}", i);
+      logger.info("pattern {}", i);
+    }
+
+    List<StackTraceElement> sources = appender.sources;
+    assertEquals(4, sources.size());
+    for (StackTraceElement source : sources) {
+      assertEquals(LoggerTest.class.getName(), source.getClassName());
+      assertEquals("caches_locations_by_call_site", source.getMethodName());
+    }
+
+    // same pattern from two call sites
+    assertEquals(sources.get(0).getLineNumber() + 1, sources.get(1).getLineNumber());
+    assertSame(sources.get(0), sources.get(2));
+    assertSame(sources.get(1), sources.get(3));
+  }
+
+  @Test
+  public void cached_locations_match_full_locations() {
+    RecordingAppender cached = new RecordingAppender();
+    RecordingAppender full = new RecordingAppender();
+    Logger cachedLogger = logger(cached, LocationCapture.CACHED);
+    Logger fullLogger = logger(full, LocationCapture.FULL);
+    for (int i = 0; i < 2; i++) {
+      log(cachedLogger, i);
+      log(fullLogger, i);
+    }
+
+    assertEquals(full.sources, cached.sources);
+    assertEquals("log", cached.sources.get(0).getMethodName());
+  }
+
+  @Test
+  public void skips_locations_if_disabled() {
+    RecordingAppender appender = new RecordingAppender();
+    logger(appender, LocationCapture.NONE).info("pattern {}", 0);
+    assertNull(appender.sources.get(0));
+  }
+
+  @Test
+  public void copies_mdc_into_owned_storage() {
+    RecordingAppender appender = new RecordingAppender();
+    Logger logger = logger(appender, LocationCapture.NONE);
+    try {
+      MDC.put("a", 1);
+      logger.info("pattern {}", 0);
+      MDC.put("b", 2);
+      logger.info("pattern {}", 1);
+      MDC.remove("a");
+      logger.info("pattern {}", 2);
+    } finally {
+      MDC.clear();
+    }
+
+    assertEquals(3, appender.mdcs.size());
+    assertEquals("{a=1}", appender.mdcStrings.get(0));
+    assertEquals("{a=1,b=2}", appender.mdcStrings.get(1));
+    assertEquals("{b=2}", appender.mdcStrings.get(2));
+    for (StringMap mdc : appender.mdcs) assertNotSame(MDC.map(), mdc);
+  }
+
+  @Test
+  public void set_tracks_dirty_depth() {
+    StringMap mdc = new StringMap();
+    StringMap copy = StringMap.frozen();
+    mdc.put("a", "1");
+    mdc.put("b", "2");
+    copy.set(mdc);
+    assertEquals(0, copy.getDirtyDepth());
+
+    copy.set(mdc);
+    assertEquals(2, copy.getDirtyDepth());
+    assertTrue(copy.contentEquals(mdc));
+
+    mdc.put("b", "3");
+    copy.set(mdc);
+    assertEquals(1, copy.getDirtyDepth());
+    assertEquals("{a=1,b=3}", copy.toString());
+
+    mdc.remove("b");
+    copy.set(mdc);
+    assertEquals(1, copy.size());
+    assertEquals("{a=1}", copy.toString());
+  }
+}
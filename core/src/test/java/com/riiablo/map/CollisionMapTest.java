@@ -0,0 +1,137 @@
+package com.riiablo.map;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.badlogic.gdx.utils.Array;
+
+import com.riiablo.map.Map.Zone;
+
+public class CollisionMapTest {
+  private static final int WALK = DT1.Tile.FLAG_BLOCK_WALK;
+  private static final int LOS = DT1.Tile.FLAG_BLOCK_LIGHT_LOS;
+
+  private static Zone zone(int x, int y, int width, int height) {
+    Zone zone = new Zone();
+    zone.width = width;
+    zone.height = height;
+    zone.flags = new byte[width * height];
+    zone.setPosition(x, y);
+    return zone;
+  }
+
+  private static CollisionMap build(Zone... zones) {
+    CollisionMap collision = new CollisionMap();
+    collision.build(new Array<>(zones));
+    return collision;
+  }
+
+  @Test
+  public void matches_zone_flags() {
+    Zone a = zone(-10, 0, 100, 40);
+    Zone b = zone(90, 5, 70, 20);
+    a.or(3, 4, WALK);
+    a.or(64, 7, WALK | LOS);
+    a.or(99, 39, LOS);
+    b.or(0, 0, 1 << 7);
+    CollisionMap collision = build(a, b);
+    for (int y = -5; y < 50; y++) {
+      for (int x = -20; x < 170; x++) {
+        int expected = a.contains(x, y) ? a.flags(x - a.x, y - a.y)
+            : b.contains(x, y) ? b.flags(x - b.x, y - b.y)
+            : 0xFF;
+        assertEquals(expected, collision.flags(x, y), "(" + x + "," + y + ")");
+        assertEquals(expected != 0, collision.occupied(x, y, 0xFF));
+      }
+    }
+  }
+
+  @Test
+  public void masks_flag_classes() {
+    Zone zone = zone(0, 0, 200, 20);
+    zone.or(150, 10, LOS);
+    CollisionMap collision = build(zone);
+    assertFalse(collision.occupied(150, 10, WALK));
+    assertTrue(collision.occupied(150, 10, LOS));
+    assertFalse(collision.boxOccupied(0, 0, 200, 20, WALK));
+    assertTrue(collision.boxOccupied(100, 5, 60, 10, LOS));
+    assertFalse(collision.boxOccupied(0, 0, 150, 20, LOS));
+    assertTrue(collision.boxOccupied(190, 0, 20, 1, WALK)); // outside
+  }
+
+  @Test
+  public void mixed_flag_subtiles() {
+    Zone zone = zone(0, 0, 100, 20);
+    zone.or(10, 10, WALK);
+    zone.or(70, 10, LOS);
+    zone.or(80, 10, WALK | LOS);
+    CollisionMap collision = build(zone);
+    assertEquals(WALK | LOS, collision.flags(80, 10));
+    assertTrue(collision.occupied(10, 10, WALK));
+    assertFalse(collision.occupied(10, 10, LOS));
+    assertFalse(collision.occupied(70, 10, WALK));
+    assertTrue(collision.occupied(70, 10, LOS));
+    assertTrue(collision.occupied(80, 10, WALK));
+    assertTrue(collision.occupied(80, 10, LOS));
+    assertTrue(collision.occupied(80, 10, WALK | LOS));
+    assertFalse(collision.occupied(80, 10, 1 << 7));
+    assertTrue(collision.lineOccupied(0, 10, 99, 10, WALK, 0));
+    assertFalse(collision.lineOccupied(20, 10, 99, 10, 1 << 7, 0));
+    assertFalse(collision.lineOccupied(20, 10, 75, 10, WALK, 0));
+    assertTrue(collision.lineOccupied(20, 10, 75, 10, LOS, 0));
+  }
+
+  @Test
+  public void share_copies_stripes_on_write() {
+    Zone zone = zone(0, 0, 100, 20);
+    zone.or(10, 2, WALK);
+    CollisionMap template = build(zone);
+    CollisionMap collision = new CollisionMap();
+    collision.share(template);
+    assertTrue(collision.isBuilt());
+    assertEquals(WALK, collision.flags(10, 2));
+
+    collision.or(12, 3, WALK);  // same stripe as the template's flag
+    collision.or(50, 15, LOS);  // plane the template never allocated
+    assertTrue(collision.occupied(12, 3, WALK));
+    assertTrue(collision.occupied(10, 2, WALK));
+    assertTrue(collision.occupied(50, 15, LOS));
+    assertFalse(template.occupied(12, 3, WALK));
+    assertFalse(template.occupied(50, 15, LOS));
+    assertTrue(template.occupied(10, 2, WALK));
+
+    // copied stripes are written in place
+    collision.or(14, 3, WALK);
+    assertTrue(collision.occupied(14, 3, WALK));
+    assertFalse(template.occupied(14, 3, WALK));
+  }
+
+  @Test
+  public void or_updates() {
+    Zone zone = zone(0, 0, 100, 100);
+    CollisionMap collision = build(zone);
+    assertFalse(collision.boxOccupied(0, 0, 100, 100, WALK));
+    collision.or(70, 33, WALK);
+    assertTrue(collision.occupied(70, 33, WALK));
+    assertTrue(collision.boxOccupied(60, 30, 20, 5, WALK));
+    assertFalse(collision.boxOccupied(0, 0, 70, 100, WALK));
+  }
+
+  @Test
+  public void line_occupancy() {
+    Zone zone = zone(0, 0, 100, 100);
+    zone.or(50, 50, WALK);
+    CollisionMap collision = build(zone);
+    assertTrue(collision.lineOccupied(10, 10, 90, 90, WALK, 0));
+    assertTrue(collision.lineOccupied(90, 90, 10, 10, WALK, 0));
+    assertTrue(collision.lineOccupied(0, 50, 99, 50, WALK, 0));
+    assertTrue(collision.lineOccupied(50, 0, 50, 99, WALK, 0));
+    assertFalse(collision.lineOccupied(10, 20, 90, 20, WALK, 0));
+    assertTrue(collision.lineOccupied(10, 90, 90, 10, WALK, 0));
+    assertFalse(collision.lineOccupied(10, 80, 80, 10, WALK, 0));
+    assertFalse(collision.lineOccupied(0, 52, 99, 52, WALK, 0));
+    assertTrue(collision.lineOccupied(0, 52, 99, 52, WALK, 3));
+    assertFalse(collision.lineOccupied(60, 60, 60, 60, WALK, 0));
+    assertTrue(collision.lineOccupied(90, 90, 120, 90, WALK, 0)); // leaves the zone
+  }
+}
@@ -0,0 +1,236 @@
+package com.riiablo.map;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+
+import com.riiablo.map.Map.Zone;
+import com.riiablo.map.pfa.AStarPathFinder;
+import com.riiablo.map.pfa.GraphPath;
+import com.riiablo.map.pfa.HierarchicalPathFinder;
+import com.riiablo.map.pfa.IntAStarPathFinder;
+
+import static com.riiablo.map.pfa.IntAStarPathFinder.unpackX;
+import static com.riiablo.map.pfa.IntAStarPathFinder.unpackY;
+
+/**
+ * The zone is divided into 4 clusters of 40x40 subtiles by walls along
+ * {@code x = 39} and {@code y = 39}. The top clusters are connected by a gap
+ * in the vertical wall, the right clusters by a gap in the horizontal wall,
+ * the bottom-left cluster is closed off, and the top-left cluster contains
+ * a closed pocket around {@link #POCKET}.
+ */
+public class HierarchicalPathFinderTest {
+  static final int WALK = DT1.Tile.FLAG_BLOCK_WALK;
+  static final int LOS = DT1.Tile.FLAG_BLOCK_LIGHT_LOS;
+  static final int GRID_SIZE = 8; // tiles, s.t. clusters are 40 subtiles
+  static final int SIZE = 2 * GRID_SIZE * DT1.Tile.SUBTILE_SIZE;
+  static final int WALL = SIZE / 2 - 1;
+
+  static final int[] POCKET = {20, 20};
+
+  /** x,y pairs: top-left, pocket, top-right, bottom-right and bottom-left */
+  static final int[] POINTS = {
+       5,  5,   30, 30,
+      20, 20,
+      45,  5,   70, 30,
+      50, 50,   75, 75,
+      10, 60,   35, 45,
+  };
+
+  Map map;
+  Zone zone;
+  HierarchicalPathFinder finder;
+
+  @BeforeEach
+  public void before() {
+    map = new Map(0, 0);
+    zone = new Zone();
+    zone.map = map;
+    zone.gridSizeX = zone.gridSizeY = GRID_SIZE;
+    zone.gridsX = zone.gridsY = 2;
+    zone.width = zone.height = SIZE;
+    zone.flags = new byte[SIZE * SIZE];
+    zone.setPosition(0, 0);
+    map.zones.add(zone);
+    map.indexZones();
+
+    for (int i = 0; i < SIZE; i++) {
+      zone.or(WALL, i, WALK);
+      zone.or(i, WALL, WALK);
+    }
+
+    clear(WALL, 10, 1, 3);
+    clear(60, WALL, 3, 1);
+    for (int y = -2; y <= 2; y++) {
+      for (int x = -2; x <= 2; x++) {
+        if (Math.max(Math.abs(x), Math.abs(y)) == 2) zone.or(POCKET[0] + x, POCKET[1] + y, WALK);
+      }
+    }
+
+    finder = map.getHierarchicalPathFinder();
+    finder.build();
+  }
+
+  void clear(int x, int y, int width, int height) {
+    for (int dy = 0; dy < height; dy++) {
+      for (int dx = 0; dx < width; dx++) {
+        zone.flags[(y + dy) * SIZE + x + dx] = 0;
+      }
+    }
+  }
+
+  /** @return whether the specified points are connected, by flood fill */
+  boolean reachable(int srcX, int srcY, int dstX, int dstY) {
+    if (zone.flags(srcX, srcY) != 0 || zone.flags(dstX, dstY) != 0) return false;
+    final boolean[] visited = new boolean[SIZE * SIZE];
+    final IntArray queue = new IntArray();
+    queue.add(srcY * SIZE + srcX);
+    visited[srcY * SIZE + srcX] = true;
+    for (int i = 0; i < queue.size; i++) {
+      final int cell = queue.get(i);
+      final int x = cell % SIZE;
+      final int y = cell / SIZE;
+      if (x == dstX && y == dstY) return true;
+      for (int dy = -1; dy <= 1; dy++) {
+        for (int dx = -1; dx <= 1; dx++) {
+          final int nx = x + dx, ny = y + dy;
+          if (nx < 0 || nx >= SIZE || ny < 0 || ny >= SIZE) continue;
+          final int neighbor = ny * SIZE + nx;
+          if (visited[neighbor] || zone.flags(nx, ny) != 0) continue;
+          visited[neighbor] = true;
+          queue.add(neighbor);
+        }
+      }
+    }
+
+    return false;
+  }
+
+  void assertValidPath(int srcX, int srcY, int dstX, int dstY, IntArray path) {
+    assertTrue(path.size > 0);
+    assertEquals(IntAStarPathFinder.pack(srcX, srcY), path.first());
+    assertEquals(IntAStarPathFinder.pack(dstX, dstY), path.peek());
+    for (int i = 0; i < path.size; i++) {
+      final int x = unpackX(path.get(i));
+      final int y = unpackY(path.get(i));
+      assertEquals(0, zone.flags(x, y) & WALK, "(" + x + "," + y + ")");
+      if (i == 0) continue;
+      final int dx = Math.abs(x - unpackX(path.get(i - 1)));
+      final int dy = Math.abs(y - unpackY(path.get(i - 1)));
+      assertTrue(dx <= 1 && dy <= 1 && dx + dy > 0, "(" + x + "," + y + ")");
+    }
+  }
+
+  static boolean passes(IntArray path, int x, int y, int width, int height) {
+    for (int i = 0; i < path.size; i++) {
+      final int px = unpackX(path.get(i));
+      final int py = unpackY(path.get(i));
+      if (px >= x && px < x + width && py >= y && py < y + height) return true;
+    }
+
+    return false;
+  }
+
+  @Test
+  public void matches_astar_reachability() {
+    MapGraph graph = new MapGraph(map);
+    AStarPathFinder astar = new AStarPathFinder(graph);
+    GraphPath astarPath = new GraphPath();
+    IntArray path = new IntArray();
+    for (int i = 0; i < POINTS.length; i += 2) {
+      for (int j = 0; j < POINTS.length; j += 2) {
+        if (i == j) continue;
+        final int srcX = POINTS[i], srcY = POINTS[i + 1];
+        final int dstX = POINTS[j], dstY = POINTS[j + 1];
+        final String message = "(" + srcX + "," + srcY + ") -> (" + dstX + "," + dstY + ")";
+        final boolean expected = reachable(srcX, srcY, dstX, dstY);
+        final boolean found = finder.search(srcX, srcY, dstX, dstY, WALK, 0, path);
+        assertEquals(expected, found, message);
+        if (found) assertValidPath(srcX, srcY, dstX, dstY, path);
+
+        // A* gives up after a bounded number of expansions, so it may not
+        // find distant paths, but never finds unreachable ones
+        astarPath.clear();
+        if (astar.search(graph.getOrCreate(srcX, srcY), graph.getOrCreate(dstX, dstY), WALK, 0, astarPath)) {
+          assertTrue(found, message);
+        } else {
+          assertFalse(expected && srcX / (WALL + 1) == dstX / (WALL + 1) && srcY / (WALL + 1) == dstY / (WALL + 1), message);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void crosses_cluster_entrances() {
+    IntArray path = new IntArray();
+    assertTrue(finder.search(30, 20, 50, 20, WALK, 0, path));
+    assertValidPath(30, 20, 50, 20, path);
+    assertTrue(passes(path, WALL, 10, 1, 3));
+
+    assertTrue(finder.search(5, 5, 75, 75, WALK, 0, path));
+    assertValidPath(5, 5, 75, 75, path);
+    assertTrue(passes(path, WALL, 10, 1, 3));
+    assertTrue(passes(path, 60, WALL, 3, 1));
+  }
+
+  @Test
+  public void rejects_unreachable() {
+    IntArray path = new IntArray();
+    assertFalse(finder.search(POCKET[0], POCKET[1], 5, 5, WALK, 0, path));
+    assertFalse(finder.search(POCKET[0], POCKET[1], 45, 5, WALK, 0, path));
+    assertFalse(finder.search(10, 60, 50, 50, WALK, 0, path));
+    assertEquals(0, path.size);
+  }
+
+  @Test
+  public void rebuilds_after_flags_change() {
+    IntArray path = new IntArray();
+    for (int y = 10; y < 13; y++) zone.or(WALL, y, WALK);
+    finder.rebuild(zone);
+    assertFalse(finder.search(5, 5, 45, 5, WALK, 0, path));
+
+    clear(WALL, 30, 1, 2);
+    finder.rebuild(zone);
+    assertTrue(finder.search(5, 5, 45, 5, WALK, 0, path));
+    assertValidPath(5, 5, 45, 5, path);
+    assertTrue(passes(path, WALL, 30, 1, 2));
+  }
+
+  @Test
+  public void invalidates_after_map_flags_change() {
+    IntArray path = new IntArray();
+    clear(WALL, 30, 1, 2);
+    finder.rebuild(zone);
+    assertTrue(finder.search(5, 5, 45, 5, WALK, 0, path));
+    assertTrue(passes(path, WALL, 10, 1, 3));
+
+    // blocks the gap at (WALL, 10..12) as a 1x3 object would
+    map.or(new Vector2(WALL + 0.5f, 11.5f), 1, 3, WALK);
+    assertTrue(finder.search(5, 5, 45, 5, WALK, 0, path));
+    assertValidPath(5, 5, 45, 5, path);
+    assertTrue(passes(path, WALL, 30, 1, 2));
+
+    map.or(new Vector2(WALL + 0.5f, 31f), 1, 2, WALK);
+    assertFalse(finder.search(5, 5, 45, 5, WALK, 0, path));
+  }
+
+  @Test
+  public void only_searched_flags_block() {
+    IntArray path = new IntArray();
+    for (int y = 10; y < 13; y++) zone.or(WALL, y, LOS);
+    finder.rebuild(zone);
+    assertTrue(finder.search(5, 5, 45, 5, WALK, 0, path));
+    assertValidPath(5, 5, 45, 5, path);
+    assertTrue(passes(path, WALL, 10, 1, 3));
+    assertFalse(finder.search(5, 5, 45, 5, WALK | LOS, 0, path));
+
+    // graphs built for other flags are rebuilt too
+    clear(WALL, 10, 1, 3);
+    finder.rebuild(zone);
+    assertTrue(finder.search(5, 5, 45, 5, WALK | LOS, 0, path));
+    assertValidPath(5, 5, 45, 5, path);
+  }
+}
@@ -0,0 +1,148 @@
+package com.riiablo.map;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+
+import com.riiablo.map.Map.Zone;
+import com.riiablo.map.pfa.AStarPathFinder;
+import com.riiablo.map.pfa.GraphPath;
+import com.riiablo.map.pfa.IntAStarPathFinder;
+import com.riiablo.map.pfa.Point2;
+
+import static com.riiablo.map.pfa.IntAStarPathFinder.unpackX;
+import static com.riiablo.map.pfa.IntAStarPathFinder.unpackY;
+
+public class IntAStarPathFinderTest {
+  static final int WALK = DT1.Tile.FLAG_BLOCK_WALK;
+  static final int LOS = DT1.Tile.FLAG_BLOCK_LIGHT_LOS;
+  static final float EPSILON = 1e-3f;
+
+  Map map;
+
+  @BeforeEach
+  public void before() {
+    map = new Map(0, 0);
+  }
+
+  Zone zone(int x, int y, int width, int height) {
+    Zone zone = new Zone();
+    zone.map = map;
+    zone.width = width;
+    zone.height = height;
+    zone.flags = new byte[width * height];
+    zone.setPosition(x, y);
+    map.zones.add(zone);
+    map.indexZones();
+    return zone;
+  }
+
+  static float cost(IntArray path) {
+    float cost = 0;
+    for (int i = 1; i < path.size; i++) {
+      final int dx = unpackX(path.get(i)) - unpackX(path.get(i - 1));
+      final int dy = unpackY(path.get(i)) - unpackY(path.get(i - 1));
+      cost += dx != 0 && dy != 0 ? (float) Math.sqrt(2) : 1f;
+    }
+
+    return cost;
+  }
+
+  static float cost(GraphPath path) {
+    float cost = 0;
+    for (int i = 1; i < path.getCount(); i++) {
+      final Point2 a = path.get(i - 1), b = path.get(i);
+      cost += a.x != b.x && a.y != b.y ? (float) Math.sqrt(2) : 1f;
+    }
+
+    return cost;
+  }
+
+  @Test
+  public void matches_astar() {
+    // fewer walkable subtiles than either search expands, s.t. neither gives up
+    zone(0, 0, 14, 10);
+    zone(14, 3, 10, 10);
+    Random random = new Random(42);
+    for (Zone zone : map.zones) {
+      for (int y = 0; y < zone.height; y++) {
+        for (int x = 0; x < zone.width; x++) {
+          if (random.nextInt(4) == 0) zone.or(x, y, WALK);
+        }
+      }
+    }
+
+    IntArray points = new IntArray();
+    for (int y = 0; y < 13; y += 2) {
+      for (int x = 0; x < 24; x += 3) {
+        if (map.getZone(x, y) != null && map.flags(x, y) == 0) points.add(x, y);
+      }
+    }
+
+    MapGraph graph = new MapGraph(map);
+    AStarPathFinder astar = new AStarPathFinder(graph);
+    IntAStarPathFinder intAStar = new IntAStarPathFinder(map);
+    GraphPath expected = new GraphPath();
+    IntArray actual = new IntArray();
+    int found = 0;
+    for (int i = 0; i < points.size; i += 2) {
+      for (int j = 0; j < points.size; j += 2) {
+        final int srcX = points.get(i), srcY = points.get(i + 1);
+        final int dstX = points.get(j), dstY = points.get(j + 1);
+        final String message = "(" + srcX + "," + srcY + ") -> (" + dstX + "," + dstY + ")";
+        expected.clear();
+        final boolean astarFound = astar.search(
+            graph.getOrCreate(srcX, srcY), graph.getOrCreate(dstX, dstY), WALK, 0, expected);
+        final boolean intAStarFound = intAStar.search(srcX, srcY, dstX, dstY, WALK, 0, actual);
+        assertEquals(astarFound, intAStarFound, message);
+        if (!astarFound) continue;
+        assertEquals(cost(expected), cost(actual), EPSILON, message);
+        if (i != j) found++;
+      }
+    }
+
+    assertTrue(found > 0);
+  }
+
+  @Test
+  public void crosses_zones() {
+    zone(0, 0, 10, 10);
+    zone(10, 0, 10, 10);
+    // zones far apart should only size the search to the zones themselves
+    zone(1 << 12, 1 << 12, 10, 10);
+    IntAStarPathFinder finder = new IntAStarPathFinder(map);
+    IntArray path = new IntArray();
+    assertTrue(finder.search(2, 5, 17, 5, WALK, 0, path));
+    assertEquals(16, path.size);
+    assertEquals(15f, cost(path), EPSILON);
+    assertFalse(finder.search(2, 5, (1 << 12) + 5, (1 << 12) + 5, WALK, 0, path));
+    assertTrue(finder.search((1 << 12) + 2, (1 << 12) + 2, (1 << 12) + 7, (1 << 12) + 2, WALK, 0, path));
+  }
+
+  @Test
+  public void only_searched_flags_block() {
+    Zone zone = zone(0, 0, 10, 10);
+    for (int y = 0; y < zone.height; y++) zone.or(5, y, LOS);
+    IntAStarPathFinder finder = new IntAStarPathFinder(map);
+    IntArray path = new IntArray();
+    assertTrue(finder.search(2, 5, 8, 5, WALK, 0, path));
+    assertEquals(6f, cost(path), EPSILON);
+    assertFalse(finder.search(2, 5, 8, 5, WALK | LOS, 0, path));
+
+    MapGraph graph = new MapGraph(map);
+    AStarPathFinder astar = new AStarPathFinder(graph);
+    GraphPath expected = new GraphPath();
+    assertTrue(graph.isWalkable(5, 5, WALK));
+    assertFalse(graph.isWalkable(5, 5, LOS));
+    assertTrue(astar.search(graph.getOrCreate(2, 5), graph.getOrCreate(8, 5), WALK, 2, expected));
+    assertEquals(6f, cost(expected), EPSILON);
+    expected.clear();
+    assertFalse(astar.search(graph.getOrCreate(2, 5), graph.getOrCreate(8, 5), WALK | LOS, 0, expected));
+    assertTrue(map.findPath(new Vector2(2, 5), new Vector2(5, 5), WALK, 0, expected));
+    assertFalse(map.findPath(new Vector2(2, 5), new Vector2(5, 5), WALK | LOS, 0, expected));
+  }
+}
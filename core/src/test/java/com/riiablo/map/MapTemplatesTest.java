@@ -0,0 +1,184 @@
+package com.riiablo.map;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.badlogic.gdx.math.Vector2;
+
+import com.riiablo.codec.excel.LvlTypes;
+import com.riiablo.map.Map.Preset;
+import com.riiablo.map.Map.Zone;
+import com.riiablo.map2.random.Random;
+
+public class MapTemplatesTest {
+  static final int SEED = 42;
+  static final int NUM_ZONES = 3;
+  static final int GRID_SIZE = 8;
+  static final int GRIDS = 2;
+  static final int WALK = DT1.Tile.FLAG_BLOCK_WALK;
+
+  static ForkJoinPool pool;
+
+  @BeforeAll
+  public static void setup() {
+    pool = new ForkJoinPool(2);
+  }
+
+  @AfterAll
+  public static void teardown() {
+    pool.shutdown();
+  }
+
+  /** blocks random subtiles and defers recording a spawn per grid */
+  static final class BlockingGenerator implements Zone.Generator {
+    final List<String> spawns;
+
+    BlockingGenerator(List<String> spawns) {
+      this.spawns = spawns;
+    }
+
+    @Override
+    public void init(Zone zone) {}
+
+    @Override
+    public void generate(Zone zone, DT1s dt1s, Random random, int tx, int ty) {
+      final int x0 = tx * DT1.Tile.SUBTILE_SIZE;
+      final int y0 = ty * DT1.Tile.SUBTILE_SIZE;
+      final int size = zone.gridSizeX * DT1.Tile.SUBTILE_SIZE;
+      for (int y = 0; y < size; y++) {
+        for (int x = 0; x < size; x++) {
+          if (random.nextInt(8) == 0) zone.or(x0 + x, y0 + y, WALK);
+        }
+      }
+
+      final String spawn = zone.getX() + "," + tx + "," + ty + "," + random.nextInt(size);
+      zone.defer(z -> spawns.add(spawn));
+    }
+  }
+
+  static Map generate(MapTemplates templates, List<String> spawns) {
+    Map map = new Map(SEED, 0);
+    map.setTemplates(templates);
+    LvlTypes.Entry type = new LvlTypes.Entry();
+    for (int i = 0; i < NUM_ZONES; i++) {
+      Zone zone = new Zone();
+      zone.map = map;
+      zone.type = type;
+      zone.gridSizeX = zone.gridSizeY = GRID_SIZE;
+      zone.gridsX = zone.gridsY = GRIDS;
+      zone.tilesX = zone.tilesY = GRID_SIZE * GRIDS;
+      zone.width = zone.height = zone.tilesX * DT1.Tile.SUBTILE_SIZE;
+      zone.flags = Zone.obtainByteArray(zone.width * zone.height);
+      zone.presets = new Preset[GRIDS][GRIDS];
+      zone.generator = new BlockingGenerator(spawns);
+      zone.setPosition(i * zone.width, 0);
+      map.zones.add(zone);
+    }
+
+    map.random.setSeed(SEED);
+    map.seedZones();
+    map.generate(pool);
+    return map;
+  }
+
+  static int countFlags(Map map) {
+    int count = 0;
+    for (Zone zone : map.zones) {
+      for (int y = 0; y < zone.height; y++) {
+        for (int x = 0; x < zone.width; x++) {
+          if (zone.flags(x, y) != 0) count++;
+        }
+      }
+    }
+
+    return count;
+  }
+
+  @Test
+  public void shares_tiles_and_flags() {
+    MapTemplates templates = new MapTemplates();
+    List<String> expectedSpawns = new ArrayList<>();
+    List<String> spawns = new ArrayList<>();
+    Map a = generate(templates, expectedSpawns);
+    Map b = generate(templates, spawns);
+    assertEquals(1, templates.size());
+    assertSame(a.template, b.template);
+    for (int i = 0; i < NUM_ZONES; i++) {
+      Zone zoneA = a.zones.get(i);
+      Zone zoneB = b.zones.get(i);
+      assertTrue(zoneA.isShared());
+      assertTrue(zoneB.isShared());
+      assertSame(zoneA.flags, zoneB.flags);
+      assertSame(zoneA.tiles[Map.FLOOR_OFFSET], zoneB.tiles[Map.FLOOR_OFFSET]);
+    }
+
+    assertFalse(expectedSpawns.isEmpty());
+    assertEquals(expectedSpawns, spawns);
+    assertTrue(b.collision().isBuilt());
+    a.dispose();
+    b.dispose();
+  }
+
+  @Test
+  public void flags_are_copied_on_write() {
+    MapTemplates templates = new MapTemplates();
+    List<String> spawns = new ArrayList<>();
+    Map a = generate(templates, spawns);
+    Map b = generate(templates, spawns);
+    final int count = countFlags(a);
+
+    Zone zone = b.zones.get(1);
+    int x = -1, y = 0;
+    for (int i = 0; x == -1; i++) {
+      if (zone.flags(i % zone.width, i / zone.width) == 0) {
+        x = i % zone.width;
+        y = i / zone.width;
+      }
+    }
+
+    final int worldX = zone.getGlobalX(x);
+    final int worldY = zone.getGlobalY(y);
+    b.or(new Vector2(worldX, worldY), 1, 1, WALK);
+    assertEquals(WALK, b.flags(worldX, worldY));
+    assertTrue(b.collision().occupied(worldX, worldY, WALK));
+    assertEquals(0, a.flags(worldX, worldY));
+    assertFalse(a.collision().occupied(worldX, worldY, WALK));
+    assertEquals(count, countFlags(a));
+    assertEquals(count + 1, countFlags(b));
+    a.dispose();
+    b.dispose();
+  }
+
+  @Test
+  public void evicts_idle_templates() {
+    MapTemplates templates = new MapTemplates(0);
+    List<String> spawns = new ArrayList<>();
+    Map a = generate(templates, spawns);
+    Map b = generate(templates, spawns);
+    a.dispose();
+    assertEquals(1, templates.size());
+    b.dispose();
+    assertEquals(0, templates.size());
+
+    templates = new MapTemplates(1);
+    a = generate(templates, spawns);
+    MapTemplate template = a.template;
+    a.dispose();
+    assertEquals(1, templates.idle());
+    b = generate(templates, spawns);
+    assertSame(template, b.template);
+    assertEquals(0, templates.idle());
+    b.dispose();
+    templates.clear();
+    assertEquals(0, templates.size());
+  }
+
+  @Test
+  public void rejects_negative_max_idle() {
+    assertThrows(IllegalArgumentException.class, () -> new MapTemplates(-1));
+  }
+}
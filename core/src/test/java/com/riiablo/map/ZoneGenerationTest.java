@@ -0,0 +1,159 @@
+package com.riiablo.map;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.riiablo.codec.excel.LvlTypes;
+import com.riiablo.map.Map.Preset;
+import com.riiablo.map.Map.Zone;
+import com.riiablo.map2.random.Random;
+
+public class ZoneGenerationTest {
+  static final int NUM_ZONES = 8;
+  static final int GRID_SIZE = 8;
+  static final int GRIDS = 4;
+  static final DT1.Tile[] TILES = new DT1.Tile[4];
+  static {
+    try {
+      for (int i = 0; i < TILES.length; i++) {
+        TILES[i] = new DT1.Tile(new ByteArrayInputStream(new byte[DT1.Tile.SIZE]));
+      }
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /** sets random floor tiles and flags and defers recording random spawns */
+  static final class NoiseGenerator implements Zone.Generator {
+    final List<String> spawns;
+
+    NoiseGenerator(List<String> spawns) {
+      this.spawns = spawns;
+    }
+
+    @Override
+    public void init(Zone zone) {}
+
+    @Override
+    public void generate(Zone zone, DT1s dt1s, Random random, int tx, int ty) {
+      final int x0 = tx * DT1.Tile.SUBTILE_SIZE;
+      final int y0 = ty * DT1.Tile.SUBTILE_SIZE;
+      final int size = zone.gridSizeX * DT1.Tile.SUBTILE_SIZE;
+      final DT1.Tile[] floor = zone.getLayer(Map.FLOOR_OFFSET);
+      for (int y = 0; y < zone.gridSizeY; y++) {
+        for (int x = 0; x < zone.gridSizeX; x++) {
+          floor[zone.tileIndex(tx + x, ty + y)] = TILES[random.nextInt(TILES.length)];
+        }
+      }
+
+      for (int y = 0; y < size; y++) {
+        for (int x = 0; x < size; x++) {
+          if (random.nextInt(4) == 0) zone.or(x0 + x, y0 + y, random.nextInt(0x100));
+        }
+      }
+
+      if (random.nextBoolean()) {
+        final String spawn = zone.getX() + "," + random.nextInt(size) + "," + random.nextInt(size);
+        zone.defer(z -> spawns.add(spawn));
+      }
+    }
+  }
+
+  static Map generate(int seed, ForkJoinPool pool, List<String> spawns) {
+    return generate(seed, pool, spawns, true);
+  }
+
+  static Map generate(int seed, ForkJoinPool pool, List<String> spawns, boolean spawnEntities) {
+    Map map = new Map(seed, 0);
+    map.setSpawnEntities(spawnEntities);
+    LvlTypes.Entry type = new LvlTypes.Entry();
+    for (int i = 0; i < NUM_ZONES; i++) {
+      Zone zone = new Zone();
+      zone.map = map;
+      zone.type = type;
+      zone.gridSizeX = zone.gridSizeY = GRID_SIZE;
+      zone.gridsX = zone.gridsY = GRIDS;
+      zone.tilesX = zone.tilesY = GRID_SIZE * GRIDS;
+      zone.width = zone.height = zone.tilesX * DT1.Tile.SUBTILE_SIZE;
+      zone.flags = new byte[zone.width * zone.height];
+      zone.presets = new Preset[GRIDS][GRIDS];
+      zone.generator = new NoiseGenerator(spawns);
+      zone.setPosition(i * zone.width, 0);
+      map.zones.add(zone);
+    }
+
+    map.random.setSeed(seed);
+    map.seedZones();
+    map.generate(pool);
+    return map;
+  }
+
+  static void assertIdentical(Map expected, Map actual) {
+    assertEquals(expected.zones.size, actual.zones.size);
+    for (int i = 0; i < expected.zones.size; i++) {
+      Zone a = expected.zones.get(i), b = actual.zones.get(i);
+      assertArrayEquals(a.flags, b.flags, "zone " + i);
+      for (int layer = 0; layer < Map.MAX_LAYERS; layer++) {
+        assertArrayEquals(a.getLayer(layer), b.getLayer(layer), "zone " + i + " layer " + layer);
+      }
+    }
+  }
+
+  @Test
+  public void parallel_matches_sequential() {
+    ForkJoinPool sequential = new ForkJoinPool(1);
+    ForkJoinPool parallel = new ForkJoinPool(4);
+    try {
+      List<String> expectedSpawns = new ArrayList<>();
+      Map expected = generate(42, sequential, expectedSpawns);
+      assertFalse(expectedSpawns.isEmpty());
+      for (int i = 0; i < 4; i++) {
+        List<String> spawns = new ArrayList<>();
+        Map actual = generate(42, parallel, spawns);
+        assertIdentical(expected, actual);
+        assertEquals(expectedSpawns, spawns);
+      }
+    } finally {
+      sequential.shutdown();
+      parallel.shutdown();
+    }
+  }
+
+  @Test
+  public void skipping_spawns_matches_layout() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<String> spawns = new ArrayList<>();
+      Map expected = generate(42, pool, new ArrayList<>());
+      Map actual = generate(42, pool, spawns, false);
+      assertIdentical(expected, actual);
+      assertTrue(spawns.isEmpty());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void seed_changes_output() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Map a = generate(1, pool, new ArrayList<>());
+      Map b = generate(2, pool, new ArrayList<>());
+      boolean same = true;
+      for (int i = 0; same && i < NUM_ZONES; i++) {
+        same = Arrays.equals(a.zones.get(i).flags, b.zones.get(i).flags);
+      }
+
+      assertFalse(same);
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
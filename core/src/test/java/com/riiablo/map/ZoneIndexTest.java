@@ -0,0 +1,81 @@
+package com.riiablo.map;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.badlogic.gdx.utils.Array;
+
+import com.riiablo.map.Map.Zone;
+
+public class ZoneIndexTest {
+  private static Zone zone(int x, int y, int width, int height) {
+    Zone zone = new Zone();
+    zone.width = width;
+    zone.height = height;
+    zone.setPosition(x, y);
+    return zone;
+  }
+
+  private static Zone scan(Array<Zone> zones, int x, int y) {
+    for (Zone zone : zones) if (zone.contains(x, y)) return zone;
+    return null;
+  }
+
+  private static void assertMatchesScan(Array<Zone> zones, ZoneIndex index) {
+    for (int y = -30; y < 130; y++) {
+      for (int x = -30; x < 130; x++) {
+        assertSame(scan(zones, x, y), index.get(x, y), "(" + x + "," + y + ")");
+      }
+    }
+  }
+
+  @Test
+  public void tile_aligned() {
+    Array<Zone> zones = new Array<>();
+    zones.add(zone(0, 0, 50, 50));
+    zones.add(zone(50, 0, 40, 25));
+    zones.add(zone(-20, -25, 20, 25));
+    ZoneIndex index = new ZoneIndex();
+    index.build(zones);
+    assertTrue(index.valid);
+    assertMatchesScan(zones, index);
+  }
+
+  @Test
+  public void unaligned_and_overlapping() {
+    Array<Zone> zones = new Array<>();
+    zones.add(zone(0, 0, 33, 47));
+    zones.add(zone(33, 3, 21, 18));
+    zones.add(zone(40, 10, 30, 30)); // overlaps the previous zone
+    zones.add(zone(-7, 60, 11, 13));
+    ZoneIndex index = new ZoneIndex();
+    index.build(zones, 8);
+    assertMatchesScan(zones, index);
+  }
+
+  @Test
+  public void coarsens_sparse() {
+    Array<Zone> zones = new Array<>();
+    zones.add(zone(0, 0, 50, 50));
+    zones.add(zone(100000, 100000, 50, 50));
+    ZoneIndex index = new ZoneIndex();
+    index.build(zones);
+    assertTrue((long) index.cols * index.rows <= ZoneIndex.MAX_CELLS);
+    assertSame(zones.get(0), index.get(10, 10));
+    assertSame(zones.get(1), index.get(100010, 100010));
+    assertNull(index.get(50000, 50000));
+  }
+
+  @Test
+  public void invalidated_by_moving_zones() {
+    Map map = new Map(0, 0);
+    Zone zone = zone(0, 0, 50, 50);
+    zone.map = map;
+    map.zones.add(zone);
+    map.indexZones();
+    assertSame(zone, map.getZone(10, 10));
+    zone.setPosition(100, 100);
+    assertNull(map.getZone(10, 10));
+    assertSame(zone, map.getZone(110, 110));
+  }
+}
@@ -0,0 +1,152 @@
+package com.riiablo.map2;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import com.riiablo.map2.random.Random;
+import com.riiablo.map2.random.Seed;
+import com.riiablo.map2.util.ZoneGraph;
+
+import static com.riiablo.map2.DT1.Tile.SUBTILE_SIZE;
+
+class ChunkStreamerTest {
+  static final int CHUNK_SIZE = 8; // tiles
+  static final int CHUNK_SUBTILES = CHUNK_SIZE * SUBTILE_SIZE;
+  static final int CHUNKS = 8;
+  static final int ZONE_SIZE = CHUNKS * CHUNK_SUBTILES;
+
+  /** fills chunks with random flags */
+  static final NoiseGenerator NOISE = new NoiseGenerator();
+
+  static final class NoiseGenerator implements ChunkStreamer.Generator {
+    @Override
+    public void generate(Zone zone, Chunk chunk, Random random) {
+      final byte[] flags = chunk.flags;
+      for (int i = 0, s = chunk.width * chunk.height; i < s; i++) {
+        flags[i] = (byte) random.nextInt(0x100);
+      }
+    }
+  }
+
+  ZoneGraph zones;
+  Zone zone;
+
+  @BeforeEach
+  void before() {
+    zones = new ZoneGraph();
+    zone = zones.claim("zone", 0, 0, ZONE_SIZE, ZONE_SIZE, CHUNK_SIZE, CHUNK_SIZE, true);
+  }
+
+  @AfterEach
+  void after() {
+    zones.dispose();
+  }
+
+  ChunkStreamer newInstance(int loadRadius, int evictRadius) {
+    return new ChunkStreamer(zones, Seed.fixed(), NOISE, loadRadius, evictRadius);
+  }
+
+  static void updateAll(ChunkStreamer streamer) {
+    do streamer.update(); while (streamer.pendingChunks() > 0);
+  }
+
+  @Test
+  void streamed_zones_start_empty() {
+    assertEquals(0, zone.residentChunks());
+    assertEquals(CHUNKS * CHUNKS, zone.chunks.size);
+    assertFalse(zone.isResident(0, 0));
+  }
+
+  @Test
+  void loads_nearest_within_budget() {
+    ChunkStreamer streamer = newInstance(CHUNK_SUBTILES, CHUNK_SUBTILES);
+    streamer.setBudget(2);
+    final int x = 3 * CHUNK_SUBTILES + CHUNK_SUBTILES / 2;
+    final int y = 4 * CHUNK_SUBTILES + CHUNK_SUBTILES / 2;
+    streamer.addAnchor(x, y);
+    streamer.update();
+    assertEquals(2, streamer.residentChunks());
+    assertTrue(zone.isResident(3, 4));
+    assertTrue(streamer.pendingChunks() > 0);
+
+    updateAll(streamer);
+    // anchor chunk and the 8 chunks around it
+    assertEquals(9, streamer.residentChunks());
+    assertEquals(9, zone.residentChunks());
+    for (int cy = 3; cy <= 5; cy++) {
+      for (int cx = 2; cx <= 4; cx++) {
+        assertTrue(zone.isResident(cx, cy), "(" + cx + "," + cy + ")");
+      }
+    }
+
+    streamer.dispose();
+    assertEquals(0, zone.residentChunks());
+  }
+
+  @Test
+  void evicts_away_from_anchors() {
+    ChunkStreamer streamer = newInstance(CHUNK_SUBTILES / 2, CHUNK_SUBTILES);
+    streamer.setBudget(Integer.MAX_VALUE);
+    for (int cx = 0; cx < CHUNKS; cx++) {
+      streamer.clearAnchors();
+      streamer.addAnchor(cx * CHUNK_SUBTILES + CHUNK_SUBTILES / 2, CHUNK_SUBTILES / 2);
+      streamer.update();
+      assertTrue(zone.isResident(cx, 0));
+      // chunks within the evict radius: the previous, current and next columns of both rows
+      assertTrue(streamer.residentChunks() <= 6, "resident " + streamer.residentChunks());
+    }
+
+    assertFalse(zone.isResident(0, 0));
+    assertEquals(streamer.generatedChunks() - streamer.evictedChunks(), zone.residentChunks());
+
+    streamer.clearAnchors();
+    streamer.update();
+    assertEquals(0, streamer.residentChunks());
+    assertEquals(0, zone.residentChunks());
+  }
+
+  @Test
+  void regenerates_evicted_chunks() {
+    ChunkStreamer streamer = newInstance(0, 0);
+    streamer.addAnchor(ZONE_SIZE - 1, ZONE_SIZE - 1);
+    streamer.update();
+    Chunk chunk = zone.get(CHUNKS - 1, CHUNKS - 1);
+    assertNotNull(chunk);
+    final byte[] expected = chunk.flags.clone();
+
+    streamer.clearAnchors();
+    streamer.update();
+    assertNull(zone.get(CHUNKS - 1, CHUNKS - 1));
+
+    streamer.addAnchor(ZONE_SIZE - 1, ZONE_SIZE - 1);
+    streamer.update();
+    assertArrayEquals(expected, zone.get(CHUNKS - 1, CHUNKS - 1).flags);
+    streamer.dispose();
+  }
+
+  @Test
+  void chunks_differ_by_position() {
+    ChunkStreamer streamer = newInstance(0, 0);
+    streamer.addAnchor(0, 0);
+    streamer.addAnchor(ZONE_SIZE - 1, 0);
+    streamer.update();
+    assertFalse(Arrays.equals(
+        zone.get(0, 0).flags,
+        zone.get(CHUNKS - 1, 0).flags));
+    streamer.dispose();
+  }
+
+  @Test
+  void rejects_invalid_radius() {
+    assertThrows(IllegalArgumentException.class, () -> newInstance(-1, 0));
+    assertThrows(IllegalArgumentException.class, () -> newInstance(CHUNK_SUBTILES, 0));
+  }
+
+  @Test
+  void rejects_invalid_budget() {
+    ChunkStreamer streamer = newInstance(0, 0);
+    assertThrows(IllegalArgumentException.class, () -> streamer.setBudget(0));
+  }
+}
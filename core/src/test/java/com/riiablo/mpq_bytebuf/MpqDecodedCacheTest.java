@@ -0,0 +1,62 @@
+package com.riiablo.mpq_bytebuf;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+
+class MpqDecodedCacheTest {
+  @TempDir
+  File root;
+
+  static ByteBuf contents(int size) {
+    final ByteBuf buffer = Unpooled.buffer(size, size);
+    for (int i = 0; i < size; i++) buffer.writeByte(i * 31);
+    return buffer;
+  }
+
+  @Test
+  void miss() {
+    MpqDecodedCache cache = new MpqDecodedCache(root);
+    MpqDecodedCache.Archive archive = new MpqDecodedCache.Archive(cache, root, 0L);
+    assertNull(archive.get(0, Mpq.DEFAULT_LOCALE, 0x100));
+    assertEquals(0, cache.hits());
+    assertEquals(1, cache.misses());
+  }
+
+  @Test
+  void put_get() {
+    MpqDecodedCache cache = new MpqDecodedCache(root);
+    MpqDecodedCache.Archive archive = new MpqDecodedCache.Archive(cache, root, 0L);
+    ByteBuf expected = contents(0x1800);
+    archive.put(7, Mpq.DEFAULT_LOCALE, expected, expected.capacity());
+    assertEquals(1, cache.writes());
+    ByteBuf actual = archive.get(7, Mpq.DEFAULT_LOCALE, expected.capacity());
+    assertNotNull(actual);
+    assertEquals(1, cache.hits());
+    assertTrue(ByteBufUtil.equals(expected, actual));
+  }
+
+  @Test
+  void locale_mismatch() {
+    MpqDecodedCache cache = new MpqDecodedCache(root);
+    MpqDecodedCache.Archive archive = new MpqDecodedCache.Archive(cache, root, 0L);
+    ByteBuf expected = contents(0x100);
+    archive.put(7, Mpq.DEFAULT_LOCALE, expected, expected.capacity());
+    assertNull(archive.get(7, (short) 0x409, expected.capacity()));
+    assertEquals(1, cache.misses());
+  }
+
+  @Test
+  void size_mismatch() {
+    MpqDecodedCache cache = new MpqDecodedCache(root);
+    MpqDecodedCache.Archive archive = new MpqDecodedCache.Archive(cache, root, 0L);
+    ByteBuf expected = contents(0x100);
+    archive.put(7, Mpq.DEFAULT_LOCALE, expected, expected.capacity());
+    assertNull(archive.get(7, Mpq.DEFAULT_LOCALE, expected.capacity() + 1));
+  }
+}
@@ -0,0 +1,61 @@
+package com.riiablo.profiler;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogramTest {
+  @Test
+  public void empty_histogram_reports_zero() {
+    Histogram h = new Histogram();
+    assertEquals(0, h.getCount());
+    assertEquals(0f, h.getPercentile(0.99f));
+    assertEquals(0f, h.getMax());
+    assertEquals(0f, h.getAverage());
+  }
+
+  @Test
+  public void samples_bucketed_by_power_of_two_micros() {
+    assertEquals(0, Histogram.bucket(999));
+    assertEquals(1, Histogram.bucket(1000));
+    assertEquals(2, Histogram.bucket(2000));
+    assertEquals(2, Histogram.bucket(3999));
+    assertEquals(3, Histogram.bucket(4000));
+    assertEquals(Histogram.NUM_BUCKETS - 1, Histogram.bucket(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void percentile_is_bucket_upper_bound() {
+    Histogram h = new Histogram();
+    for (int i = 0; i < 99; i++) h.add(1500000); // 1.5ms
+    h.add(40000000); // 40ms
+    assertEquals(100, h.getCount());
+    assertEquals(2.048f, h.getPercentile(0.50f), 1e-6f);
+    assertEquals(2.048f, h.getPercentile(0.99f), 1e-6f);
+    assertEquals(40f, h.getPercentile(1.00f), 1e-6f);
+    assertEquals(40f, h.getMax(), 1e-6f);
+  }
+
+  @Test
+  public void percentile_clamped_to_max() {
+    Histogram h = new Histogram();
+    h.add(1500000);
+    assertEquals(1.5f, h.getPercentile(0.50f), 1e-6f);
+  }
+
+  @Test
+  public void overflow_bucket_reports_max() {
+    Histogram h = new Histogram();
+    h.add(60000000000L); // 60s
+    assertEquals(60000f, h.getPercentile(0.50f), 1e-3f);
+  }
+
+  @Test
+  public void reset_clears_samples() {
+    Histogram h = new Histogram();
+    h.add(1000000);
+    h.reset();
+    assertEquals(0, h.getCount());
+    assertEquals(0, h.getCount(Histogram.bucket(1000000)));
+    assertEquals(0f, h.getMax());
+  }
+}
@@ -19,6 +19,6 @@ public class BinGeneratorTest extends RiiabloTest {
   @Test
   public void generate() {
     FileHandle dstDir = Gdx.files.absolute("C:\\Users\\csmith\\projects\\libgdx\\riiablo\\assets");
-    new BinGenerator().generate(dstDir);
+    new BinGenerator().generate(Gdx.files.internal("test"), dstDir);
   }
 }
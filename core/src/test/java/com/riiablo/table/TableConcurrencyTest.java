@@ -0,0 +1,155 @@
+package com.riiablo.table;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TableConcurrencyTest {
+  static final int NUM_RECORDS = 512;
+  static final int NUM_THREADS = 8;
+  static final int NUM_ITERATIONS = 16;
+
+  static class Record {
+    String name;
+    int value;
+  }
+
+  static class RecordTable extends Table<Record> {
+    final AtomicIntegerArray parses = new AtomicIntegerArray(NUM_RECORDS);
+
+    RecordTable() {
+      super(new Manifest() {
+        @Override
+        public <R> Table<R> inject(Table<R> table, R record) {
+          return table;
+        }
+      }, Record.class, DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, true);
+    }
+
+    @Override
+    protected Record newRecord() {
+      return new Record();
+    }
+
+    @Override
+    protected Parser<Record> newParser(ParserInput parser) {
+      return new Parser<Record>(parser) {
+        int name, value;
+
+        @Override
+        protected Parser<Record> _parseFields(ParserInput parser) {
+          name = parser.fieldId("Name");
+          value = parser.fieldId("Value");
+          return this;
+        }
+
+        @Override
+        protected Record _parseRecord(ParserInput parser, int recordId, Record record) {
+          parses.incrementAndGet(recordId);
+          record.name = parser.parseString(recordId, name);
+          record.value = parser.parseInt(recordId, value);
+          return record;
+        }
+      };
+    }
+
+    @Override
+    protected Serializer<Record> newSerializer() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected String primaryKey() {
+      return "Name";
+    }
+  }
+
+  static RecordTable newTable() {
+    StringBuilder tsv = new StringBuilder("Name\tValue\r\n");
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      tsv.append("record").append(i).append('\t').append(i).append("\r\n");
+    }
+
+    RecordTable table = new RecordTable();
+    Tables.loadTsv(table, TsvParser.parse(tsv.toString().getBytes(StandardCharsets.US_ASCII)));
+    return table;
+  }
+
+  @Test
+  public void index_is_complete_before_records_are_parsed() {
+    RecordTable table = newTable();
+    assertEquals(0, table.size());
+    assertEquals(NUM_RECORDS - 1, table.index("record" + (NUM_RECORDS - 1)));
+    assertEquals(0, table.parses.get(NUM_RECORDS - 1));
+  }
+
+  @Test
+  public void index_ignores_case() {
+    RecordTable table = newTable();
+    assertEquals(54, table.index("record54"));
+    assertEquals(54, table.index("RECORD54"));
+    assertEquals(54, table.index("ReCoRd54"));
+    assertEquals(-1, table.index("record54 "));
+    assertEquals(-1, table.index(null));
+    assertNull(table.get("missing"));
+  }
+
+  @Test
+  public void concurrent_records_parsed_at_most_once() throws Exception {
+    final RecordTable table = newTable();
+    table.setConcurrent(true);
+
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+    final List<Future<Record[]>> futures = new ArrayList<>();
+    try {
+      for (int t = 0; t < NUM_THREADS; t++) {
+        final long seed = t;
+        futures.add(executor.submit(() -> {
+          final List<Integer> ids = new ArrayList<>(NUM_RECORDS);
+          for (int i = 0; i < NUM_RECORDS; i++) ids.add(i);
+          final Random random = new Random(seed);
+          final Record[] seen = new Record[NUM_RECORDS];
+          start.await();
+          for (int n = 0; n < NUM_ITERATIONS; n++) {
+            Collections.shuffle(ids, random);
+            for (int id : ids) {
+              final Record record = (id & 1) == 0 ? table.get(id) : table.get("RECORD" + id);
+              assertNotNull(record);
+              assertEquals(id, record.value);
+              if (seen[id] == null) seen[id] = record;
+              assertSame(seen[id], record);
+            }
+          }
+
+          return seen;
+        }));
+      }
+
+      start.countDown();
+      final Record[] expected = futures.get(0).get(30, TimeUnit.SECONDS);
+      for (Future<Record[]> future : futures) {
+        assertArrayEquals(expected, future.get(30, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      assertEquals(1, table.parses.get(i), "record " + i + " parsed more than once");
+    }
+
+    assertEquals(NUM_RECORDS, table.size());
+  }
+}
@@ -1,5 +1,7 @@
 package com.riiablo.table;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import java.util.Arrays;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -11,6 +13,9 @@ import com.badlogic.gdx.files.FileHandle;
 import com.riiablo.Riiablo;
 import com.riiablo.RiiabloTest;
 import com.riiablo.attributes.Stat;
+import com.riiablo.io.ByteInput;
+import com.riiablo.io.ByteOutput;
+import com.riiablo.io.InvalidFormat;
 import com.riiablo.logger.Level;
 import com.riiablo.logger.LogManager;
 import com.riiablo.table.schema.BodyLocs;
@@ -70,6 +75,58 @@ public class TablesTest extends RiiabloTest {
     Assert.assertEquals(54, table.index("goatman2"));
   }
 
+  @Test
+  public void monstats_bin_round_trip() {
+    FileHandle handle = Gdx.files.internal("test/monstats.txt");
+    TsvParser parser = TsvParser.parse(handle.readBytes());
+    TableManifest.monstats.parser = null;
+    MonStatsTable tsv = Tables.loadTsv(TableManifest.monstats, parser);
+    ByteBuf buffer = Unpooled.buffer();
+    Tables.writeBin(tsv, ByteOutput.wrap(buffer));
+
+    MonStatsTable bin = Tables.loadBin(new MonStatsTable(TableManifest.INSTANCE), ByteInput.wrap(buffer));
+    Serializer<MonStats> serializer = tsv.newSerializer();
+    for (int i = 0, s = parser.numRecords(); i < s; i++) {
+      Assert.assertTrue(serializer.equals(tsv.get(i), bin.get(i)));
+    }
+
+    Assert.assertEquals(54, bin.index("goatman2"));
+    Assert.assertSame(bin.get(54), bin.get("goatman2"));
+  }
+
+  @Test
+  public void monstats_duplicate_primary_key() {
+    FileHandle handle = Gdx.files.internal("test/monstats.txt");
+    String tsv = handle.readString("US-ASCII");
+    int start = tsv.indexOf("\ngoatman2\t") + 1;
+    int end = tsv.indexOf('\n', start) + 1;
+    if (!tsv.endsWith("\n")) tsv += "\r\n";
+    tsv += tsv.substring(start, end);
+
+    TsvParser parser = TsvParser.parse(tsv.getBytes());
+    TableManifest.monstats.parser = null;
+    MonStatsTable table = Tables.loadTsv(TableManifest.monstats, parser);
+    final int last = parser.numRecords() - 1;
+    Assert.assertEquals(last, parser.recordId("goatman2"));
+    Assert.assertEquals(last, table.index("goatman2"));
+
+    ByteBuf buffer = Unpooled.buffer();
+    Tables.writeBin(table, ByteOutput.wrap(buffer));
+    MonStatsTable bin = Tables.loadBin(new MonStatsTable(TableManifest.INSTANCE), ByteInput.wrap(buffer));
+    Assert.assertEquals(last, bin.index("goatman2"));
+  }
+
+  @Test(expected = InvalidFormat.class)
+  public void monstats_bin_schema_mismatch() {
+    ByteBuf buffer = Unpooled.buffer();
+    ByteOutput out = ByteOutput.wrap(buffer);
+    out.writeBytes(Tables.SIGNATURE);
+    out.write32(Tables.VERSION);
+    out.write64(Tables.schemaHash(new MonStats2Table(TableManifest.INSTANCE)));
+    out.write32(0);
+    Tables.loadBin(new MonStatsTable(TableManifest.INSTANCE), ByteInput.wrap(buffer));
+  }
+
   @Test
   public void monstats2() {
     FileHandle handle = Gdx.files.internal("test/monstats2.txt");
@@ -506,4 +563,11 @@ public class TablesTest extends RiiabloTest {
     Assert.assertEquals("ZZ1", table.get(70).code);
     Assert.assertEquals("HED", table.get(114).code);
   }
+
+  @Test
+  public void manifest_tables_are_concurrent() {
+    for (Table table : TableManifest.TABLES) {
+      Assert.assertTrue(table.getClass().getSimpleName(), table.isConcurrent());
+    }
+  }
 }
@@ -0,0 +1,748 @@
+package com.riiablo.server.d2gs;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.ArrayUtils;
+
+import com.artemis.World;
+import com.artemis.WorldConfiguration;
+import com.artemis.WorldConfigurationBuilder;
+import com.artemis.utils.BitVector;
+import net.mostlyoriginal.api.event.common.EventSystem;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import com.riiablo.Riiablo;
+import com.riiablo.engine.Engine;
+import com.riiablo.engine.EntityFactory;
+import com.riiablo.engine.server.AIStepper;
+import com.riiablo.engine.server.Actioneer;
+import com.riiablo.engine.server.AnimDataResolver;
+import com.riiablo.engine.server.CofManager;
+import com.riiablo.engine.server.ItemInteractor;
+import com.riiablo.engine.server.ItemManager;
+import com.riiablo.engine.server.ObjectInitializer;
+import com.riiablo.engine.server.ObjectInteractor;
+import com.riiablo.engine.server.Pathfinder;
+import com.riiablo.engine.server.SerializationManager;
+import com.riiablo.engine.server.ServerEntityFactory;
+import com.riiablo.engine.server.ServerItemManager;
+import com.riiablo.engine.server.ServerNetworkIdManager;
+import com.riiablo.engine.server.VelocityAdder;
+import com.riiablo.engine.server.WarpInteractor;
+import com.riiablo.item.ItemGenerator;
+import com.riiablo.item.VendorGenerator;
+import com.riiablo.map.Map;
+import com.riiablo.map.MapManager;
+import com.riiablo.net.packet.d2gs.BeltToCursor;
+import com.riiablo.net.packet.d2gs.BodyToCursor;
+import com.riiablo.net.packet.d2gs.Connection;
+import com.riiablo.net.packet.d2gs.CursorToBelt;
+import com.riiablo.net.packet.d2gs.CursorToBody;
+import com.riiablo.net.packet.d2gs.CursorToGround;
+import com.riiablo.net.packet.d2gs.CursorToStore;
+import com.riiablo.net.packet.d2gs.D2GSData;
+import com.riiablo.net.packet.d2gs.Disconnect;
+import com.riiablo.net.packet.d2gs.EntityFlags;
+import com.riiablo.net.packet.d2gs.EntitySync;
+import com.riiablo.net.packet.d2gs.GroundToCursor;
+import com.riiablo.net.packet.d2gs.Ping;
+import com.riiablo.net.packet.d2gs.StoreToCursor;
+import com.riiablo.net.packet.d2gs.SwapBeltItem;
+import com.riiablo.net.packet.d2gs.SwapBodyItem;
+import com.riiablo.net.packet.d2gs.SwapStoreItem;
+import com.riiablo.profiler.SystemProfiler;
+import com.riiablo.profiler.TickProfilerInvocationStrategy;
+import com.riiablo.save.CharData;
+import com.riiablo.util.DebugUtils;
+
+/**
+ * A single game hosted by {@link D2GS}, owning its own {@link World}, map and
+ * up to {@link #MAX_CLIENTS} clients. Games are ticked by a shared
+ * {@link TickScheduler}, but each game is only ever ticked by one thread at a
+ * time.
+ * <p/>
+ * Tick and per-system time histograms are logged by each game every
+ * {@link GameManager#STATS_INTERVAL} seconds, along with the number of ticks
+ * which overran or were skipped.
+ */
+public class Game {
+  private static final boolean DEBUG                  = true;
+  private static final boolean DEBUG_RECEIVED_CACHE   = DEBUG && !true;
+  private static final boolean DEBUG_RECEIVED_PACKETS = DEBUG && true;
+  private static final boolean DEBUG_SENT_PACKETS     = DEBUG && true;
+  private static final boolean DEBUG_SYSTEM_STATS     = DEBUG && true;
+
+  static final int MAX_CLIENTS = Riiablo.MAX_PLAYERS;
+
+  /** packets queued per client before reading from it is suspended */
+  static final int MAX_PENDING_PACKETS = 32;
+
+  /** seconds a client may go without its outbound buffer draining before it is disconnected */
+  static final long MAX_STALL = 5;
+
+  /** entity syncs with these flags cannot be resent as deltas, so are never dropped */
+  static final int CRITICAL_SYNC_FLAGS = EntityFlags.spawned | EntityFlags.despawned | EntityFlags.deleted;
+
+  /**
+   * Loading and disposing maps touch state shared by all games: the asset
+   * manager and {@code Riiablo.cofs.active}, so they are done one at a time.
+   * Laying out and generating the zones only touch the map of the game and
+   * are done concurrently.
+   */
+  static final Object MAP_LOCK = new Object();
+
+  static final BitVector ignoredPackets = new BitVector(D2GSData.names.length); {
+    ignoredPackets.set(D2GSData.EntitySync);
+  }
+
+  final GameManager manager;
+  final int id;
+  final String name;
+  final int seed;
+  final int diff;
+
+  final Client[] clients = new Client[MAX_CLIENTS];
+  int numClients = 0;
+  int connected = 0;
+  /** set once the game is being disposed and stops accepting clients */
+  boolean closed;
+
+  final BlockingQueue<Packet> packets = new LinkedBlockingQueue<>();
+  final List<Packet> received = new ArrayList<>(1024);
+  final BlockingQueue<Integer> disconnecting = new LinkedBlockingQueue<>();
+  final List<Integer> disconnects = new ArrayList<>(MAX_CLIENTS);
+  final Collection<Packet> cache = new ArrayList<>(1024);
+  // drained every tick, unbounded s.t. critical packets are never dropped before dispatch
+  final BlockingQueue<Packet> outPackets = new LinkedBlockingQueue<>();
+  final IntIntMap player = new IntIntMap();
+
+  World world;
+  Map map;
+
+  EntityFactory factory;
+  ItemManager itemManager;
+  MapManager mapManager;
+  NetworkSynchronizer sync;
+
+  volatile TickScheduler.Task task;
+
+  final SystemProfiler tickProfiler = new SystemProfiler("Tick");
+  TickProfilerInvocationStrategy profiler;
+  long statsInterval;
+  long ticks;
+  long maxStalledTicks = Long.MAX_VALUE;
+
+  Game(GameManager manager, int id, int seed, int diff) {
+    this.manager = manager;
+    this.id = id;
+    this.name = "Game-" + id;
+    this.seed = seed;
+    this.diff = diff;
+  }
+
+  void create() {
+    Gdx.app.log(name, "Generating map...");
+    map = new Map(seed, diff);
+    map.setTemplates(manager.templates);
+    Gdx.app.log(name, "  generating act 1...");
+    long start = TimeUtils.millis();
+    map.layout(0);
+    Gdx.app.log(name, "  act 1 generated in " + (TimeUtils.millis() - start) + "ms");
+
+    synchronized (MAP_LOCK) {
+      map.updateCofs();
+      Gdx.app.log(name, "Loading act 1...");
+      map.load();
+      map.finishLoading();
+    }
+
+    factory = new ServerEntityFactory();
+    itemManager = new ServerItemManager();
+    mapManager = new MapManager();
+    sync = new NetworkSynchronizer();
+    profiler = new TickProfilerInvocationStrategy();
+    WorldConfigurationBuilder builder = new WorldConfigurationBuilder()
+        .register(profiler)
+        .with(new EventSystem())
+        .with(new ServerNetworkIdManager())
+        .with(new SerializationManager())
+        .with(mapManager)
+        .with(itemManager)
+        .with(new ItemGenerator())
+        .with(new CofManager())
+        .with(new ObjectInitializer())
+        .with(new ObjectInteractor(), new WarpInteractor(), new ItemInteractor())
+
+        .with(new Actioneer())
+
+        .with(new VendorGenerator())
+        .with(new AIStepper())
+        .with(new Pathfinder())
+
+        .with(new VelocityAdder()) // FIXME: temp until proper physics implemented
+
+        .with(factory)
+        .with(sync)
+        .with(new AnimDataResolver())
+        ;
+    WorldConfiguration config = builder.build()
+        .register("map", map)
+        .register("factory", factory)
+        .register("player", player)
+        .register("outPackets", outPackets)
+        .register("pathFinder", map.getHierarchicalPathFinder())
+        ;
+    world = new World(config);
+
+    world.inject(map);
+
+    map.generate();
+    mapManager.createEntities();
+
+    start = TimeUtils.millis();
+    map.getHierarchicalPathFinder().build();
+    Gdx.app.log(name, "  path finder graphs built in " + (TimeUtils.millis() - start) + "ms");
+
+    world.delta = manager.scheduler.tickDuration();
+    statsInterval = manager.scheduler.ticksPer(GameManager.STATS_INTERVAL);
+    maxStalledTicks = manager.scheduler.ticksPer(MAX_STALL);
+  }
+
+  void dispose() {
+    synchronized (clients) {
+      for (Client client : clients) {
+        if (client != null) client.channel.close();
+      }
+    }
+
+    for (Packet packet : packets) packet.release();
+    packets.clear();
+    synchronized (MAP_LOCK) {
+      if (world != null) world.dispose();
+      if (map != null) map.dispose();
+    }
+  }
+
+  /**
+   * Assigns the specified channel to a free client slot.
+   *
+   * @return the handler for the channel, or {@code null} if the game is full
+   */
+  Client connect(Channel channel) {
+    synchronized (clients) {
+      int id = ArrayUtils.indexOf(clients, null);
+      if (closed || numClients >= MAX_CLIENTS || id == ArrayUtils.INDEX_NOT_FOUND) return null;
+      Gdx.app.log(name, "assigned " + channel.remoteAddress() + " to " + id);
+      numClients++;
+      return clients[id] = new Client(id, channel);
+    }
+  }
+
+  /** @return whether the game has no clients and was closed */
+  boolean closeIfEmpty() {
+    synchronized (clients) {
+      if (numClients > 0) return false;
+      return closed = true;
+    }
+  }
+
+  void tick() {
+    try {
+      tickProfiler.start();
+      update();
+      tickProfiler.stop();
+      if (closed) {
+        manager.remove(this);
+        return;
+      }
+
+      if (++ticks >= statsInterval) logStats();
+    } catch (Throwable t) {
+      // exceptions would otherwise stop the game from being rescheduled
+      Gdx.app.error(name, t.getMessage(), t);
+    }
+  }
+
+  /** logs tick times since the last call and resets them */
+  void logStats() {
+    Gdx.app.log(name, String.format("%d clients, %d ticks, %d overruns, %d skipped, tick %s",
+        numClients, ticks, task.overruns(), task.skipped(), tickProfiler.getHistogram()));
+    if (DEBUG_SYSTEM_STATS) {
+      Gdx.app.log(name, "  " + profiler.getWorldProfiler() + " " + profiler.getWorldProfiler().getHistogram());
+      for (SystemProfiler system : profiler.getProfilers()) {
+        Gdx.app.log(name, "    " + system + " " + system.getHistogram());
+      }
+    }
+
+    ticks = 0;
+    task.resetStats();
+    tickProfiler.getHistogram().reset();
+    profiler.resetHistograms();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  void update() {
+    // drained first so packets received before a disconnect are processed
+    disconnects.clear();
+    disconnecting.drainTo(disconnects);
+
+    received.clear();
+    int cached = packets.drainTo(received);
+    if (DEBUG_RECEIVED_CACHE && cached > 0) Gdx.app.log(name, "processing " + cached + " packets");
+    for (Packet packet : received) {
+      if (DEBUG_RECEIVED_PACKETS && !ignoredPackets.get(packet.data.dataType())) Gdx.app.log(name, "processing " + D2GSData.name(packet.data.dataType()) + " packet from " + packet.id);
+      Client client = clients[packet.id];
+      if (client != null) {
+        client.processed();
+        process(packet);
+      }
+    }
+
+    for (int id : disconnects) Disconnect(id);
+    if (!disconnects.isEmpty() && closeIfEmpty()) {
+      for (Packet packet : received) packet.release();
+      received.clear();
+      return;
+    }
+
+    world.process();
+
+    cache.clear();
+    outPackets.drainTo(cache);
+    for (Packet packet : cache) {
+      if (DEBUG_SENT_PACKETS && !ignoredPackets.get(packet.data.dataType())) Gdx.app.log(name, "dispatching " + D2GSData.name(packet.data.dataType()) + " packet to " + String.format("0x%08X", packet.id));
+      for (int i = 0, flag = 1; i < MAX_CLIENTS; i++, flag <<= 1) {
+        if ((packet.id & flag) == flag && ((connected & flag) == flag || packet.data.dataType() == D2GSData.Connection)) {
+          Client client = clients[i];
+          if (client == null) continue;
+          boolean sent;
+          try {
+            if (DEBUG_SENT_PACKETS && !ignoredPackets.get(packet.data.dataType())) Gdx.app.log(name, "  dispatching packet to " + i);
+            sent = client.send(packet);
+          } catch (Throwable t) {
+            Gdx.app.error(name, t.getMessage(), t);
+            sent = false;
+          }
+
+          // changes are resent with the next delta instead
+          if (!sent && packet.data.dataType() == D2GSData.EntitySync) sync.dropped(i);
+        }
+      }
+    }
+
+    for (Client client : clients) {
+      if (client != null) client.flush();
+    }
+
+    for (Packet packet : cache) packet.release();
+
+    // packets received may have been forwarded, so release them once written
+    for (Packet packet : received) packet.release();
+    received.clear();
+  }
+
+  private void process(Packet packet) {
+    switch (packet.data.dataType()) {
+      case D2GSData.Connection:
+        Connection(packet);
+        break;
+      case D2GSData.EntitySync:
+        Synchronize(packet);
+        break;
+      case D2GSData.GroundToCursor:
+        GroundToCursor(packet);
+        break;
+      case D2GSData.CursorToGround:
+        CursorToGround(packet);
+        break;
+      case D2GSData.StoreToCursor:
+        StoreToCursor(packet);
+        break;
+      case D2GSData.CursorToStore:
+        CursorToStore(packet);
+        break;
+      case D2GSData.SwapStoreItem:
+        SwapStoreItem(packet);
+        break;
+      case D2GSData.BodyToCursor:
+        BodyToCursor(packet);
+        break;
+      case D2GSData.CursorToBody:
+        CursorToBody(packet);
+        break;
+      case D2GSData.SwapBodyItem:
+        SwapBodyItem(packet);
+        break;
+      case D2GSData.BeltToCursor:
+        BeltToCursor(packet);
+        break;
+      case D2GSData.CursorToBelt:
+        CursorToBelt(packet);
+        break;
+      case D2GSData.SwapBeltItem:
+        SwapBeltItem(packet);
+        break;
+      case D2GSData.Ping:
+        Ping(packet);
+        break;
+      default:
+        Gdx.app.error(name, "Unknown packet type: " + packet.data.dataType());
+    }
+  }
+
+  private void Connection(Packet packet) {
+    Connection connection = (Connection) packet.data.data(new Connection());
+    String charName = connection.charName();
+    int charClass = connection.charClass();
+    Gdx.app.log(name, "Connection from " + clients[packet.id].channel.remoteAddress() + " : " + charName);
+
+    byte[] cofComponents = new byte[16];
+    connection.cofComponentsAsByteBuffer().get(cofComponents);
+    Gdx.app.log(name, "  " + DebugUtils.toByteArray(cofComponents));
+
+    byte[] cofAlphas = new byte[16];
+    connection.cofAlphasAsByteBuffer().get(cofAlphas);
+    Gdx.app.log(name, "  " + Arrays.toString(cofAlphas));
+    Gdx.app.log(name, "  >" + Arrays.toString(com.riiablo.util.ArrayUtils.toFloatingPoint(cofAlphas)));
+
+    byte[] cofTransforms = new byte[16];
+    connection.cofTransformsAsByteBuffer().get(cofTransforms);
+    Gdx.app.log(name, "  " + DebugUtils.toByteArray(cofTransforms));
+
+    ByteBuffer d2sData = connection.d2sAsByteBuffer();
+    CharData charData = CharData.loadFromBuffer(diff, d2sData);
+    Gdx.app.log(name, "  " + charData);
+
+    Vector2 origin = map.find(Map.ID.TOWN_ENTRY_1);
+    if (origin == null) origin = map.find(Map.ID.TOWN_ENTRY_2);
+    if (origin == null) origin = map.find(Map.ID.TP_LOCATION);
+    int entityId = factory.createPlayer(charData, origin);
+    player.put(packet.id, entityId);
+    Gdx.app.log(name, "  entityId=" + entityId);
+
+    FlatBufferBuilder builder = new FlatBufferBuilder();
+    Connection.startConnection(builder);
+    Connection.addEntityId(builder, entityId);
+    int connectionOffset = Connection.endConnection(builder);
+    int offset = com.riiablo.net.packet.d2gs.D2GS.createD2GS(builder, D2GSData.Connection, connectionOffset);
+    com.riiablo.net.packet.d2gs.D2GS.finishSizePrefixedD2GSBuffer(builder, offset);
+    Packet response = Packet.obtain(1 << packet.id, builder.dataBuffer());
+    outPackets.offer(response);
+
+    Synchronize(packet.id, entityId);
+
+    BroadcastConnect(packet.id, connection, charData, entityId);
+  }
+
+  private void Synchronize(int id, int entityId) {
+
+  }
+
+  private void BroadcastConnect(int id, Connection connection, CharData charData, int entityId) {
+    FlatBufferBuilder builder = new FlatBufferBuilder();
+    int charNameOffset = builder.createString(charData.name);
+
+    byte[] components = new byte[16];
+    connection.cofComponentsAsByteBuffer().get(components);
+    int componentsOffset = Connection.createCofComponentsVector(builder, components);
+
+    byte[] alphas = new byte[16];
+    connection.cofAlphasAsByteBuffer().get(alphas);
+    int alphasOffset = Connection.createCofAlphasVector(builder, alphas);
+
+    byte[] transforms = new byte[16];
+    connection.cofTransformsAsByteBuffer().get(transforms);
+    int transformsOffset = Connection.createCofTransformsVector(builder, transforms);
+
+    Connection.startConnection(builder);
+    Connection.addEntityId(builder, entityId);
+    Connection.addCharClass(builder, charData.charClass);
+    Connection.addCharName(builder, charNameOffset);
+    Connection.addCofComponents(builder, componentsOffset);
+    Connection.addCofAlphas(builder, alphasOffset);
+    Connection.addCofTransforms(builder, transformsOffset);
+    int connectionOffset = Connection.endConnection(builder);
+    int offset = com.riiablo.net.packet.d2gs.D2GS.createD2GS(builder, D2GSData.Connection, connectionOffset);
+    com.riiablo.net.packet.d2gs.D2GS.finishSizePrefixedD2GSBuffer(builder, offset);
+
+    Packet broadcast = Packet.obtain(~(1 << id), builder.dataBuffer());
+    boolean success = outPackets.offer(broadcast);
+    assert success;
+  }
+
+  private void Disconnect(int id) {
+    int entityId = player.remove(id, Engine.INVALID_ENTITY);
+    if (entityId != Engine.INVALID_ENTITY) {
+      FlatBufferBuilder builder = new FlatBufferBuilder();
+      int disconnectOffset = Disconnect.createDisconnect(builder, entityId);
+      int offset = com.riiablo.net.packet.d2gs.D2GS.createD2GS(builder, D2GSData.Disconnect, disconnectOffset);
+      com.riiablo.net.packet.d2gs.D2GS.finishSizePrefixedD2GSBuffer(builder, offset);
+      Packet broadcast = Packet.obtain(~(1 << id), builder.dataBuffer());
+      outPackets.offer(broadcast);
+
+      world.delete(entityId);
+    }
+
+    synchronized (clients) {
+      clients[id] = null;
+      numClients--;
+      connected &= ~(1 << id);
+    }
+  }
+
+  private void Ping(Packet packet) {
+    Ping ping = (Ping) packet.data.data(new Ping());
+    FlatBufferBuilder builder = new FlatBufferBuilder(0);
+    int dataOffset = Ping.createPing(builder, ping.tickCount(), ping.sendTime(), TimeUtils.millis() - packet.time, false);
+    int root = com.riiablo.net.packet.d2gs.D2GS.createD2GS(builder, D2GSData.Ping, dataOffset);
+    com.riiablo.net.packet.d2gs.D2GS.finishSizePrefixedD2GSBuffer(builder, root);
+    Packet response = Packet.obtain(1 << packet.id, builder.dataBuffer());
+    outPackets.offer(response);
+  }
+
+  private void Synchronize(Packet packet) {
+    int entityId = player.get(packet.id, Engine.INVALID_ENTITY);
+    assert entityId != Engine.INVALID_ENTITY;
+    sync.sync(entityId, packet.data);
+  }
+
+  private int getPlayerEntityId(Packet packet) {
+    int entityId = player.get(packet.id, Engine.INVALID_ENTITY);
+    assert entityId != Engine.INVALID_ENTITY;
+    return entityId;
+  }
+
+  private void GroundToCursor(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    GroundToCursor groundToCursor = (GroundToCursor) packet.data.data(new GroundToCursor());
+    itemManager.groundToCursor(entityId, groundToCursor.itemId());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void CursorToGround(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    CursorToGround cursorToGround = (CursorToGround) packet.data.data(new CursorToGround());
+    itemManager.cursorToGround(entityId);
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void StoreToCursor(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    StoreToCursor storeToCursor = (StoreToCursor) packet.data.data(new StoreToCursor());
+    itemManager.storeToCursor(entityId, storeToCursor.itemId());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void CursorToStore(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    CursorToStore cursorToStore = (CursorToStore) packet.data.data(new CursorToStore());
+    itemManager.cursorToStore(entityId, cursorToStore.storeLoc(), cursorToStore.x(), cursorToStore.y());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void SwapStoreItem(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    SwapStoreItem swapStoreItem = (SwapStoreItem) packet.data.data(new SwapStoreItem());
+    itemManager.swapStoreItem(entityId, swapStoreItem.itemId(), swapStoreItem.storeLoc(), swapStoreItem.x(), swapStoreItem.y());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void BodyToCursor(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    BodyToCursor bodyToCursor = (BodyToCursor) packet.data.data(new BodyToCursor());
+    itemManager.bodyToCursor(entityId, bodyToCursor.bodyLoc(), bodyToCursor.merc());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void CursorToBody(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    CursorToBody cursorToBody = (CursorToBody) packet.data.data(new CursorToBody());
+    itemManager.cursorToBody(entityId, cursorToBody.bodyLoc(), cursorToBody.merc());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void SwapBodyItem(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    SwapBodyItem swapBodyItem = (SwapBodyItem) packet.data.data(new SwapBodyItem());
+    itemManager.swapBodyItem(entityId, swapBodyItem.bodyLoc(), swapBodyItem.merc());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void BeltToCursor(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    BeltToCursor beltToCursor = (BeltToCursor) packet.data.data(new BeltToCursor());
+    itemManager.beltToCursor(entityId, beltToCursor.itemId());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void CursorToBelt(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    CursorToBelt cursorToBelt = (CursorToBelt) packet.data.data(new CursorToBelt());
+    itemManager.cursorToBelt(entityId, cursorToBelt.x(), cursorToBelt.y());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+  private void SwapBeltItem(Packet packet) {
+    int entityId = getPlayerEntityId(packet);
+    SwapBeltItem swapBeltItem = (SwapBeltItem) packet.data.data(new SwapBeltItem());
+    itemManager.swapBeltItem(entityId, swapBeltItem.itemId());
+
+    packet.id = (1 << packet.id);
+    outPackets.offer(packet);
+  }
+
+
+  /**
+   * Per-connection handler. Frames are decoded on the event loop and queued
+   * for the main thread without copying. Reading is suspended while a client
+   * has {@link #MAX_PENDING_PACKETS} packets queued instead of disconnecting
+   * it.
+   * <p/>
+   * While the outbound buffer of a client is above its high water mark, entity
+   * syncs which only carry deltas are dropped, and the changes are sent with
+   * the next delta once the channel drains. Everything else is still written.
+   * Clients whose channel stays unwritable for {@link #MAX_STALL} seconds are
+   * disconnected.
+   */
+  class Client extends ChannelInboundHandlerAdapter {
+    final String TAG;
+
+    final int id;
+    final Channel channel;
+    final AtomicInteger pending = new AtomicInteger();
+    final EntitySync entitySync = new EntitySync();
+
+    /** consecutive ticks the channel has been unwritable, accessed by the tick thread */
+    long stalledTicks;
+
+    Client(int id, Channel channel) {
+      TAG = name + "{" + id + "}";
+      this.id = id;
+      this.channel = channel;
+    }
+
+    /** called on the tick thread for each packet taken from the queue */
+    void processed() {
+      if (pending.decrementAndGet() < MAX_PENDING_PACKETS && !channel.config().isAutoRead()) {
+        channel.config().setAutoRead(true);
+      }
+    }
+
+    /**
+     * Called on the tick thread, writes are flushed once per tick by
+     * {@link #flush()}.
+     *
+     * @return whether the packet was written, entity syncs which aren't
+     *         critical are dropped while the channel is unwritable
+     */
+    public boolean send(Packet packet) {
+      if (!channel.isActive()) return false;
+      if (!channel.isWritable() && !isCritical(packet)) return false;
+      channel.write(packet.retainedBuffer(), channel.voidPromise());
+      if ((connected & (1 << id)) == 0 && packet.data.dataType() == D2GSData.Connection) {
+        connected |= (1 << id);
+      }
+
+      return true;
+    }
+
+    boolean isCritical(Packet packet) {
+      if (packet.data.dataType() != D2GSData.EntitySync) return true;
+      EntitySync sync = (EntitySync) packet.data.data(entitySync);
+      return (sync.flags() & CRITICAL_SYNC_FLAGS) != 0;
+    }
+
+    /** called on the tick thread once the packets of the tick were sent */
+    void flush() {
+      channel.flush();
+      if (channel.isWritable()) {
+        stalledTicks = 0;
+      } else if (++stalledTicks > maxStalledTicks) {
+        Gdx.app.error(TAG, "outbound buffer stalled for " + stalledTicks + " ticks -- closing " + channel.remoteAddress());
+        channel.close();
+      }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      ByteBuf frame = (ByteBuf) msg;
+      Packet packet;
+      try {
+        packet = Packet.obtain(id, frame);
+      } catch (Throwable t) {
+        ReferenceCountUtil.release(frame);
+        throw t;
+      }
+
+      if (DEBUG_RECEIVED_PACKETS && !ignoredPackets.get(packet.data.dataType())) Gdx.app.log(TAG, "received " + D2GSData.name(packet.data.dataType()) + " packet from " + channel.remoteAddress());
+      if (packet.data.dataType() == D2GSData.Ping) {
+        Ping ping = (Ping) packet.data.data(new Ping());
+        FlatBufferBuilder builder = new FlatBufferBuilder(0);
+        int dataOffset = Ping.createPing(builder, ping.tickCount(), ping.sendTime(), 0, true);
+        int root = com.riiablo.net.packet.d2gs.D2GS.createD2GS(builder, D2GSData.Ping, dataOffset);
+        com.riiablo.net.packet.d2gs.D2GS.finishSizePrefixedD2GSBuffer(builder, root);
+        if (DEBUG_SENT_PACKETS) Gdx.app.log(TAG, "dispatching " + D2GSData.name(packet.data.dataType()) + " ACK packet to " + String.format("0x%08X", 1 << id));
+        ctx.writeAndFlush(Unpooled.wrappedBuffer(builder.dataBuffer()), ctx.voidPromise());
+      }
+
+      packets.offer(packet);
+      if (pending.incrementAndGet() >= MAX_PENDING_PACKETS) {
+        channel.config().setAutoRead(false);
+      }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      Gdx.app.log(TAG, "closing channel to " + channel.remoteAddress());
+      disconnecting.offer(id);
+      super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      Gdx.app.error(TAG, cause.getMessage(), cause);
+      ctx.close();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.riiablo.server.d2gs;
+
+import io.netty.channel.Channel;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+
+import com.riiablo.map.MapTemplates;
+
+/**
+ * Hosts up to {@link #maxGames} independent {@link Game games}, each with its
+ * own world, ticked by a shared {@link TickScheduler}. Tables and assets loaded
+ * into {@code Riiablo} are shared by every game.
+ * <p/>
+ * Clients are assigned to the first game with a free slot, and a new game is
+ * created once all games are full. Games are disposed once their last client
+ * disconnects. Games share the tiles and flags of their maps, which are
+ * generated from the same seed and difficulty.
+ */
+public class GameManager {
+  private static final String TAG = "GameManager";
+
+  static final long STATS_INTERVAL = 30; // seconds
+
+  final TickScheduler scheduler;
+  final int maxGames;
+  final int seed;
+  final int diff;
+
+  final Array<Game> games = new Array<>(); // guarded by this
+  int nextId;
+
+  final MapTemplates templates = new MapTemplates();
+
+  public GameManager(TickScheduler scheduler, int maxGames, int seed, int diff) {
+    this.scheduler = scheduler;
+    this.maxGames = maxGames;
+    this.seed = seed;
+    this.diff = diff;
+  }
+
+  public int maxClients() {
+    return maxGames * Game.MAX_CLIENTS;
+  }
+
+  /**
+   * Assigns the specified channel to a game, creating one if necessary.
+   *
+   * @return the handler for the channel, or {@code null} if all games are full
+   */
+  public synchronized Game.Client connect(Channel channel) {
+    for (Game game : games) {
+      Game.Client client = game.connect(channel);
+      if (client != null) return client;
+    }
+
+    if (games.size >= maxGames) return null;
+    final Game game = new Game(this, nextId++, seed, diff);
+    Game.Client client = game.connect(channel);
+    games.add(game);
+    Gdx.app.log(TAG, "creating " + game + " for " + channel.remoteAddress());
+    scheduler.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          game.create();
+        } catch (Throwable t) {
+          Gdx.app.error(TAG, "failed to create " + game, t);
+          remove(game);
+          return;
+        }
+
+        synchronized (GameManager.this) {
+          if (!games.contains(game, true)) return;
+          game.task = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+              game.tick();
+            }
+          });
+        }
+      }
+    });
+
+    return client;
+  }
+
+  /**
+   * Stops ticking and disposes the specified game. Called on the game's tick
+   * thread, or the creating thread if creation failed.
+   */
+  void remove(Game game) {
+    synchronized (this) {
+      if (!games.removeValue(game, true)) return;
+      if (game.task != null) game.task.cancel();
+    }
+
+    Gdx.app.log(TAG, "disposing " + game);
+    game.dispose();
+  }
+
+  /** Disposes all games, the scheduler should be shut down first. */
+  public void dispose() {
+    synchronized (this) {
+      for (Game game : games) game.dispose();
+      games.clear();
+    }
+
+    synchronized (Game.MAP_LOCK) {
+      templates.clear();
+    }
+  }
+}
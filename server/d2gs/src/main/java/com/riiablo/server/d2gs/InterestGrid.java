@@ -0,0 +1,72 @@
+package com.riiablo.server.d2gs;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.riiablo.map.Map;
+
+/**
+ * Spatial index used to determine which entities are within the view of a
+ * player. Entities are bucketed by the {@link Map map} they are in, and
+ * within that map into square cells of {@link #CELL_SIZE} subtiles by their
+ * world position. A player can see all entities within its own cell and the
+ * cells adjacent to it, including those across the border of its zone, but
+ * never entities within a different map.
+ * <p/>
+ * The grid is meant to be rebuilt every tick, so cells are cleared rather
+ * than freed to avoid reallocating them.
+ */
+public class InterestGrid {
+  /** size of each cell in subtiles */
+  public static final int CELL_SIZE  = 32;
+  /** number of cells in each direction visible to a player */
+  public static final int VIEW_CELLS = 1;
+
+  final ObjectMap<Map, LongMap<IntArray>> maps = new ObjectMap<>();
+
+  static long key(int cellX, int cellY) {
+    return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+  }
+
+  static int cell(float x) {
+    return MathUtils.floor(x / CELL_SIZE);
+  }
+
+  public void clear() {
+    for (LongMap<IntArray> cells : maps.values()) {
+      for (IntArray entities : cells.values()) {
+        entities.clear();
+      }
+    }
+  }
+
+  public void add(Map map, Vector2 position, int entityId) {
+    LongMap<IntArray> cells = maps.get(map);
+    if (cells == null) maps.put(map, cells = new LongMap<>());
+    long key = key(cell(position.x), cell(position.y));
+    IntArray entities = cells.get(key);
+    if (entities == null) cells.put(key, entities = new IntArray());
+    entities.add(entityId);
+  }
+
+  /**
+   * Adds the entities visible from {@code position} within {@code map} to
+   * {@code out}.
+   */
+  public IntArray query(Map map, Vector2 position, IntArray out) {
+    LongMap<IntArray> cells = maps.get(map);
+    if (cells == null) return out;
+    final int cellX = cell(position.x);
+    final int cellY = cell(position.y);
+    for (int y = cellY - VIEW_CELLS; y <= cellY + VIEW_CELLS; y++) {
+      for (int x = cellX - VIEW_CELLS; x <= cellX + VIEW_CELLS; x++) {
+        IntArray entities = cells.get(key(x, y));
+        if (entities != null) out.addAll(entities);
+      }
+    }
+
+    return out;
+  }
+}
@@ -1,6 +1,8 @@
 package com.riiablo.server.d2gs;
 
 import com.google.flatbuffers.FlatBufferBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 
 import com.artemis.BaseEntitySystem;
 import com.artemis.ComponentMapper;
@@ -8,23 +10,68 @@ import com.artemis.annotations.All;
 import com.artemis.annotations.Wire;
 import com.artemis.utils.IntBag;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.Pool;
+import com.riiablo.Riiablo;
+import com.riiablo.engine.Engine;
 import com.riiablo.engine.server.SerializationManager;
 import com.riiablo.engine.server.component.Class;
 import com.riiablo.engine.server.component.Flags;
+import com.riiablo.engine.server.component.MapWrapper;
 import com.riiablo.engine.server.component.Networked;
+import com.riiablo.engine.server.component.Position;
+import com.riiablo.engine.server.component.ZoneAware;
+import com.riiablo.map.Map;
+import com.riiablo.net.packet.d2gs.ComponentP;
 import com.riiablo.net.packet.d2gs.D2GS;
 import com.riiablo.net.packet.d2gs.D2GSData;
 import com.riiablo.net.packet.d2gs.EntityFlags;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.BlockingQueue;
 
+/**
+ * Synchronizes networked entities with the clients which can see them.
+ * <p/>
+ * Entities with a position within a zone are only sent to players within the
+ * same map and within {@link InterestGrid#VIEW_CELLS} cells of them, whichever
+ * zone either is in. Entities entering the
+ * view of a player are sent flagged as {@link EntityFlags#spawned spawned},
+ * and entities leaving it are sent flagged as
+ * {@link EntityFlags#despawned despawned}. Entities without a position are
+ * visible to all players.
+ * <p/>
+ * Spawned entities are sent in full, after which only the components which
+ * changed are sent. Systems writing a networked component flag it
+ * {@link Networked#dirty dirty}, and each tick the dirty and removed
+ * components of each visible entity are stamped with the tick, s.t. nothing
+ * is serialized to find what changed. Each client is sent the components
+ * stamped after the last tick it {@link #acked acknowledged}, and the
+ * components removed since as a mask. A tick is acknowledged once its updates
+ * were dispatched to the client without being {@link #dropped dropped}, so
+ * clients which miss updates are sent everything which changed since instead.
+ * Clients which haven't acknowledged a tick within {@link #MAX_BASELINE_AGE}
+ * ticks, lose sight of an entity, or whose player changed are sent it in full
+ * again.
+ */
 @All(Networked.class)
 public class NetworkSynchronizer extends BaseEntitySystem {
   private static final String TAG = "NetworkSynchronizer";
 
-  private static final boolean DEBUG      = true;
-  private static final boolean DEBUG_SYNC = DEBUG && !true;
+  private static final boolean DEBUG       = true;
+  private static final boolean DEBUG_SYNC  = DEBUG && !true;
+  private static final boolean DEBUG_VIEW  = DEBUG && !true;
+  private static final boolean DEBUG_DELTA = DEBUG && !true;
+
+  private static final int MAX_CLIENTS = Riiablo.MAX_PLAYERS;
+  private static final int INITIAL_SIZE = 128;
+
+  /** ticks a client may go without acknowledging updates before being sent everything in full */
+  static final int MAX_BASELINE_AGE = 32;
 
   protected SerializationManager serializer;
 
@@ -34,8 +81,97 @@ public class NetworkSynchronizer extends BaseEntitySystem {
   @Wire(name = "player")
   protected IntIntMap players;
 
+  @Wire(name = "map")
+  protected Map map;
+
   protected ComponentMapper<Class> mClass;
   protected ComponentMapper<Flags> mFlags;
+  protected ComponentMapper<Position> mPosition;
+  protected ComponentMapper<MapWrapper> mMapWrapper;
+  protected ComponentMapper<ZoneAware> mZoneAware;
+  protected ComponentMapper<Networked> mNetworked;
+
+  final InterestGrid grid = new InterestGrid();
+  final IntArray query = new IntArray();
+
+  /** entityId -> mask of clients which can see the entity this tick */
+  final IntIntMap inView = new IntIntMap();
+  /** entityId -> mask of clients which have been sent the entity */
+  final IntIntMap visible = new IntIntMap();
+
+  /** player entity of each client when visibility was last updated */
+  final int[] viewers = new int[MAX_CLIENTS]; {
+    Arrays.fill(viewers, Engine.INVALID_ENTITY);
+  }
+  /** entityId -> changes to the entity while visible to the clients in {@link #visible} */
+  final IntMap<Baseline> baselines = new IntMap<>();
+  final Pool<Baseline> baselinePool = new Pool<Baseline>() {
+    @Override
+    protected Baseline newObject() {
+      return new Baseline();
+    }
+  };
+
+  /** last tick whose updates each client is known to have received */
+  final int[] acked = new int[MAX_CLIENTS];
+  /** current tick, stamped onto changes */
+  int tick;
+
+  /** mask of clients with a player entity */
+  int viewerMask;
+  /** mask of clients whose player changed and need everything resent */
+  int resetMask;
+  /** mask of clients which had updates dropped since the last tick */
+  int droppedMask;
+
+  /** reused by every message, messages are copied out once finished */
+  final FlatBufferBuilder builder = new FlatBufferBuilder(INITIAL_SIZE);
+
+  /**
+   * Ticks at which the components of an entity last changed, s.t. the delta
+   * for any client is the changes after the last tick it acknowledged.
+   */
+  static final class Baseline implements Pool.Poolable {
+    /** tick each {@link ComponentP} data type last changed or was removed */
+    final int[] changed = new int[ComponentP.names.length];
+    /** tick the flags last changed */
+    int flagsChanged;
+    /** mask of {@link ComponentP} data types the entity has */
+    int components;
+    /** @see EntityFlags */
+    int flags;
+
+    void update(int tick, int dirty, int components, int flags) {
+      dirty |= this.components ^ components;
+      this.components = components;
+      for (int i = 0; dirty != 0; i++, dirty >>>= 1) {
+        if ((dirty & 1) != 0) changed[i] = tick;
+      }
+
+      if (this.flags != flags) {
+        this.flags = flags;
+        flagsChanged = tick;
+      }
+    }
+
+    /** @return mask of {@link ComponentP} data types changed after {@code tick} */
+    int changedSince(int tick) {
+      int mask = 0;
+      for (int i = 0, s = changed.length; i < s; i++) {
+        if (changed[i] > tick) mask |= (1 << i);
+      }
+
+      return mask;
+    }
+
+    @Override
+    public void reset() {
+      Arrays.fill(changed, 0);
+      flagsChanged = 0;
+      components = 0;
+      flags = 0;
+    }
+  }
 
   @Override
   protected boolean checkProcessing() {
@@ -45,19 +181,25 @@ public class NetworkSynchronizer extends BaseEntitySystem {
   // FIXME: this assumes that removing Networked component implies deletion -- may not always be case
   @Override
   protected void removed(int entityId) {
+    int mask = visible.remove(entityId, 0);
+    freeBaseline(entityId);
     Class.Type type = mClass.get(entityId).type;
     switch (type) {
       case PLR:
         // TODO: handled by disconnection packet, need to handle here also
         break;
       default:
+        if (mask == 0) break;
         mFlags.get(entityId).flags |= EntityFlags.deleted;
-        process(entityId);
+        send(mask, sync(entityId, mFlags.get(entityId).flags, SerializationManager.ALL_COMPONENTS, 0));
     }
   }
 
   @Override
   protected void processSystem() {
+    tick++;
+    updateViewers();
+    updateVisibility();
     IntBag entities = subscription.getEntities();
     int[] entityIds = entities.getData();
     for (int i = 0, s = entities.size(); i < s; i++) {
@@ -65,16 +207,152 @@ public class NetworkSynchronizer extends BaseEntitySystem {
     }
   }
 
+  protected void updateViewers() {
+    viewerMask = 0;
+    resetMask = 0;
+    for (int i = 0, flag = 1; i < MAX_CLIENTS; i++, flag <<= 1) {
+      int entityId = players.get(i, Engine.INVALID_ENTITY);
+      if (entityId != Engine.INVALID_ENTITY) viewerMask |= flag;
+      if (viewers[i] != entityId) {
+        viewers[i] = entityId;
+        resetMask |= flag;
+      } else if ((droppedMask & flag) == 0) {
+        acked[i] = tick - 1;
+      } else if (tick - acked[i] > MAX_BASELINE_AGE) {
+        if (DEBUG_DELTA) Gdx.app.debug(TAG, "client " + i + " last acknowledged tick " + acked[i] + ", resending everything");
+        resetMask |= flag;
+      }
+
+      // everything visible to the client is sent in full this tick
+      if ((resetMask & flag) != 0) acked[i] = tick;
+    }
+
+    droppedMask = 0;
+  }
+
+  /**
+   * Called when updates could not be dispatched to the specified client, s.t.
+   * it is sent the changes since the last tick it received instead.
+   */
+  public void dropped(int clientId) {
+    droppedMask |= (1 << clientId);
+  }
+
+  protected void updateVisibility() {
+    grid.clear();
+    inView.clear();
+    IntBag entities = subscription.getEntities();
+    int[] entityIds = entities.getData();
+    for (int i = 0, s = entities.size(); i < s; i++) {
+      int entityId = entityIds[i];
+      Position position = mPosition.get(entityId);
+      Map map = position != null ? getMap(entityId, position.position) : null;
+      if (map != null) {
+        grid.add(map, position.position, entityId);
+      } else {
+        inView.put(entityId, viewerMask);
+      }
+    }
+
+    for (int i = 0, flag = 1; i < MAX_CLIENTS; i++, flag <<= 1) {
+      int entityId = viewers[i];
+      if (entityId == Engine.INVALID_ENTITY) continue;
+      Vector2 position = mPosition.get(entityId).position;
+      Map map = getMap(entityId, position);
+      if (map == null) continue;
+      query.clear();
+      grid.query(map, position, query);
+      int[] items = query.items;
+      for (int j = 0, s = query.size; j < s; j++) {
+        int visibleId = items[j];
+        inView.put(visibleId, inView.get(visibleId, 0) | flag);
+      }
+    }
+  }
+
+  /** @return the map the entity is within a zone of, or {@code null} if it isn't within any */
+  Map getMap(int entityId, Vector2 position) {
+    MapWrapper mapWrapper = mMapWrapper.get(entityId);
+    if (mapWrapper == null) return map.getZone(position) != null ? map : null;
+    if (mZoneAware.has(entityId)) return mapWrapper.map.getZone(position) != null ? mapWrapper.map : null;
+    return mapWrapper.zone != null ? mapWrapper.map : null;
+  }
+
   protected void process(int entityId) {
-    FlatBufferBuilder builder = sync(new FlatBufferBuilder(0), entityId);
+    Networked networked = mNetworked.get(entityId);
+    int dirty = networked.dirty;
+    networked.dirty = 0;
+
+    int mask = inView.get(entityId, 0);
     int id = players.findKey(entityId, -1); // TODO: replace with component referencing player id
-    Packet packet = Packet.obtain(id != -1 ? ~(1 << id) : 0xFFFFFFFF, builder.dataBuffer());
-    boolean success = outPackets.offer(packet);
-    assert success;
+    if (id != -1) mask &= ~(1 << id);
+
+    int sent = visible.get(entityId, 0) & viewerMask & ~resetMask;
+    int spawned = mask & ~sent;
+    int despawned = sent & ~mask;
+    int updated = mask & sent;
+    if (DEBUG_VIEW && (spawned | despawned) != 0) {
+      Gdx.app.debug(TAG, String.format("%d spawned 0x%02X despawned 0x%02X", entityId, spawned, despawned));
+    }
+
+    if (despawned != 0) send(despawned, sync(entityId, EntityFlags.despawned, 0, 0));
+    if (mask == 0) {
+      visible.remove(entityId, 0);
+      freeBaseline(entityId);
+      return;
+    }
+
+    visible.put(entityId, mask);
+    Baseline baseline = baselines.get(entityId);
+    if (baseline == null) baselines.put(entityId, baseline = baselinePool.obtain());
+    int components = serializer.componentMask(entityId);
+    int flags = mFlags.get(entityId).flags;
+    baseline.update(tick, dirty, components, flags);
+    if (spawned != 0) {
+      send(spawned, sync(entityId, flags | EntityFlags.spawned, SerializationManager.ALL_COMPONENTS, 0));
+    }
+
+    // clients which acknowledged the same tick are sent the same delta
+    while (updated != 0) {
+      final int since = acked[Integer.numberOfTrailingZeros(updated)];
+      int clients = 0;
+      for (int i = 0, flag = 1; i < MAX_CLIENTS; i++, flag <<= 1) {
+        if ((updated & flag) != 0 && acked[i] == since) clients |= flag;
+      }
+
+      updated &= ~clients;
+      int changed = baseline.changedSince(since);
+      if (changed == 0 && baseline.flagsChanged <= since) continue;
+      if (DEBUG_DELTA) Gdx.app.debug(TAG, String.format("%d changed 0x%04X since %d", entityId, changed, since));
+      send(clients, sync(entityId, flags, changed & components, changed & ~components));
+    }
+  }
+
+  void freeBaseline(int entityId) {
+    Baseline baseline = baselines.remove(entityId);
+    if (baseline != null) baselinePool.free(baseline);
+  }
+
+  /**
+   * Copies the finished message out of {@code builder} s.t. the builder can be
+   * reused while the packet is queued.
+   */
+  protected void send(int mask, FlatBufferBuilder builder) {
+    ByteBuffer data = builder.dataBuffer();
+    ByteBuf bb = ByteBufAllocator.DEFAULT.buffer(data.remaining());
+    bb.writeBytes(data);
+    Packet packet = Packet.obtain(mask, bb);
+    if (!outPackets.offer(packet)) {
+      packet.release();
+      droppedMask |= mask;
+    }
   }
 
-  public FlatBufferBuilder sync(FlatBufferBuilder builder, int entityId) {
-    int syncOffset = serializer.serialize(builder, entityId);
+  /** Serializes the specified entity into the cleared {@link #builder} */
+  FlatBufferBuilder sync(int entityId, int flags, int componentMask, int removed) {
+    FlatBufferBuilder builder = this.builder;
+    builder.clear();
+    int syncOffset = serializer.serialize(builder, entityId, flags, componentMask, removed);
     int root = D2GS.createD2GS(builder, D2GSData.EntitySync, syncOffset);
     D2GS.finishSizePrefixedD2GSBuffer(builder, root);
     return builder;
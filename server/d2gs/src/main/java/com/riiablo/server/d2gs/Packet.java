@@ -1,6 +1,9 @@
 package com.riiablo.server.d2gs;
 
 import com.google.flatbuffers.ByteBufferUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
 import java.nio.ByteBuffer;
 
 import com.badlogic.gdx.utils.TimeUtils;
@@ -12,7 +15,10 @@ public class Packet {
     public long time;
     public ByteBuffer buffer;
     public D2GS data;
+    /** size prefixed frame backing {@link #buffer} if received or pooled */
+    public ByteBuf bb;
 
+    // outgoing
     public static Packet obtain(int id, ByteBuffer buffer) {
       Packet packet = new Packet();
       packet.id = id;
@@ -21,4 +27,21 @@ public class Packet {
       packet.data = D2GS.getRootAsD2GS(ByteBufferUtil.removeSizePrefix(buffer));
       return packet;
     }
+
+    // takes ownership of bb, released once the packet is processed or dispatched
+    public static Packet obtain(int id, ByteBuf bb) {
+      Packet packet = obtain(id, bb.nioBuffer());
+      packet.bb = bb;
+      return packet;
+    }
+
+    /** returns a buffer containing this packet to be written to a channel */
+    public ByteBuf retainedBuffer() {
+      return bb != null ? bb.retainedDuplicate() : Unpooled.wrappedBuffer(buffer.duplicate());
+    }
+
+    public void release() {
+      if (bb != null) ReferenceCountUtil.release(bb);
+      bb = null;
+    }
   }
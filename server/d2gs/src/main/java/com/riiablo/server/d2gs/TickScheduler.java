@@ -0,0 +1,133 @@
+package com.riiablo.server.d2gs;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks at a fixed tick rate on a shared pool of threads. Each task is
+ * only ever run by one thread at a time, and is rescheduled after each tick
+ * relative to when that tick was due, so variations in tick times do not
+ * accumulate as drift.
+ * <p/>
+ * A tick is counted as an overrun if it completes after the following tick
+ * was due. How a task which falls behind recovers depends on its
+ * {@link Policy}.
+ */
+public class TickScheduler {
+  public enum Policy {
+    /**
+     * late ticks are run back-to-back until the task has caught up, up to
+     * {@link #MAX_CATCH_UP} ticks, after which the rest are skipped
+     */
+    CATCH_UP,
+    /** at most one late tick is run, the rest are skipped */
+    SKIP,
+  }
+
+  /** max number of ticks a {@link Policy#CATCH_UP} task can fall behind */
+  public static final int MAX_CATCH_UP = 5;
+
+  final ScheduledExecutorService executor;
+  final long tickNanos;
+  final int maxCatchUp;
+
+  /**
+   * @param tickRate ticks per second
+   */
+  public TickScheduler(int numThreads, float tickRate, Policy policy) {
+    executor = Executors.newScheduledThreadPool(numThreads, new DefaultThreadFactory("game-tick"));
+    tickNanos = (long) (TimeUnit.SECONDS.toNanos(1) / tickRate);
+    maxCatchUp = policy == Policy.SKIP ? 0 : MAX_CATCH_UP;
+  }
+
+  /** @return duration of a tick in seconds */
+  public float tickDuration() {
+    return tickNanos / 1e9f;
+  }
+
+  /** @return number of ticks per the specified number of seconds */
+  public long ticksPer(long seconds) {
+    return TimeUnit.SECONDS.toNanos(seconds) / tickNanos;
+  }
+
+  /** Runs the specified task once on one of the tick threads */
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  /** Schedules the specified tick to run immediately and then at the tick rate */
+  public Task schedule(Runnable tick) {
+    Task task = new Task(tick);
+    executor.execute(task);
+    return task;
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ignored) {}
+  }
+
+  public class Task implements Runnable {
+    final Runnable tick;
+    long nextTick = System.nanoTime();
+    volatile boolean cancelled;
+
+    // only accessed by the thread running the task, i.e., from within tick
+    long overruns;
+    long skipped;
+
+    Task(Runnable tick) {
+      this.tick = tick;
+    }
+
+    /** Stops the task, a tick which is already running will complete */
+    public void cancel() {
+      cancelled = true;
+    }
+
+    /** @return number of ticks which completed after the next tick was due */
+    public long overruns() {
+      return overruns;
+    }
+
+    /** @return number of ticks which were skipped to catch up */
+    public long skipped() {
+      return skipped;
+    }
+
+    public void resetStats() {
+      overruns = 0;
+      skipped = 0;
+    }
+
+    @Override
+    public void run() {
+      if (cancelled) return;
+      tick.run();
+
+      final long now = System.nanoTime();
+      nextTick += tickNanos;
+      if (now > nextTick) {
+        overruns++;
+        final long behind = (now - nextTick) / tickNanos;
+        if (behind > maxCatchUp) {
+          final long skip = behind - maxCatchUp;
+          skipped += skip;
+          nextTick += skip * tickNanos;
+        }
+      }
+
+      if (cancelled) return;
+      try {
+        executor.schedule(this, nextTick - now, TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException ignored) {
+        // shutting down
+      }
+    }
+  }
+}
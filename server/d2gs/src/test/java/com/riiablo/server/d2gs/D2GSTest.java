@@ -0,0 +1,197 @@
+package com.riiablo.server.d2gs;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+
+import com.riiablo.engine.Engine;
+import com.riiablo.net.packet.d2gs.D2GSData;
+import com.riiablo.net.packet.d2gs.Disconnect;
+import com.riiablo.net.packet.d2gs.EntityFlags;
+import com.riiablo.net.packet.d2gs.EntitySync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class D2GSTest {
+  Game game;
+  EmbeddedChannel channel;
+
+  @BeforeClass
+  public static void setUpClass() {
+    Gdx.app = new HeadlessApplication(new ApplicationAdapter() {});
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    Gdx.app.exit();
+  }
+
+  @Before
+  public void setUp() {
+    game = new Game(null, 0, 0, 0);
+  }
+
+  @After
+  public void tearDown() {
+    if (channel != null) channel.finishAndReleaseAll();
+    for (Packet packet : game.packets) packet.release();
+  }
+
+  static ByteBuf disconnect(int entityId) {
+    FlatBufferBuilder builder = new FlatBufferBuilder(0);
+    int disconnectOffset = Disconnect.createDisconnect(builder, entityId);
+    int offset = com.riiablo.net.packet.d2gs.D2GS.createD2GS(builder, D2GSData.Disconnect, disconnectOffset);
+    com.riiablo.net.packet.d2gs.D2GS.finishSizePrefixedD2GSBuffer(builder, offset);
+    return Unpooled.wrappedBuffer(builder.dataBuffer());
+  }
+
+  static Packet entitySync(int flags) {
+    FlatBufferBuilder builder = new FlatBufferBuilder(0);
+    int syncOffset = EntitySync.createEntitySync(builder, 1, 0, flags, 0, 0, 0);
+    int offset = com.riiablo.net.packet.d2gs.D2GS.createD2GS(builder, D2GSData.EntitySync, syncOffset);
+    com.riiablo.net.packet.d2gs.D2GS.finishSizePrefixedD2GSBuffer(builder, offset);
+    return Packet.obtain(1, builder.dataBuffer());
+  }
+
+  static int entityId(Packet packet) {
+    return ((Disconnect) packet.data.data(new Disconnect())).entityId();
+  }
+
+  Game.Client connect() {
+    channel = new EmbeddedChannel();
+    Game.Client client = game.connect(channel);
+    channel.pipeline()
+        .addLast(D2GS.newFrameDecoder())
+        .addLast(client)
+        ;
+    return client;
+  }
+
+  /** holds writes in the outbound buffer, as if the peer stopped reading */
+  static final class Stall extends ChannelOutboundHandlerAdapter {
+    @Override
+    public void flush(ChannelHandlerContext ctx) {}
+  }
+
+  @Test
+  public void decodes_frames_split_across_reads() {
+    Game.Client client = connect();
+    ByteBuf first = disconnect(1);
+    final int frameLength = first.readableBytes();
+    ByteBuf frames = Unpooled.wrappedBuffer(first, disconnect(2));
+
+    // first frame and the size prefix of the second
+    channel.writeInbound(frames.readRetainedSlice(frameLength + 4));
+    assertEquals(1, game.packets.size());
+    channel.writeInbound(frames.readRetainedSlice(frames.readableBytes()));
+    frames.release();
+    assertEquals(2, game.packets.size());
+
+    for (int entityId = 1; entityId <= 2; entityId++) {
+      Packet packet = game.packets.poll();
+      assertEquals(client.id, packet.id);
+      assertEquals(D2GSData.Disconnect, packet.data.dataType());
+      assertEquals(entityId, entityId(packet));
+      packet.release();
+    }
+  }
+
+  @Test
+  public void closes_channel_on_oversized_frame() {
+    Game.Client client = connect();
+    ByteBuf frame = Unpooled.buffer(4).writeIntLE(D2GS.MAX_FRAME_LENGTH);
+    channel.writeInbound(frame);
+    assertTrue(game.packets.isEmpty());
+    assertFalse(channel.isOpen());
+    assertEquals(client.id, (int) game.disconnecting.poll());
+  }
+
+  @Test
+  public void rejects_connections_when_full() {
+    channel = new EmbeddedChannel(new D2GS.Initializer(new GameManager(null, 0, 0, 0)));
+    assertFalse(channel.isOpen());
+    assertNull(channel.pipeline().get(LengthFieldBasedFrameDecoder.class));
+
+    Packet packet = Packet.obtain(0, (ByteBuf) channel.readOutbound());
+    assertEquals(D2GSData.Disconnect, packet.data.dataType());
+    assertEquals(Engine.INVALID_ENTITY, entityId(packet));
+    packet.release();
+  }
+
+  @Test
+  public void drops_deltas_while_unwritable() {
+    Game.Client client = connect();
+    channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1, 2));
+    channel.pipeline().addFirst(new Stall());
+
+    assertTrue(client.send(entitySync(0)));
+    assertFalse(channel.isWritable());
+    assertFalse(client.send(entitySync(0)));
+    assertTrue(client.send(entitySync(EntityFlags.spawned)));
+    assertTrue(client.send(entitySync(EntityFlags.despawned)));
+    assertTrue(client.send(entitySync(EntityFlags.deleted)));
+    assertTrue(client.send(Packet.obtain(1, disconnect(1))));
+
+    channel.pipeline().remove(Stall.class);
+    client.flush();
+    assertTrue(channel.isWritable());
+    assertEquals(5, channel.outboundMessages().size());
+    assertTrue(client.send(entitySync(0)));
+  }
+
+  @Test
+  public void disconnects_after_sustained_stall() {
+    Game.Client client = connect();
+    game.maxStalledTicks = 2;
+    channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1, 2));
+    channel.pipeline().addFirst(new Stall());
+
+    client.send(entitySync(EntityFlags.spawned));
+    client.flush();
+    client.flush();
+    assertTrue(channel.isOpen());
+    assertEquals(2, client.stalledTicks);
+
+    client.flush();
+    assertFalse(channel.isOpen());
+  }
+
+  @Test
+  public void resets_stall_once_drained() {
+    Game.Client client = connect();
+    game.maxStalledTicks = 2;
+    channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1, 2));
+    Stall stall = new Stall();
+    channel.pipeline().addFirst(stall);
+
+    client.send(entitySync(EntityFlags.spawned));
+    client.flush();
+    client.flush();
+    channel.pipeline().remove(stall);
+    client.flush();
+    assertEquals(0, client.stalledTicks);
+
+    channel.pipeline().addFirst(stall);
+    client.send(entitySync(EntityFlags.spawned));
+    client.flush();
+    client.flush();
+    assertTrue(channel.isOpen());
+  }
+}
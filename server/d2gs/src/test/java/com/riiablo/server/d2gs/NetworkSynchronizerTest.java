@@ -0,0 +1,265 @@
+package com.riiablo.server.d2gs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.artemis.ComponentMapper;
+import com.artemis.World;
+import com.artemis.WorldConfiguration;
+import com.artemis.WorldConfigurationBuilder;
+import net.mostlyoriginal.api.event.common.EventSystem;
+
+import com.badlogic.gdx.utils.IntIntMap;
+
+import com.riiablo.engine.server.CofManager;
+import com.riiablo.engine.server.SerializationManager;
+import com.riiablo.engine.server.component.Angle;
+import com.riiablo.engine.server.component.Class;
+import com.riiablo.engine.server.component.Flags;
+import com.riiablo.engine.server.component.MapWrapper;
+import com.riiablo.engine.server.component.Networked;
+import com.riiablo.engine.server.component.Position;
+import com.riiablo.engine.server.component.Velocity;
+import com.riiablo.map.Map;
+import com.riiablo.net.packet.d2gs.ComponentP;
+import com.riiablo.net.packet.d2gs.EntityFlags;
+import com.riiablo.net.packet.d2gs.EntitySync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NetworkSynchronizerTest {
+  static final int BOTH = 0x3;
+  static final int POSITION = 1 << ComponentP.PositionP;
+  static final int VELOCITY = 1 << ComponentP.VelocityP;
+  static final int ANGLE = 1 << ComponentP.AngleP;
+
+  World world;
+  Map map;
+  final int[] players = new int[2];
+  NetworkSynchronizer sync;
+  final BlockingQueue<Packet> outPackets = new ArrayBlockingQueue<>(1024);
+  final List<Packet> sent = new ArrayList<>();
+
+  ComponentMapper<Velocity> mVelocity;
+  ComponentMapper<Angle> mAngle;
+  ComponentMapper<Networked> mNetworked;
+
+  int entityId;
+
+  @Before
+  public void setUp() {
+    sync = new NetworkSynchronizer();
+    IntIntMap players = new IntIntMap();
+    WorldConfiguration config = new WorldConfigurationBuilder()
+        .with(new EventSystem())
+        .with(new CofManager())
+        .with(new SerializationManager())
+        .with(sync)
+        .build()
+        .register("outPackets", outPackets)
+        .register("player", players)
+        .register("map", map = new Map(0, 0));
+    world = new World(config);
+    mVelocity = world.getMapper(Velocity.class);
+    mAngle = world.getMapper(Angle.class);
+    mNetworked = world.getMapper(Networked.class);
+
+    // players outside of any zone can see every entity outside of any zone
+    for (int i = 0; i < 2; i++) {
+      int player = world.create();
+      world.getMapper(Position.class).create(player);
+      players.put(i, player);
+      this.players[i] = player;
+    }
+
+    entityId = world.create();
+    world.getMapper(Class.class).create(entityId).type = Class.Type.MON;
+    world.getMapper(Flags.class).create(entityId);
+    mNetworked.create(entityId);
+    mVelocity.create(entityId);
+    mAngle.create(entityId);
+  }
+
+  @After
+  public void tearDown() {
+    world.dispose();
+    for (Packet packet : sent) packet.release();
+  }
+
+  /** @return syncs sent this tick */
+  List<Packet> tick() {
+    world.process();
+    List<Packet> packets = new ArrayList<>();
+    outPackets.drainTo(packets);
+    sent.addAll(packets);
+    return packets;
+  }
+
+  static EntitySync entitySync(Packet packet) {
+    return (EntitySync) packet.data.data(new EntitySync());
+  }
+
+  static int components(EntitySync sync) {
+    int mask = 0;
+    for (int i = 0, s = sync.componentTypeLength(); i < s; i++) mask |= (1 << sync.componentType(i));
+    return mask;
+  }
+
+  static void assertSync(int clients, int flags, int components, int removed, Packet packet) {
+    EntitySync sync = entitySync(packet);
+    assertEquals(clients, packet.id);
+    assertEquals(flags, sync.flags());
+    assertEquals(components, components(sync));
+    assertEquals(removed, sync.removed());
+  }
+
+  void setVelocity(float x, float y) {
+    mVelocity.get(entityId).velocity.set(x, y);
+    Networked.dirty(mNetworked, entityId, ComponentP.VelocityP);
+  }
+
+  void setAngle(float x, float y) {
+    mAngle.get(entityId).target.set(x, y);
+    Networked.dirty(mNetworked, entityId, ComponentP.AngleP);
+  }
+
+  /** places the entity within {@code zone} of {@code map} */
+  void place(int entityId, Map map, Map.Zone zone, float x, float y) {
+    world.getMapper(MapWrapper.class).create(entityId).set(map, zone);
+    world.getMapper(Position.class).create(entityId).position.set(x, y);
+    Networked.dirty(mNetworked, entityId, ComponentP.PositionP);
+  }
+
+  @Test
+  public void spawns_in_full_then_sends_deltas() {
+    List<Packet> packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(BOTH, EntityFlags.spawned, VELOCITY | ANGLE, 0, packets.get(0));
+
+    assertTrue(tick().isEmpty());
+
+    setVelocity(1, 0);
+    packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(BOTH, 0, VELOCITY, 0, packets.get(0));
+
+    // unchanged components are not compared, only dirty ones are sent
+    mAngle.get(entityId).target.set(0, 1);
+    assertTrue(tick().isEmpty());
+  }
+
+  @Test
+  public void sends_changes_since_acknowledged_baseline() {
+    tick();
+    setVelocity(1, 0);
+    tick();
+    sync.dropped(1);
+
+    setAngle(0, 1);
+    List<Packet> packets = tick();
+    assertEquals(2, packets.size());
+    assertSync(0x1, 0, ANGLE, 0, packets.get(0));
+    assertSync(0x2, 0, VELOCITY | ANGLE, 0, packets.get(1));
+
+    // both clients acknowledged the same tick again
+    setVelocity(0, 1);
+    packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(BOTH, 0, VELOCITY, 0, packets.get(0));
+  }
+
+  @Test
+  public void sends_full_snapshot_after_sustained_loss() {
+    tick();
+    for (int i = 0; i < NetworkSynchronizer.MAX_BASELINE_AGE; i++) {
+      setVelocity(i, 0);
+      tick();
+      sync.dropped(1);
+    }
+
+    setVelocity(-1, 0);
+    List<Packet> packets = tick();
+    assertEquals(2, packets.size());
+    assertSync(0x2, EntityFlags.spawned, VELOCITY | ANGLE, 0, packets.get(0));
+    assertSync(0x1, 0, VELOCITY, 0, packets.get(1));
+
+    setVelocity(0, 0);
+    packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(BOTH, 0, VELOCITY, 0, packets.get(0));
+  }
+
+  @Test
+  public void sends_removed_components() {
+    tick();
+    mAngle.remove(entityId);
+    List<Packet> packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(BOTH, 0, 0, ANGLE, packets.get(0));
+    sync.dropped(0);
+
+    // clients which missed the removal are sent it with later changes
+    setVelocity(1, 1);
+    packets = tick();
+    assertEquals(2, packets.size());
+    assertSync(0x1, 0, VELOCITY, ANGLE, packets.get(0));
+    assertSync(0x2, 0, VELOCITY, 0, packets.get(1));
+  }
+
+  @Test
+  public void sends_added_components() {
+    tick();
+    world.getMapper(Position.class).create(entityId).position.set(1, 1);
+    List<Packet> packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(BOTH, 0, POSITION, 0, packets.get(0));
+  }
+
+  @Test
+  public void spawns_and_despawns_per_viewer() {
+    Map.Zone zone = new Map.Zone();
+    place(players[0], map, zone, 0, 0);
+    place(players[1], map, zone, 200, 0);
+    place(entityId, map, zone, 10, 0);
+    List<Packet> packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(0x1, EntityFlags.spawned, POSITION | VELOCITY | ANGLE, 0, packets.get(0));
+
+    place(entityId, map, zone, 190, 0);
+    packets = tick();
+    assertEquals(2, packets.size());
+    assertSync(0x1, EntityFlags.despawned, 0, 0, packets.get(0));
+    assertSync(0x2, EntityFlags.spawned, POSITION | VELOCITY | ANGLE, 0, packets.get(1));
+
+    assertTrue(tick().isEmpty());
+
+    place(entityId, map, zone, 100, 0);
+    packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(0x2, EntityFlags.despawned, 0, 0, packets.get(0));
+  }
+
+  @Test
+  public void sees_entities_across_zone_borders() {
+    Map.Zone town = new Map.Zone();
+    Map.Zone wilderness = new Map.Zone();
+    place(players[0], map, town, 60, 0);
+    place(players[1], map, town, 500, 0);
+    place(entityId, map, wilderness, 70, 0);
+    List<Packet> packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(0x1, EntityFlags.spawned, POSITION | VELOCITY | ANGLE, 0, packets.get(0));
+
+    // entities within a different map are never visible
+    place(entityId, new Map(0, 0), wilderness, 70, 0);
+    packets = tick();
+    assertEquals(1, packets.size());
+    assertSync(0x1, EntityFlags.despawned, 0, 0, packets.get(0));
+  }
+}
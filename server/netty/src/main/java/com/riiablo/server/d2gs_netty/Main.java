@@ -53,7 +53,6 @@ import com.riiablo.engine.server.VelocityAdder;
 import com.riiablo.engine.server.WarpInteractor;
 import com.riiablo.item.ItemGenerator;
 import com.riiablo.item.VendorGenerator;
-import com.riiablo.map.Act1MapBuilder;
 import com.riiablo.map.DS1;
 import com.riiablo.map.DS1Loader;
 import com.riiablo.map.DT1;
@@ -234,7 +233,6 @@ public class Main extends ApplicationAdapter {
     Riiablo.engine = world = new World(config);
 
     world.inject(map);
-    world.inject(Act1MapBuilder.INSTANCE);
     world.inject(messageProcessor);
     world.inject(server);
 
@@ -79,6 +79,14 @@ public class ManifestCodeGenerator {
         .build();
     typeSpecBuilder.addField(TABLES);
 
+    // tables of the manifest are singletons shared by every thread, e.g.,
+    // every game hosted by a server, so they are made concurrent before use
+    typeSpecBuilder.addStaticBlock(CodeBlock.builder()
+        .beginControlFlow("for ($T table : $N)", Table.class, TABLES)
+        .addStatement("table.setConcurrent(true)")
+        .endControlFlow()
+        .build());
+
     TypeVariableName R = TypeVariableName.get("R");
     ParameterSpec table = ParameterSpec
         .builder(ParameterizedTypeName.get(ClassName.get(Table.class), R), "table")
@@ -42,6 +42,7 @@ class SerializerCodeGenerator extends CodeGenerator {
         .addMethod(writeRecord(schemaElement))
         .addMethod(equals(schemaElement))
         .addMethod(compare(schemaElement))
+        .addMethod(schemaHash(schemaElement))
         ;
   }
 
@@ -210,6 +211,51 @@ class SerializerCodeGenerator extends CodeGenerator {
     return method.build();
   }
 
+  MethodSpec schemaHash(SchemaElement schemaElement) {
+    SerializerElement serializerElement = schemaElement.serializerElement;
+    MethodSpec.Builder method = MethodSpec
+        .overriding(
+            serializerElement.getMethod("schemaHash"),
+            serializerElement.declaredType,
+            context.typeUtils)
+        ;
+
+    method.addStatement("return $L", String.format("0x%016xL", hashFields(schemaElement)));
+    return method.build();
+  }
+
+  /**
+   * Hashes the names and types of the fields serialized by
+   * {@link #readRecord} and {@link #writeRecord} in the same order, including
+   * the sizes of arrays.
+   */
+  static long hashFields(SchemaElement schemaElement) {
+    long hash = 0xcbf29ce484222325L; // FNV-1a
+    for (FieldElement field : schemaElement.fields) {
+      if (field.isTransient()) continue;
+      if (field.isForeignKey()) continue;
+      hash = hash(hash, field.name().toString());
+      hash = hash(hash, TypeName.get(field.element()).toString());
+      if (field.isArray()) {
+        final Format format = field.formatElement.annotation;
+        hash = hash(hash, String.valueOf(format.endIndex() - format.startIndex()));
+      }
+    }
+
+    return hash;
+  }
+
+  static long hash(long hash, String str) {
+    for (int i = 0, s = str.length(); i < s; i++) {
+      hash ^= str.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+
+    hash ^= ';';
+    hash *= 0x100000001b3L;
+    return hash;
+  }
+
   static CodeBlock qualify(Object object, Name field) {
     return CodeBlock.of("$N.$N", object, field);
   }
@@ -0,0 +1,137 @@
+package com.riiablo.table;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressed map of string keys to non-negative int values where keys
+ * are compared ignoring case. Lookups hash and compare the given key in place,
+ * s.t., they do not allocate.
+ * <p/>
+ * Not thread-safe while being populated, however concurrent lookups are safe
+ * once the index has been safely published.
+ */
+public class CaseInsensitiveIndex {
+  private static final float LOAD_FACTOR = 0.5f;
+
+  private String[] keys;
+  private int[] values;
+  private int mask;
+  private int threshold;
+  private int size;
+
+  public CaseInsensitiveIndex() {
+    this(16);
+  }
+
+  public CaseInsensitiveIndex(int initialCapacity) {
+    allocate(capacityFor(initialCapacity));
+  }
+
+  static int capacityFor(int size) {
+    int capacity = 16;
+    while (capacity * LOAD_FACTOR < size) capacity <<= 1;
+    return capacity;
+  }
+
+  private void allocate(int capacity) {
+    keys = new String[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  static int hash(CharSequence key) {
+    int h = 0;
+    for (int i = 0, s = key.length(); i < s; i++) {
+      h = 31 * h + Character.toUpperCase(key.charAt(i));
+    }
+
+    return h ^ (h >>> 16);
+  }
+
+  static boolean equalsIgnoreCase(String key, CharSequence other) {
+    final int length = key.length();
+    if (length != other.length()) return false;
+    for (int i = 0; i < length; i++) {
+      final char c1 = key.charAt(i);
+      final char c2 = other.charAt(i);
+      if (c1 != c2 && Character.toUpperCase(c1) != Character.toUpperCase(c2)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private int locate(CharSequence key) {
+    final String[] keys = this.keys;
+    for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+      final String k = keys[i];
+      if (k == null || equalsIgnoreCase(k, key)) return i;
+    }
+  }
+
+  /**
+   * Associates a value with a key, replacing the value of the key if it is
+   * already present.
+   *
+   * @return previous value associated with the key, or {@code -1} if the key
+   *         was added
+   */
+  public int put(String key, int value) {
+    if (key == null) throw new IllegalArgumentException("key cannot be null");
+    if (value < 0) throw new IllegalArgumentException("value(" + value + ") < " + 0);
+    int i = locate(key);
+    if (keys[i] != null) {
+      final int previous = values[i];
+      values[i] = value;
+      return previous;
+    }
+
+    if (size >= threshold) {
+      resize(keys.length << 1);
+      i = locate(key);
+    }
+
+    keys[i] = key;
+    values[i] = value;
+    size++;
+    return -1;
+  }
+
+  private void resize(int capacity) {
+    final String[] oldKeys = keys;
+    final int[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      final String key = oldKeys[i];
+      if (key == null) continue;
+      final int j = locate(key);
+      keys[j] = key;
+      values[j] = oldValues[i];
+    }
+  }
+
+  /**
+   * @return value associated with the key, or {@code defaultValue} if the key
+   *         is {@code null} or not present
+   */
+  public int get(CharSequence key, int defaultValue) {
+    if (key == null) return defaultValue;
+    final int i = locate(key);
+    return keys[i] != null ? values[i] : defaultValue;
+  }
+
+  public boolean containsKey(CharSequence key) {
+    return get(key, -1) != -1;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, null);
+    size = 0;
+  }
+}
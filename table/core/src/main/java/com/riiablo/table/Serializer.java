@@ -11,4 +11,11 @@ public interface Serializer<R> {
   void writeRecord(R record, DataOutput out);
   boolean equals(R e1, R e2);
   Iterable<Throwable> compare(R e1, R e2);
+
+  /**
+   * Returns a hash of the names and types of the fields serialized, in the
+   * order they are serialized, s.t. binary snapshots written with a different
+   * schema can be rejected.
+   */
+  long schemaHash();
 }
@@ -1,13 +1,19 @@
 package com.riiablo.table;
 
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntMap;
-import com.badlogic.gdx.utils.ObjectIntMap;
 
 /**
  * Stores a table of records.
+ * <p/>
+ * Records which are not preloaded are parsed the first time they are
+ * requested. Tables shared by multiple threads should be made
+ * {@link #setConcurrent(boolean) concurrent}, s.t., each record is parsed at
+ * most once and lookups of records which have already been parsed do not
+ * lock. Iterating a table is only safe once no more records will be parsed.
  *
  * @param <R> record type
  */
@@ -17,12 +23,16 @@ public abstract class Table<R> implements Iterable<R> {
 
   protected final Manifest manifest;
   protected final Class<R> recordClass;
-  protected ObjectIntMap<String> lookup;
+  protected CaseInsensitiveIndex lookup;
   protected IntMap<R> records;
   protected Array<R> ordered;
 
   protected Parser<R> parser;
 
+  /** records by id which have been returned by {@link #get(int)} */
+  private volatile AtomicReferenceArray<R> cache;
+  private boolean concurrent;
+
   protected Table(Manifest manifest, Class<R> recordClass) {
     this(manifest, recordClass, DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
   }
@@ -41,10 +51,22 @@ public abstract class Table<R> implements Iterable<R> {
     records = new IntMap<>(initialCapacity, loadFactor);
     ordered = new Array<>(true, (int) (initialCapacity * loadFactor), recordClass);
     lookup = stringLookup
-        ? new ObjectIntMap<String>(initialCapacity, loadFactor)
+        ? new CaseInsensitiveIndex(initialCapacity)
         : null;
   }
 
+  /**
+   * Sets whether or not records may be requested by multiple threads. Must be
+   * set before this table is shared.
+   */
+  public void setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+  }
+
+  public boolean isConcurrent() {
+    return concurrent;
+  }
+
   protected abstract R newRecord();
   protected abstract Parser<R> newParser(ParserInput parser);
   protected abstract Serializer<R> newSerializer();
@@ -75,11 +97,6 @@ public abstract class Table<R> implements Iterable<R> {
   protected void put(int id, R record) {
     records.put(id, record);
     ordered.add(record);
-    if (lookup != null) {
-      // assertion: table id must match record id for this to work properly
-      //            i.e., remapping id will break this invariant
-      lookup.put(parser.recordName(id), id);
-    }
   }
 
   protected int offset() {
@@ -113,6 +130,12 @@ public abstract class Table<R> implements Iterable<R> {
   protected final void initialize(ParserInput in) {
     if (parser != null) throw new IllegalStateException("parser already set");
     this.parser = newParser(in).parseFields();
+    if (lookup != null) {
+      for (int i = 0, s = in.numRecords(); i < s; i++) {
+        index(in.recordName(i), i);
+      }
+    }
+
     if (preload()) {
       for (int i = 0, s = in.numRecords(); i < s; i++) {
         put(i, parseRecord(i));
@@ -120,6 +143,68 @@ public abstract class Table<R> implements Iterable<R> {
     }
   }
 
+  /**
+   * Initializes this table by reading all records from a binary snapshot
+   * written by {@link #write(DataOutput)}. Records are assigned the same ids
+   * they were parsed with, s.t., {@link #put(int, Object)} re-maps them
+   * identically.
+   */
+  protected final void initialize(DataInput in) {
+    if (parser != null) throw new IllegalStateException("parser already set");
+    final Serializer<R> serializer = newSerializer();
+    final int numRecords = in.read32();
+    for (int i = 0; i < numRecords; i++) {
+      final String recordName = in.readString();
+      final R record = newRecord();
+      serializer.readRecord(record, in);
+      if (lookup != null) index(recordName, i);
+      put(i, inject(record));
+    }
+  }
+
+  /**
+   * Adds a record id to the primary key index. The last record with a given
+   * key takes precedence, like {@link ParserInput#recordId(String)}.
+   * <p/>
+   * assertion: table id must match record id for this to work properly, i.e.,
+   *            remapping id will break this invariant
+   */
+  private void index(String recordName, int id) {
+    if (recordName == null || recordName.isEmpty()) return;
+    lookup.put(recordName, id);
+  }
+
+  /**
+   * Writes all records of this table as parsed by its {@link #parser()} to
+   * a binary snapshot which can be read by {@link #initialize(DataInput)}.
+   */
+  protected final void write(DataOutput out) {
+    if (parser == null) throw new IllegalStateException("parser not set");
+    final Serializer<R> serializer = newSerializer();
+    final ParserInput in = parser.parser();
+    final int numRecords = in.numRecords();
+    out.write32(numRecords);
+    for (int i = 0; i < numRecords; i++) {
+      final String recordName = in.recordName(i);
+      out.writeString(recordName != null ? recordName : "");
+      final R record = newRecord();
+      parser.parseRecord(i, record);
+      serializer.writeRecord(record, out);
+    }
+  }
+
+  /**
+   * Discards all records and the parser of this table, s.t., it can be
+   * initialized again.
+   */
+  protected final synchronized void reset() {
+    parser = null;
+    cache = null;
+    records.clear();
+    ordered.clear();
+    if (lookup != null) lookup.clear();
+  }
+
   private R parseRecord(int recordId) {
     final R record = newRecord();
     parser.parseRecord(recordId, record);
@@ -128,6 +213,21 @@ public abstract class Table<R> implements Iterable<R> {
   }
 
   public R get(int id) {
+    if (!concurrent) return materialize(id);
+    final AtomicReferenceArray<R> cache = this.cache;
+    if (cache != null && id >= 0 && id < cache.length()) {
+      final R record = cache.get(id);
+      if (record != null) return record;
+    }
+
+    synchronized (this) {
+      final R record = materialize(id);
+      if (record != null && id >= 0) cache(id, record);
+      return record;
+    }
+  }
+
+  private R materialize(int id) {
     R record = records.get(id);
     if (record == null && !preload() && parser != null) {
       if (id < 0 || id >= parser.parser().numRecords()) return null;
@@ -137,16 +237,32 @@ public abstract class Table<R> implements Iterable<R> {
     return record;
   }
 
-  public int index(String id) {
-    return lookup.get(toUpper(id), -1);
+  /** Caches a record for lock-free lookups, must hold the lock of this table */
+  private void cache(int id, R record) {
+    AtomicReferenceArray<R> cache = this.cache;
+    if (cache == null || id >= cache.length()) {
+      int capacity = cache == null ? Math.max(records.size, DEFAULT_INITIAL_CAPACITY) : cache.length();
+      if (parser != null) capacity = Math.max(capacity, parser.parser().numRecords());
+      while (capacity <= id) capacity <<= 1;
+      final AtomicReferenceArray<R> grown = new AtomicReferenceArray<>(capacity);
+      if (cache != null) {
+        for (int i = 0, s = cache.length(); i < s; i++) grown.lazySet(i, cache.get(i));
+      }
+
+      this.cache = cache = grown;
+    }
+
+    cache.set(id, record);
   }
 
-  public R get(String id) {
-    return get(lookup.get(toUpper(id), -1));
+  /** @return id of the record with the specified primary key, ignoring case */
+  public int index(CharSequence id) {
+    return lookup.get(id, -1);
   }
 
-  private String toUpper(String id) {
-    return id == null ? null : id.toUpperCase();
+  public R get(CharSequence id) {
+    final int index = lookup.get(id, -1);
+    return index == -1 ? null : get(index);
   }
 
   public int size() {
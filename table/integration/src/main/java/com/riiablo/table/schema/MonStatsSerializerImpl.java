@@ -25,4 +25,9 @@ public class MonStatsSerializerImpl implements Serializer<MonStats> {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public long schemaHash() {
+    throw new UnsupportedOperationException();
+  }
+
 }
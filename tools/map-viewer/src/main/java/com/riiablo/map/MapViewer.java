@@ -361,7 +361,6 @@ public class MapViewer extends Tool {
     mPosition = engine.getMapper(Position.class);
 
     engine.inject(map);
-    engine.inject(Act1MapBuilder.INSTANCE);
 
     map.setAct(act);
     map.load();
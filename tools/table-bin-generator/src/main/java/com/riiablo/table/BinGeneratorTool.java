@@ -0,0 +1,77 @@
+package com.riiablo.table;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+
+import com.riiablo.logger.Level;
+import com.riiablo.logger.LogManager;
+import com.riiablo.logger.Logger;
+import com.riiablo.tool.HeadlessTool;
+import com.riiablo.tool.Tool;
+
+public class BinGeneratorTool extends Tool {
+  private static final Logger log = LogManager.getLogger(BinGeneratorTool.class);
+
+  public static void main(String[] args) {
+    LogManager.setLevel(BinGeneratorTool.class.getCanonicalName(), Level.TRACE);
+    LogManager.setLevel(BinGenerator.class.getCanonicalName(), Level.INFO);
+    HeadlessTool.create(BinGeneratorTool.class, "table-bin-generator", args)
+        .start();
+  }
+
+  String tsv;
+  String bin;
+
+  @Override
+  protected void createCliOptions(Options options) {
+    super.createCliOptions(options);
+
+    options.addOption(Option
+        .builder()
+        .longOpt("tsv")
+        .desc("directory containing the table tsvs")
+        .required()
+        .hasArg()
+        .argName("path")
+        .build());
+
+    options.addOption(Option
+        .builder()
+        .longOpt("bin")
+        .desc("root directory to write the binary snapshots")
+        .required()
+        .hasArg()
+        .argName("path")
+        .build());
+  }
+
+  @Override
+  protected void handleCliOptions(String cmd, Options options, CommandLine cli) throws Exception {
+    super.handleCliOptions(cmd, options, cli);
+
+    String tsvOptionValue = cli.getOptionValue("tsv");
+    log.debug("tsv: {}", tsvOptionValue);
+    tsv = tsvOptionValue;
+
+    String binOptionValue = cli.getOptionValue("bin");
+    log.debug("bin: {}", binOptionValue);
+    bin = binOptionValue;
+  }
+
+  @Override
+  public void create() {
+    FileHandle tsvDir = Gdx.files.absolute(tsv);
+    log.debug("tsvDir: {}", tsvDir);
+
+    FileHandle binDir = Gdx.files.absolute(bin);
+    log.debug("binDir: {}", binDir);
+
+    new BinGenerator().generate(tsvDir, binDir);
+
+    Gdx.app.exit();
+  }
+}